@@ -0,0 +1,389 @@
+package bomber.AI;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executor making the plans of the AIs (the decisions of AITemplate.move, with their route finding).
+ *
+ * A planner shared by a server runs the plans of all its AIs on a fixed number of threads, so the AIs
+ * never take more than these threads from the game ticks. An AI asks for at most one plan at a time
+ * and keeps playing while the plan is made. Each AI has a planning time budget per tick: the time its
+ * plans take is charged to it, and it asks for no more plans until the budget has paid for them. AIs
+ * in danger are planned first and regardless of their budget. A plan has a deadline, the credit of the
+ * AI or at least the budget of a tick (many ticks for AIs in danger): the route finder abandons a plan
+ * running past it, nothing replaces what the AI is doing, and the AI asks again once its budget allows.
+ * The DIRECT planner makes every plan at once on the thread asking for it, which keeps local games and
+ * simulations reproducible.
+ */
+public class AIPlanner {
+
+  /** The planner making every plan at once on the thread of the AI. */
+  public static final AIPlanner DIRECT = new AIPlanner();
+
+  /** The number of ticks of budget an AI can save up. */
+  private static final int MAX_SAVED_TICKS = 50;
+
+  /** The time after which a plan that is not urgent is no longer worth making. */
+  private static final long MAX_QUEUE_DELAY = TimeUnit.MILLISECONDS.toNanos(250);
+
+  /** The plans waiting for a thread, the urgent ones first. */
+  private final PriorityBlockingQueue<Request> queue;
+
+  /** The planning threads, none for the direct planner. */
+  private final Thread[] threads;
+
+  /** The planning time budget of an AI per tick, in nanoseconds. */
+  private final long budget;
+
+  /** The order in which the plans were asked for. */
+  private final AtomicLong requestCounter = new AtomicLong();
+
+  private final AtomicInteger maxQueueLength = new AtomicInteger();
+  private final AtomicLong planCount = new AtomicLong();
+  private final AtomicLong urgentPlanCount = new AtomicLong();
+  private final AtomicLong expiredCount = new AtomicLong();
+  private final AtomicLong abandonedCount = new AtomicLong();
+  private final AtomicLong throttledCount = new AtomicLong();
+  private final AtomicLong totalPlanningTime = new AtomicLong();
+  private final AtomicLong totalLatency = new AtomicLong();
+  private final AtomicLong maxLatency = new AtomicLong();
+
+  /**
+   * Instantiates the direct planner.
+   */
+  private AIPlanner() {
+    this.queue = null;
+    this.threads = new Thread[0];
+    this.budget = 0;
+  }
+
+  /**
+   * Instantiates a planner running the plans on its own threads.
+   *
+   * @param threadCount
+   *          the number of planning threads, at least 1
+   * @param budget
+   *          the planning time budget of an AI per tick
+   * @param unit
+   *          the unit of the budget
+   */
+  public AIPlanner(int threadCount, long budget, TimeUnit unit) {
+    this.queue = new PriorityBlockingQueue<>();
+    this.threads = new Thread[Math.max(1, threadCount)];
+    this.budget = Math.max(1, unit.toNanos(budget));
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread(this::runPlans, "AIPlanner-" + i);
+      threads[i].setDaemon(true);
+    }
+  }
+
+  /**
+   * Starts the planning threads.
+   */
+  public void start() {
+    for (Thread t : threads) {
+      t.start();
+    }
+  }
+
+  /**
+   * Stops the planning threads. The plans still waiting are not made.
+   */
+  public void shutdown() {
+    for (Thread t : threads) {
+      t.interrupt();
+    }
+  }
+
+  /**
+   * Waits for the planning threads to stop after shutdown(), so that the plans being made are over.
+   *
+   * @param timeout
+   *          the longest time to wait
+   * @param unit
+   *          the unit of the timeout
+   * @return true, if every thread has stopped
+   * @throws InterruptedException
+   *           if interrupted while waiting
+   */
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    long end = System.nanoTime() + unit.toNanos(timeout);
+    for (Thread t : threads) {
+      long left = end - System.nanoTime();
+      if (left > 0) {
+        TimeUnit.NANOSECONDS.timedJoin(t, left);
+      }
+      if (t.isAlive()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Checks if the plans are made at once on the thread of the AI.
+   *
+   * @return true, for the direct planner
+   */
+  public boolean isDirect() {
+    return queue == null;
+  }
+
+  /**
+   * Gives an AI the planning budget of a tick.
+   *
+   * @param ai
+   *          the AI
+   */
+  void tick(AITemplate ai) {
+    if (isDirect()) {
+      return;
+    }
+    long max = budget * MAX_SAVED_TICKS;
+    ai.planningCredit.accumulateAndGet(budget, (credit, add) -> Math.min(max, credit + add));
+  }
+
+  /**
+   * Asks for the next plan of an AI, which is published by AITemplate.plan.
+   *
+   * @param ai
+   *          the AI, which has no plan being made
+   * @param version
+   *          the version of the world the plan is asked for
+   * @param urgent
+   *          whether the AI is in danger
+   * @return false, if the AI has used up its budget and has to ask again later
+   */
+  boolean submit(AITemplate ai, long version, boolean urgent) {
+    if (isDirect()) {
+      ai.plan(version, 0, false);
+      return true;
+    }
+    if (!urgent && ai.planningCredit.get() <= 0) {
+      throttledCount.incrementAndGet();
+      return false;
+    }
+
+    ai.planning = true;
+    queue.put(new Request(ai, version, urgent, requestCounter.getAndIncrement(), System.nanoTime()));
+    maxQueueLength.accumulateAndGet(queue.size(), Math::max);
+    return true;
+  }
+
+  private void runPlans() {
+    while (true) {
+      Request request;
+      try {
+        request = queue.take();
+      } catch (InterruptedException e) {
+        return;
+      }
+
+      AITemplate ai = request.ai;
+      long start = System.nanoTime();
+      if (!request.urgent && start - request.submitTime > MAX_QUEUE_DELAY) {
+        // the world has changed too much since, the AI asks again
+        expiredCount.incrementAndGet();
+        ai.planning = false;
+        continue;
+      }
+
+      // the plan may use the credit saved up, urgent plans several ticks of budget
+      long time = request.urgent ? budget * MAX_SAVED_TICKS
+          : Math.max(budget, ai.planningCredit.get());
+      try {
+        if (!ai.plan(request.version, start + time, true)) {
+          abandonedCount.incrementAndGet();
+        }
+      } catch (RuntimeException e) {
+        System.out.println("AIPlanner: Plan failed with " + e);
+      } finally {
+        long end = System.nanoTime();
+        ai.planningCredit.addAndGet(-(end - start));
+        ai.planning = false;
+        record(request, end - start, end - request.submitTime);
+      }
+    }
+  }
+
+  private void record(Request request, long planningTime, long latency) {
+    planCount.incrementAndGet();
+    if (request.urgent) {
+      urgentPlanCount.incrementAndGet();
+    }
+    totalPlanningTime.addAndGet(planningTime);
+    totalLatency.addAndGet(latency);
+    maxLatency.accumulateAndGet(latency, Math::max);
+  }
+
+  /**
+   * Gets the number of planning threads.
+   *
+   * @return the number of threads, 0 for the direct planner
+   */
+  public int getThreadCount() {
+    return threads.length;
+  }
+
+  /**
+   * Gets the planning time budget of an AI per tick.
+   *
+   * @return the budget in nanoseconds, 0 for the direct planner
+   */
+  public long getBudget() {
+    return budget;
+  }
+
+  /**
+   * Gets the number of plans waiting for a thread.
+   *
+   * @return the queue length
+   */
+  public int getQueueLength() {
+    return isDirect() ? 0 : queue.size();
+  }
+
+  /**
+   * Gets the largest number of plans that have waited for a thread at once.
+   *
+   * @return the max queue length
+   */
+  public int getMaxQueueLength() {
+    return maxQueueLength.get();
+  }
+
+  /**
+   * Gets the number of plans made by the planning threads.
+   *
+   * @return the number of plans
+   */
+  public long getPlanCount() {
+    return planCount.get();
+  }
+
+  /**
+   * Gets the number of plans made for AIs in danger.
+   *
+   * @return the number of urgent plans
+   */
+  public long getUrgentPlanCount() {
+    return urgentPlanCount.get();
+  }
+
+  /**
+   * Gets the number of plans not made because they waited too long for a thread.
+   *
+   * @return the number of expired plans
+   */
+  public long getExpiredCount() {
+    return expiredCount.get();
+  }
+
+  /**
+   * Gets the number of plans abandoned because they ran past their deadline.
+   *
+   * @return the number of abandoned plans
+   */
+  public long getAbandonedCount() {
+    return abandonedCount.get();
+  }
+
+  /**
+   * Gets the number of times an AI could not ask for a plan because its budget was used up.
+   *
+   * @return the number of throttled plans
+   */
+  public long getThrottledCount() {
+    return throttledCount.get();
+  }
+
+  /**
+   * Gets the average time spent making a plan.
+   *
+   * @return the time in nanoseconds
+   */
+  public long getAveragePlanningTime() {
+    long plans = planCount.get();
+    return plans == 0 ? 0 : totalPlanningTime.get() / plans;
+  }
+
+  /**
+   * Gets the average time from asking for a plan to the plan being made.
+   *
+   * @return the time in nanoseconds
+   */
+  public long getAverageLatency() {
+    long plans = planCount.get();
+    return plans == 0 ? 0 : totalLatency.get() / plans;
+  }
+
+  /**
+   * Gets the longest time from asking for a plan to the plan being made.
+   *
+   * @return the time in nanoseconds
+   */
+  public long getMaxLatency() {
+    return maxLatency.get();
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see java.lang.Object#toString()
+   */
+  public String toString() {
+    if (isDirect()) {
+      return "direct planner";
+    }
+    return String.format(
+        "%d plans (%d urgent) on %d threads, %d expired, %d abandoned, %d throttled, "
+            + "queue: %d now, %d max, "
+            + "planning time: %.3f ms average, latency: %.3f ms average, %.3f ms max",
+        getPlanCount(), getUrgentPlanCount(), getThreadCount(), getExpiredCount(),
+        getAbandonedCount(), getThrottledCount(),
+        getQueueLength(), getMaxQueueLength(), getAveragePlanningTime() / 1e6, getAverageLatency() / 1e6,
+        getMaxLatency() / 1e6);
+  }
+
+  /**
+   * Thrown by the route finder when the deadline of the plan has passed.
+   */
+  static class PlanAbandonedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    PlanAbandonedException() {
+      // thrown for every late plan, so without the cost of a stack trace
+      super(null, null, false, false);
+    }
+  }
+
+  /**
+   * A plan asked for by an AI.
+   */
+  private static class Request implements Comparable<Request> {
+    private final AITemplate ai;
+    private final long version;
+    private final boolean urgent;
+    private final long order;
+    private final long submitTime;
+
+    Request(AITemplate ai, long version, boolean urgent, long order, long submitTime) {
+      this.ai = ai;
+      this.version = version;
+      this.urgent = urgent;
+      this.order = order;
+      this.submitTime = submitTime;
+    }
+
+    @Override
+    public int compareTo(Request o) {
+      if (urgent != o.urgent) {
+        return urgent ? -1 : 1;
+      }
+      return Long.compare(order, o.order);
+    }
+  }
+}
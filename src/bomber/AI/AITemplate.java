@@ -2,20 +2,35 @@ package bomber.AI;
 
 import java.awt.Point;
 import java.util.LinkedList;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
 import bomber.game.Constants;
+import bomber.game.GameSnapshot;
 import bomber.game.GameState;
 import bomber.game.Movement;
-import bomber.game.Player;
 
 /**
  * Framework for the AI to run.
- * 
+ *
+ * The AI is a state machine driven by the game tick: every tick either continues the action in
+ * progress (a move, a bomb or a wait), starts the next action of the current plan, or asks its
+ * planner for a new plan. The AI never blocks, so it runs on the thread updating the game, and a
+ * shared planner makes the plans on its own threads. A plan reads a snapshot of the world, never the
+ * game state, and the tick does not check the world while a plan is being made.
+ *
  * @author Jokubas Liutkus
- * 
+ *
  */
-public abstract class AITemplate extends Thread {
+public abstract class AITemplate {
+
+  /** The game time before the AI starts playing. */
+  private static final int START_DELAY = 500;
+
+  /** The game time the bomb key is held for a BOMB action. */
+  private static final int BOMB_HOLD_TIME = 100;
+
+  /** The game time after which a move that has not reached its tile is given up (the AI is stuck). */
+  private static final int MOVE_TIME_LIMIT = 750;
+
   /** The game AI. */
   protected GameAI gameAI;
 
@@ -31,6 +46,46 @@ public abstract class AITemplate extends Thread {
   /** The pause pressed checked. */
   protected boolean pause = false;
 
+  /** Whether the AI has begun playing. */
+  private boolean started = false;
+
+  /** The game time left before the AI starts playing. */
+  private int startDelay = START_DELAY;
+
+  /** The planner making the plans of the AI. */
+  private AIPlanner planner = AIPlanner.DIRECT;
+
+  /** The plan being followed, null when a new one has to be decided. */
+  private Plan plan;
+
+  /** The plan being made by move(), only used by the thread making it. */
+  private Plan decided;
+
+  /** The player ID of the AI when the plan was asked for. */
+  private int planID;
+
+  /** The last plan made by the planner, not followed yet. */
+  private volatile Plan decision;
+
+  /** Whether the planner is making a plan for the AI. */
+  volatile boolean planning;
+
+  /** The planning time the AI can still use, in nanoseconds. */
+  final AtomicLong planningCredit = new AtomicLong();
+
+  /** The action in progress, null if none. */
+  private AIActions action;
+
+  /** The game time since the action in progress started. */
+  private int actionTime;
+
+  /** The grid position and the pixel position the move in progress goes to. */
+  private Point moveTarget;
+  private Point moveTargetPixel;
+
+  /** The world version at which no plan was found, -1 if a plan was found. */
+  private long idleVersion = -1;
+
   /**
    * Instantiates a new template.
    *
@@ -46,6 +101,23 @@ public abstract class AITemplate extends Thread {
     this.finder = new RouteFinder(gameState, ai, safetyCh);
   }
 
+  /**
+   * Begin playing from the next tick.
+   */
+  public void begin() {
+    started = true;
+  }
+
+  /**
+   * Sets the planner making the plans of the AI.
+   *
+   * @param planner
+   *          the planner
+   */
+  public void setPlanner(AIPlanner planner) {
+    this.planner = planner;
+  }
+
   /**
    * Pause.
    */
@@ -60,18 +132,218 @@ public abstract class AITemplate extends Thread {
     pause = false;
   }
 
-  /*
-   * (non-Javadoc)
-   * 
-   * @see java.lang.Thread#run()
+  /**
+   * Runs the AI for one tick of the game. Called by the thread updating the game, before the
+   * physics update of the tick.
+   *
+   * @param milliseconds
+   *          the game time since the last tick
    */
-  public void run() {
+  public void tick(int milliseconds) {
+    if (!started || pause) {
+      return;
+    }
+    if (!gameAI.isAlive()) {
+      gameAI.getKeyState().setMovement(Movement.NONE);
+      gameAI.getKeyState().setBomb(false);
+      return;
+    }
+    if (startDelay > 0) {
+      startDelay -= milliseconds;
+      return;
+    }
+
+    planner.tick(this);
+
+    // the action in progress
+    actionTime += milliseconds;
+    if (action != null && continueAction()) {
+      return;
+    }
+
+    while (true) {
+      // the next action of the plan, actions finishing at once are followed by the next one
+      if (plan != null) {
+        if (!plan.moves.isEmpty() && canContinuePlan()) {
+          startAction(plan.moves.removeFirst());
+          if (continueAction()) {
+            return;
+          }
+          continue;
+        }
+
+        boolean bombAfter = plan.bombAfter;
+        plan = null;
+        if (bombAfter) {
+          startAction(AIActions.BOMB);
+        }
+        // the next plan is decided at the next tick, after the physics have seen the keys
+        return;
+      }
+
+      // the plan made by the planner
+      boolean busy = planning;
+      Plan next = decision;
+      if (next != null) {
+        decision = null;
+        if (next.moves == null) {
+          idleVersion = next.version;
+          return;
+        }
+        idleVersion = -1;
+        plan = next;
+        if (plan.bombFirst) {
+          gameAI.getKeyState().setBomb(true);
+        }
+        continue;
+      }
+      if (busy) {
+        return;
+      }
+
+      // a new plan, only when the world has changed since no plan was found
+      long version = getWorldVersion();
+      if (version == idleVersion) {
+        return;
+      }
+      gameAI.getKeyState().setBomb(false);
+      planID = gameAI.getPlayerID();
+      if (!planner.submit(this, version, safetyCh.inDanger())) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Makes the next plan of the AI from the last snapshot of the world and publishes it for the
+   * tick. Called by the planner, on the thread of the AI or on a planning thread. A plan running
+   * past its deadline is abandoned: nothing is published, so the AI keeps still and asks again.
+   *
+   * @param version
+   *          the version of the world the plan is made for
+   * @param deadline
+   *          the System.nanoTime() after which the plan is abandoned
+   * @param timed
+   *          whether the plan has a deadline
+   * @return false, if the plan was abandoned
+   */
+  boolean plan(long version, long deadline, boolean timed) {
+    decided = new Plan(version);
+    if (timed) {
+      finder.setDeadline(deadline);
+    }
     try {
-      sleep(500);
-    } catch (InterruptedException e) {
-      e.printStackTrace();
+      decision = safetyCh.read(planID, () -> {
+        move();
+        return decided;
+      });
+      return true;
+    } catch (AIPlanner.PlanAbandonedException e) {
+      return false;
+    } finally {
+      finder.clearDeadline();
+      decided = null;
+    }
+  }
+
+  /**
+   * Gets the version of the last snapshot of the world, which changes with every game update.
+   *
+   * @return the version
+   */
+  private long getWorldVersion() {
+    try (GameSnapshot snapshot = gameState.acquireSnapshot()) {
+      return snapshot.getVersion();
+    }
+  }
+
+  /**
+   * Gets the grid position of the AI, from the snapshot of the world while a plan is made.
+   *
+   * @return the grid position, null if the AI is not in the world
+   */
+  protected Point getGridPos() {
+    return safetyCh.read(safetyCh::getAIGridPos);
+  }
+
+  /**
+   * Gets the snapshot of the world the plan is made from. Only valid within move().
+   *
+   * @return the snapshot
+   */
+  protected GameSnapshot getWorld() {
+    return safetyCh.getWorld();
+  }
+
+  /**
+   * Checks whether the next action of the plan should be made.
+   *
+   * @return true, if the plan is still worth following
+   */
+  private boolean canContinuePlan() {
+    if (plan.escaping) {
+      return true;
     }
-    move();
+    return plan.planned ? canContinuePlannedMoves() : canContinueMoves(plan.moves.peek());
+  }
+
+  /**
+   * Starts an action.
+   *
+   * @param next
+   *          the action
+   */
+  private void startAction(AIActions next) {
+    action = next;
+    actionTime = 0;
+    switch (next) {
+    // if actions is bomb place it
+    case BOMB:
+      gameAI.getKeyState().setBomb(true);
+      break;
+    // if action is none wait until the next move is safe
+    case NONE:
+      break;
+    // otherwise make a standard move
+    default:
+      moveTarget = updatedPos(next);
+      moveTargetPixel = new Point(moveTarget.x * Constants.MAP_BLOCK_TO_GRID_MULTIPLIER,
+          moveTarget.y * Constants.MAP_BLOCK_TO_GRID_MULTIPLIER);
+      gameAI.getKeyState().setMovement(FromAIMovesToGameMoves(next));
+      break;
+    }
+  }
+
+  /**
+   * Continues the action in progress.
+   *
+   * @return true, if the action needs more ticks
+   */
+  private boolean continueAction() {
+    switch (action) {
+    case BOMB:
+      if (actionTime < BOMB_HOLD_TIME) {
+        return true;
+      }
+      gameAI.getKeyState().setBomb(false);
+      break;
+    case NONE:
+      if (!plan.moves.isEmpty() && !safetyCh.checkMoveSafety(plan.moves.peek()) && !stopWaiting()) {
+        return true;
+      }
+      break;
+    default:
+      // waiting for the move to be made, unless the AI got stuck
+      if (checkIfReachedDestination(gameAI.getPos(), moveTargetPixel)
+          && !safetyCh.isNextMoveBomb(moveTarget) && actionTime < MOVE_TIME_LIMIT) {
+        return true;
+      }
+      // setting keyboard back to normal
+      gameAI.getKeyState().setMovement(Movement.NONE);
+      break;
+    }
+    action = null;
+    return false;
   }
 
   /**
@@ -151,75 +423,36 @@ public abstract class AITemplate extends Thread {
   }
 
   /**
-   * Make single move.
-   * 
-   * Method to make a single move in the real game.
+   * Gets the moves to enemy.
    *
-   * @param move
-   *          the move to be made
-   */
-  protected void makeSingleMove(AIActions move) {
-    // updated positions
-    Point updatedPosPixel = updatedPos(move);
-    Point updatedPos = new Point(updatedPosPixel);
-
-    // sets the position to the pixel representation
-    updatedPosPixel.setLocation(updatedPosPixel.x * Constants.MAP_BLOCK_TO_GRID_MULTIPLIER,
-        updatedPosPixel.y * Constants.MAP_BLOCK_TO_GRID_MULTIPLIER);
-
-    // sets the keyboard state for the move to be made
-    gameAI.getKeyState().setMovement(FromAIMovesToGameMoves(move));
-
-    // checking if the AI got stuck
-    int stuckChecker = 0;
-
-    // waiting for the move to be made
-    while (checkIfReachedDestination(gameAI.getPos(), updatedPosPixel) && gameAI.isAlive()
-        && (!safetyCh.isNextMoveBomb(updatedPos)) && (stuckChecker < 75)) {
-
-      // checking if the game is paused
-      pausedGame();
-      stuckChecker++;
-      try {
-        sleep(10);
-      } catch (InterruptedException e) {
-      }
-    }
-
-    // setting keyboard back to normal
-    gameAI.getKeyState().setMovement(Movement.NONE);
-  }
-
-  /**
-   * Paused game.
+   * @return the moves to enemy, null if the route is blocked by bombs
    */
-  protected void pausedGame() {
-    while (pause) {
-      try {
-        sleep(50);
-      } catch (InterruptedException e) {
-        e.printStackTrace();
-      }
-    }
+  protected LinkedList<AIActions> getMovesToEnemy() {
+    return safetyCh.read(() -> getMovesToEnemy(false));
   }
 
   /**
-   * Gets the moves to enemy.
+   * Gets the moves to enemy in the snapshot being read.
    *
-   * @return the moves to enemy, null if the route is blocked by bombs
+   * @param excludeAIs
+   *          whether the other AIs are ignored
+   * @return the moves to enemy, null if the route is blocked
    */
-  protected LinkedList<AIActions> getMovesToEnemy() {
+  private LinkedList<AIActions> getMovesToEnemy(boolean excludeAIs) {
+    Point aiPos = safetyCh.getAIGridPos();
 
     // find the route to the nearest enemy
-    LinkedList<AIActions> moves = finder.findRoute(gameAI.getGridPos(), finder.getNearestEnemy());
+    LinkedList<AIActions> moves = finder.findRoute(aiPos,
+        excludeAIs ? finder.getNearestEnemyExcludeAIs() : finder.getNearestEnemy());
     if (moves != null) {
       return moves;
     }
 
     // else we loop through each enemy looking for the possible access
-    for (Player p : gameState.getPlayers()) {
-      if (!p.equals(gameAI) && (p.isAlive())) {
-        moves = finder.findRoute(gameAI.getGridPos(), p.getGridPos());
+    GameSnapshot world = safetyCh.getWorld();
+    for (int i = 0; i < world.getPlayerCount(); i++) {
+      if (!safetyCh.isSelf(i) && world.isAlive(i) && !(excludeAIs && world.isAI(i))) {
+        moves = finder.findRoute(aiPos, safetyCh.getGridPos(i));
 
         // when the path is find we return the path
         if (moves != null)
@@ -237,28 +470,11 @@ public abstract class AITemplate extends Thread {
    * @return the moves to enemy ignoring other AIs, null is returned if route is blocked
    */
   protected LinkedList<AIActions> getMovesToEnemyExcludeAIs() {
-
-    // find the route to the nearest enemy
-    LinkedList<AIActions> moves = finder.findRoute(gameAI.getGridPos(),
-        finder.getNearestEnemyExcludeAIs());
-
-    // if the route is found to the nearest enemy, we return the route
-    if (moves != null)
-      return moves;
-
-    // otherwise we loop until we find one or return null if none of them are possible
-    List<Player> players = gameState.getPlayers().stream()
-        .filter(p -> !(p instanceof GameAI) && p.isAlive()).collect(Collectors.toList());
-    for (Player p : players) {
-      moves = finder.findRoute(gameAI.getGridPos(), p.getGridPos());
-      if (moves != null)
-        return moves;
-    }
-    return null;
+    return safetyCh.read(() -> getMovesToEnemy(true));
   }
 
   /**
-   * Perform sequence of moves.
+   * Perform sequence of moves, from the next tick on.
    *
    * @param moves
    *          the list of moves to be performed
@@ -266,19 +482,95 @@ public abstract class AITemplate extends Thread {
    *          the variable determining if the escape moves are passed in that case make moves
    *          without considering anything else
    */
-  protected abstract void performMoves(LinkedList<AIActions> moves, boolean inDanger);
+  protected void performMoves(LinkedList<AIActions> moves, boolean inDanger) {
+    decided.moves = moves == null ? new LinkedList<>() : moves;
+    decided.planned = false;
+    decided.escaping = inDanger;
+  }
 
   /**
-   * Perform planned moves. When none of the players are reachable
+   * Perform planned moves, from the next tick on. When none of the players are reachable
    *
    * @param moves
    *          the moves to be performed
    */
-  protected abstract void performPlannedMoves(LinkedList<AIActions> moves);
+  protected void performPlannedMoves(LinkedList<AIActions> moves) {
+    decided.moves = moves == null ? new LinkedList<>() : moves;
+    decided.planned = true;
+    decided.escaping = false;
+  }
+
+  /**
+   * Place a bomb before performing the moves.
+   */
+  protected void placeBomb() {
+    decided.bombFirst = true;
+  }
+
+  /**
+   * Place a bomb when the moves being performed are over.
+   */
+  protected void placeBombAfterMoves() {
+    decided.bombAfter = true;
+  }
+
+  /**
+   * Checks whether to keep making moves that are not an escape. Called before each move.
+   *
+   * @param next
+   *          the next move
+   * @return true, if the next move should be made
+   */
+  protected abstract boolean canContinueMoves(AIActions next);
+
+  /**
+   * Checks whether to keep following the planned moves. Called before each action.
+   *
+   * @return true, if the next action should be made
+   */
+  protected abstract boolean canContinuePlannedMoves();
+
+  /**
+   * Checks whether to stop waiting for the next planned move to be safe.
+   *
+   * @return true, if the AI should stop waiting
+   */
+  protected boolean stopWaiting() {
+    return false;
+  }
 
   /**
-   * 
-   * Main method for controlling what moves to make.
+   *
+   * Main method for controlling what moves to make. Decides what to do next, by calling
+   * performMoves or performPlannedMoves; nothing is done until the world changes otherwise. May be
+   * called on a planning thread while the game is updated, so the keys are not pressed here.
    */
   protected abstract void move();
+
+  /**
+   * A plan made by move().
+   */
+  private static class Plan {
+    /** The version of the world the plan was made for. */
+    private final long version;
+
+    /** The moves, null if no plan was found. */
+    private LinkedList<AIActions> moves;
+
+    /** Whether the plan comes from performPlannedMoves. */
+    private boolean planned;
+
+    /** Whether the plan is an escape, made without considering anything else. */
+    private boolean escaping;
+
+    /** Whether to place a bomb before the moves. */
+    private boolean bombFirst;
+
+    /** Whether to place a bomb when the moves are over. */
+    private boolean bombAfter;
+
+    Plan(long version) {
+      this.version = version;
+    }
+  }
 }
@@ -2,11 +2,9 @@
 package bomber.AI;
 
 import java.util.LinkedList;
-import java.util.List;
-import java.util.stream.Collectors;
 
+import bomber.game.GameSnapshot;
 import bomber.game.GameState;
-import bomber.game.Player;
 
 /**
  * AI of extreme difficulty.
@@ -28,71 +26,24 @@ public class ExtremeAI extends AITemplate {
   }
 
   /**
-   * Perform sequence of moves.
+   * Checks whether to keep making moves that are not an escape.
    *
-   * @param moves
-   *          the list of moves
-   * @param inDanger
-   *          the variable determining if the escape moves are passed in that case make moves
-   *          without considering anything else
+   * @param next
+   *          the next move
+   * @return true, until the enemy is reachable, or the AI is in danger
    */
-  protected void performMoves(LinkedList<AIActions> moves, boolean inDanger) {
-    // if in player is in danger then perform moves without any checks to
-    // get into safe location
-    if (inDanger) {
-      while (moves != null && !moves.isEmpty() && gameAI.isAlive()) {
-        pausedGame();
-        makeSingleMove(moves.removeFirst());
-      }  
-    }
-
-    // else move until the enemy is reachable, or the AI is in danger
-    else {
-      while (moves != null && !moves.isEmpty() && !safetyCh.inDanger()
-          && safetyCh.checkMoveSafety(moves.peek()) && !safetyCh.isEnemyInBombRangeExludeAIs()
-          && gameAI.isAlive()) {
-        pausedGame();
-        makeSingleMove(moves.removeFirst());
-      }
-    }
+  protected boolean canContinueMoves(AIActions next) {
+    return !safetyCh.inDanger() && safetyCh.checkMoveSafety(next)
+        && !safetyCh.isEnemyInBombRangeExludeAIs();
   }
 
   /**
-   * Perform planned moves. When none of the players are reachable
+   * Checks whether to keep following the planned moves. When none of the players are reachable
    *
-   * @param moves
-   *          the moves
+   * @return true, if the next action should be made
    */
-  protected void performPlannedMoves(LinkedList<AIActions> moves) {
-    AIActions action;
-    while (moves != null && !moves.isEmpty() && getMovesToEnemyExcludeAIs() == null
-        && gameAI.isAlive() && (!checkIfAIsReachable() || isPerformer())) {
-      pausedGame();
-      action = moves.removeFirst();
-      // if actions is bomb place it
-      if (action == AIActions.BOMB) {
-        gameAI.getKeyState().setBomb(true);
-        try {
-          sleep(100);
-        } catch (InterruptedException e) {
-        }
-        gameAI.getKeyState().setBomb(false);
-      }
-      // if action is none wait until the next move is safe
-      else if (action == AIActions.NONE) {
-        if (moves != null) {
-          while (!safetyCh.checkMoveSafety(moves.peek()) && gameAI.isAlive()) {
-            pausedGame();
-
-          }
-        }
-      }
-      // otherwise make a standard move
-      else {
-        makeSingleMove(action);
-      }
-    }
-
+  protected boolean canContinuePlannedMoves() {
+    return getMovesToEnemyExcludeAIs() == null && (!checkIfAIsReachable() || isPerformer());
   }
 
   /**
@@ -101,12 +52,15 @@ public class ExtremeAI extends AITemplate {
    * @return true, if is performer
    */
   private boolean isPerformer() {
-    List<Player> players = gameState.getPlayers().stream()
-        .filter(p -> (p instanceof GameAI) && p.isAlive()).collect(Collectors.toList());
-    if (!players.isEmpty()) {
-      return players.get(0).equals(gameAI);
-    }
-    return false;
+    return safetyCh.read(() -> {
+      GameSnapshot world = getWorld();
+      for (int i = 0; i < world.getPlayerCount(); i++) {
+        if (world.isAI(i) && world.isAlive(i)) {
+          return safetyCh.isSelf(i);
+        }
+      }
+      return false;
+    });
   }
 
   /**
@@ -115,15 +69,17 @@ public class ExtremeAI extends AITemplate {
    * @return true, if AIs are reachable
    */
   private boolean checkIfAIsReachable() {
-    List<Player> players = gameState.getPlayers().stream()
-        .filter(p -> (p instanceof GameAI) && p.isAlive()).collect(Collectors.toList());
-    for (Player p : players) {
-      if (!p.equals(gameAI) && finder.findRoute(gameAI.getGridPos(), p.getGridPos()) != null) {
-        return true;
-      }
+    return safetyCh.read(() -> {
+      GameSnapshot world = getWorld();
+      for (int i = 0; i < world.getPlayerCount(); i++) {
+        if (world.isAI(i) && world.isAlive(i) && !safetyCh.isSelf(i)
+            && finder.findRoute(getGridPos(), safetyCh.getGridPos(i)) != null) {
+          return true;
+        }
 
-    }
-    return false;
+      }
+      return false;
+    });
   }
 
   /**
@@ -131,44 +87,38 @@ public class ExtremeAI extends AITemplate {
    */
   protected void move() {
     LinkedList<AIActions> moves;
-    while (gameAI.isAlive()) {
-      // check if the game is paused
-      pausedGame();
 
-      // if AI is in danger then find the escape route
-      if (safetyCh.inDanger()) {
-        moves = finder.escapeFromExplotion((safetyCh.getTilesAffectedByBombs()));
-        performMoves(moves, true);
+    // if AI is in danger then find the escape route
+    if (safetyCh.inDanger()) {
+      moves = finder.escapeFromExplotion((safetyCh.getTilesAffectedByBombs()));
+      performMoves(moves, true);
 
-      }
-
-      // if enemy is in range and it is possible to place bomb and escape
-      // then perform it
-      else if ((moves = finder.canPutBombAndEscapeExcludeAIs()) != null) {
-        gameAI.getKeyState().setBomb(true);
-        performMoves(moves, true);
-      }
+    }
 
-      // else if there is an upgrade find the moves to it
-      else if ((moves = finder.findRouteToUpgrade()) != null) {
+    // if enemy is in range and it is possible to place bomb and escape
+    // then perform it
+    else if ((moves = finder.canPutBombAndEscapeExcludeAIs()) != null) {
+      placeBomb();
+      performMoves(moves, true);
+    }
 
-        performMoves(moves, false);
-      }
+    // else if there is an upgrade find the moves to it
+    else if ((moves = finder.findRouteToUpgrade()) != null) {
 
-      // if enemy is accessible(no boxes are blocking the path) then
-      // find a route to it and make moves
-      else if ((moves = getMovesToEnemyExcludeAIs()) != null) {
-        performMoves(moves, false);
-      }
-      // if enemy is not in the range get the plan how to reach enemy and
-      // full-fill it
-      else if ((moves = finder.getPlanToEnemy(gameAI.getGridPos(),
-          finder.getNearestEnemyExcludeAIs())) != null) {
-        if (!checkIfAIsReachable() || isPerformer())
-          performPlannedMoves(moves);
-      }
+      performMoves(moves, false);
+    }
 
-      gameAI.getKeyState().setBomb(false);
+    // if enemy is accessible(no boxes are blocking the path) then
+    // find a route to it and make moves
+    else if ((moves = getMovesToEnemyExcludeAIs()) != null) {
+      performMoves(moves, false);
+    }
+    // if enemy is not in the range get the plan how to reach enemy and
+    // full-fill it
+    else if ((moves = finder.getPlanToEnemy(getGridPos(),
+        finder.getNearestEnemyExcludeAIs())) != null) {
+      if (!checkIfAIsReachable() || isPerformer())
+        performPlannedMoves(moves);
     }
   }
 
@@ -15,9 +15,11 @@ public class GameAI extends Player {
 	/** The game state. */
 	private GameState state;
 
-	/** The AI manager thread. */
+	/** The AI manager, run by the game tick. */
 	private AITemplate ai;
-	
+
+	/** The planner making the plans of the AI. */
+	private AIPlanner planner = AIPlanner.DIRECT;
 
 	
 	/**
@@ -38,6 +40,7 @@ public class GameAI extends Player {
 	 */
 	public GameAI(String name, Point pos, int lives, double speed, GameState gameState, AIDifficulty diff) {
 		super(name, pos, lives, speed);
+		setAI(true);
 		this.state = gameState;
 		setDifficulty(diff);
 	}
@@ -47,10 +50,22 @@ public class GameAI extends Player {
 	 * 
 	 */
 	public void begin() {
-		ai.start();
+		ai.begin();
 		
 	}
 
+	/**
+	 * Run the AI for one tick of the game, before the physics update of the
+	 * tick.
+	 *
+	 * @param milliseconds
+	 *            the game time since the last tick
+	 */
+	@Override
+	public void tick(int milliseconds) {
+		ai.tick(milliseconds);
+	}
+
 	public void stop()
 	{
 		this.setAlive(false);;
@@ -81,7 +96,19 @@ public class GameAI extends Player {
 			ai = new HardAI(this, state);
 			break;
 		}
+		ai.setPlanner(planner);
+	}
 
+	/**
+	 * Sets the planner making the plans of the AI, the direct planner by
+	 * default. Must be called before the AI begins.
+	 *
+	 * @param planner
+	 *            the planner
+	 */
+	public void setPlanner(AIPlanner planner) {
+		this.planner = planner;
+		ai.setPlanner(planner);
 	}
 	
 	/**
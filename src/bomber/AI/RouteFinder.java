@@ -9,17 +9,17 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.PriorityQueue;
-import java.util.stream.Collectors;
 
 import bomber.game.Block;
-import bomber.game.Bomb;
-import bomber.game.Constants;
+import bomber.game.GameSnapshot;
 import bomber.game.GameState;
-import bomber.game.Player;
 
 /**
  * Finding different routes and planning.
  *
+ * The searches read the snapshot of the world of the safety checker. A search made for a plan with
+ * a deadline is abandoned once the deadline has passed.
+ *
  * @author Jokubas Liutkus
  * 
  */
@@ -34,6 +34,12 @@ public class RouteFinder {
   /** The safety checker. */
   private SafetyChecker safetyCh;
 
+  /** Whether the searches have a deadline. */
+  private boolean timed = false;
+
+  /** The System.nanoTime() after which the searches are abandoned. */
+  private long deadline;
+
   /**
    * Instantiates a new route finder.
    *
@@ -60,12 +66,24 @@ public class RouteFinder {
    * @return the sequence of moves
    */
   public LinkedList<AIActions> findRoute(Point start, Point goal) {
-    PriorityQueue<Node> open = new PriorityQueue<>();
-    HashSet<Node> closed = new HashSet<>();
-
     if (start == null || goal == null) {
       return null;
     }
+    return safetyCh.read(() -> findRouteInWorld(start, goal));
+  }
+
+  /**
+   * Finds the fastest route in the snapshot being read.
+   *
+   * @param start
+   *          the start position
+   * @param goal
+   *          the goal position
+   * @return the sequence of moves
+   */
+  private LinkedList<AIActions> findRouteInWorld(Point start, Point goal) {
+    PriorityQueue<Node> open = new PriorityQueue<>();
+    HashSet<Node> closed = new HashSet<>();
 
     // heuristic value h
     int hValue = Math.abs(goal.x - start.x) + Math.abs(goal.y - start.y);
@@ -79,6 +97,7 @@ public class RouteFinder {
 
     // loop until the queue is not empty
     while (!open.isEmpty()) {
+      checkDeadline();
 
       // take the head of the queue
       Node temp = open.poll();
@@ -106,12 +125,39 @@ public class RouteFinder {
   }
 
   /**
-   * Gets the map from the game state.
+   * Sets the deadline of the searches.
+   *
+   * @param deadline
+   *          the System.nanoTime() after which the searches are abandoned
+   */
+  void setDeadline(long deadline) {
+    this.deadline = deadline;
+    this.timed = true;
+  }
+
+  /**
+   * Lets the searches run until they are over.
+   */
+  void clearDeadline() {
+    this.timed = false;
+  }
+
+  /**
+   * Abandons the search if its deadline has passed.
+   */
+  private void checkDeadline() {
+    if (timed && System.nanoTime() - deadline > 0) {
+      throw new AIPlanner.PlanAbandonedException();
+    }
+  }
+
+  /**
+   * Gets the map from the snapshot being read.
    *
    * @return the map
    */
   private Block[][] getMap() {
-    return state.getMap().getGridMap();
+    return safetyCh.getWorld().getGridMap();
   }
 
   /**
@@ -294,14 +340,10 @@ public class RouteFinder {
       return;
     }
 
-    List<Bomb> bombs = new ArrayList<Bomb>(state.getBombs());
-
-    for (Bomb b : bombs) {
-      // System.out.println(b);
-      if (b != null) {
-        if (b.getGridPos().equals(tile)) {
-          return;
-        }
+    GameSnapshot world = safetyCh.getWorld();
+    for (int i = 0; i < world.getBombCount(); i++) {
+      if (world.getBombGridX(i) == x && world.getBombGridY(i) == y) {
+        return;
       }
     }
 
@@ -331,7 +373,23 @@ public class RouteFinder {
    * @return the list of moves to be made to escape from explosion.
    */
   public LinkedList<AIActions> escapeFromExplotion(ArrayList<Point> dangerTiles) {
-    Point pos = gameAI.getGridPos();
+    return safetyCh.read(() -> {
+      Point pos = safetyCh.getAIGridPos();
+      return pos == null ? null : escapeFromExplotion(dangerTiles, pos);
+    });
+  }
+
+  /**
+   * Finds the route from the explosion in the snapshot being read, ending furthest from the
+   * enemies.
+   *
+   * @param dangerTiles
+   *          the danger tiles which might damage the AI
+   * @param pos
+   *          the position of the AI
+   * @return the list of moves to be made to escape from explosion.
+   */
+  private LinkedList<AIActions> escapeFromExplotion(ArrayList<Point> dangerTiles, Point pos) {
     LinkedList<Node> open = new LinkedList<>();
     HashSet<Node> closed = new HashSet<>();
 
@@ -342,6 +400,7 @@ public class RouteFinder {
     // loop until the queue is not empty
     Node finish = null;
     while (!open.isEmpty()) {
+      checkDeadline();
 
       // take the head of the queue
       Node temp = open.poll();
@@ -382,15 +441,33 @@ public class RouteFinder {
    * @return the nearest enemy of the AI.
    */
   public Point getNearestEnemy() {
-    Point aiPos = gameAI.getGridPos();
+    return safetyCh.read(() -> getNearestEnemy(false));
+  }
+
+  /**
+   * Gets the nearest enemy in the snapshot being read.
+   *
+   * @param excludeAIs
+   *          whether the other AIs are not enemies
+   * @return the nearest enemy of the AI.
+   */
+  private Point getNearestEnemy(boolean excludeAIs) {
+    Point aiPos = safetyCh.getAIGridPos();
+    if (aiPos == null) {
+      return null;
+    }
+    GameSnapshot world = safetyCh.getWorld();
     Point pos = null;
     int distance = Integer.MAX_VALUE;
     int temp = 0;
-    for (Player p : state.getPlayers()) {
-      if (!p.equals(gameAI) && p.isAlive()
-          && (temp = countDistance(aiPos, p.getGridPos())) < distance) {
+    for (int i = 0; i < world.getPlayerCount(); i++) {
+      if (safetyCh.isSelf(i) || !world.isAlive(i) || (excludeAIs && world.isAI(i))) {
+        continue;
+      }
+      Point p = safetyCh.getGridPos(i);
+      if ((temp = countDistance(aiPos, p)) < distance) {
         distance = temp;
-        pos = p.getGridPos();
+        pos = p;
       }
     }
 
@@ -528,11 +605,8 @@ public class RouteFinder {
         realMoves.add(AIActions.BOMB);
 
         LinkedList<AIActions> escapeMoves = (escapeFromExplotion(safetyCh.getBombCoverage(
-            new Bomb(null,
-                new Point(pos.x * Constants.MAP_BLOCK_TO_GRID_MULTIPLIER,
-                    pos.y * Constants.MAP_BLOCK_TO_GRID_MULTIPLIER),
-                0, gameAI.getBombRange()),
-            map), pos, map));
+            new Point(pos.x, pos.y), safetyCh.getAIBombRange(), map),
+            pos, map));
         if (escapeMoves == null) {
           return realMoves;
         }
@@ -559,11 +633,23 @@ public class RouteFinder {
    * @return the planned sequence of actions to enemy
    */
   public LinkedList<AIActions> getPlanToEnemy(Point start, Point goal) {
+    if (start == null || goal == null)
+      return null;
+    return safetyCh.read(() -> getPlanToEnemyInWorld(start, goal));
+  }
 
+  /**
+   * Gets the planned sequence of actions to enemy in the snapshot being read.
+   *
+   * @param start
+   *          the starting position
+   * @param goal
+   *          the goal position
+   * @return the planned sequence of actions to enemy
+   */
+  private LinkedList<AIActions> getPlanToEnemyInWorld(Point start, Point goal) {
     PriorityQueue<Node> open = new PriorityQueue<>();
     HashSet<Node> closed = new HashSet<>();
-    if (start == null || goal == null)
-      return null;
     int hValue = Math.abs(goal.x - start.x) + Math.abs(goal.y - start.y);
     Node startNode = new Node(0, hValue, null, start);
     open.add(startNode);
@@ -571,6 +657,7 @@ public class RouteFinder {
     // loop until the queue is not empty
     Node finish = null;
     while (!open.isEmpty()) {
+      checkDeadline();
 
       // take the head of the queue
       Node temp = open.poll();
@@ -604,20 +691,31 @@ public class RouteFinder {
    * @return the linked list of moves
    */
   public LinkedList<AIActions> canPutBombAndEscape() {
-    LinkedList<AIActions> moves = null;
-    if (safetyCh.isEnemyInBombRange()) {
-      ArrayList<Point> bombs = safetyCh.getTilesAffectedByBombs();
-      ArrayList<Point> coverage = safetyCh.getBombCoverage(new Bomb(gameAI.getName(),
-          gameAI.getPos(), Constants.DEFAULT_BOMB_TIME, gameAI.getBombRange()), getMap());
-      bombs.addAll(coverage);
-      moves = escapeFromExplotion(bombs);
+    return safetyCh.read(() -> {
+      LinkedList<AIActions> moves = null;
+      if (safetyCh.isEnemyInBombRange()) {
+        moves = escapeFromOwnBomb();
+      }
+      if ((moves != null) && (moves.size() < 4)) {
+        return moves;
+      }
 
-    }
-    if ((moves != null) && (moves.size() < 4)) {
-      return moves;
-    }
+      return null;
+    });
+  }
 
-    return null;
+  /**
+   * Finds the route from the explosion of the bombs and of a bomb placed by the AI, in the snapshot
+   * being read.
+   *
+   * @return the linked list of moves
+   */
+  private LinkedList<AIActions> escapeFromOwnBomb() {
+    ArrayList<Point> bombs = safetyCh.getTilesAffectedByBombs();
+    ArrayList<Point> coverage = safetyCh.getBombCoverage(safetyCh.getAIGridPos(),
+        safetyCh.getAIBombRange(), getMap());
+    bombs.addAll(coverage);
+    return escapeFromExplotion(bombs);
   }
 
   /**
@@ -641,6 +739,7 @@ public class RouteFinder {
     // loop until the queue is not empty
     Node finish = null;
     while (!open.isEmpty()) {
+      checkDeadline();
 
       // take the head of the queue
       Node temp = open.poll();
@@ -675,21 +774,7 @@ public class RouteFinder {
    * @return the nearest enemy of the AI.
    */
   public Point getNearestEnemyExcludeAIs() {
-    Point aiPos = gameAI.getGridPos();
-    Point pos = null;
-    int distance = Integer.MAX_VALUE;
-    List<Player> players = state.getPlayers().stream()
-        .filter(p -> !(p instanceof GameAI) && p.isAlive()).collect(Collectors.toList());
-
-    int temp = 0;
-    for (Player p : players) {
-      if ((temp = countDistance(aiPos, p.getGridPos())) < distance) {
-        distance = temp;
-        pos = p.getGridPos();
-      }
-    }
-
-    return pos;
+    return safetyCh.read(() -> getNearestEnemy(true));
   }
 
   /**
@@ -702,20 +787,17 @@ public class RouteFinder {
    * @return the linked list of moves
    */
   public LinkedList<AIActions> canPutBombAndEscapeExcludeAIs() {
-    LinkedList<AIActions> moves = null;
-    if (safetyCh.isEnemyInBombRangeExludeAIs()) {
-      ArrayList<Point> bombs = safetyCh.getTilesAffectedByBombs();
-      ArrayList<Point> coverage = safetyCh.getBombCoverage(
-          new Bomb(gameAI.getName(), gameAI.getPos(), 0, gameAI.getBombRange()), getMap());
-      bombs.addAll(coverage);
-      moves = escapeFromExplotion(bombs);
-
-    }
-    if ((moves != null) && (moves.size() < 5)) {
-      return moves;
-    }
+    return safetyCh.read(() -> {
+      LinkedList<AIActions> moves = null;
+      if (safetyCh.isEnemyInBombRangeExludeAIs()) {
+        moves = escapeFromOwnBomb();
+      }
+      if ((moves != null) && (moves.size() < 5)) {
+        return moves;
+      }
 
-    return null;
+      return null;
+    });
   }
 
   /**
@@ -724,7 +806,20 @@ public class RouteFinder {
    * @return the linked list
    */
   public LinkedList<AIActions> findRouteToUpgrade() {
-    Point pos = gameAI.getGridPos();
+    return safetyCh.read(() -> {
+      Point pos = safetyCh.getAIGridPos();
+      return pos == null ? null : findRouteToUpgrade(pos);
+    });
+  }
+
+  /**
+   * Finds the fastest route to the upgrade in the snapshot being read.
+   *
+   * @param pos
+   *          the position of the AI
+   * @return the linked list
+   */
+  private LinkedList<AIActions> findRouteToUpgrade(Point pos) {
     LinkedList<Node> open = new LinkedList<>();
     HashSet<Node> closed = new HashSet<>();
     Block[][] map = getMap();
@@ -735,6 +830,7 @@ public class RouteFinder {
     // loop until the queue is not empty
     Node finish = null;
     while (!open.isEmpty()) {
+      checkDeadline();
 
       // take the head of the queue
       Node temp = open.poll();
@@ -743,7 +839,7 @@ public class RouteFinder {
       Block singleBlock = map[temp.getCoord().x][temp.getCoord().y];
       if (singleBlock == Block.PLUS_BOMB || singleBlock == Block.PLUS_RANGE
           || singleBlock == Block.PLUS_SPEED) {
-        if (isNearestAI(temp.getCoord())) {
+        if (isNearestAI(pos, temp.getCoord())) {
           finish = temp;
           break;
         }
@@ -779,11 +875,12 @@ public class RouteFinder {
     Node furthestPos = null;
     int furthest = Integer.MIN_VALUE;
     int temp;
+    GameSnapshot world = safetyCh.getWorld();
     for (Node n : finishPositions) {
       int smallestDist = Integer.MAX_VALUE;
-      for (Player p : state.getPlayers()) {
-        if (!(p instanceof GameAI)
-            && smallestDist > (temp = countDistance(n.getCoord(), p.getGridPos()))) {
+      for (int i = 0; i < world.getPlayerCount(); i++) {
+        if (!world.isAI(i)
+            && smallestDist > (temp = countDistance(n.getCoord(), safetyCh.getGridPos(i)))) {
           smallestDist = temp;
         }
       }
@@ -836,6 +933,19 @@ public class RouteFinder {
    * @return true, if the position is enclosure so avoid it
    */
   public boolean isEnclosure(ArrayList<Point> dangerTiles, Point position) {
+    return safetyCh.read(() -> isEnclosureInWorld(dangerTiles, position));
+  }
+
+  /**
+   * Checks if the position is enclosure in the snapshot being read.
+   *
+   * @param dangerTiles
+   *          the danger tiles affected by bombs
+   * @param position
+   *          the position
+   * @return true, if the position is enclosure so avoid it
+   */
+  private boolean isEnclosureInWorld(ArrayList<Point> dangerTiles, Point position) {
     LinkedList<Point> positions = new LinkedList<Point>();
     positions.add(position);
     Point temp = null;
@@ -859,19 +969,22 @@ public class RouteFinder {
   /**
    * Checks if this AI is nearest to the goal
    *
+   * @param aiPos
+   *          the position of this AI
    * @param goal
    *          the goal
    * @return true, if this AI is nearest to the goal
    */
-  private boolean isNearestAI(Point goal) {
-    List<Player> ais = state.getPlayers().stream()
-        .filter(p -> (p instanceof GameAI) && p.isAlive() && !p.equals(gameAI))
-        .collect(Collectors.toList());
-    int distanceFromThisAI = countDistance(gameAI.getGridPos(), goal);
+  private boolean isNearestAI(Point aiPos, Point goal) {
+    GameSnapshot world = safetyCh.getWorld();
+    int distanceFromThisAI = countDistance(aiPos, goal);
     int smallestDistance = Integer.MAX_VALUE;
     int temp;
-    for (Player p : ais) {
-      if ((temp = countDistance(p.getGridPos(), goal)) < smallestDistance) {
+    for (int i = 0; i < world.getPlayerCount(); i++) {
+      if (!world.isAI(i) || !world.isAlive(i) || safetyCh.isSelf(i)) {
+        continue;
+      }
+      if ((temp = countDistance(safetyCh.getGridPos(i), goal)) < smallestDistance) {
         smallestDistance = temp;
       }
 
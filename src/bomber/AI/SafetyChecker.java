@@ -2,17 +2,22 @@ package bomber.AI;
 
 import java.awt.Point;
 import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
 import bomber.game.Block;
 import bomber.game.Bomb;
+import bomber.game.Constants;
+import bomber.game.GameSnapshot;
 import bomber.game.GameState;
-import bomber.game.Player;
 
 /**
  * Checking safety of the moves and AI.
+ *
+ * The checks, and the searches of the route finder, read a snapshot of the world rather than the
+ * game state, because plans are made on planning threads while the game is updated. The AI sets
+ * the snapshot for the length of a plan; a check called on its own takes the last snapshot
+ * published. The AI never checks the world while its plan is being made, so the snapshot is only
+ * used by one thread at a time.
  * 
  * @author Jokubas Liutkus
  */
@@ -24,6 +29,12 @@ public class SafetyChecker {
   /** The game AI. */
   private GameAI gameAI;
 
+  /** The snapshot of the world being read, null outside the checks. */
+  private GameSnapshot world;
+
+  /** The index of the AI in the snapshot, -1 if it is not in it. */
+  private int self = -1;
+
   /**
    * Instantiates a new safety checker.
    *
@@ -38,12 +49,99 @@ public class SafetyChecker {
   }
 
   /**
-   * Getting the map from the game state
+   * Runs a check on a snapshot of the world: the snapshot being read, or else the last snapshot
+   * published, which is released when the check is over.
+   *
+   * @param playerID
+   *          the player ID of the AI, only read if a snapshot is taken
+   * @param check
+   *          the check
+   * @return the result of the check
+   */
+  <T> T read(int playerID, Supplier<T> check) {
+    if (world != null) {
+      return check.get();
+    }
+    try (GameSnapshot snapshot = state.acquireSnapshot()) {
+      world = snapshot;
+      self = snapshot.indexOf(playerID);
+      try {
+        return check.get();
+      } finally {
+        world = null;
+        self = -1;
+      }
+    }
+  }
+
+  /**
+   * Runs a check on a snapshot of the world, finding the AI by its current player ID.
+   *
+   * @param check
+   *          the check
+   * @return the result of the check
+   */
+  <T> T read(Supplier<T> check) {
+    return world != null ? check.get() : read(gameAI.getPlayerID(), check);
+  }
+
+  /**
+   * Gets the snapshot being read. Only valid within read().
+   *
+   * @return the snapshot
+   */
+  GameSnapshot getWorld() {
+    return world;
+  }
+
+  /**
+   * Checks if a player of the snapshot being read is the AI, which has the player ID of the AI.
+   *
+   * @param index
+   *          the index of the player
+   * @return true, if the player is the AI
+   */
+  boolean isSelf(int index) {
+    return self >= 0 && world.getPlayerID(index) == world.getPlayerID(self);
+  }
+
+  /**
+   * Gets the bomb range of the AI in the snapshot being read, or of the AI itself if it is not in
+   * the snapshot, when it is checked on its own.
+   *
+   * @return the bomb range
+   */
+  int getAIBombRange() {
+    return self < 0 ? gameAI.getBombRange() : world.getBombRange(self);
+  }
+
+  /**
+   * Gets the grid position of a player in the snapshot being read.
+   *
+   * @param index
+   *          the index of the player
+   * @return the grid position
+   */
+  Point getGridPos(int index) {
+    return new Point(world.getPlayerGridX(index), world.getPlayerGridY(index));
+  }
+
+  /**
+   * Gets the grid position of the AI in the snapshot being read.
+   *
+   * @return the grid position, null if the AI is not in the snapshot
+   */
+  Point getAIGridPos() {
+    return self < 0 ? null : getGridPos(self);
+  }
+
+  /**
+   * Getting the map from the snapshot
    *
    * @return the map
    */
   private Block[][] getMap() {
-    return state.getMap().getGridMap();
+    return world.getGridMap();
   }
 
   /**
@@ -52,8 +150,10 @@ public class SafetyChecker {
    * @return true, if AI is in danger
    */
   public boolean inDanger() {
-    Point playerPos = gameAI.getGridPos();
-    return positionSafety(playerPos);
+    return read(() -> {
+      Point playerPos = getAIGridPos();
+      return playerPos != null && positionSafety(playerPos);
+    });
   }
 
   /**
@@ -64,7 +164,22 @@ public class SafetyChecker {
    * @return true, if move is safe
    */
   public boolean checkMoveSafety(AIActions move) {
-    Point playerPos = gameAI.getGridPos();
+    return read(() -> {
+      Point playerPos = getAIGridPos();
+      return playerPos != null && checkMoveSafety(move, playerPos);
+    });
+  }
+
+  /**
+   * Checks if a move from a position is safe.
+   *
+   * @param move
+   *          the move
+   * @param playerPos
+   *          the position
+   * @return true, if move is safe
+   */
+  private boolean checkMoveSafety(AIActions move, Point playerPos) {
     Point newPosition = null;
     switch (move) {
     case UP:
@@ -111,12 +226,14 @@ public class SafetyChecker {
    * @return the tiles affected by bombs
    */
   public ArrayList<Point> getTilesAffectedByBombs() {
-    ArrayList<Point> points = new ArrayList<>();
-    List<Bomb> bombs = new ArrayList<>(state.getBombs());
-
-    bombs.forEach(b -> points.addAll(getBombCoverage(b, getMap())));
-
-    return points;
+    return read(() -> {
+      ArrayList<Point> points = new ArrayList<>();
+      for (int i = 0; i < world.getBombCount(); i++) {
+        points.addAll(getBombCoverage(new Point(world.getBombGridX(i), world.getBombGridY(i)),
+            world.getBombRadius(i), world.getGridMap()));
+      }
+      return points;
+    });
   }
 
   /**
@@ -129,16 +246,32 @@ public class SafetyChecker {
    * @return the tiles which are affected by a single bomb
    */
   public ArrayList<Point> getBombCoverage(Bomb bomb, Block[][] map) {
-    ArrayList<Point> points = new ArrayList<>();
     if (bomb == null) {
-      return points;
+      return new ArrayList<>();
     }
+    Point pos = bomb.getPos();
+    return getBombCoverage(new Point(pos.x / Constants.MAP_BLOCK_TO_GRID_MULTIPLIER,
+        pos.y / Constants.MAP_BLOCK_TO_GRID_MULTIPLIER), bomb.getRadius(), map);
+  }
 
-    points.add(bomb.getGridPos());
-    Point temp = bomb.getGridPos();
-    int bombX = temp.x;
-    int bombY = temp.y;
-    for (int i = 1; i < bomb.getRadius(); i++) {
+  /**
+   * Gets the coverage of a bomb given by its grid position and radius.
+   *
+   * @param gridPos
+   *          the grid position of the bomb
+   * @param radius
+   *          the radius of the bomb
+   * @param map
+   *          the map
+   * @return the tiles which are affected by the bomb
+   */
+  public ArrayList<Point> getBombCoverage(Point gridPos, int radius, Block[][] map) {
+    ArrayList<Point> points = new ArrayList<>();
+
+    points.add(gridPos);
+    int bombX = gridPos.x;
+    int bombY = gridPos.y;
+    for (int i = 1; i < radius; i++) {
       points.add(new Point((bombX - i), bombY));
       points.add(new Point((bombX + i), bombY));
       points.add(new Point(bombX, (bombY - i)));
@@ -166,14 +299,28 @@ public class SafetyChecker {
    * @return true, if enemy is in bomb range
    */
   public boolean isEnemyInBombRange() {
-    Point playerPos = gameAI.getGridPos();
-    int bombRange = gameAI.getBombRange();
-    for (Player p : state.getPlayers()) {
-      if (p.equals(gameAI) || !p.isAlive()) {
+    return read(() -> isEnemyInBombRange(false));
+  }
+
+  /**
+   * Checks if an enemy is in bomb range.
+   *
+   * @param excludeAIs
+   *          whether the other AIs are not enemies
+   * @return true, if enemy is in bomb range
+   */
+  private boolean isEnemyInBombRange(boolean excludeAIs) {
+    Point playerPos = getAIGridPos();
+    if (playerPos == null) {
+      return false;
+    }
+    int bombRange = world.getBombRange(self);
+    for (int i = 0; i < world.getPlayerCount(); i++) {
+      if (isSelf(i) || !world.isAlive(i) || (excludeAIs && world.isAI(i))) {
         continue;
       }
-      if (isStraightDistance(playerPos, p.getGridPos(), bombRange)
-          || p.getGridPos().equals(gameAI.getGridPos())) {
+      Point pos = getGridPos(i);
+      if (isStraightDistance(playerPos, pos, bombRange) || pos.equals(playerPos)) {
         return true;
       }
     }
@@ -236,10 +383,14 @@ public class SafetyChecker {
    * @return true, if there is a bomb in the moving position
    */
   public boolean isNextMoveBomb(Point updatedPos) {
-    ArrayList<Bomb> bombs = new ArrayList<>(state.getBombs());
-    Optional<Bomb> b = bombs.stream().filter(bomb -> bomb.getGridPos().equals(updatedPos))
-        .findAny();
-    return b.isPresent();
+    return read(() -> {
+      for (int i = 0; i < world.getBombCount(); i++) {
+        if (world.getBombGridX(i) == updatedPos.x && world.getBombGridY(i) == updatedPos.y) {
+          return true;
+        }
+      }
+      return false;
+    });
   }
 
   /**
@@ -248,19 +399,7 @@ public class SafetyChecker {
    * @return true, if enemy is in bomb range
    */
   public boolean isEnemyInBombRangeExludeAIs() {
-    Point playerPos = gameAI.getGridPos();
-    int bombRange = gameAI.getBombRange();
-    List<Player> players = state.getPlayers().stream()
-        .filter(p -> !(p instanceof GameAI) && p.isAlive()).collect(Collectors.toList());
-    ;
-    for (Player p : players) {
-
-      if (isStraightDistance(playerPos, p.getGridPos(), bombRange)
-          || p.getGridPos().equals(gameAI.getGridPos())) {
-        return true;
-      }
-    }
-    return false;
+    return read(() -> isEnemyInBombRange(true));
   }
 
 }
@@ -92,6 +92,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Stack;
+import java.util.TreeMap;
 
 import javafx.application.Application;
 import javafx.application.Platform;
@@ -99,6 +100,7 @@ import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
+import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.geometry.Insets;
@@ -223,8 +225,11 @@ public class UserInterface extends Application implements ClientNetInterface {
 	private CheckBox rememberServerBtn;
 	private boolean gotServer;
 	protected boolean gameEnded;
-	private OnlineGame onlineGame;
+	private volatile OnlineGame onlineGame;
 	private List<ClientServerPlayer> connectedPlayers;
+	private final TreeMap<Integer, Node> roomDisplays = new TreeMap<Integer, Node>();
+	private final TreeMap<Integer, Node> serverPlayerDisplays = new TreeMap<Integer, Node>();
+	private final TreeMap<Integer, Node> roomPlayerDisplays = new TreeMap<Integer, Node>();
 	private BorderPane tutorialMenu;
 	private Parent tutorialScene;
 	private CheckBox wasdBtn;
@@ -1882,81 +1887,148 @@ public class UserInterface extends Application implements ClientNetInterface {
 		List<ClientServerLobbyRoom> rooms = this.client.getRoomList();
 
 		this.roomsBox.getChildren().clear();
+		this.roomDisplays.clear();
 
 		for (ClientServerLobbyRoom room : rooms) {
+			Node roomDisplay = createRoomDisplay(room);
+			this.roomDisplays.put(room.getID(), roomDisplay);
+			this.roomsBox.getChildren().add(roomDisplay);
+		}
+	}
 
-			// Create a room display from its constituent elements.
-			VBox roomContainer = new VBox();
-			roomContainer.setMaxHeight(boxHeight * 0.7);
-			roomContainer.setMinWidth(boxWidth/1.5);
-			roomContainer.setSpacing(TINY_PAD);
-			roomContainer.setAlignment(CENTER);
-			roomContainer.getStyleClass().add("namebox");
-
-			Label roomID = createLabel("Room " + room.getID() + ":", false,
-					false);
-
-			Label roomName = createLabel(room.getName(), false, true);
-
-			roomName.setAlignment(CENTER);
-			roomName.getStyleClass().add("maplabel");
+	/**
+	 * Apply the changes of the room list pushed by the server to the room
+	 * displays, leaving the displays of the other rooms untouched.
+	 * 
+	 * @param removedIDs
+	 *            the IDs of the rooms which have been removed
+	 * @param changedRooms
+	 *            the rooms which have been created or changed
+	 */
+	private void applyRoomChanges(List<Integer> removedIDs,
+			List<ClientServerLobbyRoom> changedRooms) {
+
+		for (int id : removedIDs) {
+			Node roomDisplay = this.roomDisplays.remove(id);
+			if (roomDisplay != null) {
+				this.roomsBox.getChildren().remove(roomDisplay);
+			}
+		}
 
-			HBox roomPane = new HBox();
-			roomPane.setSpacing(LITTLE_PAD);
-			roomPane.setPrefHeight(TINY_PANE_HEIGHT);
-			roomPane.setAlignment(CENTER);
+		for (ClientServerLobbyRoom room : changedRooms) {
+			putDisplay(this.roomDisplays, this.roomsBox.getChildren(),
+					room.getID(), createRoomDisplay(room));
+		}
+	}
 
-			Label numPlayers = createLabel(
-					room.getPlayerNumber() + "/" + room.getMaxPlayer(), true,
-					true);
+	/**
+	 * Put the display of a room or player in the map of displays by ID and
+	 * in the children of the pane showing them, replacing its previous display
+	 * or keeping the displays ordered by ID.
+	 * 
+	 * @param displays
+	 *            the displays by ID
+	 * @param children
+	 *            the children of the pane
+	 * @param id
+	 *            the ID of the room or player
+	 * @param display
+	 *            the new display
+	 */
+	private void putDisplay(TreeMap<Integer, Node> displays,
+			ObservableList<Node> children, int id, Node display) {
 
-			Label playersLabel = createLabel("", true, true);
-			int[] playerids = room.getPlayerID();
-			playersLabel.setMinHeight(boxHeight / 2.2);
-			playersLabel.setMinWidth(boxHeight / 2.2);
+		Node oldDisplay = displays.put(id, display);
+		int index = oldDisplay == null ? -1 : children.indexOf(oldDisplay);
+		if (index >= 0) {
+			children.set(index, display);
+		} else {
+			children.add(
+					Math.min(displays.headMap(id).size(), children.size()),
+					display);
+		}
+	}
 
-			// Construct a label showing all the players in the room.
+	/**
+	 * Create the display of a room.
+	 * 
+	 * @param room
+	 *            the room
+	 * @return the display
+	 */
+	private Node createRoomDisplay(ClientServerLobbyRoom room) {
+
+		// Create a room display from its constituent elements.
+		VBox roomContainer = new VBox();
+		roomContainer.setMaxHeight(boxHeight * 0.7);
+		roomContainer.setMinWidth(boxWidth/1.5);
+		roomContainer.setSpacing(TINY_PAD);
+		roomContainer.setAlignment(CENTER);
+		roomContainer.getStyleClass().add("namebox");
+
+		Label roomID = createLabel("Room " + room.getID() + ":", false,
+				false);
+
+		Label roomName = createLabel(room.getName(), false, true);
+
+		roomName.setAlignment(CENTER);
+		roomName.getStyleClass().add("maplabel");
+
+		HBox roomPane = new HBox();
+		roomPane.setSpacing(LITTLE_PAD);
+		roomPane.setPrefHeight(TINY_PANE_HEIGHT);
+		roomPane.setAlignment(CENTER);
+
+		Label numPlayers = createLabel(
+				room.getPlayerNumber() + "/" + room.getMaxPlayer(), true,
+				true);
+
+		Label playersLabel = createLabel("", true, true);
+		int[] playerids = room.getPlayerID();
+		playersLabel.setMinHeight(boxHeight / 2.2);
+		playersLabel.setMinWidth(boxHeight / 2.2);
+
+		// Construct a label showing all the players in the room.
+		for (ClientServerPlayer player : this.client.getPlayerList()) {
+			if (player.getID() == playerids[0]) {
+				playersLabel.setText(playersLabel.getText() + " + "
+						+ player.getName());
+			}
+		}
+		for (int x = 1; x < playerids.length; x++) {
 			for (ClientServerPlayer player : this.client.getPlayerList()) {
-				if (player.getID() == playerids[0]) {
-					playersLabel.setText(playersLabel.getText() + " + "
+				if (player.getID() == playerids[x]) {
+					playersLabel.setText(playersLabel.getText() + "\n + "
 							+ player.getName());
 				}
 			}
-			for (int x = 1; x < playerids.length; x++) {
-				for (ClientServerPlayer player : this.client.getPlayerList()) {
-					if (player.getID() == playerids[x]) {
-						playersLabel.setText(playersLabel.getText() + "\n + "
-								+ player.getName());
-					}
-				}
-			}
+		}
 
-			// Show either a button to allow players to join the room, or a
-			// label saying "IN GAME" or "FULL".
-			if (room.isInGame()) {
-				Label fullLabel = createLabel("IN GAME", false, false);
-				fullLabel.setPrefWidth(SMALL_LABEL_WIDTH);
-				fullLabel.setPrefHeight(SMALL_LABEL_HEIGHT);
-				fullLabel.getStyleClass().add("textfield");
-				roomPane.getChildren().addAll(fullLabel, numPlayers);
-			} else if (room.getPlayerNumber() < room.getMaxPlayer()) {
-				Button joinButton = createButton("Join", SMALL_LABEL_WIDTH,
-						SMALL_LABEL_HEIGHT);
-				joinButton.setOnAction(e -> joinRoom(room.getID(), joinButton));
-				roomPane.getChildren().addAll(joinButton, numPlayers);
-			} else {
-				Label fullLabel = createLabel("FULL", false, false);
-				fullLabel.setPrefWidth(SMALL_LABEL_WIDTH);
-				fullLabel.setPrefHeight(SMALL_LABEL_HEIGHT);
-				fullLabel.getStyleClass().add("textfield");
-				roomPane.getChildren().addAll(fullLabel, numPlayers);
-			}
+		// Show either a button to allow players to join the room, or a
+		// label saying "IN GAME" or "FULL".
+		if (room.isInGame()) {
+			Label fullLabel = createLabel("IN GAME", false, false);
+			fullLabel.setPrefWidth(SMALL_LABEL_WIDTH);
+			fullLabel.setPrefHeight(SMALL_LABEL_HEIGHT);
+			fullLabel.getStyleClass().add("textfield");
+			roomPane.getChildren().addAll(fullLabel, numPlayers);
+		} else if (room.getPlayerNumber() < room.getMaxPlayer()) {
+			Button joinButton = createButton("Join", SMALL_LABEL_WIDTH,
+					SMALL_LABEL_HEIGHT);
+			joinButton.setOnAction(e -> joinRoom(room.getID(), joinButton));
+			roomPane.getChildren().addAll(joinButton, numPlayers);
+		} else {
+			Label fullLabel = createLabel("FULL", false, false);
+			fullLabel.setPrefWidth(SMALL_LABEL_WIDTH);
+			fullLabel.setPrefHeight(SMALL_LABEL_HEIGHT);
+			fullLabel.getStyleClass().add("textfield");
+			roomPane.getChildren().addAll(fullLabel, numPlayers);
+		}
 
-			roomContainer.getChildren().addAll(roomID, roomName, playersLabel,
-					roomPane);
+		roomContainer.getChildren().addAll(roomID, roomName, playersLabel,
+				roomPane);
 
-			this.roomsBox.getChildren().add(roomContainer);
-		}
+		return roomContainer;
 	}
 
 	/**
@@ -1982,6 +2054,57 @@ public class UserInterface extends Application implements ClientNetInterface {
 		}
 	}
 
+	/**
+	 * Apply the changes of the player list pushed by the server to the two
+	 * panes displaying online players, and to the displays of the rooms the
+	 * changed players are in.
+	 * 
+	 * @param removedIDs
+	 *            the IDs of the players who have left
+	 * @param changedPlayers
+	 *            the players who have joined or whose info has changed
+	 */
+	private void applyPlayerChanges(List<Integer> removedIDs,
+			List<ClientServerPlayer> changedPlayers) {
+
+		this.connectedPlayers = this.client.getPlayerList();
+
+		for (int id : removedIDs) {
+			Node serverPlayerLabel = this.serverPlayerDisplays.remove(id);
+			if (serverPlayerLabel != null) {
+				this.serverPlayersBox.getChildren().remove(serverPlayerLabel);
+			}
+			Node roomPlayerLabel = this.roomPlayerDisplays.remove(id);
+			if (roomPlayerLabel != null) {
+				this.roomPlayersFlowPane.getChildren().remove(roomPlayerLabel);
+			}
+		}
+
+		for (ClientServerPlayer player : changedPlayers) {
+			putDisplay(this.serverPlayerDisplays,
+					this.serverPlayersBox.getChildren(), player.getID(),
+					createLabel("- Player: " + player.getName(), true, true));
+			putDisplay(this.roomPlayerDisplays,
+					this.roomPlayersFlowPane.getChildren(), player.getID(),
+					createLabel("- Player: " + player.getName(), true, true));
+		}
+
+		// The rooms show the names of their players, which may have arrived
+		// after the rooms.
+		for (ClientServerLobbyRoom room : this.client.getRoomList()) {
+			boolean changed = false;
+			for (int id : room.getPlayerID()) {
+				for (ClientServerPlayer player : changedPlayers) {
+					changed |= player.getID() == id;
+				}
+			}
+			if (changed) {
+				putDisplay(this.roomDisplays, this.roomsBox.getChildren(),
+						room.getID(), createRoomDisplay(room));
+			}
+		}
+	}
+
 	/**
 	 * Display the players on the server.
 	 */
@@ -1991,13 +2114,19 @@ public class UserInterface extends Application implements ClientNetInterface {
 
 		this.serverPlayersBox.getChildren().clear();
 		this.roomPlayersFlowPane.getChildren().clear();
+		this.serverPlayerDisplays.clear();
+		this.roomPlayerDisplays.clear();
 
 		// For each player, add them to the two panes displaying online players.
 		for (ClientServerPlayer player : this.connectedPlayers) {
-			this.serverPlayersBox.getChildren().add(
-					createLabel("- Player: " + player.getName(), true, true));
-			this.roomPlayersFlowPane.getChildren().add(
-					createLabel("- Player: " + player.getName(), true, true));
+			Label serverPlayerLabel = createLabel("- Player: "
+					+ player.getName(), true, true);
+			Label roomPlayerLabel = createLabel("- Player: " + player.getName(),
+					true, true);
+			this.serverPlayerDisplays.put(player.getID(), serverPlayerLabel);
+			this.roomPlayerDisplays.put(player.getID(), roomPlayerLabel);
+			this.serverPlayersBox.getChildren().add(serverPlayerLabel);
+			this.roomPlayersFlowPane.getChildren().add(roomPlayerLabel);
 		}
 
 		// If the client is in a room, perform some updating.
@@ -2241,12 +2370,6 @@ public class UserInterface extends Application implements ClientNetInterface {
 				if (expectingConnection) {
 
 					advance(connectScene, serverScene);
-					try {
-						client.updateRoomList();
-						client.updatePlayerList();
-					} catch (IOException e) {
-						e.printStackTrace();
-					}
 					displayPlayers();
 					displayRooms();
 					expectingConnection = false;
@@ -2332,6 +2455,38 @@ public class UserInterface extends Application implements ClientNetInterface {
 		});
 	}
 
+	/**
+	 * Called if changes of the player list are pushed by the server.
+	 */
+	@Override
+	public void playerListChanged(List<Integer> removedIDs,
+			List<ClientServerPlayer> changedPlayers) {
+		Platform.runLater(new Runnable() {
+
+			@Override
+			public void run() {
+				applyPlayerChanges(removedIDs, changedPlayers);
+			}
+
+		});
+	}
+
+	/**
+	 * Called if changes of the room list are pushed by the server.
+	 */
+	@Override
+	public void roomListChanged(List<Integer> removedIDs,
+			List<ClientServerLobbyRoom> changedRooms) {
+		Platform.runLater(new Runnable() {
+
+			@Override
+			public void run() {
+				applyRoomChanges(removedIDs, changedRooms);
+			}
+
+		});
+	}
+
 	/**
 	 * Called if our request to creat a room was accepted.
 	 */
@@ -2513,6 +2668,9 @@ public class UserInterface extends Application implements ClientNetInterface {
 	 */
 	@Override
 	public void gameStateReceived() {
+		if (onlineGame != null) {
+			onlineGame.gameStateReceived();
+		}
 	}
 
 	/**
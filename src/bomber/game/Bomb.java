@@ -16,15 +16,27 @@ import java.awt.Point;
 public class Bomb {
 
 	private String playerName;
-	private Point pos;
-	private int time;
+	private Point pos; // mirrors the position in the store
+
+	private Point gridPos;
+
+	// the numeric state of the bomb is kept in a slot of a world store, or in
+	// the fields below while the bomb is in none
+	WorldStore store;
+	int slot = -1;
 	private int playerID;
+	private int x;
+	private int y;
+	private int time;
 	private int radius;
 
-	private Point gridPos;
+	// where the bomb is indexed in the BombList holding it
+	int indexedCell = -1;
+	int indexedOwner = -1;
 
 	/**
-	 * Create a new Bomb object.
+	 * Create a new Bomb object. The bomb keeps its state in its own fields
+	 * until it is added to the bomb list of a game state.
 	 * 
 	 * @param playerName
 	 *            the name of player who placed the bomb
@@ -38,20 +50,55 @@ public class Bomb {
 	public Bomb(String playerName, Point pos, int time, int radius) {
 
 		this.playerName = playerName;
-		this.pos = pos;
-		this.time = time;
-		this.radius = radius;
+		setPos(pos);
+		setTime(time);
+		setRadius(radius);
 		this.gridPos = new Point();
 		updatePos();
 	}
 
+	/**
+	 * Copy the state of this bomb to a slot of a store.
+	 * 
+	 * @param to
+	 *            the store
+	 * @param toSlot
+	 *            the slot
+	 */
+	void copyTo(WorldStore to, int toSlot) {
+
+		if (this.store != null) {
+			this.store.copyBomb(this.slot, to, toSlot);
+			return;
+		}
+		to.bombOwners[toSlot] = this.playerID;
+		to.bombXs[toSlot] = this.x;
+		to.bombYs[toSlot] = this.y;
+		to.bombTimes[toSlot] = this.time;
+		to.bombRadii[toSlot] = this.radius;
+	}
+
+	/**
+	 * Move the state of this bomb out of its store into its own fields.
+	 */
+	void detach() {
+
+		this.playerID = getPlayerID();
+		this.x = this.store.bombXs[this.slot];
+		this.y = this.store.bombYs[this.slot];
+		this.time = getTime();
+		this.radius = getRadius();
+		this.store = null;
+		this.slot = -1;
+	}
+
 	/**
 	 * Get the playerID of the bomb.
 	 * 
 	 * @return the playerID
 	 */
 	public int getPlayerID() {
-		return playerID;
+		return this.store == null ? this.playerID : this.store.bombOwners[this.slot];
 	}
 
 	/**
@@ -61,7 +108,11 @@ public class Bomb {
 	 *            the new playerID
 	 */
 	public void setPlayerID(int playerID) {
-		this.playerID = playerID;
+		if (this.store == null) {
+			this.playerID = playerID;
+		} else {
+			this.store.bombOwners[this.slot] = playerID;
+		}
 	}
 
 	/**
@@ -85,12 +136,16 @@ public class Bomb {
 	}
 
 	/**
-	 * Get the position of the bomb
+	 * Get the position of the bomb. The point is a copy of the position in the
+	 * store, refreshed on every call, so changing it does not move the bomb:
+	 * use setPos or setPosition instead.
 	 * 
 	 * @return the position
 	 */
 	public Point getPos() {
 
+		this.pos.x = this.store == null ? this.x : this.store.bombXs[this.slot];
+		this.pos.y = this.store == null ? this.y : this.store.bombYs[this.slot];
 		return this.pos;
 	}
 
@@ -102,6 +157,27 @@ public class Bomb {
 	 */
 	public void setPos(Point pos) {
 		this.pos = pos;
+		setPosition(pos.x, pos.y);
+	}
+
+	/**
+	 * Set the position of the bomb
+	 * 
+	 * @param x
+	 *            the new x coordinate
+	 * @param y
+	 *            the new y coordinate
+	 */
+	public void setPosition(int x, int y) {
+		this.pos.x = x;
+		this.pos.y = y;
+		if (this.store == null) {
+			this.x = x;
+			this.y = y;
+		} else {
+			this.store.bombXs[this.slot] = x;
+			this.store.bombYs[this.slot] = y;
+		}
 	}
 
 	/**
@@ -111,7 +187,7 @@ public class Bomb {
 	 */
 	public int getRadius() {
 
-		return this.radius;
+		return this.store == null ? this.radius : this.store.bombRadii[this.slot];
 	}
 
 	/**
@@ -121,7 +197,11 @@ public class Bomb {
 	 *            the new radius
 	 */
 	public void setRadius(int radius) {
-		this.radius = radius;
+		if (this.store == null) {
+			this.radius = radius;
+		} else {
+			this.store.bombRadii[this.slot] = radius;
+		}
 	}
 
 	/**
@@ -130,9 +210,8 @@ public class Bomb {
 	 * @return the grid position
 	 */
 	public Point getGridPos() {
-		int x = pos.x / MAP_BLOCK_TO_GRID_MULTIPLIER;
-		int y = pos.y / MAP_BLOCK_TO_GRID_MULTIPLIER;
-		return new Point(x, y);
+		Point pos = getPos();
+		return new Point(pos.x / MAP_BLOCK_TO_GRID_MULTIPLIER, pos.y / MAP_BLOCK_TO_GRID_MULTIPLIER);
 	}
 
 	/**
@@ -149,8 +228,8 @@ public class Bomb {
 	 * Update the grid position of the bomb.
 	 */
 	private void updatePos() {
-		this.gridPos.setLocation((pos.x / MAP_BLOCK_TO_GRID_MULTIPLIER),
-				(pos.y / MAP_BLOCK_TO_GRID_MULTIPLIER));
+		Point pos = getPos();
+		this.gridPos.setLocation(pos.x / MAP_BLOCK_TO_GRID_MULTIPLIER, pos.y / MAP_BLOCK_TO_GRID_MULTIPLIER);
 	}
 
 	/**
@@ -160,7 +239,7 @@ public class Bomb {
 	 */
 	public int getTime() {
 
-		return this.time;
+		return this.store == null ? this.time : this.store.bombTimes[this.slot];
 	}
 
 	/**
@@ -170,6 +249,10 @@ public class Bomb {
 	 *            the new detonation time
 	 */
 	public void setTime(int time) {
-		this.time = time;
+		if (this.store == null) {
+			this.time = time;
+		} else {
+			this.store.bombTimes[this.slot] = time;
+		}
 	}
 }
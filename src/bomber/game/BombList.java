@@ -0,0 +1,319 @@
+package bomber.game;
+
+import static bomber.game.Constants.MAP_BLOCK_TO_GRID_MULTIPLIER;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+
+/**
+ * BombList class for "Bomb Blitz" Game Application (2017 Year 2 Team
+ * Project, Team B1). The list of bombs of a game state, which keeps an
+ * index of the bombs in each grid cell and a count of the live bombs of
+ * each player up to date as bombs are added and removed. Bombs are
+ * indexed by their position when they are added, so a bomb that is moved
+ * must be set again to be re-indexed. The bombs are kept in the bomb slots
+ * of a world store, in list order.
+ */
+class BombList extends AbstractList<Bomb> implements RandomAccess {
+
+	private final WorldStore store;
+	private int width;
+	private int height;
+	private Bomb[][] cellBombs; // the bombs in each cell (x * height + y)
+	private int[] cellCounts; // the number of bombs in each cell
+	private int[] ownerCounts; // the number of bombs of each player ID
+
+	/**
+	 * Create a new, empty BombList object.
+	 *
+	 * @param map
+	 *            the map the bombs are on
+	 * @param store
+	 *            the store holding the bombs, without bombs
+	 */
+	BombList(Map map, WorldStore store) {
+
+		this.store = store;
+		this.ownerCounts = new int[0];
+		this.cellBombs = new Bomb[0][];
+		this.cellCounts = new int[0];
+		fitToMap(map);
+	}
+
+	/**
+	 * Resize the cell index to a map, re-indexing all the bombs if the size
+	 * changed.
+	 *
+	 * @param map
+	 *            the map the bombs are on
+	 */
+	void fitToMap(Map map) {
+
+		int newWidth = 0;
+		int newHeight = 0;
+		if (map != null && map.getGridMap() != null && map.getGridMap().length > 0) {
+			newWidth = map.getGridMap().length;
+			newHeight = map.getGridMap()[0].length;
+		}
+		if (newWidth == this.width && newHeight == this.height) {
+			return;
+		}
+
+		this.width = newWidth;
+		this.height = newHeight;
+		this.cellBombs = new Bomb[this.width * this.height][];
+		this.cellCounts = new int[this.width * this.height];
+		for (int i = 0; i < this.store.bombCount; i++) {
+			Bomb bomb = this.store.bombs[i];
+			if (bomb != null) {
+				indexCell(bomb);
+			}
+		}
+	}
+
+	/**
+	 * Get the number of bombs in a grid cell.
+	 *
+	 * @param x
+	 *            the x coordinate of the cell
+	 * @param y
+	 *            the y coordinate of the cell
+	 * @return the number of bombs, 0 if the cell is out of the map
+	 */
+	int countAt(int x, int y) {
+
+		if (x < 0 || y < 0 || x >= this.width || y >= this.height) {
+			return 0;
+		}
+		return this.cellCounts[x * this.height + y];
+	}
+
+	/**
+	 * Get one of the bombs in a grid cell.
+	 *
+	 * @param x
+	 *            the x coordinate of the cell
+	 * @param y
+	 *            the y coordinate of the cell
+	 * @param index
+	 *            the index of the bomb, less than countAt(x, y)
+	 * @return the bomb
+	 */
+	Bomb getAt(int x, int y, int index) {
+
+		return this.cellBombs[x * this.height + y][index];
+	}
+
+	/**
+	 * Get the number of bombs of a player.
+	 *
+	 * @param playerID
+	 *            the ID of the player
+	 * @return the number of bombs in the list with this player ID
+	 */
+	int countOwnedBy(int playerID) {
+
+		if (playerID < 0 || playerID >= this.ownerCounts.length) {
+			return 0;
+		}
+		return this.ownerCounts[playerID];
+	}
+
+	@Override
+	public Bomb get(int index) {
+
+		checkIndex(index, this.store.bombCount);
+		return this.store.bombs[index];
+	}
+
+	@Override
+	public int size() {
+
+		return this.store.bombCount;
+	}
+
+	@Override
+	public void add(int index, Bomb bomb) {
+
+		checkIndex(index, this.store.bombCount + 1);
+		this.store.insertBomb(index, bomb);
+		index(bomb);
+		this.modCount++;
+	}
+
+	@Override
+	public Bomb set(int index, Bomb bomb) {
+
+		checkIndex(index, this.store.bombCount);
+		Bomb old = this.store.bombs[index];
+		unindex(old);
+		if (bomb != null && bomb != old && bomb.store == this.store) {
+			// the bomb leaves its other slot of the list
+			unindex(bomb);
+		}
+		this.store.setBomb(index, bomb);
+		index(bomb);
+		return old;
+	}
+
+	@Override
+	public Bomb remove(int index) {
+
+		checkIndex(index, this.store.bombCount);
+		Bomb old = this.store.bombs[index];
+		unindex(old);
+		this.store.removeBomb(index);
+		this.modCount++;
+		return old;
+	}
+
+	@Override
+	public boolean removeIf(Predicate<? super Bomb> filter) {
+
+		int size = this.store.bombCount;
+		boolean[] removed = null;
+		for (int i = 0; i < size; i++) {
+			Bomb bomb = this.store.bombs[i];
+			if (filter.test(bomb)) {
+				if (removed == null) {
+					removed = new boolean[size];
+				}
+				removed[i] = true;
+				unindex(bomb);
+			}
+		}
+		if (removed == null) {
+			return false;
+		}
+		this.store.removeBombs(removed);
+		this.modCount++;
+		return true;
+	}
+
+	@Override
+	public void clear() {
+
+		int size = this.store.bombCount;
+		for (int i = 0; i < size; i++) {
+			unindex(this.store.bombs[i]);
+		}
+		boolean[] removed = new boolean[size];
+		Arrays.fill(removed, true);
+		this.store.removeBombs(removed);
+		this.modCount++;
+	}
+
+	/**
+	 * Check that an index is in a range.
+	 *
+	 * @param index
+	 *            the index
+	 * @param bound
+	 *            the end of the range
+	 */
+	private static void checkIndex(int index, int bound) {
+
+		if (index < 0 || index >= bound) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + bound);
+		}
+	}
+
+	/**
+	 * Add a bomb to the cell index and to the count of its player.
+	 *
+	 * @param bomb
+	 *            the bomb
+	 */
+	private void index(Bomb bomb) {
+
+		if (bomb == null) {
+			return;
+		}
+		indexCell(bomb);
+		int owner = this.store.bombOwners[bomb.slot];
+		bomb.indexedOwner = owner;
+		if (owner >= 0) {
+			if (owner >= this.ownerCounts.length) {
+				this.ownerCounts = Arrays.copyOf(this.ownerCounts, Math.max(owner + 1, this.ownerCounts.length * 2));
+			}
+			this.ownerCounts[owner]++;
+		}
+	}
+
+	/**
+	 * Remove a bomb from the cell index and from the count of its player.
+	 *
+	 * @param bomb
+	 *            the bomb
+	 */
+	private void unindex(Bomb bomb) {
+
+		if (bomb == null) {
+			return;
+		}
+		unindexCell(bomb);
+		if (bomb.indexedOwner >= 0 && bomb.indexedOwner < this.ownerCounts.length) {
+			this.ownerCounts[bomb.indexedOwner]--;
+		}
+		bomb.indexedOwner = -1;
+	}
+
+	/**
+	 * Add a bomb to the index of the cell it is in.
+	 *
+	 * @param bomb
+	 *            the bomb
+	 */
+	private void indexCell(Bomb bomb) {
+
+		int x = this.store.bombXs[bomb.slot];
+		int y = this.store.bombYs[bomb.slot];
+		bomb.indexedCell = -1;
+		if (x < 0 || y < 0) {
+			return;
+		}
+		x /= MAP_BLOCK_TO_GRID_MULTIPLIER;
+		y /= MAP_BLOCK_TO_GRID_MULTIPLIER;
+		if (x >= this.width || y >= this.height) {
+			return;
+		}
+
+		int cell = x * this.height + y;
+		Bomb[] inCell = this.cellBombs[cell];
+		if (inCell == null) {
+			inCell = new Bomb[2];
+		} else if (this.cellCounts[cell] == inCell.length) {
+			inCell = Arrays.copyOf(inCell, inCell.length * 2);
+		}
+		this.cellBombs[cell] = inCell;
+		inCell[this.cellCounts[cell]++] = bomb;
+		bomb.indexedCell = cell;
+	}
+
+	/**
+	 * Remove a bomb from the index of the cell it was added to.
+	 *
+	 * @param bomb
+	 *            the bomb
+	 */
+	private void unindexCell(Bomb bomb) {
+
+		int cell = bomb.indexedCell;
+		bomb.indexedCell = -1;
+		if (cell < 0 || cell >= this.cellCounts.length) {
+			return;
+		}
+		Bomb[] inCell = this.cellBombs[cell];
+		int count = this.cellCounts[cell];
+		for (int i = 0; i < count; i++) {
+			if (inCell[i] == bomb) {
+				inCell[i] = inCell[count - 1];
+				inCell[count - 1] = null;
+				this.cellCounts[cell]--;
+				return;
+			}
+		}
+	}
+}
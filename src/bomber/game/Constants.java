@@ -17,6 +17,10 @@ public abstract class Constants
     public static final float GENERAL_BLOCK_WIDTH = 64f;
     public static final float GENERAL_BLOCK_HEIGHT = 64f;
     public static final int MAP_BLOCK_TO_GRID_MULTIPLIER = 64;
+    public static final int SUB_PIXELS_PER_PIXEL = 1000; // a speed of 1 pixel/second moves 1 sub-pixel/millisecond
+
+    // Simulation
+    public static final int SIMULATION_TICK_LENGTH = 10; // milliseconds of game time per physics tick
 
     // Game Rules
     public static final int DEFAULT_BOMB_TIME = 2000;
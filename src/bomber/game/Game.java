@@ -140,7 +140,7 @@ public class Game implements GameInterface {
 			for (int x = 1; x <= this.aiNum; x++) {
 				Player ai = new GameAI("Ai " + x, new Point(spawns.get(x).x,
 						spawns.get(x).y), 5, 300, gameState, this.aiDiff);
-				ai.setPlayerID(32);
+				ai.setPlayerID(31 + x);
 				list.add(ai);
 			}
 		} catch (Exception e) {
@@ -220,8 +220,13 @@ public class Game implements GameInterface {
 						renderer.stopPauseScreen();
 					}
 
-					// Update the game and play audio events.
-					this.physics.update((int) (interval * 1000));
+					// Let the AIs act before the physics update of the frame,
+					// then update the game and play audio events.
+					int milliseconds = (int) (interval * 1000);
+					for (Player player : this.gameState.getPlayers()) {
+						player.tick(milliseconds);
+					}
+					this.physics.update(milliseconds);
 					AudioManager.playEventList(gameState.getAudioEvents());
 				}
 			}
@@ -0,0 +1,393 @@
+package bomber.game;
+
+import static bomber.game.Constants.MAP_BLOCK_TO_GRID_MULTIPLIER;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * GameSnapshot class for "Bomb Blitz" Game Application (2017 Year 2
+ * Team Project, Team B1). A consistent copy of a game state at the end
+ * of a tick, for the threads that read the game while it is simulated
+ * (the AIs). A snapshot is taken with GameState.acquireSnapshot() and
+ * must be closed when it is no longer read, so that its buffers can be
+ * reused for a later tick: the simulation never waits for the readers,
+ * it fills a buffer nobody holds instead.
+ */
+public final class GameSnapshot implements AutoCloseable {
+
+	// the readers holding this snapshot
+	final AtomicInteger holders = new AtomicInteger();
+
+	private long version;
+	private int gameCounter;
+	private Block[][] gridMap;
+
+	private int playerCount;
+	private int[] playerIDs;
+	private int[] playerXs;
+	private int[] playerYs;
+	private int[] lives;
+	private int[] bombRanges;
+	private boolean[] alive;
+	private boolean[] ais;
+
+	private int bombCount;
+	private int[] bombOwners;
+	private int[] bombXs;
+	private int[] bombYs;
+	private int[] bombTimes;
+	private int[] bombRadii;
+
+	/**
+	 * Create a new, empty GameSnapshot object.
+	 */
+	GameSnapshot() {
+
+		this.gridMap = new Block[0][];
+		this.playerIDs = new int[0];
+		this.playerXs = new int[0];
+		this.playerYs = new int[0];
+		this.lives = new int[0];
+		this.bombRanges = new int[0];
+		this.alive = new boolean[0];
+		this.ais = new boolean[0];
+		this.bombOwners = new int[0];
+		this.bombXs = new int[0];
+		this.bombYs = new int[0];
+		this.bombTimes = new int[0];
+		this.bombRadii = new int[0];
+	}
+
+	/**
+	 * Copy a game state into this snapshot, reusing the buffers when they are
+	 * large enough.
+	 *
+	 * @param state
+	 *            the game state
+	 * @param version
+	 *            the version of the snapshot
+	 */
+	void copyFrom(GameState state, long version) {
+
+		this.version = version;
+		this.gameCounter = state.getGameCounter();
+
+		Block[][] source = state.getMap() == null ? null : state.getMap().getGridMap();
+		int width = source == null ? 0 : source.length;
+		if (this.gridMap.length != width) {
+			this.gridMap = new Block[width][];
+		}
+		for (int x = 0; x < width; x++) {
+			if (this.gridMap[x] == null || this.gridMap[x].length != source[x].length) {
+				this.gridMap[x] = new Block[source[x].length];
+			}
+			System.arraycopy(source[x], 0, this.gridMap[x], 0, source[x].length);
+		}
+
+		WorldStore world = state.getWorld();
+		int players = world.playerCount;
+		if (this.playerIDs.length < players) {
+			this.playerIDs = new int[players];
+			this.playerXs = new int[players];
+			this.playerYs = new int[players];
+			this.lives = new int[players];
+			this.bombRanges = new int[players];
+			this.alive = new boolean[players];
+			this.ais = new boolean[players];
+		}
+		this.playerCount = 0;
+		for (int i = 0; i < players; i++) {
+			if (world.players[i] == null) {
+				continue;
+			}
+			int slot = this.playerCount++;
+			this.playerIDs[slot] = world.playerIDs[i];
+			this.playerXs[slot] = world.playerXs[i];
+			this.playerYs[slot] = world.playerYs[i];
+			this.lives[slot] = world.lives[i];
+			this.bombRanges[slot] = world.bombRanges[i];
+			this.alive[slot] = world.alive[i];
+			this.ais[slot] = world.players[i].isAI();
+		}
+
+		int bombs = world.bombCount;
+		if (this.bombOwners.length < bombs) {
+			int capacity = Math.max(bombs, this.bombOwners.length * 2);
+			this.bombOwners = new int[capacity];
+			this.bombXs = new int[capacity];
+			this.bombYs = new int[capacity];
+			this.bombTimes = new int[capacity];
+			this.bombRadii = new int[capacity];
+		}
+		this.bombCount = 0;
+		for (int i = 0; i < bombs; i++) {
+			if (world.bombs[i] == null) {
+				continue;
+			}
+			int slot = this.bombCount++;
+			this.bombOwners[slot] = world.bombOwners[i];
+			this.bombXs[slot] = world.bombXs[i];
+			this.bombYs[slot] = world.bombYs[i];
+			this.bombTimes[slot] = world.bombTimes[i];
+			this.bombRadii[slot] = world.bombRadii[i];
+		}
+	}
+
+	/**
+	 * Release this snapshot. It must not be read after it is closed.
+	 */
+	@Override
+	public void close() {
+		this.holders.decrementAndGet();
+	}
+
+	/**
+	 * Get the version of this snapshot, which grows with every snapshot
+	 * published by the simulation.
+	 *
+	 * @return the version
+	 */
+	public long getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * Get the game counter (time from beginning of game).
+	 *
+	 * @return the game counter
+	 */
+	public int getGameCounter() {
+		return this.gameCounter;
+	}
+
+	/**
+	 * Get the grid of the map. The grid belongs to the snapshot and must not
+	 * be changed.
+	 *
+	 * @return the grid
+	 */
+	public Block[][] getGridMap() {
+		return this.gridMap;
+	}
+
+	/**
+	 * Get the number of players.
+	 *
+	 * @return the number of players
+	 */
+	public int getPlayerCount() {
+		return this.playerCount;
+	}
+
+	/**
+	 * Get the ID of a player.
+	 *
+	 * @param index
+	 *            the index of the player, in the order of the players list
+	 * @return the player ID
+	 */
+	public int getPlayerID(int index) {
+		return this.playerIDs[index];
+	}
+
+	/**
+	 * Get the x coordinate of a player.
+	 *
+	 * @param index
+	 *            the index of the player
+	 * @return the x coordinate
+	 */
+	public int getPlayerX(int index) {
+		return this.playerXs[index];
+	}
+
+	/**
+	 * Get the y coordinate of a player.
+	 *
+	 * @param index
+	 *            the index of the player
+	 * @return the y coordinate
+	 */
+	public int getPlayerY(int index) {
+		return this.playerYs[index];
+	}
+
+	/**
+	 * Get the x coordinate of the grid cell of a player.
+	 *
+	 * @param index
+	 *            the index of the player
+	 * @return the x coordinate of the cell
+	 */
+	public int getPlayerGridX(int index) {
+		return this.playerXs[index] / MAP_BLOCK_TO_GRID_MULTIPLIER;
+	}
+
+	/**
+	 * Get the y coordinate of the grid cell of a player.
+	 *
+	 * @param index
+	 *            the index of the player
+	 * @return the y coordinate of the cell
+	 */
+	public int getPlayerGridY(int index) {
+		return this.playerYs[index] / MAP_BLOCK_TO_GRID_MULTIPLIER;
+	}
+
+	/**
+	 * Find a player by ID.
+	 *
+	 * @param playerID
+	 *            the player ID
+	 * @return the index of the player, or -1 if it is not in the snapshot
+	 */
+	public int indexOf(int playerID) {
+		for (int i = 0; i < this.playerCount; i++) {
+			if (this.playerIDs[i] == playerID) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Get the lives of a player.
+	 *
+	 * @param index
+	 *            the index of the player
+	 * @return the lives
+	 */
+	public int getLives(int index) {
+		return this.lives[index];
+	}
+
+	/**
+	 * Get the bomb range of a player.
+	 *
+	 * @param index
+	 *            the index of the player
+	 * @return the bomb range
+	 */
+	public int getBombRange(int index) {
+		return this.bombRanges[index];
+	}
+
+	/**
+	 * Check if a player is alive.
+	 *
+	 * @param index
+	 *            the index of the player
+	 * @return true if the player is alive
+	 */
+	public boolean isAlive(int index) {
+		return this.alive[index];
+	}
+
+	/**
+	 * Check if a player is played by an AI.
+	 *
+	 * @param index
+	 *            the index of the player
+	 * @return true if the player is an AI
+	 */
+	public boolean isAI(int index) {
+		return this.ais[index];
+	}
+
+	/**
+	 * Get the number of bombs.
+	 *
+	 * @return the number of bombs
+	 */
+	public int getBombCount() {
+		return this.bombCount;
+	}
+
+	/**
+	 * Get the player ID of the owner of a bomb.
+	 *
+	 * @param index
+	 *            the index of the bomb, in the order of the bomb list
+	 * @return the player ID
+	 */
+	public int getBombOwner(int index) {
+		return this.bombOwners[index];
+	}
+
+	/**
+	 * Get the x coordinate of a bomb.
+	 *
+	 * @param index
+	 *            the index of the bomb
+	 * @return the x coordinate
+	 */
+	public int getBombX(int index) {
+		return this.bombXs[index];
+	}
+
+	/**
+	 * Get the y coordinate of a bomb.
+	 *
+	 * @param index
+	 *            the index of the bomb
+	 * @return the y coordinate
+	 */
+	public int getBombY(int index) {
+		return this.bombYs[index];
+	}
+
+	/**
+	 * Get the x coordinate of the grid cell of a bomb.
+	 *
+	 * @param index
+	 *            the index of the bomb
+	 * @return the x coordinate of the cell
+	 */
+	public int getBombGridX(int index) {
+		return this.bombXs[index] / MAP_BLOCK_TO_GRID_MULTIPLIER;
+	}
+
+	/**
+	 * Get the y coordinate of the grid cell of a bomb.
+	 *
+	 * @param index
+	 *            the index of the bomb
+	 * @return the y coordinate of the cell
+	 */
+	public int getBombGridY(int index) {
+		return this.bombYs[index] / MAP_BLOCK_TO_GRID_MULTIPLIER;
+	}
+
+	/**
+	 * Get the detonation time of a bomb.
+	 *
+	 * @param index
+	 *            the index of the bomb
+	 * @return the detonation time
+	 */
+	public int getBombTime(int index) {
+		return this.bombTimes[index];
+	}
+
+	/**
+	 * Get the radius of a bomb.
+	 *
+	 * @param index
+	 *            the index of the bomb
+	 * @return the radius
+	 */
+	public int getBombRadius(int index) {
+		return this.bombRadii[index];
+	}
+
+	/**
+	 * toString method.
+	 */
+	@Override
+	public String toString() {
+
+		return "Snapshot " + this.version + " at " + this.gameCounter + " ms: " + this.playerCount + " players, "
+				+ this.bombCount + " bombs, player IDs " + Arrays.toString(Arrays.copyOf(this.playerIDs, this.playerCount));
+	}
+}
@@ -1,8 +1,8 @@
 package bomber.game;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
 
 import bomber.AI.GameAI;
 import bomber.physics.BlastTimer;
@@ -20,14 +20,18 @@ public class GameState {
 
 	private Map map;
 	private List<Player> players;
-	private List<Bomb> bombs;
+	private WorldStore world;
+	private BombList bombs;
 	private List<AudioEvent> audioEvents;
 	private List<BlastTimer> blastList;
 	private int gameCounter;
 	private int holeCounter;
+	private long seed;
+	private Random random;
+	private SnapshotBuffers snapshots;
 
 	/**
-	 * Create a new GameState object.
+	 * Create a new GameState object, with a random seed.
 	 * 
 	 * @param map
 	 *            the map to play on
@@ -36,11 +40,32 @@ public class GameState {
 	 */
 	public GameState(Map map, List<Player> players) {
 
+		this(map, players, new Random().nextLong());
+	}
+
+	/**
+	 * Create a new GameState object. Two game states created with the same
+	 * seed, map and players evolve identically under the same inputs.
+	 * 
+	 * @param map
+	 *            the map to play on
+	 * @param players
+	 *            the list of players
+	 * @param seed
+	 *            the seed of the random number generator of the game
+	 */
+	public GameState(Map map, List<Player> players, long seed) {
+
+		this.seed = seed;
+		this.random = new Random(seed);
 		this.map = map;
 		this.players = players;
-		this.bombs = new ArrayList<Bomb>();
+		this.world = new WorldStore();
+		this.world.syncPlayers(players);
+		this.bombs = new BombList(map, this.world);
 		this.audioEvents = new ArrayList<AudioEvent>();
-		this.blastList = new LinkedList<>();
+		this.blastList = new ArrayList<>();
+		this.snapshots = new SnapshotBuffers();
 	}
 
 	/**
@@ -111,6 +136,7 @@ public class GameState {
 	 */
 	public void setMap(Map map) {
 		this.map = map;
+		this.bombs.fitToMap(map);
 	}
 
 	/**
@@ -130,6 +156,7 @@ public class GameState {
 	 */
 	public void setPlayers(List<Player> players) {
 		this.players = players;
+		this.world.syncPlayers(players);
 	}
 
 	/**
@@ -142,13 +169,72 @@ public class GameState {
 	}
 
 	/**
-	 * Set the list of bombs.
+	 * Set the list of bombs. The bombs are copied into the indexed list, so
+	 * later changes must be made through getBombs().
 	 * 
 	 * @param bombs
 	 *            the new list of bombs
 	 */
 	public void setBombs(List<Bomb> bombs) {
-		this.bombs = bombs;
+		if (bombs == this.bombs) {
+			return;
+		}
+		List<Bomb> copy = bombs == null ? new ArrayList<Bomb>() : new ArrayList<Bomb>(bombs);
+		this.bombs.clear();
+		this.bombs.addAll(copy);
+	}
+
+	/**
+	 * Get the store holding the numeric state of the players and bombs in
+	 * parallel arrays, for the loops that scan all of them every tick. The
+	 * player slots are brought in line with the list of players first, in
+	 * case players were added to it or removed from it.
+	 * 
+	 * @return the world store
+	 */
+	public WorldStore getWorld() {
+		this.world.syncPlayers(this.players);
+		return this.world;
+	}
+
+	/**
+	 * Get the number of bombs in a grid cell.
+	 * 
+	 * @param x
+	 *            the x coordinate of the cell
+	 * @param y
+	 *            the y coordinate of the cell
+	 * @return the number of bombs in the cell
+	 */
+	public int getBombCountAt(int x, int y) {
+		return bombs.countAt(x, y);
+	}
+
+	/**
+	 * Get one of the bombs in a grid cell.
+	 * 
+	 * @param x
+	 *            the x coordinate of the cell
+	 * @param y
+	 *            the y coordinate of the cell
+	 * @param index
+	 *            the index of the bomb, less than getBombCountAt(x, y)
+	 * @return the bomb
+	 */
+	public Bomb getBombAt(int x, int y, int index) {
+		return bombs.getAt(x, y, index);
+	}
+
+	/**
+	 * Get the number of live bombs of a player.
+	 * 
+	 * @param playerID
+	 *            the ID of the player
+	 * @return the number of bombs placed by the player that did not explode
+	 *         yet
+	 */
+	public int getBombCount(int playerID) {
+		return bombs.countOwnedBy(playerID);
 	}
 
 	/**
@@ -198,6 +284,46 @@ public class GameState {
 		this.holeCounter = holeCounter;
 	}
 
+	/**
+	 * Get the seed the random number generator of the game was created with.
+	 * 
+	 * @return the seed
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Get the random number generator of the game. Everything random in the
+	 * simulation (holes, power-ups) must come from it, so that a game can be
+	 * reproduced from its seed.
+	 * 
+	 * @return the random number generator
+	 */
+	public Random getRandom() {
+		return random;
+	}
+
+	/**
+	 * Publish a snapshot of the current state for the readers. Called by the
+	 * simulation at the end of every tick; it never waits for the readers.
+	 */
+	public void publishSnapshot() {
+		snapshots.publish(this);
+	}
+
+	/**
+	 * Get the last snapshot published by the simulation, without locking. The
+	 * snapshot must be closed after use, preferably with try-with-resources.
+	 * Until the simulation publishes its first snapshot, a snapshot of the
+	 * current state is taken on every call instead.
+	 * 
+	 * @return the snapshot
+	 */
+	public GameSnapshot acquireSnapshot() {
+		return snapshots.acquire(this);
+	}
+
 	/**
 	 * toString method.
 	 */
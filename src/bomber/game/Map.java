@@ -16,10 +16,11 @@ import java.util.List;
 public class Map {
 
 	private Block[][] gridMap; // the grid representation of the map
-	private Block[][] pixelMap; // the pixel representation of the map
 	private final int scalar = 64;
+	private final int scalarShift = 6; // log2(scalar), pixel to grid
 	private List<Point> spawnPoints;
 	private String name;
+	private MapListener listener;
 
 	/**
 	 * Create a new Map object.
@@ -36,7 +37,6 @@ public class Map {
 		this.name = name;
 		this.gridMap = gridMap;
 		this.spawnPoints = spawnPoints;
-		this.pixelMap = this.convertToPixel(gridMap);
 	}
 
 	/**
@@ -58,14 +58,6 @@ public class Map {
 		this.spawnPoints = spawnPoints;
 	}
 
-	/**
-	 * Update the pixel representation of the map to match the grid one.
-	 */
-	public void update() {
-
-		this.pixelMap = convertToPixel(this.gridMap);
-	}
-
 	/**
 	 * Convert a grid representation of the map into a pixel one.
 	 * 
@@ -99,13 +91,15 @@ public class Map {
 	}
 
 	/**
-	 * Get the pixel representation of the map.
+	 * Get the pixel representation of the map. The pixel map is no longer
+	 * stored, so this builds a new array from the grid on every call; use
+	 * {@link #getPixelBlockAt(int, int)} for lookups.
 	 * 
 	 * @return the pixel representation
 	 */
 	public Block[][] getPixelMap() {
 
-		return this.pixelMap;// get the larger pixel representation of the map
+		return convertToPixel(this.gridMap);
 	}
 
 	/**
@@ -123,7 +117,9 @@ public class Map {
 	} // get the block value of a grid space at the specified coords
 
 	/**
-	 * Get the block at a certain point in the pixel representation.
+	 * Get the block at a certain point in the pixel representation. This is
+	 * answered straight from the grid, so it always reflects the latest grid
+	 * changes.
 	 * 
 	 * @param x
 	 *            the x coordinate
@@ -133,7 +129,8 @@ public class Map {
 	 */
 	public Block getPixelBlockAt(int x, int y) {
 
-		return this.pixelMap[x][y];
+		// arithmetic shift keeps negative pixels out of bounds, as before
+		return this.gridMap[x >> scalarShift][y >> scalarShift];
 	}
 
 	/**
@@ -145,12 +142,43 @@ public class Map {
 	 *            the new block type
 	 */
 	public void setGridBlockAt(Point p, Block b) {
-		gridMap[p.x][p.y] = b;
-		update();
+		setGridBlockAt(p.x, p.y, b);
+	}
+
+	/**
+	 * Set the block at a certain point in the grid representation.
+	 * 
+	 * @param x
+	 *            the x coordinate
+	 * @param y
+	 *            the y coordinate
+	 * @param b
+	 *            the new block type
+	 */
+	public void setGridBlockAt(int x, int y, Block b) {
+		Block old = gridMap[x][y];
+		gridMap[x][y] = b;
+		if (listener != null && old != b) {
+			listener.blockChanged(x, y, old, b);
+		}
 	}
 
 	/**
-	 * Set the block at a certain point in the pixel representation.
+	 * Set the listener notified when a block changes through setGridBlockAt or
+	 * setPixelBlockAt. Changes made directly to the array returned by
+	 * getGridMap() are not seen by the listener.
+	 * 
+	 * @param listener
+	 *            the new listener, replacing any previous one, or null
+	 */
+	public void setListener(MapListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Set the block at a certain point in the pixel representation. Since
+	 * pixels are backed by the grid, this sets the whole grid cell containing
+	 * the pixel.
 	 * 
 	 * @param p
 	 *            the coordinates of the block
@@ -158,7 +186,7 @@ public class Map {
 	 *            the new block type
 	 */
 	public void setPixelBlockAt(Point p, Block b) {
-		pixelMap[p.x][p.y] = b;
+		setGridBlockAt(p.x >> scalarShift, p.y >> scalarShift, b);
 	}
 
 	/**
@@ -175,6 +203,19 @@ public class Map {
 		return false;
 	}
 
+	/**
+	 * Check if a point is within the bounds of the grid representation.
+	 * 
+	 * @param x
+	 *            the x coordinate
+	 * @param y
+	 *            the y coordinate
+	 * @return true if is within the bounds
+	 */
+	public boolean isInGridBounds(int x, int y) {
+		return x >= 0 && y >= 0 && x < gridMap.length && y < gridMap[0].length;
+	}
+
 	/**
 	 * toString method which displays the location of players and bombs too.
 	 * 
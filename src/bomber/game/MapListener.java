@@ -0,0 +1,22 @@
+package bomber.game;
+
+/**
+ * MapListener interface for "Bomb Blitz" Game Application (2017 Year 2
+ * Team Project, Team B1). Gets notified when a block of a map changes.
+ */
+public interface MapListener {
+
+	/**
+	 * Called after a block of the grid representation changed type.
+	 * 
+	 * @param x
+	 *            the x coordinate of the block
+	 * @param y
+	 *            the y coordinate of the block
+	 * @param oldBlock
+	 *            the previous block type
+	 * @param newBlock
+	 *            the new block type
+	 */
+	public void blockChanged(int x, int y, Block oldBlock, Block newBlock);
+}
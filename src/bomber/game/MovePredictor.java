@@ -0,0 +1,231 @@
+package bomber.game;
+
+import static bomber.game.Constants.MAP_BLOCK_TO_GRID_MULTIPLIER;
+
+import java.util.List;
+
+import bomber.physics.PhysicsEngine;
+
+/**
+ * MovePredictor class for "Bomb Blitz" Game Application (2017 Year 2
+ * Team Project, Team B1). Moves the player of an online game as soon as
+ * a move is sent, instead of a round trip later when the server sends
+ * it back. The moves are kept until a game state from the server
+ * confirms them; the player is then put back where the server has it
+ * and the moves still unconfirmed are made again. The difference this
+ * makes to the drawn position fades out quickly rather than showing as
+ * a jump.
+ */
+public class MovePredictor {
+
+	// number of unconfirmed moves kept, about 4 seconds of moves at 60 frames
+	// per second
+	private static final int CAPACITY = 256;
+
+	// the time in which a correction of the drawn position halves, in
+	// nanoseconds
+	private static final double CORRECTION_HALF_LIFE = 50000000.0;
+
+	// corrections longer than this (respawns) are not smoothed
+	private static final int MAX_SMOOTHED_DISTANCE = 2 * MAP_BLOCK_TO_GRID_MULTIPLIER;
+
+	private final PhysicsEngine physics;
+	private final int playerID;
+
+	// the moves not yet confirmed by the server, oldest first
+	private final short[] sequences = new short[CAPACITY];
+	private final Movement[] movements = new Movement[CAPACITY];
+	private final int[] durations = new int[CAPACITY];
+	private int first = 0;
+	private int count = 0;
+
+	// the predicted position of the player, with its sub-pixel parts
+	private boolean predicting = false;
+	private int x;
+	private int y;
+	private int subPixelX;
+	private int subPixelY;
+
+	// the offset of the drawn position from the predicted one, and the time
+	// it was last drawn at
+	private double errorX;
+	private double errorY;
+	private long lastDrawn = -1;
+
+	/**
+	 * Create a new MovePredictor object.
+	 *
+	 * @param gameState
+	 *            the game state received from the server
+	 * @param playerID
+	 *            the ID of the player of the client
+	 */
+	public MovePredictor(GameState gameState, int playerID) {
+
+		this.physics = new PhysicsEngine(gameState);
+		this.playerID = playerID;
+	}
+
+	/**
+	 * Make a move which has just been sent to the server.
+	 *
+	 * @param sequence
+	 *            the input sequence of the move
+	 * @param movement
+	 *            the movement of the move
+	 * @param milliseconds
+	 *            the time the move lasts
+	 * @param players
+	 *            the players of the game state
+	 */
+	public synchronized void predict(short sequence, Movement movement, int milliseconds, List<Player> players) {
+
+		if (this.count == CAPACITY) {
+			this.first = (this.first + 1) % CAPACITY;
+			this.count--;
+		}
+		int last = (this.first + this.count) % CAPACITY;
+		this.sequences[last] = sequence;
+		this.movements[last] = movement;
+		this.durations[last] = milliseconds;
+		this.count++;
+
+		Player player = find(players);
+		if (player == null || !player.isAlive()) {
+			return;
+		}
+		if (!this.predicting) {
+			this.x = player.getPos().x;
+			this.y = player.getPos().y;
+			this.subPixelX = 0;
+			this.subPixelY = 0;
+			this.predicting = true;
+		}
+		move(player, movement, milliseconds);
+	}
+
+	/**
+	 * Correct the prediction with a game state which has just been received:
+	 * the player is put back where the server has it, and the moves the
+	 * server had not applied yet are made again.
+	 *
+	 * @param appliedSequence
+	 *            the input sequence of the last move applied by the server
+	 * @param players
+	 *            the players of the game state
+	 */
+	public synchronized void reconcile(short appliedSequence, List<Player> players) {
+
+		// forget the moves the server has applied
+		while (this.count > 0 && (short) (this.sequences[this.first] - appliedSequence) <= 0) {
+			this.first = (this.first + 1) % CAPACITY;
+			this.count--;
+		}
+
+		Player player = find(players);
+		if (player == null || !player.isAlive()) {
+			this.predicting = false;
+			this.errorX = 0;
+			this.errorY = 0;
+			return;
+		}
+
+		int drawnX = this.x + (int) Math.round(this.errorX);
+		int drawnY = this.y + (int) Math.round(this.errorY);
+		boolean wasPredicting = this.predicting;
+
+		this.x = player.getPos().x;
+		this.y = player.getPos().y;
+		this.subPixelX = 0;
+		this.subPixelY = 0;
+		this.predicting = true;
+		for (int i = 0; i < this.count; i++) {
+			int slot = (this.first + i) % CAPACITY;
+			move(player, this.movements[slot], this.durations[slot]);
+		}
+
+		// keep drawing the player where it was, the offset fading out
+		this.errorX = 0;
+		this.errorY = 0;
+		if (wasPredicting && Math.abs(drawnX - this.x) + Math.abs(drawnY - this.y) <= MAX_SMOOTHED_DISTANCE) {
+			this.errorX = drawnX - this.x;
+			this.errorY = drawnY - this.y;
+		}
+		player.setPosition(this.x + (int) Math.round(this.errorX), this.y + (int) Math.round(this.errorY));
+	}
+
+	/**
+	 * Move the player to where it is drawn at a time.
+	 *
+	 * @param now
+	 *            the time, in nanoseconds
+	 * @param players
+	 *            the players of the game state
+	 */
+	public synchronized void apply(long now, List<Player> players) {
+
+		if (!this.predicting) {
+			return;
+		}
+		Player player = find(players);
+		if (player == null) {
+			return;
+		}
+
+		if (this.lastDrawn >= 0) {
+			double fade = Math.pow(0.5, (now - this.lastDrawn) / CORRECTION_HALF_LIFE);
+			this.errorX *= fade;
+			this.errorY *= fade;
+		}
+		this.lastDrawn = now;
+		player.setPosition(this.x + (int) Math.round(this.errorX), this.y + (int) Math.round(this.errorY));
+	}
+
+	/**
+	 * Get the number of moves not yet confirmed by the server.
+	 *
+	 * @return the number of moves
+	 */
+	public synchronized int getPendingMoves() {
+		return this.count;
+	}
+
+	/**
+	 * Move the player on from the predicted position.
+	 *
+	 * @param player
+	 *            the player
+	 * @param movement
+	 *            the movement
+	 * @param milliseconds
+	 *            the time the movement lasts
+	 */
+	private void move(Player player, Movement movement, int milliseconds) {
+
+		player.setPosition(this.x, this.y);
+		player.setSubPixels(this.subPixelX, this.subPixelY);
+		this.physics.predictMovement(player, movement, milliseconds);
+		this.x = player.getPos().x;
+		this.y = player.getPos().y;
+		this.subPixelX = player.getSubPixelX();
+		this.subPixelY = player.getSubPixelY();
+	}
+
+	/**
+	 * Find the player of the client.
+	 *
+	 * @param players
+	 *            the players of the game state
+	 * @return the player, or null if it is not in the game
+	 */
+	private Player find(List<Player> players) {
+
+		for (int i = 0; i < players.size(); i++) {
+			if (players.get(i).getPlayerID() == this.playerID) {
+				return players.get(i);
+			}
+		}
+		return null;
+	}
+
+}
@@ -44,6 +44,10 @@ public class OnlineGame implements GameInterface {
 	private boolean playMusic = true;
 	private Player player;
 	private boolean mutePressed;
+	private final SnapshotInterpolator snapshots = new SnapshotInterpolator();
+	private volatile MovePredictor prediction;
+	private long lastInputTime = -1;
+	private long inputRemainder = 0;
 
 	/**
 	 * Create a new OnlineGame object.
@@ -119,7 +123,7 @@ public class OnlineGame implements GameInterface {
 			// Set the player names to display.
 			int inc = 1;
 			for (Player player : this.gameState.getPlayers()) {
-				if (player.getPlayerID() <= 31) {
+				if (!player.isAI()) {
 					for (ClientServerPlayer onlinePlayer : this.onlinePlayers) {
 						if (player.getPlayerID() == onlinePlayer.getID()) {
 							player.setName(onlinePlayer.getName());
@@ -141,6 +145,13 @@ public class OnlineGame implements GameInterface {
 			// Create a keyboard state to use for input.
 			this.keyState = new KeyboardState();
 
+			// Predict the moves of the player.
+			if (this.player != null) {
+				this.snapshots.setPredictedPlayerID(this.player.getPlayerID());
+				this.prediction = new MovePredictor(this.gameState,
+						this.player.getPlayerID());
+			}
+
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
@@ -200,7 +211,17 @@ public class OnlineGame implements GameInterface {
 	@Override
 	public void render(Screen screen) {
 
-		this.renderer.render(screen, this.gameState);
+		// Draw the players where they were a playout delay ago, keeping the
+		// game state from being decoded into meanwhile.
+		List<Player> players = this.gameState.getPlayers();
+		synchronized (players) {
+			long now = System.nanoTime();
+			this.snapshots.interpolate(now, players);
+			if (this.prediction != null) {
+				this.prediction.apply(now, players);
+			}
+			this.renderer.render(screen, this.gameState);
+		}
 	}
 
 	/**
@@ -219,7 +240,22 @@ public class OnlineGame implements GameInterface {
 				this.controlScheme, this.bombPressed);
 		try {
 			// Send the move to the server.
-			this.client.sendMove(keyState);
+			short sequence = this.client.sendMove(keyState);
+
+			// Make the move at once, for the time since the last one.
+			long now = System.nanoTime();
+			long elapsed = this.lastInputTime < 0 ? 0
+					: now - this.lastInputTime + this.inputRemainder;
+			this.lastInputTime = now;
+			this.inputRemainder = elapsed % 1000000;
+			int milliseconds = (int) Math.min(elapsed / 1000000, 250);
+			if (this.prediction != null) {
+				List<Player> players = this.gameState.getPlayers();
+				synchronized (players) {
+					this.prediction.predict(sequence,
+							this.keyState.getMovement(), milliseconds, players);
+				}
+			}
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -240,6 +276,23 @@ public class OnlineGame implements GameInterface {
 
 	}
 
+	/**
+	 * Called from the client thread when a game state has been received, while
+	 * its players are locked.
+	 */
+	public void gameStateReceived() {
+
+		GameState state = this.client.getGameState();
+		if (state != null) {
+			this.snapshots.record(System.nanoTime(), state.getPlayers());
+			if (this.prediction != null) {
+				this.prediction.reconcile(
+						this.client.getAppliedInputSequence(),
+						state.getPlayers());
+			}
+		}
+	}
+
 	/**
 	 * Set the game ended status.
 	 * 
@@ -17,20 +17,31 @@ import bomber.AI.AIDifficulty;
  */
 public class Player {
 
-	private int playerID;
 	private String name;
-	private Point pos;
+	private Point pos; // mirrors the position in the store, or null
 	private Point gridPos;
+	private KeyboardState keyState;
+	private boolean ai; // whether the player is played by an AI
+
+	// the numeric state of the player is kept in a slot of a world store, or
+	// in the fields below while the player is in none
+	WorldStore store;
+	int slot = -1;
+	private int playerID;
+	private int x;
+	private int y;
+	private int subPixelX;
+	private int subPixelY;
 	private int lives;
-	private double speed;
+	private int speed; // in thousandths of a pixel per second
 	private int bombRange;
 	private int maxNrOfBombs;
-	private KeyboardState keyState;
-	private boolean isAlive;
 	private int invulnerability;
+	private boolean alive;
 
 	/**
-	 * Create a new Player object.
+	 * Create a new Player object. The player keeps its state in its own fields
+	 * until it is added to a game state.
 	 * 
 	 * @param name
 	 *            the player name
@@ -44,17 +55,67 @@ public class Player {
 	public Player(String name, Point pos, int lives, double speed) {
 
 		this.name = name;
-		this.pos = pos;
-		this.lives = lives;
-		this.speed = speed;
-		this.bombRange = 3; // setting the initial bomb range
+		setPos(pos);
+		setLives(lives);
+		setSpeed(speed);
+		setBombRange(3); // setting the initial bomb range
 
-		this.maxNrOfBombs = 2;
+		setMaxNrOfBombs(2);
 
-		this.isAlive = true;
+		setAlive(true);
 		this.keyState = new KeyboardState();
 		this.gridPos = new Point();
-		this.invulnerability = 0;
+		setInvulnerability(0);
+	}
+
+	/**
+	 * Move the state of this player to a new slot of another store.
+	 * 
+	 * @param to
+	 *            the other store
+	 */
+	void moveTo(WorldStore to) {
+
+		int toSlot = to.addPlayer(this);
+		if (this.store != null) {
+			this.store.copyPlayer(this.slot, to, toSlot);
+		} else {
+			to.playerIDs[toSlot] = this.playerID;
+			to.playerXs[toSlot] = this.x;
+			to.playerYs[toSlot] = this.y;
+			to.subPixelXs[toSlot] = this.subPixelX;
+			to.subPixelYs[toSlot] = this.subPixelY;
+			to.lives[toSlot] = this.lives;
+			to.speeds[toSlot] = this.speed;
+			to.bombRanges[toSlot] = this.bombRange;
+			to.maxNrOfBombs[toSlot] = this.maxNrOfBombs;
+			to.invulnerabilities[toSlot] = this.invulnerability;
+			to.alive[toSlot] = this.alive;
+		}
+		this.store = to;
+		this.slot = toSlot;
+	}
+
+	/**
+	 * Move the state of this player out of its store into its own fields.
+	 */
+	void detach() {
+
+		WorldStore from = this.store;
+		int fromSlot = this.slot;
+		this.playerID = from.playerIDs[fromSlot];
+		this.x = from.playerXs[fromSlot];
+		this.y = from.playerYs[fromSlot];
+		this.subPixelX = from.subPixelXs[fromSlot];
+		this.subPixelY = from.subPixelYs[fromSlot];
+		this.lives = from.lives[fromSlot];
+		this.speed = from.speeds[fromSlot];
+		this.bombRange = from.bombRanges[fromSlot];
+		this.maxNrOfBombs = from.maxNrOfBombs[fromSlot];
+		this.invulnerability = from.invulnerabilities[fromSlot];
+		this.alive = from.alive[fromSlot];
+		this.store = null;
+		this.slot = -1;
 	}
 
 	/**
@@ -63,7 +124,7 @@ public class Player {
 	 * @return the playerID
 	 */
 	public int getPlayerID() {
-		return playerID;
+		return this.store == null ? this.playerID : this.store.playerIDs[this.slot];
 	}
 
 	/**
@@ -73,7 +134,30 @@ public class Player {
 	 *            the new playerID
 	 */
 	public void setPlayerID(int playerID) {
-		this.playerID = playerID;
+		if (this.store == null) {
+			this.playerID = playerID;
+		} else {
+			this.store.playerIDs[this.slot] = playerID;
+		}
+	}
+
+	/**
+	 * Check if this player is played by an AI.
+	 * 
+	 * @return true if the player is an AI
+	 */
+	public boolean isAI() {
+		return this.ai;
+	}
+
+	/**
+	 * Set whether this player is played by an AI.
+	 * 
+	 * @param ai
+	 *            true if the player is an AI
+	 */
+	public void setAI(boolean ai) {
+		this.ai = ai;
 	}
 
 	/**
@@ -83,13 +167,20 @@ public class Player {
 
 	}
 
+	/**
+	 * Only used for GameAI.
+	 */
+	public void tick(int milliseconds) {
+
+	}
+
 	/**
 	 * Get the bomb range for this player.
 	 * 
 	 * @return the bomb range
 	 */
 	public int getBombRange() {
-		return bombRange;
+		return this.store == null ? this.bombRange : this.store.bombRanges[this.slot];
 	}
 
 	/**
@@ -99,7 +190,11 @@ public class Player {
 	 *            the new bomb range
 	 */
 	public void setBombRange(int bombRange) {
-		this.bombRange = bombRange;
+		if (this.store == null) {
+			this.bombRange = bombRange;
+		} else {
+			this.store.bombRanges[this.slot] = bombRange;
+		}
 	}
 
 	/**
@@ -124,12 +219,18 @@ public class Player {
 	}
 
 	/**
-	 * Get the position of this player
+	 * Get the position of this player. The point is a copy of the position in
+	 * the store, refreshed on every call, so changing it does not move the
+	 * player: use setPos or setPosition instead.
 	 * 
-	 * @return the position
+	 * @return the position, or null if the player has none
 	 */
 	public Point getPos() {
 
+		if (this.pos != null) {
+			this.pos.x = this.store == null ? this.x : this.store.playerXs[this.slot];
+			this.pos.y = this.store == null ? this.y : this.store.playerYs[this.slot];
+		}
 		return this.pos;
 	}
 
@@ -141,7 +242,72 @@ public class Player {
 	 */
 	public void setPos(Point pos) {
 		this.pos = pos;
-		updatePos();
+		if (pos != null) {
+			setPosition(pos.x, pos.y);
+		}
+		setSubPixels(0, 0);
+	}
+
+	/**
+	 * Set the position of this player, keeping the sub-pixel parts of the
+	 * coordinates.
+	 * 
+	 * @param x
+	 *            the new x coordinate
+	 * @param y
+	 *            the new y coordinate
+	 */
+	public void setPosition(int x, int y) {
+		if (this.pos == null) {
+			this.pos = new Point();
+		}
+		this.pos.x = x;
+		this.pos.y = y;
+		if (this.store == null) {
+			this.x = x;
+			this.y = y;
+		} else {
+			this.store.playerXs[this.slot] = x;
+			this.store.playerYs[this.slot] = y;
+		}
+	}
+
+	/**
+	 * Get the sub-pixel part of the x coordinate of this player. The exact x
+	 * coordinate is pos.x + subPixelX / SUB_PIXELS_PER_PIXEL.
+	 * 
+	 * @return the sub-pixel part, between 0 and SUB_PIXELS_PER_PIXEL - 1
+	 */
+	public int getSubPixelX() {
+		return this.store == null ? this.subPixelX : this.store.subPixelXs[this.slot];
+	}
+
+	/**
+	 * Get the sub-pixel part of the y coordinate of this player. The exact y
+	 * coordinate is pos.y + subPixelY / SUB_PIXELS_PER_PIXEL.
+	 * 
+	 * @return the sub-pixel part, between 0 and SUB_PIXELS_PER_PIXEL - 1
+	 */
+	public int getSubPixelY() {
+		return this.store == null ? this.subPixelY : this.store.subPixelYs[this.slot];
+	}
+
+	/**
+	 * Set the sub-pixel parts of the coordinates of this player.
+	 * 
+	 * @param subPixelX
+	 *            the new sub-pixel part of the x coordinate
+	 * @param subPixelY
+	 *            the new sub-pixel part of the y coordinate
+	 */
+	public void setSubPixels(int subPixelX, int subPixelY) {
+		if (this.store == null) {
+			this.subPixelX = subPixelX;
+			this.subPixelY = subPixelY;
+		} else {
+			this.store.subPixelXs[this.slot] = subPixelX;
+			this.store.subPixelYs[this.slot] = subPixelY;
+		}
 	}
 
 	/**
@@ -151,8 +317,8 @@ public class Player {
 	 */
 	public Point getGridPos() {
 
-		int x = pos.x / MAP_BLOCK_TO_GRID_MULTIPLIER;
-		int y = pos.y / MAP_BLOCK_TO_GRID_MULTIPLIER;
+		int x = (this.store == null ? this.x : this.store.playerXs[this.slot]) / MAP_BLOCK_TO_GRID_MULTIPLIER;
+		int y = (this.store == null ? this.y : this.store.playerYs[this.slot]) / MAP_BLOCK_TO_GRID_MULTIPLIER;
 		gridPos.setLocation(x, y);
 		return gridPos;
 	}
@@ -167,21 +333,13 @@ public class Player {
 		this.gridPos = gridPos;
 	}
 
-	/**
-	 * Update the grid position of this player.
-	 */
-	private void updatePos() {
-		this.gridPos.setLocation((pos.x / MAP_BLOCK_TO_GRID_MULTIPLIER),
-				(pos.y / MAP_BLOCK_TO_GRID_MULTIPLIER));
-	}
-
 	/**
 	 * Get the lives of this player.
 	 * 
 	 * @return the lives
 	 */
 	public int getLives() {
-		return lives;
+		return this.store == null ? this.lives : this.store.lives[this.slot];
 	}
 
 	/**
@@ -191,7 +349,11 @@ public class Player {
 	 *            the new lives
 	 */
 	public void setLives(int lives) {
-		this.lives = lives;
+		if (this.store == null) {
+			this.lives = lives;
+		} else {
+			this.store.lives[this.slot] = lives;
+		}
 	}
 
 	/**
@@ -200,7 +362,7 @@ public class Player {
 	 * @return the speed
 	 */
 	public double getSpeed() {
-		return speed;
+		return (this.store == null ? this.speed : this.store.speeds[this.slot]) / 1000.0;
 	}
 
 	/**
@@ -210,7 +372,11 @@ public class Player {
 	 *            the new speed
 	 */
 	public void setSpeed(double speed) {
-		this.speed = speed;
+		if (this.store == null) {
+			this.speed = (int) Math.round(speed * 1000);
+		} else {
+			this.store.speeds[this.slot] = (int) Math.round(speed * 1000);
+		}
 	}
 
 	/**
@@ -238,7 +404,7 @@ public class Player {
 	 * @return true if the player is alive
 	 */
 	public boolean isAlive() {
-		return isAlive;
+		return this.store == null ? this.alive : this.store.alive[this.slot];
 	}
 
 	/**
@@ -248,7 +414,11 @@ public class Player {
 	 *            true if the player is alive
 	 */
 	public void setAlive(boolean isAlive) {
-		this.isAlive = isAlive;
+		if (this.store == null) {
+			this.alive = isAlive;
+		} else {
+			this.store.alive[this.slot] = isAlive;
+		}
 	}
 
 	/**
@@ -257,7 +427,7 @@ public class Player {
 	 * @return the max number of bombs
 	 */
 	public int getMaxNrOfBombs() {
-		return maxNrOfBombs;
+		return this.store == null ? this.maxNrOfBombs : this.store.maxNrOfBombs[this.slot];
 	}
 
 	/**
@@ -267,7 +437,11 @@ public class Player {
 	 *            the new max number of bombs
 	 */
 	public void setMaxNrOfBombs(int maxNrOfBombs) {
-		this.maxNrOfBombs = maxNrOfBombs;
+		if (this.store == null) {
+			this.maxNrOfBombs = maxNrOfBombs;
+		} else {
+			this.store.maxNrOfBombs[this.slot] = maxNrOfBombs;
+		}
 	}
 
 	/**
@@ -276,7 +450,7 @@ public class Player {
 	 * @return the invulnerability time
 	 */
 	public int getInvulnerability() {
-		return invulnerability;
+		return this.store == null ? this.invulnerability : this.store.invulnerabilities[this.slot];
 	}
 
 	/**
@@ -286,7 +460,11 @@ public class Player {
 	 *            the new invulnerability time
 	 */
 	public void setInvulnerability(int invulnerability) {
-		this.invulnerability = invulnerability;
+		if (this.store == null) {
+			this.invulnerability = invulnerability;
+		} else {
+			this.store.invulnerabilities[this.slot] = invulnerability;
+		}
 	}
 
 	/**
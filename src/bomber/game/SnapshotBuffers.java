@@ -0,0 +1,103 @@
+package bomber.game;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SnapshotBuffers class for "Bomb Blitz" Game Application (2017 Year 2
+ * Team Project, Team B1). The snapshot buffers of a game state. The
+ * simulation fills a buffer that is neither published nor held by a
+ * reader and then publishes it, so it never waits for the readers; the
+ * readers take the published buffer without locking. Two buffers are
+ * enough when the readers close their snapshots before the next tick,
+ * and more are created while readers hold on to older ones.
+ */
+class SnapshotBuffers {
+
+	private final List<GameSnapshot> buffers;
+	private volatile GameSnapshot published;
+	private GameSnapshot spare; // the buffer published before the last one
+	private long version;
+	private volatile boolean publishing;
+
+	/**
+	 * Create a new SnapshotBuffers object, without buffers.
+	 */
+	SnapshotBuffers() {
+
+		this.buffers = new ArrayList<GameSnapshot>();
+	}
+
+	/**
+	 * Publish a snapshot of a game state.
+	 *
+	 * @param state
+	 *            the game state
+	 */
+	void publish(GameState state) {
+
+		synchronized (this.buffers) {
+			this.published = fill(state);
+		}
+		this.publishing = true;
+	}
+
+	/**
+	 * Take the published snapshot, or a snapshot of the current state if
+	 * nothing was published yet.
+	 *
+	 * @param state
+	 *            the game state
+	 * @return the snapshot, which must be closed
+	 */
+	GameSnapshot acquire(GameState state) {
+
+		if (!this.publishing) {
+			synchronized (this.buffers) {
+				GameSnapshot taken = fill(state);
+				taken.holders.incrementAndGet();
+				return taken;
+			}
+		}
+		while (true) {
+			GameSnapshot snapshot = this.published;
+			snapshot.holders.incrementAndGet();
+			// the buffer may have been reused between the two reads
+			if (this.published == snapshot) {
+				return snapshot;
+			}
+			snapshot.close();
+		}
+	}
+
+	/**
+	 * Copy a game state into a buffer that is neither published nor held by a
+	 * reader, creating a buffer if there is none.
+	 *
+	 * @param state
+	 *            the game state
+	 * @return the filled buffer
+	 */
+	private GameSnapshot fill(GameState state) {
+
+		GameSnapshot current = this.published;
+		GameSnapshot free = this.spare;
+		if (free == null || free == current || free.holders.get() != 0) {
+			// a reader still holds the spare buffer
+			free = null;
+			for (int i = 0; i < this.buffers.size() && free == null; i++) {
+				GameSnapshot buffer = this.buffers.get(i);
+				if (buffer != current && buffer.holders.get() == 0) {
+					free = buffer;
+				}
+			}
+			if (free == null) {
+				free = new GameSnapshot();
+				this.buffers.add(free);
+			}
+		}
+		free.copyFrom(state, ++this.version);
+		this.spare = current;
+		return free;
+	}
+}
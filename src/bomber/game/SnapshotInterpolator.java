@@ -0,0 +1,247 @@
+package bomber.game;
+
+import static bomber.game.Constants.MAP_BLOCK_TO_GRID_MULTIPLIER;
+
+import java.util.List;
+
+/**
+ * SnapshotInterpolator class for "Bomb Blitz" Game Application (2017
+ * Year 2 Team Project, Team B1). A ring of the player positions of the
+ * most recent game states received from the server, each stamped with
+ * its arrival time. The players are drawn a playout delay in the past,
+ * at positions interpolated between the two states around that time, so
+ * that the game moves smoothly however far apart the states arrive. The
+ * delay follows the interval and the jitter of the arrivals, and when
+ * no state has arrived in time the players are moved on for a short
+ * while at their last speed.
+ */
+public class SnapshotInterpolator {
+
+	// number of states kept
+	private static final int CAPACITY = 32;
+
+	// the longest playout delay, in nanoseconds
+	private static final long MAX_DELAY = 250000000L;
+
+	// the longest time the players are moved on past the newest state, in
+	// nanoseconds
+	private static final long MAX_EXTRAPOLATION = 100000000L;
+
+	// moves longer than this between two states (respawns) are not smoothed
+	private static final int MAX_SMOOTHED_DISTANCE = 2 * MAP_BLOCK_TO_GRID_MULTIPLIER;
+
+	// the arrival time and the players of each state
+	private final long[] times = new long[CAPACITY];
+	private final int[] counts = new int[CAPACITY];
+	private final int[][] ids = new int[CAPACITY][0];
+	private final int[][] xs = new int[CAPACITY][0];
+	private final int[][] ys = new int[CAPACITY][0];
+	private final boolean[][] alive = new boolean[CAPACITY][0];
+	private int newest = -1;
+	private int size = 0;
+
+	// the smoothed interval and jitter of the arrivals, and the playout delay
+	// following them, in nanoseconds
+	private double interval = -1;
+	private double jitter = 0;
+	private double delay = 0;
+
+	// the last time the players were drawn at, which never goes back
+	private long lastRenderTime = Long.MIN_VALUE;
+
+	// the player whose position is predicted rather than interpolated, -1
+	// for none
+	private int predictedPlayerID = -1;
+
+	/**
+	 * Record the positions of the players of a state which has just arrived.
+	 *
+	 * @param now
+	 *            the arrival time, in nanoseconds
+	 * @param players
+	 *            the players of the state
+	 */
+	public synchronized void record(long now, List<Player> players) {
+
+		if (this.size > 0) {
+			// smooth the interval and its deviation as RTP does for jitter
+			double sinceLast = now - this.times[this.newest];
+			if (this.interval < 0) {
+				this.interval = sinceLast;
+			} else {
+				this.jitter += (Math.abs(sinceLast - this.interval) - this.jitter) / 16;
+				this.interval += (sinceLast - this.interval) / 8;
+			}
+
+			// the next state is awaited for an interval and twice its jitter
+			double target = Math.min(this.interval + 2 * this.jitter, MAX_DELAY);
+			if (this.size == 1) {
+				this.delay = target;
+			} else {
+				this.delay += (target - this.delay) / 8;
+			}
+		}
+
+		int slot = (this.newest + 1) % CAPACITY;
+		int count = players.size();
+		if (this.ids[slot].length < count) {
+			this.ids[slot] = new int[count];
+			this.xs[slot] = new int[count];
+			this.ys[slot] = new int[count];
+			this.alive[slot] = new boolean[count];
+		}
+
+		for (int i = 0; i < count; i++) {
+			Player player = players.get(i);
+			this.ids[slot][i] = player.getPlayerID();
+			this.xs[slot][i] = player.getPos().x;
+			this.ys[slot][i] = player.getPos().y;
+			this.alive[slot][i] = player.isAlive();
+		}
+		this.counts[slot] = count;
+		this.times[slot] = now;
+
+		this.newest = slot;
+		this.size = Math.min(this.size + 1, CAPACITY);
+	}
+
+	/**
+	 * Move the players to where they are drawn at a time: the time less the
+	 * playout delay. Players which are not in the recorded states are left
+	 * where they are.
+	 *
+	 * @param now
+	 *            the time, in nanoseconds
+	 * @param players
+	 *            the players to move
+	 */
+	public synchronized void interpolate(long now, List<Player> players) {
+
+		if (this.size == 0) {
+			return;
+		}
+
+		long renderTime = Math.max(now - (long) this.delay, this.lastRenderTime);
+		this.lastRenderTime = renderTime;
+
+		// find the states before and after the render time
+		int to = this.newest;
+		int from = -1;
+		for (int n = 1; n < this.size; n++) {
+			int slot = (this.newest - n + CAPACITY) % CAPACITY;
+			if (this.times[slot] <= renderTime) {
+				from = slot;
+				break;
+			}
+			to = slot;
+		}
+
+		if (this.times[to] <= renderTime) {
+			// no state has arrived after the render time: move the players on
+			// from the newest state at the speed they had coming to it
+			if (this.size > 1) {
+				from = (this.newest - 1 + CAPACITY) % CAPACITY;
+				double span = this.times[to] - this.times[from];
+				double ahead = Math.min(renderTime - this.times[to], MAX_EXTRAPOLATION);
+				move(players, from, to, span > 0 ? 1 + ahead / span : 1);
+			} else {
+				move(players, to, to, 1);
+			}
+		} else if (from < 0) {
+			// the render time is before every state kept
+			move(players, to, to, 1);
+		} else {
+			double span = this.times[to] - this.times[from];
+			move(players, from, to, (renderTime - this.times[from]) / span);
+		}
+	}
+
+	/**
+	 * Set the player whose position is predicted by the client, which is left
+	 * where it is.
+	 *
+	 * @param playerID
+	 *            the ID of the player, or -1 for none
+	 */
+	public synchronized void setPredictedPlayerID(int playerID) {
+		this.predictedPlayerID = playerID;
+	}
+
+	/**
+	 * Get the playout delay.
+	 *
+	 * @return the delay, in nanoseconds
+	 */
+	public synchronized long getDelay() {
+		return (long) this.delay;
+	}
+
+	/**
+	 * Move the players along the line between two states.
+	 *
+	 * @param players
+	 *            the players to move
+	 * @param from
+	 *            the slot of the first state
+	 * @param to
+	 *            the slot of the second state
+	 * @param t
+	 *            the point on the line, 0 at the first state and 1 at the
+	 *            second
+	 */
+	private void move(List<Player> players, int from, int to, double t) {
+
+		for (int i = 0; i < players.size(); i++) {
+			Player player = players.get(i);
+			int id = player.getPlayerID();
+			if (id == this.predictedPlayerID) {
+				continue;
+			}
+
+			int j = indexOf(to, id, i);
+			if (j < 0) {
+				continue;
+			}
+			int x = this.xs[to][j];
+			int y = this.ys[to][j];
+
+			int k = indexOf(from, id, i);
+			if (k >= 0 && this.alive[from][k] && this.alive[to][j]) {
+				int dx = x - this.xs[from][k];
+				int dy = y - this.ys[from][k];
+				if (Math.abs(dx) + Math.abs(dy) <= MAX_SMOOTHED_DISTANCE) {
+					x = this.xs[from][k] + (int) Math.round(dx * t);
+					y = this.ys[from][k] + (int) Math.round(dy * t);
+				}
+			}
+
+			player.setPosition(x, y);
+		}
+	}
+
+	/**
+	 * Find a player in a state.
+	 *
+	 * @param slot
+	 *            the slot of the state
+	 * @param id
+	 *            the ID of the player
+	 * @param hint
+	 *            the index the player is likely at, as the server keeps the
+	 *            order of the players
+	 * @return the index of the player in the state, or -1 if it is not in it
+	 */
+	private int indexOf(int slot, int id, int hint) {
+
+		if (hint < this.counts[slot] && this.ids[slot][hint] == id) {
+			return hint;
+		}
+		for (int i = 0; i < this.counts[slot]; i++) {
+			if (this.ids[slot][i] == id) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+}
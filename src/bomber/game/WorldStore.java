@@ -0,0 +1,516 @@
+package bomber.game;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * WorldStore class for "Bomb Blitz" Game Application (2017 Year 2 Team
+ * Project, Team B1). Holds the numeric state of the players and bombs of
+ * a game in parallel primitive arrays (one slot per entity), so that a
+ * tick can scan them without going through the objects. Player and Bomb
+ * objects are views over a slot: their getters and setters read and
+ * write the arrays. An entity that is not in a game state keeps its state
+ * in fields of its own, so that creating or detaching one allocates no
+ * arrays.
+ *
+ * The players are kept in the order of the players list of the game
+ * state, and the bombs in the order of its bomb list. The arrays can be
+ * replaced when the store grows, so they must be fetched again after
+ * players or bombs are added.
+ */
+public class WorldStore {
+
+	// players, indexed by slot
+	int playerCount;
+	Player[] players;
+	int[] playerIDs;
+	int[] playerXs;
+	int[] playerYs;
+	int[] subPixelXs;
+	int[] subPixelYs;
+	int[] lives;
+	int[] speeds; // in thousandths of a pixel per second
+	int[] bombRanges;
+	int[] maxNrOfBombs;
+	int[] invulnerabilities;
+	boolean[] alive;
+
+	// bombs, indexed by slot
+	int bombCount;
+	Bomb[] bombs;
+	int[] bombOwners;
+	int[] bombXs;
+	int[] bombYs;
+	int[] bombTimes;
+	int[] bombRadii;
+
+	/**
+	 * Create a new, empty WorldStore object.
+	 */
+	public WorldStore() {
+
+		resizePlayers(0);
+		resizeBombs(0);
+	}
+
+	/**
+	 * Get the number of players in the store.
+	 *
+	 * @return the number of players
+	 */
+	public int getPlayerCount() {
+		return this.playerCount;
+	}
+
+	/**
+	 * Get the player IDs, indexed by slot.
+	 *
+	 * @return the player IDs
+	 */
+	public int[] getPlayerIDs() {
+		return this.playerIDs;
+	}
+
+	/**
+	 * Get the x coordinates of the players, indexed by slot.
+	 *
+	 * @return the x coordinates
+	 */
+	public int[] getPlayerXs() {
+		return this.playerXs;
+	}
+
+	/**
+	 * Get the y coordinates of the players, indexed by slot.
+	 *
+	 * @return the y coordinates
+	 */
+	public int[] getPlayerYs() {
+		return this.playerYs;
+	}
+
+	/**
+	 * Get the sub-pixel parts of the x coordinates of the players, indexed by
+	 * slot.
+	 *
+	 * @return the sub-pixel parts
+	 */
+	public int[] getSubPixelXs() {
+		return this.subPixelXs;
+	}
+
+	/**
+	 * Get the sub-pixel parts of the y coordinates of the players, indexed by
+	 * slot.
+	 *
+	 * @return the sub-pixel parts
+	 */
+	public int[] getSubPixelYs() {
+		return this.subPixelYs;
+	}
+
+	/**
+	 * Get the lives of the players, indexed by slot.
+	 *
+	 * @return the lives
+	 */
+	public int[] getLives() {
+		return this.lives;
+	}
+
+	/**
+	 * Get the speeds of the players in thousandths of a pixel per second,
+	 * indexed by slot.
+	 *
+	 * @return the speeds
+	 */
+	public int[] getSpeeds() {
+		return this.speeds;
+	}
+
+	/**
+	 * Get the bomb ranges of the players, indexed by slot.
+	 *
+	 * @return the bomb ranges
+	 */
+	public int[] getBombRanges() {
+		return this.bombRanges;
+	}
+
+	/**
+	 * Get the maximum numbers of bombs of the players, indexed by slot.
+	 *
+	 * @return the maximum numbers of bombs
+	 */
+	public int[] getMaxNrOfBombs() {
+		return this.maxNrOfBombs;
+	}
+
+	/**
+	 * Get the invulnerability times of the players, indexed by slot.
+	 *
+	 * @return the invulnerability times
+	 */
+	public int[] getInvulnerabilities() {
+		return this.invulnerabilities;
+	}
+
+	/**
+	 * Get whether each player is alive, indexed by slot.
+	 *
+	 * @return the alive flags
+	 */
+	public boolean[] getAlive() {
+		return this.alive;
+	}
+
+	/**
+	 * Get the number of bombs in the store.
+	 *
+	 * @return the number of bombs
+	 */
+	public int getBombCount() {
+		return this.bombCount;
+	}
+
+	/**
+	 * Get whether there is a bomb in a slot. The bomb list of a game state can
+	 * hold nulls, which have an empty slot.
+	 *
+	 * @param slot
+	 *            the slot
+	 * @return true if the slot holds a bomb
+	 */
+	public boolean hasBomb(int slot) {
+		return this.bombs[slot] != null;
+	}
+
+	/**
+	 * Get the player IDs of the owners of the bombs, indexed by slot.
+	 *
+	 * @return the player IDs
+	 */
+	public int[] getBombOwners() {
+		return this.bombOwners;
+	}
+
+	/**
+	 * Get the x coordinates of the bombs, indexed by slot.
+	 *
+	 * @return the x coordinates
+	 */
+	public int[] getBombXs() {
+		return this.bombXs;
+	}
+
+	/**
+	 * Get the y coordinates of the bombs, indexed by slot.
+	 *
+	 * @return the y coordinates
+	 */
+	public int[] getBombYs() {
+		return this.bombYs;
+	}
+
+	/**
+	 * Get the detonation times of the bombs, indexed by slot.
+	 *
+	 * @return the detonation times
+	 */
+	public int[] getBombTimes() {
+		return this.bombTimes;
+	}
+
+	/**
+	 * Get the radii of the bombs, indexed by slot.
+	 *
+	 * @return the radii
+	 */
+	public int[] getBombRadii() {
+		return this.bombRadii;
+	}
+
+	/**
+	 * Add a slot for a player at the end of the store.
+	 *
+	 * @param player
+	 *            the player viewing the slot
+	 * @return the new slot
+	 */
+	int addPlayer(Player player) {
+
+		if (this.playerCount == this.players.length) {
+			resizePlayers(Math.max(1, this.playerCount * 2));
+		}
+		this.players[this.playerCount] = player;
+		return this.playerCount++;
+	}
+
+	/**
+	 * Make the player slots match a list of players, in order. The players
+	 * that are not in the store yet are moved into it, and the players that
+	 * left the list keep their state in their own fields. Does nothing if the
+	 * slots already match.
+	 *
+	 * @param list
+	 *            the players
+	 */
+	void syncPlayers(List<Player> list) {
+
+		int count = list == null ? 0 : list.size();
+		boolean inOrder = count == this.playerCount;
+		for (int i = 0; inOrder && i < count; i++) {
+			Player player = list.get(i);
+			inOrder = player == null || (player.store == this && player.slot == i);
+		}
+		if (inOrder) {
+			return;
+		}
+
+		// every player keeps its state while the slots are laid out again
+		for (int i = 0; i < this.playerCount; i++) {
+			Player player = this.players[i];
+			if (player != null && player.store == this) {
+				player.detach();
+			}
+		}
+		Arrays.fill(this.players, null);
+		this.playerCount = 0;
+		if (this.players.length < count) {
+			resizePlayers(count);
+		}
+		for (int i = 0; i < count; i++) {
+			Player player = list.get(i);
+			if (player == null) {
+				this.alive[addPlayer(null)] = false;
+			} else {
+				player.moveTo(this);
+			}
+		}
+	}
+
+	/**
+	 * Copy the state of a player slot to another store.
+	 *
+	 * @param slot
+	 *            the slot in this store
+	 * @param to
+	 *            the other store
+	 * @param toSlot
+	 *            the slot in the other store
+	 */
+	void copyPlayer(int slot, WorldStore to, int toSlot) {
+
+		to.playerIDs[toSlot] = this.playerIDs[slot];
+		to.playerXs[toSlot] = this.playerXs[slot];
+		to.playerYs[toSlot] = this.playerYs[slot];
+		to.subPixelXs[toSlot] = this.subPixelXs[slot];
+		to.subPixelYs[toSlot] = this.subPixelYs[slot];
+		to.lives[toSlot] = this.lives[slot];
+		to.speeds[toSlot] = this.speeds[slot];
+		to.bombRanges[toSlot] = this.bombRanges[slot];
+		to.maxNrOfBombs[toSlot] = this.maxNrOfBombs[slot];
+		to.invulnerabilities[toSlot] = this.invulnerabilities[slot];
+		to.alive[toSlot] = this.alive[slot];
+	}
+
+	/**
+	 * Insert a bomb slot, moving the slots from index onwards up by one.
+	 *
+	 * @param index
+	 *            the slot of the new bomb
+	 * @param bomb
+	 *            the bomb, whose state is copied into the slot, or null
+	 */
+	void insertBomb(int index, Bomb bomb) {
+
+		if (this.bombCount == this.bombs.length) {
+			resizeBombs(Math.max(1, this.bombCount * 2));
+		}
+		int moved = this.bombCount - index;
+		System.arraycopy(this.bombs, index, this.bombs, index + 1, moved);
+		System.arraycopy(this.bombOwners, index, this.bombOwners, index + 1, moved);
+		System.arraycopy(this.bombXs, index, this.bombXs, index + 1, moved);
+		System.arraycopy(this.bombYs, index, this.bombYs, index + 1, moved);
+		System.arraycopy(this.bombTimes, index, this.bombTimes, index + 1, moved);
+		System.arraycopy(this.bombRadii, index, this.bombRadii, index + 1, moved);
+		this.bombCount++;
+		this.bombs[index] = null;
+		reslotBombs(index + 1, this.bombCount);
+		setBomb(index, bomb);
+	}
+
+	/**
+	 * Put a bomb in an existing slot. The bomb previously in the slot keeps
+	 * its state in its own fields.
+	 *
+	 * @param index
+	 *            the slot
+	 * @param bomb
+	 *            the bomb, whose state is copied into the slot, or null
+	 */
+	void setBomb(int index, Bomb bomb) {
+
+		Bomb old = this.bombs[index];
+		if (old == bomb && bomb != null) {
+			return;
+		}
+		if (old != null && old.store == this) {
+			old.detach();
+		}
+		this.bombs[index] = bomb;
+		if (bomb != null) {
+			WorldStore from = bomb.store;
+			int fromSlot = bomb.slot;
+			bomb.copyTo(this, index);
+			if (from == this) {
+				this.bombs[fromSlot] = null;
+			}
+			bomb.store = this;
+			bomb.slot = index;
+		}
+	}
+
+	/**
+	 * Remove a bomb slot, moving the slots after it down by one. The bomb
+	 * keeps its state in its own fields.
+	 *
+	 * @param index
+	 *            the slot
+	 */
+	void removeBomb(int index) {
+
+		Bomb bomb = this.bombs[index];
+		if (bomb != null && bomb.store == this) {
+			bomb.detach();
+		}
+		int moved = this.bombCount - index - 1;
+		System.arraycopy(this.bombs, index + 1, this.bombs, index, moved);
+		System.arraycopy(this.bombOwners, index + 1, this.bombOwners, index, moved);
+		System.arraycopy(this.bombXs, index + 1, this.bombXs, index, moved);
+		System.arraycopy(this.bombYs, index + 1, this.bombYs, index, moved);
+		System.arraycopy(this.bombTimes, index + 1, this.bombTimes, index, moved);
+		System.arraycopy(this.bombRadii, index + 1, this.bombRadii, index, moved);
+		this.bombCount--;
+		this.bombs[this.bombCount] = null;
+		reslotBombs(index, this.bombCount);
+	}
+
+	/**
+	 * Remove every bomb slot marked in a mask, keeping the others in order. The
+	 * removed bombs keep their state in their own fields.
+	 *
+	 * @param removed
+	 *            whether each slot is removed
+	 */
+	void removeBombs(boolean[] removed) {
+
+		int kept = 0;
+		for (int i = 0; i < this.bombCount; i++) {
+			Bomb bomb = this.bombs[i];
+			if (removed[i]) {
+				if (bomb != null && bomb.store == this) {
+					bomb.detach();
+				}
+				continue;
+			}
+			if (kept != i) {
+				copyBomb(i, this, kept);
+				this.bombs[kept] = bomb;
+				if (bomb != null) {
+					bomb.slot = kept;
+				}
+			}
+			kept++;
+		}
+		Arrays.fill(this.bombs, kept, this.bombCount, null);
+		this.bombCount = kept;
+	}
+
+	/**
+	 * Copy the state of a bomb slot to another store.
+	 *
+	 * @param slot
+	 *            the slot in this store
+	 * @param to
+	 *            the other store
+	 * @param toSlot
+	 *            the slot in the other store
+	 */
+	void copyBomb(int slot, WorldStore to, int toSlot) {
+
+		to.bombOwners[toSlot] = this.bombOwners[slot];
+		to.bombXs[toSlot] = this.bombXs[slot];
+		to.bombYs[toSlot] = this.bombYs[slot];
+		to.bombTimes[toSlot] = this.bombTimes[slot];
+		to.bombRadii[toSlot] = this.bombRadii[slot];
+	}
+
+	/**
+	 * Tell the bombs in a range of slots where they are after slots moved.
+	 *
+	 * @param from
+	 *            the first slot
+	 * @param to
+	 *            the slot after the last one
+	 */
+	private void reslotBombs(int from, int to) {
+
+		for (int i = from; i < to; i++) {
+			if (this.bombs[i] != null) {
+				this.bombs[i].slot = i;
+			}
+		}
+	}
+
+	/**
+	 * Resize the player arrays, keeping the slots that fit.
+	 *
+	 * @param capacity
+	 *            the new capacity
+	 */
+	private void resizePlayers(int capacity) {
+
+		this.players = this.players == null ? new Player[capacity] : Arrays.copyOf(this.players, capacity);
+		this.playerIDs = resize(this.playerIDs, capacity);
+		this.playerXs = resize(this.playerXs, capacity);
+		this.playerYs = resize(this.playerYs, capacity);
+		this.subPixelXs = resize(this.subPixelXs, capacity);
+		this.subPixelYs = resize(this.subPixelYs, capacity);
+		this.lives = resize(this.lives, capacity);
+		this.speeds = resize(this.speeds, capacity);
+		this.bombRanges = resize(this.bombRanges, capacity);
+		this.maxNrOfBombs = resize(this.maxNrOfBombs, capacity);
+		this.invulnerabilities = resize(this.invulnerabilities, capacity);
+		this.alive = this.alive == null ? new boolean[capacity] : Arrays.copyOf(this.alive, capacity);
+	}
+
+	/**
+	 * Resize the bomb arrays, keeping the slots that fit.
+	 *
+	 * @param capacity
+	 *            the new capacity
+	 */
+	private void resizeBombs(int capacity) {
+
+		this.bombs = this.bombs == null ? new Bomb[capacity] : Arrays.copyOf(this.bombs, capacity);
+		this.bombOwners = resize(this.bombOwners, capacity);
+		this.bombXs = resize(this.bombXs, capacity);
+		this.bombYs = resize(this.bombYs, capacity);
+		this.bombTimes = resize(this.bombTimes, capacity);
+		this.bombRadii = resize(this.bombRadii, capacity);
+	}
+
+	/**
+	 * Resize an array, or create it if it is null.
+	 *
+	 * @param array
+	 *            the array, or null
+	 * @param capacity
+	 *            the new length
+	 * @return the resized array
+	 */
+	private static int[] resize(int[] array, int capacity) {
+		return array == null ? new int[capacity] : Arrays.copyOf(array, capacity);
+	}
+}
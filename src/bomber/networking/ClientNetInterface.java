@@ -1,5 +1,7 @@
 package bomber.networking;
 
+import java.util.List;
+
 /**
  * Interface for client networking
  * 
@@ -61,6 +63,29 @@ public interface ClientNetInterface {
 	 */
 	public void roomListReceived();
 
+	/**
+	 * This method will be called when the client has applied the changes of the
+	 * player list pushed by the server. getPlayerList() returns the changed list
+	 * 
+	 * @param removedIDs
+	 *            the IDs of the players who have left
+	 * @param changedPlayers
+	 *            the players who have joined or whose info has changed
+	 */
+	public void playerListChanged(List<Integer> removedIDs, List<ClientServerPlayer> changedPlayers);
+
+	/**
+	 * This method will be called when the client has applied the changes of the
+	 * lobby room list pushed by the server. getRoomList() returns the changed
+	 * list
+	 * 
+	 * @param removedIDs
+	 *            the IDs of the rooms which have been removed
+	 * @param changedRooms
+	 *            the rooms which have been created or changed
+	 */
+	public void roomListChanged(List<Integer> removedIDs, List<ClientServerLobbyRoom> changedRooms);
+
 	/**
 	 * This method will be called when the client has received room join
 	 * accepted message from the server
@@ -111,7 +136,8 @@ public interface ClientNetInterface {
 
 	/**
 	 * This method will be called when the client has received a game state from
-	 * the server
+	 * the server. It is called from the receiving thread while the player list
+	 * of the game state is locked, so it should return quickly
 	 */
 	public void gameStateReceived();
 
@@ -24,7 +24,7 @@ import bomber.game.Player;
 public class ClientPacketEncoder {
 
 	/**
-	 * Decode List of ClientServerPlayer from bytes in MSG_S_LOBBY_PLAYERLIST
+	 * Decode List of ClientServerPlayer from a page in MSG_S_LOBBY_PLAYERLIST
 	 * format. The first three bytes in the destination byte array are reserved
 	 * for message type and sequence number and will be ignored. The caller
 	 * should ensure the first three bytes are correct before calling this
@@ -34,7 +34,7 @@ public class ClientPacketEncoder {
 	 *            the source byte array
 	 * @param length
 	 *            the length of the data in the byte array
-	 * @return a list of ClientServerPlayer
+	 * @return a list of the ClientServerPlayer in the page
 	 * @throws IOException
 	 */
 	public static List<ClientServerPlayer> decodePlayerList(byte[] src, int length) throws IOException {
@@ -46,7 +46,7 @@ public class ClientPacketEncoder {
 			throw new IOException("length is invalid");
 		}
 
-		if (length < 1 + 2 + 4 + 4 + 4 + 4) {
+		if (length < 1 + 2 + 4 + 4 + 4 + 4 + 4) {
 			throw new IOException("packet format is invalid");
 		}
 
@@ -58,52 +58,68 @@ public class ClientPacketEncoder {
 		// int maxIndex = buffer.getInt();
 		buffer.position(15);
 		int numPlayers = buffer.getInt();
+		// int version = buffer.getInt();
 
-		buffer.position(19);
+		buffer.position(23);
 		List<ClientServerPlayer> playerList = new ArrayList<ClientServerPlayer>();
 		for (int i = 0; i < numPlayers; i++) {
-			if (length < buffer.position() + 4) {
-				throw new IOException("packet format is invalid");
-			}
-			int id = buffer.getInt();
+			playerList.add(decodePlayer(buffer, length));
+		}
 
-			if (length < buffer.position() + 1) {
-				throw new IOException("packet format is invalid");
-			}
-			byte nameLength = buffer.get();
+		if (length != buffer.position()) {
+			throw new IOException("packet format is invalid");
+		}
 
-			if (nameLength < 1 || length < buffer.position() + nameLength) {
-				throw new IOException("packet format is invalid");
-			}
-			byte[] nameData = new byte[nameLength];
-			buffer.get(nameData);
-			String name = new String(nameData, 0, nameLength, "UTF-8");
+		return playerList;
+	}
 
-			if (length < buffer.position() + 1) {
-				throw new IOException("packet format is invalid");
-			}
-			boolean inRoom = buffer.get() != 0;
+	/**
+	 * Decode a ClientServerPlayer at the position of a buffer, in the format
+	 * of the entries of MSG_S_LOBBY_PLAYERLIST
+	 * 
+	 * @param buffer
+	 *            the buffer, whose position is moved past the player
+	 * @param length
+	 *            the length of the data in the buffer
+	 * @return the ClientServerPlayer
+	 * @throws IOException
+	 */
+	private static ClientServerPlayer decodePlayer(ByteBuffer buffer, int length) throws IOException {
+		if (length < buffer.position() + 4) {
+			throw new IOException("packet format is invalid");
+		}
+		int id = buffer.getInt();
 
-			int roomID = -1;
-			if (inRoom) {
-				if (length < buffer.position() + 4) {
-					throw new IOException("packet format is invalid");
-				}
-				roomID = buffer.getInt();
-			}
+		if (length < buffer.position() + 1) {
+			throw new IOException("packet format is invalid");
+		}
+		byte nameLength = buffer.get();
 
-			playerList.add(new ClientServerPlayer(id, name, inRoom, roomID));
+		if (nameLength < 1 || length < buffer.position() + nameLength) {
+			throw new IOException("packet format is invalid");
 		}
+		byte[] nameData = new byte[nameLength];
+		buffer.get(nameData);
+		String name = new String(nameData, 0, nameLength, "UTF-8");
 
-		if (length != buffer.position()) {
+		if (length < buffer.position() + 1) {
 			throw new IOException("packet format is invalid");
 		}
+		boolean inRoom = buffer.get() != 0;
 
-		return playerList;
+		int roomID = -1;
+		if (inRoom) {
+			if (length < buffer.position() + 4) {
+				throw new IOException("packet format is invalid");
+			}
+			roomID = buffer.getInt();
+		}
+
+		return new ClientServerPlayer(id, name, inRoom, roomID);
 	}
 
 	/**
-	 * Decode List of ClientServerLobbyRoom from bytes in MSG_S_LOBBY_ROOMLIST
+	 * Decode List of ClientServerLobbyRoom from a page in MSG_S_LOBBY_ROOMLIST
 	 * format. The first three bytes in the destination byte array are reserved
 	 * for message type and sequence number and will be ignored. The caller
 	 * should ensure the first three bytes are correct before calling this
@@ -113,7 +129,7 @@ public class ClientPacketEncoder {
 	 *            the source byte array
 	 * @param length
 	 *            the length of the data in the byte array
-	 * @return a list of ClientServerLobbyRoom
+	 * @return a list of the ClientServerLobbyRoom in the page
 	 * @throws IOException
 	 */
 	public static List<ClientServerLobbyRoom> decodeRoomList(byte[] src, int length) throws IOException {
@@ -125,7 +141,7 @@ public class ClientPacketEncoder {
 			throw new IOException("length is invalid");
 		}
 
-		if (length < 1 + 2 + 4 + 4 + 4 + 4) {
+		if (length < 1 + 2 + 4 + 4 + 4 + 4 + 4) {
 			throw new IOException("packet format is invalid");
 		}
 
@@ -137,80 +153,188 @@ public class ClientPacketEncoder {
 		// int maxIndex = buffer.getInt();
 		buffer.position(15);
 		int numRooms = buffer.getInt();
+		// int version = buffer.getInt();
 
-		buffer.position(19);
+		buffer.position(23);
 		List<ClientServerLobbyRoom> roomList = new ArrayList<ClientServerLobbyRoom>();
 		for (int i = 0; i < numRooms; i++) {
-			// get room id
-			if (length < buffer.position() + 4) {
-				throw new IOException("packet format is invalid");
-			}
-			int id = buffer.getInt();
+			roomList.add(decodeLobbyRoom(buffer, length));
+		}
 
-			// get room name length
-			if (length < buffer.position() + 1) {
-				throw new IOException("packet format is invalid");
-			}
-			byte nameLength = buffer.get();
+		if (length != buffer.position()) {
+			throw new IOException("packet format is invalid");
+		}
 
-			// get room name
-			if (nameLength < 1 || length < buffer.position() + nameLength) {
-				throw new IOException("packet format is invalid");
-			}
-			byte[] nameData = new byte[nameLength];
-			buffer.get(nameData);
-			String name = new String(nameData, 0, nameLength, "UTF-8");
+		return roomList;
+	}
 
-			// get player number
-			if (length < buffer.position() + 1) {
-				throw new IOException("packet format is invalid");
-			}
-			byte playerNumber = buffer.get();
+	/**
+	 * Decode a ClientServerLobbyRoom at the position of a buffer, in the
+	 * format of the entries of MSG_S_LOBBY_ROOMLIST
+	 * 
+	 * @param buffer
+	 *            the buffer, whose position is moved past the room
+	 * @param length
+	 *            the length of the data in the buffer
+	 * @return the ClientServerLobbyRoom
+	 * @throws IOException
+	 */
+	private static ClientServerLobbyRoom decodeLobbyRoom(ByteBuffer buffer, int length) throws IOException {
+		// get room id
+		if (length < buffer.position() + 4) {
+			throw new IOException("packet format is invalid");
+		}
+		int id = buffer.getInt();
 
-			// get max player limit
-			if (length < buffer.position() + 1) {
-				throw new IOException("packet format is invalid");
-			}
-			byte maxPlayer = buffer.get();
+		// get room name length
+		if (length < buffer.position() + 1) {
+			throw new IOException("packet format is invalid");
+		}
+		byte nameLength = buffer.get();
 
-			// get inGame boolean flag
-			if (length < buffer.position() + 1) {
-				throw new IOException("packet format is invalid");
-			}
-			boolean inGame = false;
-			if (buffer.get() == 1) {
-				inGame = true;
-			}
+		// get room name
+		if (nameLength < 1 || length < buffer.position() + nameLength) {
+			throw new IOException("packet format is invalid");
+		}
+		byte[] nameData = new byte[nameLength];
+		buffer.get(nameData);
+		String name = new String(nameData, 0, nameLength, "UTF-8");
 
-			// get game map ID
-			if (length < buffer.position() + 4) {
-				throw new IOException("packet format is invalid");
-			}
-			int mapID = buffer.getInt();
+		// get player number
+		if (length < buffer.position() + 1) {
+			throw new IOException("packet format is invalid");
+		}
+		byte playerNumber = buffer.get();
+
+		// get max player limit
+		if (length < buffer.position() + 1) {
+			throw new IOException("packet format is invalid");
+		}
+		byte maxPlayer = buffer.get();
+
+		// get inGame boolean flag
+		if (length < buffer.position() + 1) {
+			throw new IOException("packet format is invalid");
+		}
+		boolean inGame = false;
+		if (buffer.get() == 1) {
+			inGame = true;
+		}
+
+		// get game map ID
+		if (length < buffer.position() + 4) {
+			throw new IOException("packet format is invalid");
+		}
+		int mapID = buffer.getInt();
+
+		// get number of human players
+		if (length < buffer.position() + 1) {
+			throw new IOException("packet format is invalid");
+		}
+		byte humanPlayerNumber = buffer.get();
+
+		// get id of human players
+		if (humanPlayerNumber < 0 || length < buffer.position() + humanPlayerNumber * 4) {
+			throw new IOException("packet format is invalid");
+		}
+		int[] humanPlayerID = new int[humanPlayerNumber];
+		for (int j = 0; j < humanPlayerNumber; j++) {
+			humanPlayerID[j] = buffer.getInt();
+		}
+
+		return new ClientServerLobbyRoom(id, name, playerNumber, maxPlayer, inGame, mapID, humanPlayerID);
+	}
+
+	/**
+	 * Decode the events of the player list from bytes in MSG_S_LOBBY_EVENTS
+	 * format. The first three bytes in the source byte array are reserved for
+	 * message type and sequence number and will be ignored. The caller should
+	 * ensure the first three bytes are correct and that the events are of the
+	 * player list before calling this method.
+	 * 
+	 * @param src
+	 *            the source byte array
+	 * @param length
+	 *            the length of the data in the byte array
+	 * @param removedIDs
+	 *            the list to which the IDs of the players who have left are
+	 *            added
+	 * @param changedPlayers
+	 *            the list to which the players who have joined or changed are
+	 *            added
+	 * @throws IOException
+	 */
+	public static void decodePlayerEvents(byte[] src, int length, List<Integer> removedIDs,
+			List<ClientServerPlayer> changedPlayers) throws IOException {
+		decodeLobbyEvents(src, length, removedIDs, changedPlayers, ClientPacketEncoder::decodePlayer);
+	}
+
+	/**
+	 * Decode the events of the room list from bytes in MSG_S_LOBBY_EVENTS
+	 * format. The first three bytes in the source byte array are reserved for
+	 * message type and sequence number and will be ignored. The caller should
+	 * ensure the first three bytes are correct and that the events are of the
+	 * room list before calling this method.
+	 * 
+	 * @param src
+	 *            the source byte array
+	 * @param length
+	 *            the length of the data in the byte array
+	 * @param removedIDs
+	 *            the list to which the IDs of the removed rooms are added
+	 * @param changedRooms
+	 *            the list to which the created or changed rooms are added
+	 * @throws IOException
+	 */
+	public static void decodeRoomEvents(byte[] src, int length, List<Integer> removedIDs,
+			List<ClientServerLobbyRoom> changedRooms) throws IOException {
+		decodeLobbyEvents(src, length, removedIDs, changedRooms, ClientPacketEncoder::decodeLobbyRoom);
+	}
 
-			// get number of human players
+	// decoder of an entry of a list
+	private interface EntryDecoder<T> {
+		T decode(ByteBuffer buffer, int length) throws IOException;
+	}
+
+	private static <T> void decodeLobbyEvents(byte[] src, int length, List<Integer> removedIDs, List<T> changed,
+			EntryDecoder<T> decoder) throws IOException {
+		if (src == null || removedIDs == null || changed == null) {
+			throw new IOException("src or lists are null");
+		}
+
+		if (length > src.length) {
+			throw new IOException("length is invalid");
+		}
+
+		if (length < 1 + 2 + 1 + 4 + 4 + 2) {
+			throw new IOException("packet format is invalid");
+		}
+
+		ByteBuffer buffer = ByteBuffer.wrap(src, 0, length);
+		int eventNumber = buffer.getShort(12) & 0xffff;
+
+		buffer.position(14);
+		for (int i = 0; i < eventNumber; i++) {
 			if (length < buffer.position() + 1) {
 				throw new IOException("packet format is invalid");
 			}
-			byte humanPlayerNumber = buffer.get();
+			byte kind = buffer.get();
 
-			// get id of human players
-			if (humanPlayerNumber < 0 || length < buffer.position() + humanPlayerNumber * 4) {
+			if (kind == ProtocolConstant.MSG_S_LOBBY_EVENTS_REMOVED) {
+				if (length < buffer.position() + 4) {
+					throw new IOException("packet format is invalid");
+				}
+				removedIDs.add(buffer.getInt());
+			} else if (kind == ProtocolConstant.MSG_S_LOBBY_EVENTS_PUT) {
+				changed.add(decoder.decode(buffer, length));
+			} else {
 				throw new IOException("packet format is invalid");
 			}
-			int[] humanPlayerID = new int[humanPlayerNumber];
-			for (int j = 0; j < humanPlayerNumber; j++) {
-				humanPlayerID[j] = buffer.getInt();
-			}
-
-			roomList.add(new ClientServerLobbyRoom(id, name, playerNumber, maxPlayer, inGame, mapID, humanPlayerID));
 		}
 
 		if (length != buffer.position()) {
 			throw new IOException("packet format is invalid");
 		}
-
-		return roomList;
 	}
 
 	/**
@@ -357,84 +481,50 @@ public class ClientPacketEncoder {
 			throw new IOException("length is invalid");
 		}
 
-		if (length < 7 + 130 + 1) {
+		if (length < 7 + 4) {
 			throw new IOException("packet format is invalid");
 		}
 
 		ByteBuffer buffer = ByteBuffer.wrap(src, 0, length);
 
-		buffer.position(7);
-		byte gridMapWidth = buffer.get();
-		if (gridMapWidth < 1 || gridMapWidth > 16) {
-			throw new IOException("gridMap width is not in the range [1,16]");
-		}
-
-		byte gridMapHeight = buffer.get();
-		if (gridMapHeight < 1 || gridMapHeight > 16) {
-			throw new IOException("gridMap height is not in the range [1,16]");
-		}
-
-		if (gameState.getMap() == null || gameState.getMap().getGridMap() == null
-				|| gameState.getMap().getGridMap().length != gridMapWidth) {
-			gameState.setMap(new Map("map", new Block[gridMapWidth][gridMapHeight], null));
-		}
-
-		Block[][] gridMap = gameState.getMap().getGridMap();
-		for (int i = 0; i < gridMap.length; i++) {
-			if (gridMap[i] == null || gridMap[i].length != gridMapHeight) {
-				gridMap[i] = new Block[gridMapHeight];
-			}
+		int mapLength = MapEncoder.encodedLength(MapEncoder.getWidth(buffer, 7), MapEncoder.getHeight(buffer, 7));
+		if (length < 7 + mapLength + 1) {
+			throw new IOException("packet format is invalid");
 		}
 
-		buffer.position(7 + 130);
+		buffer.position(7 + mapLength);
 		byte numPlayer = buffer.get();
 		if (numPlayer < 1) {
 			throw new IOException("playerList size is not in the range [1,127]");
 		}
 
-		if (length < 7 + 130 + 1 + 35 * numPlayer + 1) {
+		if (length < 7 + mapLength + 1 + 35 * numPlayer + 1) {
 			throw new IOException("packet format is invalid");
 		}
 
-		buffer.position(7 + 130 + 1 + 35 * numPlayer);
+		buffer.position(7 + mapLength + 1 + 35 * numPlayer);
 		byte numBomb = buffer.get();
 		if (numBomb < 0) {
 			throw new IOException("bombList size is not in the range [0,127]");
 		}
 
-		if (length != 7 + 130 + 1 + 35 * numPlayer + 1 + 20 * numBomb + 2) {
+		if (length != 7 + mapLength + 1 + 35 * numPlayer + 1 + 20 * numBomb + 2) {
 			throw new IOException("packet format is invalid");
 		}
 
 		// Map
-		buffer.position(7 + 1 + 1);
-		long bitArr[][] = new long[4][4];
-		for (int b = 3; b >= 0; b--) {
-			for (int i = 3; i >= 0; i--) {
-				bitArr[b][i] = buffer.getLong();
-			}
+		buffer.position(7);
+		Block[][] gridMap = null;
+		if (gameState.getMap() != null) {
+			gridMap = gameState.getMap().getGridMap();
 		}
-
-		for (int x = 0; x < gridMapWidth; x++) {
-			for (int y = 0; y < gridMapHeight; y++) {
-				Block b;
-
-				byte bits = 0;
-				int bitIndex = x + y * gridMapWidth;
-				for (int i = 3; i >= 0; i--) {
-					boolean bit = BitArray.getBit(bitArr[i][bitIndex / 64], bitIndex % 64);
-					bits = BitArray.setBit(bits, i, bit);
-				}
-
-				b = byteToBlock(bits);
-				if (gridMap[x][y] != b) {
-					gridMap[x][y] = b;
-				}
-			}
+		Block[][] decodedGridMap = MapEncoder.decode(buffer, gridMap);
+		if (decodedGridMap != gridMap) {
+			gameState.setMap(new Map("map", decodedGridMap, null));
 		}
 
 		// Players
-		buffer.position(7 + 130 + 1);
+		buffer.position(7 + mapLength + 1);
 		if (gameState.getPlayers() == null) {
 			gameState.setPlayers(new ArrayList<>(4));
 		}
@@ -464,9 +554,9 @@ public class ClientPacketEncoder {
 				int bombRange = buffer.getInt();
 				int maxBomb = buffer.getInt();
 				short keyState = buffer.getShort();
-				byte alive = buffer.get();
+				byte flags = buffer.get();
 
-				boolean isAlive = alive == 1;
+				boolean isAlive = BitArray.getBit(flags, 0);
 				KeyboardState k = player.getKeyState();
 				if (k == null) {
 					k = new KeyboardState();
@@ -489,19 +579,19 @@ public class ClientPacketEncoder {
 				k.setBomb(BitArray.getBit(keyState, 5));
 
 				// player.setName("player " + id);
-				player.getPos().x = posX;
-				player.getPos().y = posY;
+				player.setPosition(posX, posY);
 				player.setLives(lives);
 				player.setSpeed(speed);
 				player.setPlayerID(id);
 				player.setBombRange(bombRange);
 				player.setMaxNrOfBombs(maxBomb);
 				player.setAlive(isAlive);
+				player.setAI(BitArray.getBit(flags, 1));
 			}
 		}
 
 		// Bombs
-		buffer.position(7 + 130 + 1 + 35 * numPlayer + 1);
+		buffer.position(7 + mapLength + 1 + 35 * numPlayer + 1);
 		if (gameState.getBombs() == null) {
 			gameState.setBombs(new ArrayList<>());
 		}
@@ -528,16 +618,18 @@ public class ClientPacketEncoder {
 				int radius = buffer.getInt();
 
 				// bomb.setPlayerName("bomb from " + playerID);
-				bomb.getPos().x = posX;
-				bomb.getPos().y = posY;
+				bomb.setPosition(posX, posY);
 				bomb.setTime(time);
 				bomb.setRadius(radius);
 				bomb.setPlayerID(playerID);
+				// set the bomb again so that the bomb index of the game state
+				// sees the new position and owner
+				bombList.set(i, bomb);
 			}
 		}
 
 		// Audio Events
-		buffer.position(7 + 130 + 1 + 35 * numPlayer + 1 + 20 * numBomb);
+		buffer.position(7 + mapLength + 1 + 35 * numPlayer + 1 + 20 * numBomb);
 		short audioState = buffer.getShort();
 
 		if (gameState.getAudioEvents() == null) {
@@ -586,61 +678,35 @@ public class ClientPacketEncoder {
 		if (length > src.length) {
 			throw new IOException("length is invalid");
 		}
-		if (length < 7 + 130 + 1) {
+		if (length < 7 + 4) {
 			throw new IOException("packet format is invalid");
 		}
 		ByteBuffer buffer = ByteBuffer.wrap(src, 0, length);
-		buffer.position(7);
-		byte gridMapWidth = buffer.get();
-		if (gridMapWidth < 1 || gridMapWidth > 16) {
-			throw new IOException("gridMap width is not in the range [1,16]");
-		}
-		byte gridMapHeight = buffer.get();
-		if (gridMapHeight < 1 || gridMapHeight > 16) {
-			throw new IOException("gridMap height is not in the range [1,16]");
+		int mapLength = MapEncoder.encodedLength(MapEncoder.getWidth(buffer, 7), MapEncoder.getHeight(buffer, 7));
+		if (length < 7 + mapLength + 1) {
+			throw new IOException("packet format is invalid");
 		}
-		Block[][] gridMap = new Block[gridMapWidth][gridMapHeight];
-		buffer.position(7 + 130);
+		buffer.position(7 + mapLength);
 		byte numPlayer = buffer.get();
 		if (numPlayer < 1) {
 			throw new IOException("playerList size is not in the range [1,127]");
 		}
-		if (length < 7 + 130 + 1 + 35 * numPlayer + 1) {
+		if (length < 7 + mapLength + 1 + 35 * numPlayer + 1) {
 			throw new IOException("packet format is invalid");
 		}
-		buffer.position(7 + 130 + 1 + 35 * numPlayer);
+		buffer.position(7 + mapLength + 1 + 35 * numPlayer);
 		byte numBomb = buffer.get();
 		if (numBomb < 0) {
 			throw new IOException("bombList size is not in the range [0,127]");
 		}
-		if (length != 7 + 130 + 1 + 35 * numPlayer + 1 + 20 * numBomb + 2) {
+		if (length != 7 + mapLength + 1 + 35 * numPlayer + 1 + 20 * numBomb + 2) {
 			throw new IOException("packet format is invalid");
 		}
 		// Map
-		buffer.position(7 + 1 + 1);
-		long bitArr[][] = new long[4][4];
-		for (int b = 3; b >= 0; b--) {
-			for (int i = 3; i >= 0; i--) {
-				bitArr[b][i] = buffer.getLong();
-			}
-		}
-		for (int x = 0; x < gridMapWidth; x++) {
-			for (int y = 0; y < gridMapHeight; y++) {
-				Block b;
-
-				byte bits = 0;
-				int bitIndex = x + y * gridMapWidth;
-				for (int i = 3; i >= 0; i--) {
-					boolean bit = BitArray.getBit(bitArr[i][bitIndex / 64], bitIndex % 64);
-					bits = BitArray.setBit(bits, i, bit);
-				}
-
-				b = byteToBlock(bits);
-				gridMap[x][y] = b;
-			}
-		}
+		buffer.position(7);
+		Block[][] gridMap = MapEncoder.decode(buffer, null);
 		// Players
-		buffer.position(7 + 130 + 1);
+		buffer.position(7 + mapLength + 1);
 		List<Player> playerList = new ArrayList<>(numPlayer);
 		for (int i = 0; i < numPlayer; i++) {
 			int id = buffer.getInt();
@@ -651,8 +717,8 @@ public class ClientPacketEncoder {
 			int bombRange = buffer.getInt();
 			int maxBomb = buffer.getInt();
 			short keyState = buffer.getShort();
-			byte alive = buffer.get();
-			boolean isAlive = alive == 1;
+			byte flags = buffer.get();
+			boolean isAlive = BitArray.getBit(flags, 0);
 			KeyboardState k = new KeyboardState();
 			k.setMovement(Movement.NONE);
 			k.setBomb(false);
@@ -674,10 +740,11 @@ public class ClientPacketEncoder {
 			p.setMaxNrOfBombs(maxBomb);
 			p.setKeyState(k);
 			p.setAlive(isAlive);
+			p.setAI(BitArray.getBit(flags, 1));
 			playerList.add(p);
 		}
 		// Bombs
-		buffer.position(7 + 130 + 1 + 35 * numPlayer + 1);
+		buffer.position(7 + mapLength + 1 + 35 * numPlayer + 1);
 		List<Bomb> bombList = new ArrayList<>(numBomb);
 		for (int i = 0; i < numBomb; i++) {
 			int playerID = buffer.getInt();
@@ -690,7 +757,7 @@ public class ClientPacketEncoder {
 			bombList.add(b);
 		}
 		// Audio Events
-		buffer.position(7 + 130 + 1 + 35 * numPlayer + 1 + 20 * numBomb);
+		buffer.position(7 + mapLength + 1 + 35 * numPlayer + 1 + 20 * numBomb);
 		short audioState = buffer.getShort();
 		List<AudioEvent> audioEventList = new ArrayList<>(16);
 		if (BitArray.getBit(audioState, 0)) {
@@ -717,6 +784,98 @@ public class ClientPacketEncoder {
 		return gameState;
 	}
 
+	/**
+	 * Rebuild a game state snapshot from bytes in MSG_S_ROOM_GAMESTATEDELTA
+	 * format and its baseline snapshot. The snapshot is written to the
+	 * destination array as a packet in MSG_S_ROOM_GAMESTATE format, which can be
+	 * decoded by decodeGameState. The first three bytes in the source byte
+	 * array are reserved for message type and sequence number and will be
+	 * ignored.
+	 * 
+	 * @param src
+	 *            the source byte array
+	 * @param length
+	 *            the length of the data in the byte array
+	 * @param snapshots
+	 *            the recent snapshots received by the client, which must contain
+	 *            the baseline snapshot
+	 * @param dest
+	 *            the destination byte array
+	 * @return the number of bytes of the game state in the destination array
+	 * @throws IOException
+	 *             if the delta is invalid or the baseline snapshot is missing
+	 */
+	public static int decodeGameStateDelta(byte[] src, int length, SnapshotRing snapshots, byte[] dest)
+			throws IOException {
+		if (src == null || snapshots == null || dest == null) {
+			throw new IOException("src, snapshots or dest is null");
+		}
+
+		if (length > src.length) {
+			throw new IOException("length is invalid");
+		}
+
+		if (length < 3 + 4 + 4 + 4 + 2 + 2) {
+			throw new IOException("packet format is invalid");
+		}
+
+		ByteBuffer buffer = ByteBuffer.wrap(src, 0, length);
+
+		buffer.position(3);
+		int roomID = buffer.getInt();
+		buffer.getInt();
+		int baselineID = buffer.getInt();
+		buffer.getShort();
+		int stateLength = buffer.getShort() & 0xffff;
+
+		if (7 + stateLength > dest.length) {
+			throw new IOException("dest is too short to fit " + (7 + stateLength) + " bytes");
+		}
+
+		byte[] baseline = null;
+		int baselineLength = 0;
+		if (baselineID != SnapshotRing.NO_SNAPSHOT) {
+			int slot = snapshots.find(baselineID);
+			if (slot < 0) {
+				throw new IOException("baseline snapshot " + baselineID + " is missing");
+			}
+			baseline = snapshots.getBody(slot);
+			baselineLength = snapshots.getLength(slot);
+		}
+
+		// Header
+		ByteBuffer destBuffer = ByteBuffer.wrap(dest);
+		destBuffer.put(0, ProtocolConstant.MSG_S_ROOM_GAMESTATE);
+		destBuffer.putShort(1, (short) 0);
+		destBuffer.putInt(3, roomID);
+
+		// Baseline
+		int copied = Math.min(baselineLength, stateLength);
+		if (copied > 0) {
+			System.arraycopy(baseline, 0, dest, 7, copied);
+		}
+		for (int i = copied; i < stateLength; i++) {
+			dest[7 + i] = 0;
+		}
+
+		// Runs
+		int runEnd = 0;
+		while (buffer.hasRemaining()) {
+			if (buffer.remaining() < 3) {
+				throw new IOException("packet format is invalid");
+			}
+			int start = runEnd + (buffer.getShort() & 0xffff);
+			int runLength = buffer.get() & 0xff;
+			if (runLength > buffer.remaining() || start + runLength > stateLength) {
+				throw new IOException("packet format is invalid");
+			}
+			buffer.get(dest, 7 + start, runLength);
+			runEnd = start + runLength;
+		}
+
+		return 7 + stateLength;
+	}
+
 	/**
 	 * Convert KeyboardState into short
 	 * 
@@ -929,7 +1088,8 @@ public class ClientPacketEncoder {
 			throw new IOException("map or dest is null");
 		}
 
-		int len = 1 + 2 + 4 + 1 + 130 + 32;
+		Block[][] gridMap = map.getGridMap();
+		int len = 1 + 2 + 4 + 1 + MapEncoder.check(gridMap) + 32;
 		if (dest.length < len) {
 			throw new IOException("dest is too short");
 		}
@@ -945,75 +1105,7 @@ public class ClientPacketEncoder {
 		buffer.put(ProtocolConstant.MSG_C_ROOM_SETINFO_ADDMAP);
 
 		// put map
-		Block[][] gridMap = map.getGridMap();
-		if (gridMap == null) {
-			throw new IOException("gridMap is null");
-		}
-
-		if (gridMap.length < 1 || gridMap.length > 16) {
-			throw new IOException("gridMap width is not in the range [1,16]");
-		}
-		byte gridMapWidth = (byte) gridMap.length;
-
-		byte gridMapHeight = -1;
-		for (int i = 0; i < gridMap.length - 1; i++) {
-			Block[] column = gridMap[i];
-			Block[] columnNext = gridMap[i + 1];
-
-			if (column == null || columnNext == null) {
-				throw new IOException("gridMap has null column");
-			}
-
-			if (column.length != columnNext.length) {
-				throw new IOException("gridMap has inconsistent column length");
-			}
-
-			for (Block b : column) {
-				if (b == null) {
-					throw new IOException("gridMap has null block");
-				}
-			}
-
-			for (Block b : columnNext) {
-				if (b == null) {
-					throw new IOException("gridMap has null block");
-				}
-			}
-
-			gridMapHeight = (byte) column.length;
-		}
-
-		if (gridMapHeight < 1 || gridMapHeight > 16) {
-			throw new IOException("gridMap height is not in the range [1,16]");
-		}
-
-		buffer.put(gridMapWidth);
-		buffer.put(gridMapHeight);
-
-		long bitArr[][] = new long[4][4];
-		for (int y = 0; y < gridMapHeight; y++) {
-			for (int x = 0; x < gridMapWidth; x++) {
-
-				Block b = gridMap[x][y];
-
-				byte bits = blockToByte(b);
-
-				int bitIndex = x + y * gridMapWidth;
-
-				for (int i = 3; i >= 0; i--) {
-					if (BitArray.getBit(bits, i)) {
-						bitArr[i][bitIndex / 64] = BitArray.setBit(bitArr[i][bitIndex / 64], bitIndex % 64, true);
-					}
-				}
-
-			}
-		}
-
-		for (int b = 3; b >= 0; b--) {
-			for (int i = 3; i >= 0; i--) {
-				buffer.putLong(bitArr[b][i]);
-			}
-		}
+		MapEncoder.encode(gridMap, buffer);
 
 		List<Point> spawnPoints = map.getSpawnPoints();
 		if (spawnPoints == null) {
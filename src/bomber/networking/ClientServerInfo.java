@@ -3,9 +3,6 @@ package bomber.networking;
 import java.net.DatagramPacket;
 import java.net.SocketAddress;
 import java.time.Instant;
-import java.util.AbstractMap;
-import java.util.ArrayList;
-import java.util.Map.Entry;
 
 /**
  * Client side representation of (the state of) server
@@ -19,23 +16,8 @@ public class ClientServerInfo {
 	// time of last packet received from the server in seconds
 	private long timeStamp;
 
-	// the next sequence number that should be used for a packet that will be
-	// sent to the server
-	private short nextPacketSequence = 0;
-
-	// keep track of up to 100 packets sent to the server
-	private int nextPacketHistoryListIndex = 0;
-	private final int maxPacketHistoryIndex = 99;
-	private ArrayList<PacketHistoryEntry> packetHistoryList = new ArrayList<PacketHistoryEntry>(
-			maxPacketHistoryIndex + 1);
-
-	/*
-	 * keep track of up to 100 packet sequence and time stamp received from the
-	 * client for duplicate packet detection
-	 */
-	private int nextSequenceHistoryIndex = 0;
-	private final int maxSequenceHistoryIndex = 99;
-	private ArrayList<Entry<Short, Long>> sequenceHistoryList = new ArrayList<>(maxSequenceHistoryIndex + 1);
+	// packets sent to and received from the server
+	private final ReliabilityWindow reliabilityWindow = new ReliabilityWindow();
 
 	/**
 	 * Construct a new server representation
@@ -46,12 +28,6 @@ public class ClientServerInfo {
 	public ClientServerInfo(SocketAddress sockAddr) {
 		this.sockAddr = sockAddr;
 		this.timeStamp = Instant.now().getEpochSecond();
-		for (int i = 0; i <= maxPacketHistoryIndex; i++) {
-			packetHistoryList.add(null);
-		}
-		for (int i = 0; i <= maxSequenceHistoryIndex; i++) {
-			sequenceHistoryList.add(null);
-		}
 	}
 
 	/**
@@ -79,17 +55,16 @@ public class ClientServerInfo {
 	 * @return the sequence number that should be used
 	 */
 	public short getNextPacketSequenceAndIncrement() {
-		return nextPacketSequence++;
+		return reliabilityWindow.getNextPacketSequenceAndIncrement();
 	}
 
 	/**
-	 * Get the list of up to 100 recent packets that have been sent to the
-	 * server
+	 * Get the window of the packets sent to and received from the server
 	 * 
-	 * @return the list of packets that have been sent to the server
+	 * @return the reliability window
 	 */
-	public ArrayList<PacketHistoryEntry> getPacketHistoryList() {
-		return packetHistoryList;
+	public ReliabilityWindow getReliabilityWindow() {
+		return reliabilityWindow;
 	}
 
 	/**
@@ -101,7 +76,7 @@ public class ClientServerInfo {
 	}
 
 	/**
-	 * Insert a packet into the packet history list for later retransmission (in
+	 * Insert a packet into the reliability window for later retransmission (in
 	 * case not acknowledged by the server)
 	 * 
 	 * @param packetSequence
@@ -110,52 +85,19 @@ public class ClientServerInfo {
 	 *            the packet to insert
 	 */
 	public void insertPacket(short packetSequence, DatagramPacket packet) {
-		// index wraps around when there are already 100 packets in history
-		// (older packets will be overwritten)
-		if (nextPacketHistoryListIndex > maxPacketHistoryIndex) {
-			nextPacketHistoryListIndex = 0;
-		}
-
-		PacketHistoryEntry phe = packetHistoryList.get(nextPacketHistoryListIndex);
-		if (phe == null) {
-			packetHistoryList.set(nextPacketHistoryListIndex,
-					new PacketHistoryEntry(packetSequence, packet.getData(), packet.getLength()));
-		} else {
-			phe.reset(packetSequence, packet.getData(), packet.getLength());
-		}
-
-		nextPacketHistoryListIndex++;
+		reliabilityWindow.insertPacket(packetSequence, packet.getData(), packet.getLength());
 	}
 
 	/**
 	 * Determine whether a packet received from the server is duplicate based on
-	 * its sequence number
+	 * its sequence number (within the last 64 sequence numbers)
 	 * 
 	 * @param sequence
 	 *            the sequence number of the packet
 	 * @return true if the packet is duplicate
 	 */
 	public boolean isSequenceDuplicate(short sequence) {
-		for (Entry<Short, Long> e : sequenceHistoryList) {
-			if (e != null && e.getKey() == sequence) {
-				if (System.currentTimeMillis() - e.getValue() < 25000) {
-					return true;
-				} else {
-					e.setValue(System.currentTimeMillis());
-					return false;
-				}
-			}
-		}
-
-		if (nextSequenceHistoryIndex > maxSequenceHistoryIndex) {
-			nextSequenceHistoryIndex = 0;
-		}
-
-		Entry<Short, Long> entry = new AbstractMap.SimpleEntry<Short, Long>(sequence, System.currentTimeMillis());
-		sequenceHistoryList.set(nextSequenceHistoryIndex, entry);
-		nextSequenceHistoryIndex++;
-
-		return false;
+		return reliabilityWindow.isSequenceDuplicate(sequence);
 	}
 
 	public String toString() {
@@ -40,13 +40,13 @@ public class ClientThread implements Runnable {
 	// the interval at which the client will test whether an established
 	// connection is timeout
 	private long keepAliveInterval = 10;
-	// the interval at which the client will request the latest list of players
-	// and rooms from the server
-	private long listRequestInterval = 5;
 	// unacknowledged packets will be detected and retransmitted every 500ms
 	private long retransmitInterval = 500;
 	// maximum number of retransmissions per packet
 	private int maxRetransmitCount = 20;
+	// the packets received from the server are acknowledged together every
+	// 10ms
+	private long ackInterval = 10;
 
 	// the socket for client
 	private final DatagramSocket socket;
@@ -77,8 +77,8 @@ public class ClientThread implements Runnable {
 
 	// the ID, grid width and height of the map in which the client will play
 	private int mapID = 0;
-	private byte mapWidth = 16;
-	private byte mapHeight = 16;
+	private int mapWidth = 16;
+	private int mapHeight = 16;
 
 	// last reason of a rejected connection
 	private byte connectionRejectedReason = ProtocolConstant.MSG_S_NET_REJECT_REASON_NOERROR;
@@ -90,11 +90,13 @@ public class ClientThread implements Runnable {
 	// game)
 	private boolean inGame = false;
 
-	// list of players connected to the server
-	private List<ClientServerPlayer> playerList = new ArrayList<ClientServerPlayer>();
+	// list of players connected to the server, assembled from its pages
+	private final LobbyListAssembler<ClientServerPlayer> playerList = new LobbyListAssembler<ClientServerPlayer>(
+			ClientServerPlayer::getID);
 
-	// list of rooms in the server lobby
-	private List<ClientServerLobbyRoom> roomList = new ArrayList<ClientServerLobbyRoom>();
+	// list of rooms in the server lobby, assembled from its pages
+	private final LobbyListAssembler<ClientServerLobbyRoom> roomList = new LobbyListAssembler<ClientServerLobbyRoom>(
+			ClientServerLobbyRoom::getID);
 
 	// room the client is currently in
 	private ClientServerRoom room = null;
@@ -105,8 +107,9 @@ public class ClientThread implements Runnable {
 	// list of client network event listeners
 	private List<ClientNetInterface> netList = new ArrayList<ClientNetInterface>();
 
-	// 2000 bytes of receiving buffer
-	private final int recvBufferLen = 2000;
+	// receiving buffer large enough for any packet, as game states on large
+	// maps do not fit in 2000 bytes
+	private final int recvBufferLen = ProtocolConstant.MAX_PACKET_LENGTH;
 	private final byte[] recvBuffer = new byte[recvBufferLen];
 	private final ByteBuffer recvByteBuffer = ByteBuffer.wrap(recvBuffer);
 	private final DatagramPacket packet = new DatagramPacket(recvBuffer, recvBuffer.length);
@@ -116,10 +119,32 @@ public class ClientThread implements Runnable {
 	private final byte[] sendBuffer = new byte[sendBufferLen];
 	private final ByteBuffer sendByteBuffer = ByteBuffer.wrap(sendBuffer);
 
+	// recent game state snapshots, the baselines of the deltas sent by the
+	// server
+	private final SnapshotRing snapshots = new SnapshotRing(32, 2000);
+	private final byte[] snapshotBuffer = new byte[recvBufferLen];
+	private volatile int lastSnapshotID = SnapshotRing.NO_SNAPSHOT;
+
+	// input sequence of the next move sent, and of the last move applied by
+	// the server to the last game state received (-1 for none)
+	private short inputSequence = 0;
+	private volatile short appliedInputSequence = -1;
+
+	// the last moves sent, repeated in each MSG_C_GAME_SENDMOVE so that a
+	// lost packet loses no move, indexed by input sequence
+	private final short[] recentMoves = new short[ProtocolConstant.MAX_MOVES_PER_PACKET];
+	private int recentMoveCount = 0;
+
 	// sending buffer for public methods
 	private final byte[] publicSendBuffer = new byte[sendBufferLen];
 	private final ByteBuffer publicSendByteBuffer = ByteBuffer.wrap(publicSendBuffer);
 
+	// packets reused by the keep alive, retransmission and acknowledgement
+	// tasks
+	private final DatagramPacket pingPacket;
+	private final DatagramPacket retransmitPacket;
+	private final DatagramPacket ackPacket;
+
 	// scheduled executor for server keep alive and packet retransmission
 	private final ScheduledExecutorService scheduledExecutor = Executors.newScheduledThreadPool(4);
 
@@ -136,6 +161,11 @@ public class ClientThread implements Runnable {
 		// socket.setSoTimeout(0);
 
 		serverInfo = new ClientServerInfo(serverSockAddr);
+
+		pingPacket = new DatagramPacket(new byte[3], 3, serverSockAddr);
+		retransmitPacket = new DatagramPacket(new byte[0], 0, serverSockAddr);
+		ackPacket = new DatagramPacket(new byte[3 + ReliabilityWindow.ACK_LENGTH], 3 + ReliabilityWindow.ACK_LENGTH,
+				serverSockAddr);
 	}
 
 	/**
@@ -160,6 +190,11 @@ public class ClientThread implements Runnable {
 		// socket.setSoTimeout(0);
 
 		serverInfo = new ClientServerInfo(serverSockAddr);
+
+		pingPacket = new DatagramPacket(new byte[3], 3, serverSockAddr);
+		retransmitPacket = new DatagramPacket(new byte[0], 0, serverSockAddr);
+		ackPacket = new DatagramPacket(new byte[3 + ReliabilityWindow.ACK_LENGTH], 3 + ReliabilityWindow.ACK_LENGTH,
+				serverSockAddr);
 	}
 
 	public void run() {
@@ -202,9 +237,7 @@ public class ClientThread implements Runnable {
 			} else {
 				// send a ping packet
 				try {
-					byte[] data = new byte[3];
-					sendPacket(new DatagramPacket(data, data.length, serverSockAddr), ProtocolConstant.MSG_C_NET_PING,
-							true);
+					sendPacket(pingPacket, ProtocolConstant.MSG_C_NET_PING, true);
 				} catch (IOException e) {
 					pClient("keepAliveTask: " + e);
 				}
@@ -212,49 +245,44 @@ public class ClientThread implements Runnable {
 		};
 		scheduledExecutor.scheduleWithFixedDelay(keepAliveTask, keepAliveInterval, keepAliveInterval, TimeUnit.SECONDS);
 
-		// player list and room list request task
-		Runnable listRequestTask = () -> {
-			if (!isConnected()) {
-				setInRoom(false, -1);
-				return;
-			}
 
-			// request room list only when the client is in lobby
-			if (isInLobby()) {
-				try {
-					this.updateRoomList();
-				} catch (IOException e) {
-					pClient("listRequestTask: " + e);
+		// server packet acknowledgement checking and retransmission task
+		Runnable retransmitTask = () -> {
+			// the window is only changed while holding the lock of the server
+			synchronized (serverInfo) {
+				ReliabilityWindow window = serverInfo.getReliabilityWindow();
+				for (int i = 0; i < ReliabilityWindow.WINDOW_SIZE; i++) {
+					PacketHistoryEntry f = window.getPacket(i);
+					if (f != null && !f.isAcked() && f.getRetransmissionCount() < maxRetransmitCount) {
+						try {
+							retransmitPacket.setData(f.getPacketData(), 0, f.getPacketLength());
+							sendPacket(retransmitPacket);
+						} catch (IOException e) {
+							pClient("retransmitTask: " + e);
+						}
+					}
 				}
 			}
-
-			// request player list
-			try {
-				this.updatePlayerList();
-			} catch (IOException e) {
-				pClient("listRequestTask: " + e);
-			}
-
-			// optional: request detailed room info when the client is in room
-
 		};
-		scheduledExecutor.scheduleWithFixedDelay(listRequestTask, 0, listRequestInterval, TimeUnit.SECONDS);
+		scheduledExecutor.scheduleWithFixedDelay(retransmitTask, retransmitInterval, retransmitInterval,
+				TimeUnit.MILLISECONDS);
 
-		// server packet acknowledgement checking and retransmission task
-		Runnable retransmitTask = () -> {
-			ArrayList<PacketHistoryEntry> packetList = serverInfo.getPacketHistoryList();
-			for (PacketHistoryEntry f : packetList) {
-				if (f != null && !f.isAcked() && f.getRetransmissionCount() < maxRetransmitCount) {
+		// cumulative acknowledgement task, unless a move has already carried
+		// the acknowledgement
+		Runnable ackTask = () -> {
+			synchronized (serverInfo) {
+				ReliabilityWindow window = serverInfo.getReliabilityWindow();
+				if (window.isAckPending()) {
 					try {
-						sendPacket(new DatagramPacket(f.getPacketData(), f.getPacketLength(), serverSockAddr));
+						window.writeAck(ackPacket.getData(), 3);
+						sendPacket(ackPacket, ProtocolConstant.MSG_C_NET_ACK);
 					} catch (IOException e) {
-						pClient("retransmitTask: " + e);
+						pClient("ackTask: " + e);
 					}
 				}
 			}
 		};
-		scheduledExecutor.scheduleWithFixedDelay(retransmitTask, retransmitInterval, retransmitInterval,
-				TimeUnit.MILLISECONDS);
+		scheduledExecutor.scheduleWithFixedDelay(ackTask, ackInterval, ackInterval, TimeUnit.MILLISECONDS);
 
 		// main loop
 		while (true) {
@@ -290,18 +318,41 @@ public class ClientThread implements Runnable {
 
 		byte messageType = (byte) (recvByteBuffer.get(0) & (~ProtocolConstant.MSG_B_HASSEQUENCE));
 		boolean messageHasSequence = (recvByteBuffer.get(0) & ProtocolConstant.MSG_B_HASSEQUENCE) != 0;
+
+		/*
+		 * sequenced packets and game states end with the acknowledgement of
+		 * the packets sent to the server, which is removed before decoding
+		 * the message
+		 */
+		if (messageHasSequence || messageType == ProtocolConstant.MSG_S_ROOM_GAMESTATEDELTA) {
+			int ackLength = ReliabilityWindow.readAckTrailerLength(recvBuffer, packet.getLength(), 3);
+			if (ackLength < 0) {
+				return;
+			}
+			int ackOffset = packet.getLength() - 1 - ackLength;
+			if (ackLength > 0) {
+				short latest = ReliabilityWindow.readAckLatest(recvBuffer, ackOffset);
+				long mask = ReliabilityWindow.readAckMask(recvBuffer, ackOffset);
+				synchronized (serverInfo) {
+					serverInfo.getReliabilityWindow().acknowledge(latest, mask);
+				}
+			}
+			packet.setLength(ackOffset);
+		}
+
 		short messageSequence = 0;
 		if (messageHasSequence) {
 			messageSequence = recvByteBuffer.getShort(1);
-			// send acknowledgement to server
-			sendByteBuffer.putShort(3, messageSequence);
-			DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2 + 2, serverSockAddr);
-			sendPacket(p, ProtocolConstant.MSG_C_NET_ACK);
 			/*
-			 * log the sequence number of last 100 received packets and drop
-			 * duplicate packets based on the sequence number
+			 * log the sequence number of the packet in the window, which is
+			 * acknowledged by the acknowledgement task, and drop duplicate
+			 * packets based on the sequence number
 			 */
-			if (messageHasSequence && serverInfo.isSequenceDuplicate(messageSequence)) {
+			boolean duplicate;
+			synchronized (serverInfo) {
+				duplicate = serverInfo.isSequenceDuplicate(messageSequence);
+			}
+			if (duplicate) {
 				return;
 			}
 		}
@@ -360,6 +411,14 @@ public class ClientThread implements Runnable {
 
 			attemptingConnection = false;
 
+			// have the changes of the lists pushed from now on, and get the
+			// lists they apply to
+			sendByteBuffer.put(3, (byte) 1);
+			DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2 + 1, serverSockAddr);
+			sendPacket(p, ProtocolConstant.MSG_C_LOBBY_SUBSCRIBE, true);
+			requestListPage(ProtocolConstant.MSG_C_LOBBY_GETPLAYERLIST, playerList.getVersion(), 0);
+			requestListPage(ProtocolConstant.MSG_C_LOBBY_GETROOMLIST, roomList.getVersion(), 0);
+
 			break;
 		}
 
@@ -438,44 +497,127 @@ public class ClientThread implements Runnable {
 		}
 
 		case ProtocolConstant.MSG_S_NET_ACK: {
-			if (packet.getLength() < 5) {
+			if (packet.getLength() < 1 + 2 + ReliabilityWindow.ACK_LENGTH) {
 				return;
 			}
 
-			for (PacketHistoryEntry e : serverInfo.getPacketHistoryList()) {
-				if (e != null && !e.isAcked() && e.getSequence() == recvByteBuffer.getShort(3)) {
-					e.setAcked(true);
-				}
+			short latest = ReliabilityWindow.readAckLatest(recvBuffer, 3);
+			long mask = ReliabilityWindow.readAckMask(recvBuffer, 3);
+			synchronized (serverInfo) {
+				serverInfo.getReliabilityWindow().acknowledge(latest, mask);
 			}
 
 			break;
 		}
 
 		case ProtocolConstant.MSG_S_LOBBY_PLAYERLIST: {
+			List<ClientServerPlayer> page;
 			try {
-				playerList = ClientPacketEncoder.decodePlayerList(recvBuffer, packet.getLength());
+				page = ClientPacketEncoder.decodePlayerList(recvBuffer, packet.getLength());
 			} catch (IOException e) {
 				pClient("Failed to decode player list: " + e);
 				return;
 			}
 
-			for (ClientNetInterface e : netList) {
-				e.playerListReceived();
+			List<ClientServerPlayer> oldList = playerList.getList();
+			int nextPage = playerList.addPage(recvByteBuffer.getInt(19), recvByteBuffer.getInt(7),
+					recvByteBuffer.getInt(11), page);
+			if (nextPage >= 0) {
+				requestListPage(ProtocolConstant.MSG_C_LOBBY_GETPLAYERLIST, playerList.getVersion(), nextPage);
+			} else if (playerList.getList() != oldList) {
+				for (ClientNetInterface e : netList) {
+					e.playerListReceived();
+				}
 			}
 
 			break;
 		}
 
 		case ProtocolConstant.MSG_S_LOBBY_ROOMLIST: {
+			List<ClientServerLobbyRoom> page;
 			try {
-				roomList = ClientPacketEncoder.decodeRoomList(recvBuffer, packet.getLength());
+				page = ClientPacketEncoder.decodeRoomList(recvBuffer, packet.getLength());
 			} catch (IOException e) {
 				pClient("Failed to decode room list: " + e);
 				return;
 			}
 
-			for (ClientNetInterface e : netList) {
-				e.roomListReceived();
+			List<ClientServerLobbyRoom> oldList = roomList.getList();
+			int nextPage = roomList.addPage(recvByteBuffer.getInt(19), recvByteBuffer.getInt(7),
+					recvByteBuffer.getInt(11), page);
+			if (nextPage >= 0) {
+				requestListPage(ProtocolConstant.MSG_C_LOBBY_GETROOMLIST, roomList.getVersion(), nextPage);
+			} else if (roomList.getList() != oldList) {
+				for (ClientNetInterface e : netList) {
+					e.roomListReceived();
+				}
+			}
+
+			break;
+		}
+
+		case ProtocolConstant.MSG_S_LOBBY_LISTUNCHANGED: {
+			if (packet.getLength() < 1 + 2 + 1 + 4) {
+				return;
+			}
+
+			// the list we have is the current one
+			if (recvBuffer[3] == ProtocolConstant.MSG_S_LOBBY_PLAYERLIST) {
+				for (ClientNetInterface e : netList) {
+					e.playerListReceived();
+				}
+			} else if (recvBuffer[3] == ProtocolConstant.MSG_S_LOBBY_ROOMLIST) {
+				for (ClientNetInterface e : netList) {
+					e.roomListReceived();
+				}
+			}
+
+			break;
+		}
+
+		case ProtocolConstant.MSG_S_LOBBY_EVENTS: {
+			if (packet.getLength() < 1 + 2 + 1 + 4 + 4 + 2) {
+				return;
+			}
+
+			int fromVersion = recvByteBuffer.getInt(4);
+			int toVersion = recvByteBuffer.getInt(8);
+			List<Integer> removedIDs = new ArrayList<Integer>();
+
+			if (recvBuffer[3] == ProtocolConstant.MSG_S_LOBBY_PLAYERLIST) {
+				List<ClientServerPlayer> changedPlayers = new ArrayList<ClientServerPlayer>();
+				try {
+					ClientPacketEncoder.decodePlayerEvents(recvBuffer, packet.getLength(), removedIDs, changedPlayers);
+				} catch (IOException e) {
+					pClient("Failed to decode player events: " + e);
+					return;
+				}
+
+				if (playerList.applyChanges(fromVersion, toVersion, removedIDs, changedPlayers)) {
+					for (ClientNetInterface e : netList) {
+						e.playerListChanged(removedIDs, changedPlayers);
+					}
+				} else if (playerList.getVersion() != toVersion && !playerList.isAssembling()) {
+					// we have missed some changes, get the whole list again
+					requestListPage(ProtocolConstant.MSG_C_LOBBY_GETPLAYERLIST, playerList.getVersion(), 0);
+				}
+			} else if (recvBuffer[3] == ProtocolConstant.MSG_S_LOBBY_ROOMLIST) {
+				List<ClientServerLobbyRoom> changedRooms = new ArrayList<ClientServerLobbyRoom>();
+				try {
+					ClientPacketEncoder.decodeRoomEvents(recvBuffer, packet.getLength(), removedIDs, changedRooms);
+				} catch (IOException e) {
+					pClient("Failed to decode room events: " + e);
+					return;
+				}
+
+				if (roomList.applyChanges(fromVersion, toVersion, removedIDs, changedRooms)) {
+					for (ClientNetInterface e : netList) {
+						e.roomListChanged(removedIDs, changedRooms);
+					}
+				} else if (roomList.getVersion() != toVersion && !roomList.isAssembling()) {
+					// we have missed some changes, get the whole list again
+					requestListPage(ProtocolConstant.MSG_C_LOBBY_GETROOMLIST, roomList.getVersion(), 0);
+				}
 			}
 
 			break;
@@ -589,7 +731,7 @@ public class ClientThread implements Runnable {
 		}
 
 		case ProtocolConstant.MSG_S_ROOM_GAMESTART: {
-			if (packet.getLength() < 13) {
+			if (packet.getLength() < 15) {
 				return;
 			}
 
@@ -604,19 +746,24 @@ public class ClientThread implements Runnable {
 				pClient("Server bug, mapID should not be negative");
 			}
 
-			byte mapWidth = recvByteBuffer.get(11);
-			if (mapWidth < 1 || mapWidth > 16) {
-				pClient("Server bug, mapWidth should be in the range [1,16]");
+			int mapWidth = recvByteBuffer.getShort(11) & 0xffff;
+			if (mapWidth < 1 || mapWidth > ProtocolConstant.MAX_MAP_SIZE) {
+				pClient("Server bug, mapWidth should be in the range [1," + ProtocolConstant.MAX_MAP_SIZE + "]");
 				mapWidth = 16;
 			}
-			byte mapHeight = recvByteBuffer.get(12);
-			if (mapHeight < 1 || mapHeight > 16) {
-				pClient("Server bug, mapHeight should be in the range [1,16]");
+			int mapHeight = recvByteBuffer.getShort(13) & 0xffff;
+			if (mapHeight < 1 || mapHeight > ProtocolConstant.MAX_MAP_SIZE) {
+				pClient("Server bug, mapHeight should be in the range [1," + ProtocolConstant.MAX_MAP_SIZE + "]");
 				mapHeight = 16;
 			}
 
 			// pClient("Game has started in room with ID " + roomID);
 
+			snapshots.clear();
+			lastSnapshotID = SnapshotRing.NO_SNAPSHOT;
+			appliedInputSequence = -1;
+			clearRecentMoves();
+
 			setInRoom(true, roomID);
 			setInGame(true);
 			setMapID(mapID);
@@ -639,7 +786,7 @@ public class ClientThread implements Runnable {
 			 */
 
 			try {
-				gameState = ClientPacketEncoder.decodeGameState(gameState, recvBuffer, packet.getLength());
+				receiveGameState(recvBuffer, packet.getLength());
 			} catch (IOException e) {
 				pClient("Failed to decode game state");
 				return;
@@ -648,9 +795,37 @@ public class ClientThread implements Runnable {
 			// pClient("Received game state for room with ID " + roomID);
 			// pClient(gameState.toString());
 
-			for (ClientNetInterface e : netList) {
-				e.gameStateReceived();
+			break;
+		}
+
+		case ProtocolConstant.MSG_S_ROOM_GAMESTATEDELTA: {
+			int stateLen;
+			try {
+				stateLen = ClientPacketEncoder.decodeGameStateDelta(recvBuffer, packet.getLength(), snapshots,
+						snapshotBuffer);
+			} catch (IOException e) {
+				pClient("Failed to decode game state delta: " + e);
+				return;
 			}
+			int snapshotID = recvByteBuffer.getInt(7);
+
+			// a snapshot arriving late is only kept as a baseline
+			boolean newer = SnapshotRing.isNewer(snapshotID, lastSnapshotID);
+			if (newer) {
+				appliedInputSequence = recvByteBuffer.getShort(15);
+				try {
+					receiveGameState(snapshotBuffer, stateLen);
+				} catch (IOException e) {
+					pClient("Failed to decode game state");
+					return;
+				}
+			}
+
+			snapshots.put(snapshotID, snapshotBuffer, 7, stateLen - 7);
+			if (!newer) {
+				return;
+			}
+			lastSnapshotID = snapshotID;
 
 			break;
 		}
@@ -698,25 +873,30 @@ public class ClientThread implements Runnable {
 
 	private void sendPacket(DatagramPacket packet, byte type, boolean tryRetransmit) throws IOException {
 		if (tryRetransmit) {
-			short sequence = serverInfo.getNextPacketSequenceAndIncrement();
+			// the sequence numbers and the window are guarded by the server
+			synchronized (serverInfo) {
+				short sequence = serverInfo.getNextPacketSequenceAndIncrement();
 
-			// set the sequence number in the packet before sending
-			ByteBuffer buffer = ByteBuffer.wrap(packet.getData());
-			buffer.put(0, (byte) (type | ProtocolConstant.MSG_B_HASSEQUENCE));
-			buffer.putShort(1, sequence);
+				// set the sequence number in the packet before sending
+				byte[] data = packet.getData();
+				data[0] = (byte) (type | ProtocolConstant.MSG_B_HASSEQUENCE);
+				data[1] = (byte) (sequence >> 8);
+				data[2] = (byte) sequence;
 
-			// insert the packet to history
-			serverInfo.insertPacket(sequence, packet);
-
-			// send the packet
-			socket.send(packet);
+				// insert the packet to the window
+				serverInfo.insertPacket(sequence, packet);
 
+				// send the packet
+				socket.send(packet);
+			}
 		} else {
 			sendPacket(packet, type);
 		}
 	}
 
 	private void recvPacket(DatagramPacket packet) throws IOException {
+		// the length may have been shortened by the previous packet
+		packet.setLength(packet.getData().length);
 		socket.receive(packet);
 	}
 
@@ -818,7 +998,8 @@ public class ClientThread implements Runnable {
 		tmpName = name;
 
 		// prepare the buffer
-		publicSendByteBuffer.putLong(3, 0);
+		publicSendByteBuffer.putInt(3, ProtocolConstant.PROTOCOL_VERSION);
+		publicSendByteBuffer.putInt(7, 0);
 
 		// send the packet
 		DatagramPacket p = new DatagramPacket(publicSendBuffer, 0, 1 + 2 + 8, serverSockAddr);
@@ -835,7 +1016,9 @@ public class ClientThread implements Runnable {
 			pClient("Warning: client has possibly not connected yet");
 		}
 
-		DatagramPacket p = new DatagramPacket(publicSendBuffer, 0, 1 + 2, serverSockAddr);
+		publicSendByteBuffer.putInt(3, playerList.getVersion());
+		publicSendByteBuffer.putInt(7, 0);
+		DatagramPacket p = new DatagramPacket(publicSendBuffer, 0, 1 + 2 + 4 + 4, serverSockAddr);
 		sendPacket(p, ProtocolConstant.MSG_C_LOBBY_GETPLAYERLIST, true);
 	}
 
@@ -849,10 +1032,60 @@ public class ClientThread implements Runnable {
 			pClient("Warning: client has possibly not connected yet");
 		}
 
-		DatagramPacket p = new DatagramPacket(publicSendBuffer, 0, 1 + 2, serverSockAddr);
+		publicSendByteBuffer.putInt(3, roomList.getVersion());
+		publicSendByteBuffer.putInt(7, 0);
+		DatagramPacket p = new DatagramPacket(publicSendBuffer, 0, 1 + 2 + 4 + 4, serverSockAddr);
 		sendPacket(p, ProtocolConstant.MSG_C_LOBBY_GETROOMLIST, true);
 	}
 
+	/**
+	 * Request a missing page of the player or room list, from the receiving
+	 * thread
+	 * 
+	 * @param type
+	 *            the message type of the request
+	 * @param version
+	 *            the version of the complete list the client has
+	 * @param index
+	 *            the index of the page
+	 * @throws IOException
+	 */
+	private void requestListPage(byte type, int version, int index) throws IOException {
+		sendByteBuffer.putInt(3, version);
+		sendByteBuffer.putInt(7, index);
+		DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2 + 4 + 4, serverSockAddr);
+		sendPacket(p, type, true);
+	}
+
+	/**
+	 * Decode a game state into the current one and notify the listeners. The
+	 * player list of the game state is locked until the listeners have been
+	 * notified, so that they read the players as they have been decoded
+	 *
+	 * @param src
+	 *            the encoded game state
+	 * @param length
+	 *            the length of the encoded game state
+	 * @throws IOException
+	 */
+	private void receiveGameState(byte[] src, int length) throws IOException {
+		boolean decoded = false;
+		if (gameState == null) {
+			gameState = ClientPacketEncoder.decodeGameState(null, src, length);
+			decoded = true;
+		}
+
+		synchronized (gameState.getPlayers()) {
+			if (!decoded) {
+				gameState = ClientPacketEncoder.decodeGameState(gameState, src, length);
+			}
+
+			for (ClientNetInterface e : netList) {
+				e.gameStateReceived();
+			}
+		}
+	}
+
 	/**
 	 * Send a disconnection request to the server
 	 * 
@@ -947,24 +1180,23 @@ public class ClientThread implements Runnable {
 	}
 
 	/**
-	 * Get the last list of players received from the server. Client will also
-	 * automatically request the list periodically
+	 * Get the last list of players received from the server. The changes of
+	 * the list are pushed by the server once the client has connected
 	 * 
 	 * @return a list of ClientServerPlayer objects
 	 */
 	public List<ClientServerPlayer> getPlayerList() {
-		return playerList;
+		return playerList.getList();
 	}
 
 	/**
-	 * Get the last list of rooms received from the server. Client will also
-	 * automatically request the list periodically when it is NOT in a room(when
-	 * it is in lobby)
+	 * Get the last list of rooms received from the server. The changes of the
+	 * list are pushed by the server once the client has connected
 	 * 
 	 * @return a list of ClientServerLobbyRoom objects
 	 */
 	public List<ClientServerLobbyRoom> getRoomList() {
-		return roomList;
+		return roomList.getList();
 	}
 
 	/**
@@ -977,6 +1209,17 @@ public class ClientThread implements Runnable {
 		return gameState;
 	}
 
+	/**
+	 * Get the input sequence of the last move the server had applied to the
+	 * last received game state, up to which the moves predicted by the client
+	 * are confirmed
+	 * 
+	 * @return the input sequence, or -1 if no move has been applied
+	 */
+	public short getAppliedInputSequence() {
+		return appliedInputSequence;
+	}
+
 	/**
 	 * Get the last received room the client is in from the server. Note that a
 	 * "null" will be returned if the client has not joined/received any room
@@ -1020,12 +1263,12 @@ public class ClientThread implements Runnable {
 	 * 
 	 * @return the grid width of the map
 	 */
-	public byte getMapWidth() {
+	public int getMapWidth() {
 		return mapWidth;
 	}
 
-	private void setMapWidth(byte mapWidth) {
-		if (mapWidth > 0 && mapWidth <= 16) {
+	private void setMapWidth(int mapWidth) {
+		if (mapWidth > 0 && mapWidth <= ProtocolConstant.MAX_MAP_SIZE) {
 			this.mapWidth = mapWidth;
 		}
 	}
@@ -1037,12 +1280,12 @@ public class ClientThread implements Runnable {
 	 * 
 	 * @return the grid height of the map
 	 */
-	public byte getMapHeight() {
+	public int getMapHeight() {
 		return mapHeight;
 	}
 
-	private void setMapHeight(byte mapHeight) {
-		if (mapHeight > 0 && mapHeight <= 16) {
+	private void setMapHeight(int mapHeight) {
+		if (mapHeight > 0 && mapHeight <= ProtocolConstant.MAX_MAP_SIZE) {
 			this.mapHeight = mapHeight;
 		}
 	}
@@ -1382,7 +1625,15 @@ public class ClientThread implements Runnable {
 		sendPacket(p, ProtocolConstant.MSG_C_ROOM_READYTOPLAY, true);
 	}
 
-	public synchronized void sendMove(KeyboardState keyboardState) throws IOException {
+	/**
+	 * Send the KeyboardState of the player to the server, as the next move
+	 * 
+	 * @param keyboardState
+	 *            the KeyboardState
+	 * @return the input sequence of the move
+	 * @throws IOException
+	 */
+	public synchronized short sendMove(KeyboardState keyboardState) throws IOException {
 		if (!isConnected()) {
 			pClient("Warning: client has possibly not connected yet");
 		}
@@ -1391,13 +1642,39 @@ public class ClientThread implements Runnable {
 			pClient("Warning: client is possibly not in a room yet");
 		}
 
+		short sequence = inputSequence++;
+		recentMoves[(sequence & 0xffff) % recentMoves.length] = ClientPacketEncoder.keyboardStateToShort(keyboardState);
+		if (recentMoveCount < recentMoves.length) {
+			recentMoveCount++;
+		}
+
 		// prepare the buffer
 		publicSendByteBuffer.position(3);
 		publicSendByteBuffer.putInt(this.roomID);
-		publicSendByteBuffer.putShort(ClientPacketEncoder.keyboardStateToShort(keyboardState));
+		publicSendByteBuffer.putShort(sequence);
+		publicSendByteBuffer.put((byte) recentMoveCount);
+		for (int i = 0; i < recentMoveCount; i++) {
+			publicSendByteBuffer.putShort(recentMoves[((short) (sequence - i) & 0xffff) % recentMoves.length]);
+		}
+		// acknowledge the last game state, the baseline of the next deltas
+		publicSendByteBuffer.putInt(lastSnapshotID);
+
+		int length = 1 + 2 + 4 + 2 + 1 + 2 * recentMoveCount + 4;
+		// the move also acknowledges the packets received from the server
+		synchronized (serverInfo) {
+			length += serverInfo.getReliabilityWindow().writeAck(publicSendBuffer, length);
+		}
 
-		DatagramPacket p = new DatagramPacket(publicSendBuffer, 0, 1 + 2 + 4 + 2, serverSockAddr);
+		DatagramPacket p = new DatagramPacket(publicSendBuffer, 0, length, serverSockAddr);
 		sendPacket(p, ProtocolConstant.MSG_C_GAME_SENDMOVE, false);
+		return sequence;
+	}
+
+	/**
+	 * Forget the moves sent before a game, so that they are not repeated in it
+	 */
+	private synchronized void clearRecentMoves() {
+		recentMoveCount = 0;
 	}
 
 	/**
@@ -0,0 +1,123 @@
+package bomber.networking;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server transport based on a non-blocking DatagramChannel. Every sending
+ * thread copies its packets into a direct buffer of its own, so the threads
+ * only share the channel, which is locked for the system call alone. A send
+ * never waits: when the send buffer of the socket is full the packet is
+ * dropped and counted, like any other lost UDP packet
+ */
+class DatagramChannelTransport implements ServerTransport {
+
+	private final DatagramChannel channel;
+
+	// selector for waiting on the non-blocking channel
+	private final Selector selector;
+
+	// direct receiving buffer, used by the receiving thread only
+	private final ByteBuffer recvBuffer;
+
+	// pool of direct sending buffers, one for each sending thread
+	private final ThreadLocal<ByteBuffer> sendBuffers;
+
+	private final AtomicLong droppedPackets = new AtomicLong();
+
+	/**
+	 * Open a channel on a port
+	 * 
+	 * @param port
+	 *            the UDP port on which the server listens
+	 * @param bufferLength
+	 *            the length of the receiving and sending buffers
+	 * @throws IOException
+	 */
+	DatagramChannelTransport(int port, int bufferLength) throws IOException {
+		this.channel = DatagramChannel.open();
+		try {
+			channel.bind(new InetSocketAddress(port));
+			channel.configureBlocking(false);
+			this.selector = Selector.open();
+			channel.register(selector, SelectionKey.OP_READ);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		this.recvBuffer = ByteBuffer.allocateDirect(bufferLength);
+		this.sendBuffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(bufferLength));
+	}
+
+	@Override
+	public void receive(DatagramPacket packet) throws IOException {
+		try {
+			while (true) {
+				recvBuffer.clear();
+				SocketAddress sockAddr = channel.receive(recvBuffer);
+				if (sockAddr != null) {
+					recvBuffer.flip();
+					int length = Math.min(recvBuffer.remaining(), packet.getData().length - packet.getOffset());
+					recvBuffer.get(packet.getData(), packet.getOffset(), length);
+					packet.setLength(length);
+					packet.setSocketAddress(sockAddr);
+					return;
+				}
+
+				// wait until a packet arrives or the transport is closed
+				selector.select();
+				selector.selectedKeys().clear();
+				if (!selector.isOpen()) {
+					throw new ClosedChannelException();
+				}
+			}
+		} catch (ClosedSelectorException e) {
+			throw new ClosedChannelException();
+		}
+	}
+
+	@Override
+	public void send(DatagramPacket packet) throws IOException {
+		ByteBuffer buffer = sendBuffers.get();
+		if (buffer.capacity() < packet.getLength()) {
+			buffer = ByteBuffer.allocateDirect(packet.getLength());
+			sendBuffers.set(buffer);
+		}
+		buffer.clear();
+		buffer.put(packet.getData(), packet.getOffset(), packet.getLength());
+		buffer.flip();
+		if (channel.send(buffer, packet.getSocketAddress()) == 0) {
+			droppedPackets.incrementAndGet();
+		}
+	}
+
+	@Override
+	public long getDroppedPacketCount() {
+		return droppedPackets.get();
+	}
+
+	@Override
+	public void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			System.out.println("DatagramChannelTransport: Failed to close the channel: " + e);
+		}
+		try {
+			// wakes up the receiving thread
+			selector.close();
+		} catch (IOException e) {
+			System.out.println("DatagramChannelTransport: Failed to close the selector: " + e);
+		}
+	}
+
+}
@@ -0,0 +1,48 @@
+package bomber.networking;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.SocketException;
+
+/**
+ * Server transport based on a blocking DatagramSocket, kept as a fallback for
+ * the DatagramChannel transport
+ */
+class DatagramSocketTransport implements ServerTransport {
+
+	private final DatagramSocket socket;
+
+	/**
+	 * Open a socket on a port
+	 * 
+	 * @param port
+	 *            the UDP port on which the server listens
+	 * @throws SocketException
+	 */
+	DatagramSocketTransport(int port) throws SocketException {
+		this.socket = new DatagramSocket(port);
+	}
+
+	@Override
+	public void receive(DatagramPacket packet) throws IOException {
+		socket.receive(packet);
+	}
+
+	@Override
+	public void send(DatagramPacket packet) throws IOException {
+		// a blocking socket never drops a packet on the sending side
+		socket.send(packet);
+	}
+
+	@Override
+	public long getDroppedPacketCount() {
+		return 0;
+	}
+
+	@Override
+	public void close() {
+		socket.close();
+	}
+
+}
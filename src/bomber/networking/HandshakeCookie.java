@@ -0,0 +1,217 @@
+package bomber.networking;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Stateless cookies for the connection handshake. The nonce sent to a client
+ * in reply to MSG_C_NET_GETNONCE is a cookie made of the time it was issued
+ * and a truncated HMAC of the client address and that time, keyed by a server
+ * secret. The server checks the cookie a client sends back in
+ * MSG_C_NET_CONNECT by computing the HMAC again, so nothing is stored per
+ * handshake. The secret is replaced by a new random one every
+ * ROTATION_INTERVAL seconds, the previous one is kept to check the cookies
+ * issued just before the rotation.
+ */
+public class HandshakeCookie {
+	// a cookie is accepted for this number of seconds after it was issued
+	public static final int COOKIE_LIFETIME = 60;
+
+	// the number of seconds after which the secret is replaced, a cookie is
+	// issued under the current or the previous secret
+	public static final int ROTATION_INTERVAL = COOKIE_LIFETIME;
+
+	private static final String ALGORITHM = "HmacSHA256";
+	private static final int SECRET_LENGTH = 32;
+
+	// 2 byte issue time (seconds) + 6 byte truncated HMAC
+	private static final long MAC_MASK = 0xffffffffffffL;
+
+	private final SecureRandom random;
+
+	// the secrets of the current and the previous rotation, replaced together
+	private volatile Secrets secrets;
+
+	// a Mac is not thread safe, each thread has its own
+	private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(() -> {
+		try {
+			return Mac.getInstance(ALGORITHM);
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(ALGORITHM + " is not available", e);
+		}
+	});
+
+	/**
+	 * Create a cookie generator with a random secret
+	 *
+	 * @param random
+	 *            the source of the secrets
+	 */
+	public HandshakeCookie(SecureRandom random) {
+		this.random = random;
+		long rotation = Math.floorDiv(System.currentTimeMillis() / 1000, ROTATION_INTERVAL);
+		this.secrets = new Secrets(rotation, newSecret(), null);
+	}
+
+	/**
+	 * Issue a cookie for a client. The same client gets the same cookie
+	 * within a second
+	 *
+	 * @param address
+	 *            the address of the client
+	 * @return the cookie
+	 */
+	public long issue(SocketAddress address) {
+		return issue(address, System.currentTimeMillis());
+	}
+
+	/**
+	 * Issue a cookie for a client at a given time
+	 *
+	 * @param address
+	 *            the address of the client
+	 * @param now
+	 *            the current time in milliseconds
+	 * @return the cookie
+	 */
+	public long issue(SocketAddress address, long now) {
+		long seconds = now / 1000;
+		Secrets s = rotate(Math.floorDiv(seconds, ROTATION_INTERVAL));
+		// a clock going backwards does not issue cookies under an old secret
+		seconds = Math.max(seconds, s.rotation * ROTATION_INTERVAL);
+		return ((seconds & 0xffffL) << 48) | mac(s.current, address, seconds);
+	}
+
+	/**
+	 * Check a cookie sent back by a client
+	 *
+	 * @param address
+	 *            the address of the client
+	 * @param cookie
+	 *            the cookie
+	 * @return true if the cookie was issued to this address within the last
+	 *         COOKIE_LIFETIME seconds
+	 */
+	public boolean verify(SocketAddress address, long cookie) {
+		return verify(address, cookie, System.currentTimeMillis());
+	}
+
+	/**
+	 * Check a cookie sent back by a client at a given time
+	 *
+	 * @param address
+	 *            the address of the client
+	 * @param cookie
+	 *            the cookie
+	 * @param now
+	 *            the current time in milliseconds
+	 * @return true if the cookie was issued to this address within the last
+	 *         COOKIE_LIFETIME seconds
+	 */
+	public boolean verify(SocketAddress address, long cookie, long now) {
+		long seconds = now / 1000;
+
+		// the 16 bit time of the cookie is taken as the latest matching second
+		long age = (seconds - (cookie >>> 48)) & 0xffffL;
+		if (age > COOKIE_LIFETIME) {
+			return false;
+		}
+		long issued = seconds - age;
+
+		Secrets s = rotate(Math.floorDiv(seconds, ROTATION_INTERVAL));
+		SecretKeySpec key = s.keyOf(Math.floorDiv(issued, ROTATION_INTERVAL));
+		if (key == null) {
+			return false;
+		}
+
+		// constant time comparison of the HMAC
+		long expected = mac(key, address, issued);
+		return ((expected ^ cookie) & MAC_MASK) == 0;
+	}
+
+	private long mac(SecretKeySpec key, SocketAddress address, long seconds) {
+		Mac mac = macs.get();
+		try {
+			mac.init(key);
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+
+		if (address instanceof InetSocketAddress && ((InetSocketAddress) address).getAddress() != null) {
+			InetSocketAddress inet = (InetSocketAddress) address;
+			mac.update(inet.getAddress().getAddress());
+			int port = inet.getPort();
+			mac.update((byte) (port >> 8));
+			mac.update((byte) port);
+		} else {
+			mac.update(String.valueOf(address).getBytes(StandardCharsets.UTF_8));
+		}
+		for (int i = 56; i >= 0; i -= 8) {
+			mac.update((byte) (seconds >> i));
+		}
+
+		byte[] digest = mac.doFinal();
+		long value = 0;
+		for (int i = 0; i < 6; i++) {
+			value = (value << 8) | (digest[i] & 0xff);
+		}
+		return value;
+	}
+
+	/**
+	 * Get the secrets, replacing them first if their rotation is over
+	 */
+	private Secrets rotate(long rotation) {
+		Secrets s = secrets;
+		if (rotation <= s.rotation) {
+			return s;
+		}
+
+		synchronized (this) {
+			s = secrets;
+			if (rotation > s.rotation) {
+				// the previous secret is only kept for the rotation just before
+				SecretKeySpec previous = rotation == s.rotation + 1 ? s.current : null;
+				s = new Secrets(rotation, newSecret(), previous);
+				secrets = s;
+			}
+			return s;
+		}
+	}
+
+	private SecretKeySpec newSecret() {
+		byte[] secret = new byte[SECRET_LENGTH];
+		random.nextBytes(secret);
+		return new SecretKeySpec(secret, ALGORITHM);
+	}
+
+	/**
+	 * The secrets of a rotation and of the rotation before it
+	 */
+	private static class Secrets {
+		private final long rotation;
+		private final SecretKeySpec current;
+		private final SecretKeySpec previous;
+
+		private Secrets(long rotation, SecretKeySpec current, SecretKeySpec previous) {
+			this.rotation = rotation;
+			this.current = current;
+			this.previous = previous;
+		}
+
+		private SecretKeySpec keyOf(long rotation) {
+			if (rotation == this.rotation) {
+				return current;
+			} else if (rotation == this.rotation - 1) {
+				return previous;
+			}
+			return null;
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package bomber.networking;
+
+import java.util.Arrays;
+
+/**
+ * Allocator of the IDs in the range [0,capacity) of a client or room table.
+ * Released IDs are kept in a free list and handed out again before the IDs
+ * which have never been used, so both allocating and releasing an ID take
+ * constant time however large the table is. The allocator is not thread safe,
+ * the tables use it while holding their own lock
+ */
+public class IDAllocator {
+	private final int capacity;
+
+	// the released IDs, the most recently released on top
+	private int[] freeIDs = new int[16];
+	private int freeCount = 0;
+
+	// the IDs from this one on have never been allocated
+	private int nextFreshID = 0;
+
+	/**
+	 * Construct an allocator of the IDs in the range [0,capacity)
+	 *
+	 * @param capacity
+	 *            the number of IDs
+	 */
+	public IDAllocator(int capacity) {
+		this.capacity = Math.max(0, capacity);
+	}
+
+	/**
+	 * Allocate an ID
+	 *
+	 * @return the ID, or -1 when every ID is in use
+	 */
+	public int allocate() {
+		if (freeCount > 0) {
+			freeCount--;
+			return freeIDs[freeCount];
+		}
+		if (nextFreshID < capacity) {
+			return nextFreshID++;
+		}
+		return -1;
+	}
+
+	/**
+	 * Release an ID so that it can be allocated again. The ID must have been
+	 * allocated and not released since
+	 *
+	 * @param id
+	 *            the ID
+	 */
+	public void release(int id) {
+		if (id < 0 || id >= nextFreshID) {
+			return;
+		}
+		if (freeCount == freeIDs.length) {
+			freeIDs = Arrays.copyOf(freeIDs, freeIDs.length * 2);
+		}
+		freeIDs[freeCount] = id;
+		freeCount++;
+	}
+
+	/**
+	 * Get the number of IDs in use
+	 *
+	 * @return the number of IDs allocated and not released
+	 */
+	public int size() {
+		return nextFreshID - freeCount;
+	}
+
+	/**
+	 * Get the number of IDs
+	 *
+	 * @return the capacity of the allocator
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+}
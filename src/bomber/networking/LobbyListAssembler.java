@@ -0,0 +1,153 @@
+package bomber.networking;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * Assembler of the pages of the player list or the room list received from
+ * the server. Pages of the same version are collected until every page has
+ * arrived, then they replace the list held so far; a page of another version
+ * discards the pages collected. The changes pushed by the server are applied
+ * to the complete list when they start from its version. Pages and changes
+ * must be added by one thread, while the complete list and its version can be
+ * read by any thread
+ *
+ * @param <T>
+ *     the type of the entries of the list
+ */
+public class LobbyListAssembler<T> {
+	// gets the ID of an entry, by which the list is sorted
+	private final ToIntFunction<T> idOf;
+
+	// the last complete list and its version, -1 before any list is complete
+	private volatile List<T> list = Collections.emptyList();
+	private volatile int version = -1;
+
+	// the pages collected of the version being assembled
+	private List<List<T>> pages = null;
+	private int pagesVersion = -1;
+	private int pagesReceived = 0;
+
+	/**
+	 * Construct an assembler of a list
+	 *
+	 * @param idOf
+	 *            the function getting the ID of an entry
+	 */
+	public LobbyListAssembler(ToIntFunction<T> idOf) {
+		this.idOf = idOf;
+	}
+
+	/**
+	 * Add a page received from the server
+	 *
+	 * @param pageVersion
+	 *            the version of the list in the page
+	 * @param index
+	 *            the index of the page
+	 * @param maxIndex
+	 *            the max index of the pages of the list
+	 * @param entries
+	 *            the entries in the page
+	 * @return the index of the next page to request, or -1 if there is none
+	 *         (because the list is complete or the page is invalid)
+	 */
+	public int addPage(int pageVersion, int index, int maxIndex, List<T> entries) {
+		if (pageVersion < 0 || maxIndex < 0 || index < 0 || index > maxIndex || entries == null) {
+			return -1;
+		}
+
+		if (pages == null || pagesVersion != pageVersion || pages.size() != maxIndex + 1) {
+			pages = new ArrayList<List<T>>(Collections.nCopies(maxIndex + 1, (List<T>) null));
+			pagesVersion = pageVersion;
+			pagesReceived = 0;
+		}
+
+		if (pages.get(index) == null) {
+			pagesReceived++;
+		}
+		pages.set(index, entries);
+
+		if (pagesReceived < pages.size()) {
+			return pages.indexOf(null);
+		}
+
+		List<T> newList = new ArrayList<T>();
+		for (List<T> page : pages) {
+			newList.addAll(page);
+		}
+		version = pageVersion;
+		list = newList;
+		pages = null;
+		pagesReceived = 0;
+
+		return -1;
+	}
+
+	/**
+	 * Apply changes pushed by the server to the last complete list
+	 *
+	 * @param fromVersion
+	 *            the version of the list before the changes
+	 * @param toVersion
+	 *            the version of the list after the changes
+	 * @param removedIDs
+	 *            the IDs of the removed entries
+	 * @param changed
+	 *            the added or changed entries
+	 * @return true if the changes have been applied, false if they do not
+	 *         start from the version of the list
+	 */
+	public boolean applyChanges(int fromVersion, int toVersion, List<Integer> removedIDs, List<T> changed) {
+		if (fromVersion < 0 || toVersion < 0 || fromVersion != version) {
+			return false;
+		}
+
+		TreeMap<Integer, T> entries = new TreeMap<Integer, T>();
+		for (T entry : list) {
+			entries.put(idOf.applyAsInt(entry), entry);
+		}
+		for (Integer id : removedIDs) {
+			entries.remove(id);
+		}
+		for (T entry : changed) {
+			entries.put(idOf.applyAsInt(entry), entry);
+		}
+
+		version = toVersion;
+		list = new ArrayList<T>(entries.values());
+		return true;
+	}
+
+	/**
+	 * Check whether some pages of a list have been received but not all of
+	 * them, in which case the missing pages have been requested
+	 *
+	 * @return true if a list is being assembled
+	 */
+	public boolean isAssembling() {
+		return pages != null;
+	}
+
+	/**
+	 * Get the last complete list
+	 *
+	 * @return the list, empty before any list is complete
+	 */
+	public List<T> getList() {
+		return list;
+	}
+
+	/**
+	 * Get the version of the last complete list, which is sent in requests so
+	 * that the server does not send the list again if it is unchanged
+	 *
+	 * @return the version, or -1 before any list is complete
+	 */
+	public int getVersion() {
+		return version;
+	}
+}
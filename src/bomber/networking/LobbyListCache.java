@@ -0,0 +1,288 @@
+package bomber.networking;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cache of the encoded pages of the player list or the room list of the
+ * lobby. The list is encoded again only when its changes are taken after it
+ * has been invalidated, and each encoding which differs from the previous one
+ * carries a new version so that a client which already has the current
+ * version can be told so in a few bytes. The changes are taken as a Delta at
+ * each lobby tick and before the list is fetched, and pushed to the subscribed
+ * clients. As new versions are only made by taking a Delta, every version a
+ * client can have is the one a following Delta starts from
+ */
+public class LobbyListCache {
+
+	/**
+	 * Encoder of the entries of a list
+	 */
+	public interface Encoder {
+		/**
+		 * Encode each entry of the current list
+		 *
+		 * @return the encoded entries sorted by ID
+		 * @throws IOException
+		 */
+		SortedMap<Integer, byte[]> encode() throws IOException;
+	}
+
+	/**
+	 * The pages of one version of a list
+	 */
+	public static class Pages {
+		private final int version;
+		private final List<byte[]> pages;
+
+		private Pages(int version, List<byte[]> pages) {
+			this.version = version;
+			this.pages = Collections.unmodifiableList(pages);
+		}
+
+		/**
+		 * Get the version of the list
+		 *
+		 * @return the version, which is never negative
+		 */
+		public int getVersion() {
+			return version;
+		}
+
+		/**
+		 * Get the number of pages
+		 *
+		 * @return the number of pages
+		 */
+		public int size() {
+			return pages.size();
+		}
+
+		/**
+		 * Get a page, the index being clamped to the range of the pages
+		 *
+		 * @param index
+		 *            the index of the page
+		 * @return the page
+		 */
+		public byte[] get(int index) {
+			return pages.get(Math.max(0, Math.min(index, pages.size() - 1)));
+		}
+	}
+
+	/**
+	 * The changes of a list from one version to another
+	 */
+	public static class Delta {
+		private final int fromVersion;
+		private final int toVersion;
+		private final List<Integer> removedIDs;
+		private final List<byte[]> putEntries;
+
+		private Delta(int fromVersion, int toVersion, List<Integer> removedIDs, List<byte[]> putEntries) {
+			this.fromVersion = fromVersion;
+			this.toVersion = toVersion;
+			this.removedIDs = removedIDs;
+			this.putEntries = putEntries;
+		}
+
+		/**
+		 * Get the version of the list before the changes
+		 *
+		 * @return the version
+		 */
+		public int getFromVersion() {
+			return fromVersion;
+		}
+
+		/**
+		 * Get the version of the list after the changes
+		 *
+		 * @return the version
+		 */
+		public int getToVersion() {
+			return toVersion;
+		}
+
+		/**
+		 * Get the IDs of the entries which have been removed
+		 *
+		 * @return the IDs
+		 */
+		public List<Integer> getRemovedIDs() {
+			return removedIDs;
+		}
+
+		/**
+		 * Get the entries which have been added or changed
+		 *
+		 * @return the encoded entries
+		 */
+		public List<byte[]> getPutEntries() {
+			return putEntries;
+		}
+	}
+
+	private final Encoder encoder;
+
+	private final int pageLength;
+
+	// number of changes of the list, and the number when it was last encoded
+	private final AtomicInteger changes = new AtomicInteger();
+	private int encodedChanges = -1;
+
+	// the current entries, version and pages of the list. The version starts
+	// at a random value so that a client keeping a version across a restart of
+	// the server is unlikely to be told its list is unchanged
+	private SortedMap<Integer, byte[]> entries;
+	private int version;
+	private volatile Pages pages;
+
+	// the entries and version of the list when the last delta was taken
+	private SortedMap<Integer, byte[]> deltaEntries;
+	private int deltaVersion;
+
+	// number of times the pages have been encoded
+	private int encodeCount = 0;
+
+	/**
+	 * Construct a cache of a list
+	 *
+	 * @param encoder
+	 *            the encoder of the entries of the list
+	 * @param pageLength
+	 *            the max length of a page
+	 * @param initialVersion
+	 *            the version of the list before its first change
+	 */
+	public LobbyListCache(Encoder encoder, int pageLength, int initialVersion) {
+		this.encoder = encoder;
+		this.pageLength = pageLength;
+		this.version = initialVersion & Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Mark the list as changed, so that it is encoded again when its changes
+	 * are next taken
+	 */
+	public void invalidate() {
+		changes.incrementAndGet();
+	}
+
+	/**
+	 * Get the pages of the current version of the list, which is encoded by
+	 * the first call if no lobby tick has encoded it yet
+	 *
+	 * @return the pages
+	 * @throws IOException
+	 */
+	public Pages getPages() throws IOException {
+		Pages current = pages;
+		if (current != null) {
+			return current;
+		}
+
+		synchronized (this) {
+			if (pages == null) {
+				update();
+			}
+			return pages;
+		}
+	}
+
+	/**
+	 * Take the changes of the list since the last delta was taken, encoding
+	 * the list if it has changed since it was last encoded
+	 *
+	 * @return the changes, or null if the list has not changed
+	 * @throws IOException
+	 */
+	public synchronized Delta takeDelta() throws IOException {
+		update();
+		if (deltaVersion == version) {
+			return null;
+		}
+
+		List<Integer> removedIDs = new ArrayList<Integer>();
+		for (Integer id : deltaEntries.keySet()) {
+			if (!entries.containsKey(id)) {
+				removedIDs.add(id);
+			}
+		}
+
+		List<byte[]> putEntries = new ArrayList<byte[]>();
+		for (Entry<Integer, byte[]> e : entries.entrySet()) {
+			if (!Arrays.equals(deltaEntries.get(e.getKey()), e.getValue())) {
+				putEntries.add(e.getValue());
+			}
+		}
+
+		Delta delta = new Delta(deltaVersion, version, removedIDs, putEntries);
+		deltaEntries = entries;
+		deltaVersion = version;
+		return delta;
+	}
+
+	/**
+	 * Encode the list if it has changed since it was last encoded, and give it
+	 * a new version if its entries differ from the previous ones. Called while
+	 * holding the lock of the cache
+	 *
+	 * @throws IOException
+	 */
+	private void update() throws IOException {
+		/*
+		 * the number of changes is read before encoding, so a change during
+		 * encoding makes the list be encoded once more the next time
+		 */
+		int c = changes.get();
+		if (pages != null && encodedChanges == c) {
+			return;
+		}
+
+		SortedMap<Integer, byte[]> newEntries = new TreeMap<Integer, byte[]>(encoder.encode());
+		if (pages == null || !sameEntries(entries, newEntries)) {
+			if (pages != null) {
+				version = (version + 1) & Integer.MAX_VALUE;
+			}
+			List<byte[]> newPages = ServerPacketEncoder.encodeListPages(new ArrayList<byte[]>(newEntries.values()),
+					version, pageLength);
+			entries = newEntries;
+			pages = new Pages(version, newPages);
+			encodeCount++;
+		}
+		if (deltaEntries == null) {
+			deltaEntries = entries;
+			deltaVersion = version;
+		}
+		encodedChanges = c;
+	}
+
+	private static boolean sameEntries(SortedMap<Integer, byte[]> a, SortedMap<Integer, byte[]> b) {
+		if (a.size() != b.size()) {
+			return false;
+		}
+		for (Entry<Integer, byte[]> e : a.entrySet()) {
+			if (!Arrays.equals(e.getValue(), b.get(e.getKey()))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Get the number of times the pages of the list have been encoded
+	 *
+	 * @return the number of encodings
+	 */
+	public synchronized int getEncodeCount() {
+		return encodeCount;
+	}
+}
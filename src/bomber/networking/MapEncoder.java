@@ -0,0 +1,192 @@
+package bomber.networking;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import bomber.game.Block;
+
+/**
+ * Encoder of the grid map sent in MSG_S_ROOM_GAMESTATE and
+ * MSG_C_ROOM_SETINFO_ADDMAP messages: 2 byte width + 2 byte height (both in
+ * the range [1,ProtocolConstant.MAX_MAP_SIZE]) + the blocks row by row, two
+ * blocks per byte with the first one in the high 4 bits
+ */
+public class MapEncoder {
+
+	/**
+	 * Get the number of bytes of an encoded map
+	 *
+	 * @param width
+	 *            the width of the map
+	 * @param height
+	 *            the height of the map
+	 * @return the number of bytes
+	 */
+	public static int encodedLength(int width, int height) {
+		return 2 + 2 + (width * height + 1) / 2;
+	}
+
+	/**
+	 * Check that a grid map can be encoded: it is not empty, its columns have
+	 * the same length and none of its blocks is null
+	 *
+	 * @param gridMap
+	 *            the grid map
+	 * @return the number of bytes of the encoded map
+	 * @throws IOException
+	 */
+	public static int check(Block[][] gridMap) throws IOException {
+		if (gridMap == null) {
+			throw new IOException("gridMap is null");
+		}
+
+		if (gridMap.length < 1 || gridMap.length > ProtocolConstant.MAX_MAP_SIZE) {
+			throw new IOException("gridMap width is not in the range [1," + ProtocolConstant.MAX_MAP_SIZE + "]");
+		}
+
+		if (gridMap[0] == null) {
+			throw new IOException("gridMap has null column");
+		}
+		int height = gridMap[0].length;
+		if (height < 1 || height > ProtocolConstant.MAX_MAP_SIZE) {
+			throw new IOException("gridMap height is not in the range [1," + ProtocolConstant.MAX_MAP_SIZE + "]");
+		}
+
+		for (Block[] column : gridMap) {
+			if (column == null) {
+				throw new IOException("gridMap has null column");
+			}
+
+			if (column.length != height) {
+				throw new IOException("gridMap has inconsistent column length");
+			}
+
+			for (Block b : column) {
+				if (b == null) {
+					throw new IOException("gridMap has null block");
+				}
+			}
+		}
+
+		return encodedLength(gridMap.length, height);
+	}
+
+	/**
+	 * Encode a grid map at the position of a buffer. The grid map should have
+	 * been checked by check
+	 *
+	 * @param gridMap
+	 *            the grid map
+	 * @param buffer
+	 *            the buffer, whose position is moved past the map
+	 */
+	public static void encode(Block[][] gridMap, ByteBuffer buffer) {
+		int width = gridMap.length;
+		int height = gridMap[0].length;
+
+		buffer.putShort((short) width);
+		buffer.putShort((short) height);
+
+		int bits = 0;
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int index = x + y * width;
+				int b = ServerPacketEncoder.blockToByte(gridMap[x][y]) & 0xf;
+				if (index % 2 == 0) {
+					bits = b << 4;
+				} else {
+					buffer.put((byte) (bits | b));
+				}
+			}
+		}
+
+		if (width * height % 2 != 0) {
+			buffer.put((byte) bits);
+		}
+	}
+
+	/**
+	 * Read the width of the map encoded at an index of a buffer
+	 *
+	 * @param buffer
+	 *            the buffer
+	 * @param index
+	 *            the index of the map
+	 * @return the width
+	 * @throws IOException
+	 */
+	public static int getWidth(ByteBuffer buffer, int index) throws IOException {
+		return checkSize(buffer.getShort(index) & 0xffff, "width");
+	}
+
+	/**
+	 * Read the height of the map encoded at an index of a buffer
+	 *
+	 * @param buffer
+	 *            the buffer
+	 * @param index
+	 *            the index of the map
+	 * @return the height
+	 * @throws IOException
+	 */
+	public static int getHeight(ByteBuffer buffer, int index) throws IOException {
+		return checkSize(buffer.getShort(index + 2) & 0xffff, "height");
+	}
+
+	private static int checkSize(int size, String name) throws IOException {
+		if (size < 1 || size > ProtocolConstant.MAX_MAP_SIZE) {
+			throw new IOException("gridMap " + name + " is not in the range [1," + ProtocolConstant.MAX_MAP_SIZE + "]");
+		}
+		return size;
+	}
+
+	/**
+	 * Decode the map at the position of a buffer into a grid map. The caller
+	 * should have checked that the buffer holds the whole map
+	 *
+	 * @param buffer
+	 *            the buffer, whose position is moved past the map
+	 * @param gridMap
+	 *            the grid map to modify, or null to create a new grid map
+	 * @return the grid map in the argument if it has the size of the map, or
+	 *         a new grid map otherwise
+	 * @throws IOException
+	 */
+	public static Block[][] decode(ByteBuffer buffer, Block[][] gridMap) throws IOException {
+		int position = buffer.position();
+		int width = getWidth(buffer, position);
+		int height = getHeight(buffer, position);
+		buffer.position(position + 4);
+
+		if (gridMap == null || gridMap.length != width) {
+			gridMap = new Block[width][height];
+		}
+		for (int x = 0; x < width; x++) {
+			if (gridMap[x] == null || gridMap[x].length != height) {
+				gridMap[x] = new Block[height];
+			}
+		}
+
+		int bits = 0;
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int index = x + y * width;
+				byte b;
+				if (index % 2 == 0) {
+					bits = buffer.get();
+					b = (byte) ((bits >> 4) & 0xf);
+				} else {
+					b = (byte) (bits & 0xf);
+				}
+
+				Block block = ServerPacketEncoder.byteToBlock(b);
+				if (gridMap[x][y] != block) {
+					gridMap[x][y] = block;
+				}
+			}
+		}
+
+		return gridMap;
+	}
+
+}
@@ -1,5 +1,7 @@
 package bomber.networking;
 
+import java.net.SocketAddress;
+
 /**
  * Class representing packets that have been transmitted which requires
  * retransmission if not acknowledged
@@ -16,13 +18,22 @@ public class PacketHistoryEntry {
 	private int packetLength = 0;
 
 	// whether the packet has been acknowledged
-	private boolean acked = false;
+	private volatile boolean acked = false;
 	// number of retransmissions so far
-	private int retransmissionCount = 0;
+	private volatile int retransmissionCount = 0;
 
 	// the time when the packet entry was created in milliseconds
 	private long creationTimeStamp = System.currentTimeMillis();
 
+	// the recipient of the packet
+	private SocketAddress destination = null;
+
+	// the links of the packet in a RetransmitTimerWheel
+	PacketHistoryEntry timerPrev = null;
+	PacketHistoryEntry timerNext = null;
+	int timerSlot = -1;
+	long timerRounds = 0;
+
 	/**
 	 * Construct a packet history entry
 	 * 
@@ -133,6 +144,25 @@ public class PacketHistoryEntry {
 		return creationTimeStamp;
 	}
 
+	/**
+	 * Get the recipient of the packet
+	 * 
+	 * @return the socket address of the recipient, or null if not set
+	 */
+	public SocketAddress getDestination() {
+		return destination;
+	}
+
+	/**
+	 * Set the recipient of the packet
+	 * 
+	 * @param destination
+	 *            the socket address of the recipient
+	 */
+	public void setDestination(SocketAddress destination) {
+		this.destination = destination;
+	}
+
 	/**
 	 * Set whether the packet has been acknowledged
 	 * 
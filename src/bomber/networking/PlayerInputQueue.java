@@ -0,0 +1,118 @@
+package bomber.networking;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Queue of the moves of one player in a game, in the order of their input
+ * sequence. Each MSG_C_GAME_SENDMOVE repeats the last few moves of the client,
+ * so a move is queued from the first packet carrying it and its copies in the
+ * later packets are dropped: a move is only lost if every packet carrying it
+ * is, and a packet arriving late cannot undo newer moves. Moves are added by
+ * the receiving threads and taken by the game thread at each tick
+ */
+public class PlayerInputQueue {
+	// the keyboard state of the bomb key, see ClientPacketEncoder
+	private static final int BOMB_BIT = 1 << 5;
+
+	// the queued moves, oldest first, and their input sequences
+	private final short[] keyStates;
+	private final short[] sequences;
+	private int first = 0;
+	private int count = 0;
+
+	// input sequence of the last move queued and of the last move taken, -1
+	// for none
+	private boolean queuedAny = false;
+	private short lastQueued = -1;
+	private volatile short lastTaken = -1;
+
+	/**
+	 * Construct an empty queue
+	 *
+	 * @param capacity
+	 *            the number of moves kept, the oldest being dropped when the
+	 *            game thread falls behind
+	 */
+	public PlayerInputQueue(int capacity) {
+		this.keyStates = new short[capacity];
+		this.sequences = new short[capacity];
+	}
+
+	/**
+	 * Queue the moves of a MSG_C_GAME_SENDMOVE which have not been queued yet
+	 *
+	 * @param newestSequence
+	 *            the input sequence of the newest move
+	 * @param src
+	 *            the buffer containing the moves, as keyboard states encoded
+	 *            as shorts, newest first, each one sequence older than the
+	 *            previous one
+	 * @param offset
+	 *            the offset of the moves in the buffer
+	 * @param moves
+	 *            the number of moves
+	 * @return the number of moves queued
+	 */
+	public synchronized int add(short newestSequence, ByteBuffer src, int offset, int moves) {
+		int queued = 0;
+		for (int i = moves - 1; i >= 0; i--) {
+			short sequence = (short) (newestSequence - i);
+			if (queuedAny && (short) (sequence - lastQueued) <= 0) {
+				continue;
+			}
+
+			if (count == keyStates.length) {
+				first = (first + 1) % keyStates.length;
+				count--;
+			}
+			int last = (first + count) % keyStates.length;
+			keyStates[last] = src.getShort(offset + 2 * i);
+			sequences[last] = sequence;
+			count++;
+
+			queuedAny = true;
+			lastQueued = sequence;
+			queued++;
+		}
+		return queued;
+	}
+
+	/**
+	 * Take every queued move, merged into one: the keyboard state of the
+	 * newest move, with the bomb key pressed if it was pressed in any of them
+	 * so that a press shorter than a tick still plants a bomb
+	 *
+	 * @return the input sequence of the newest move in bits 16 to 31 and the
+	 *         merged keyboard state in bits 0 to 15, or -1 if no move is
+	 *         queued
+	 */
+	public synchronized long take() {
+		if (count == 0) {
+			return -1;
+		}
+
+		int bomb = 0;
+		for (int i = 0; i < count; i++) {
+			bomb |= keyStates[(first + i) % keyStates.length] & BOMB_BIT;
+		}
+		int last = (first + count - 1) % keyStates.length;
+		short keyState = (short) (keyStates[last] | bomb);
+		short sequence = sequences[last];
+
+		first = 0;
+		count = 0;
+		lastTaken = sequence;
+
+		return ((sequence & 0xffffL) << 16) | (keyState & 0xffffL);
+	}
+
+	/**
+	 * Get the input sequence of the last move taken, which is sent back to the
+	 * client with the game state
+	 *
+	 * @return the input sequence, or -1 if no move has been taken
+	 */
+	public short getLastTaken() {
+		return lastTaken;
+	}
+}
@@ -8,6 +8,29 @@ package bomber.networking;
 public class ProtocolConstant {
 	// Protocol constants and documentation
 
+	/*
+	 * Version of the protocol, sent by the client when it asks for a nonce.
+	 * It changes whenever the format of a message changes
+	 */
+	public static final int PROTOCOL_VERSION = 6;
+
+	/*
+	 * Max length of a packet, which is the max payload of a UDP datagram
+	 */
+	public static final int MAX_PACKET_LENGTH = 65507;
+
+	/*
+	 * Max width and height of a map. A game state on a map of this size with
+	 * 127 players and 127 bombs, and any delta of it, fits in a packet
+	 */
+	public static final int MAX_MAP_SIZE = 255;
+
+	/*
+	 * Max length of a page of the player list or room list, so that a page
+	 * fits in a single Ethernet frame
+	 */
+	public static final int MAX_LIST_PAGE_LENGTH = 1400;
+
 	/*
 	 * All input is evil. Do not assume every received packet has valid format.
 	 * Always perform format and bounds checking
@@ -36,13 +59,24 @@ public class ProtocolConstant {
 	// Mask for testing whether the bit is set
 	public static final byte MSG_B_HASSEQUENCE = (byte) 0x80;
 
+	/*
+	 * Every server message with the bit set, and every
+	 * MSG_S_ROOM_GAMESTATEDELTA, ends with a trailer after the format given
+	 * below: the acknowledgement of MSG_S_NET_ACK (left out before any
+	 * sequenced packet is received from the client) + 1 byte length of the
+	 * acknowledgement (0 or 10). The client removes the trailer before
+	 * decoding the message, so MSG_S_NET_ACK is only sent when the server has
+	 * nothing else to send
+	 */
+
 	// Client to Server message types
 	// Range from 0x00 to 0x3f (up to 64 types of message)
 
 	// Network connection
 	public static final byte MSG_C_NET_GETNONCE = 0x10; // Bit set
 	/*
-	 * 1 byte message type + 2 byte sequence + 8 byte constant 0
+	 * 1 byte message type + 2 byte sequence + 4 byte protocol version + 4 byte
+	 * constant 0
 	 */
 
 	public static final byte MSG_C_NET_CONNECT = 0x00; // Bit set
@@ -58,14 +92,28 @@ public class ProtocolConstant {
 	// 1 byte message type + 2 byte sequence
 
 	public static final byte MSG_C_NET_ACK = 0x03; // Bit not set
-	// 1 byte message type + 2 byte sequence + 2 byte acknowledged sequence
+	/*
+	 * 1 byte message type + 2 byte sequence + 2 byte most recent sequence
+	 * received + 8 byte mask of the 64 sequences before it (bit i set if
+	 * sequence - 1 - i was received)
+	 */
 
 	// In lobby
 	public static final byte MSG_C_LOBBY_GETPLAYERLIST = 0x04; // Bit set
-	// 1 byte message type + 2 byte sequence
+	/*
+	 * 1 byte message type + 2 byte sequence + 4 byte version of the list the
+	 * client has (-1 for none) + 4 byte index of the page requested (the
+	 * version and the index can be left out, which means -1 and 0)
+	 */
 
 	public static final byte MSG_C_LOBBY_GETROOMLIST = 0x05; // Bit set
-	// 1 byte message type + 2 byte sequence
+	// the same format as MSG_C_LOBBY_GETPLAYERLIST
+
+	public static final byte MSG_C_LOBBY_SUBSCRIBE = 0x11; // Bit set
+	/*
+	 * 1 byte message type + 2 byte sequence + 1 byte flag (1 to subscribe to
+	 * MSG_S_LOBBY_EVENTS, 0 to unsubscribe)
+	 */
 
 	// public static final byte MSG_C_LOBBY_GETLEADERBOARD = 0x06;
 
@@ -123,11 +171,10 @@ public class ProtocolConstant {
 	 * id + 1 byte AI difficulty
 	 */
 	/*
-	 * add custom map: 1 byte constant 0x4 + 130 byte map(1 byte width(in the
-	 * range [1,16]) + 1 byte height(in the range [1,16]) + 32 byte bit array
-	 * for bit 3 + 32 byte bit array for bit 2 + 32 byte bit array for bit 1 +
-	 * 32 byte bit array for bit 0) + 32 byte spawn points (array of 4 (4 byte
-	 * spawn point x + 4 byte spawn point y))
+	 * add custom map: 1 byte constant 0x4 + map(2 byte width(in the range
+	 * [1,MAX_MAP_SIZE]) + 2 byte height(in the range [1,MAX_MAP_SIZE]) +
+	 * (width * height + 1) / 2 bytes of blocks, see MapEncoder) + 32 byte
+	 * spawn points (array of 4 (4 byte spawn point x + 4 byte spawn point y))
 	 */
 
 	// public static final byte MSG_C_ROOM_GETINFO = 0x0d;
@@ -138,9 +185,22 @@ public class ProtocolConstant {
 
 	public static final byte MSG_C_GAME_SENDMOVE = 0x0f; // Bit not set
 	/*
-	 * 1 byte message type + 2 byte sequence + 4 byte room ID + 2 byte keyboard
-	 * state
+	 * 1 byte message type + 2 byte sequence + 4 byte room ID + 2 byte input
+	 * sequence of the newest move (counting the moves of the client, and
+	 * wrapping around) + 1 byte number of moves n (in the range
+	 * [1,MAX_MOVES_PER_PACKET]) + n * 2 byte keyboard state (the last n moves
+	 * of the client, newest first, each one input sequence older than the
+	 * previous one) + 4 byte ID of the most recent game state snapshot
+	 * received (-1 for none) + the acknowledgement of MSG_C_NET_ACK (optional,
+	 * left out before any sequenced packet is received)
+	 */
+
+	/*
+	 * Max number of moves in MSG_C_GAME_SENDMOVE. The moves are repeated in
+	 * the following packets, so that a move is only lost when this many
+	 * packets in a row are
 	 */
+	public static final int MAX_MOVES_PER_PACKET = 8;
 
 	// Server to Client message types
 	// Range from 0x40 to 0x7f (up to 64 types of message)
@@ -158,6 +218,7 @@ public class ProtocolConstant {
 	public static final byte MSG_S_NET_REJECT_REASON_SERVERFULL = 0x02;
 	public static final byte MSG_S_NET_REJECT_REASON_DUPLICATENAME = 0x03;
 	public static final byte MSG_S_NET_REJECT_REASON_INVALIDNAMELENGTH = 0x04;
+	public static final byte MSG_S_NET_REJECT_REASON_VERSIONMISMATCH = 0x05;
 	// 1 byte message type + 2 byte sequence + 1 byte reason
 
 	public static final byte MSG_S_NET_ALREADYCONNECTED = 0x42; // Bit set
@@ -173,20 +234,22 @@ public class ProtocolConstant {
 	// 1 byte message type + 2 byte sequence
 
 	public static final byte MSG_S_NET_ACK = 0x46; // Bit not set
-	// 1 byte message type + 2 byte sequence + 2 byte acknowledged sequence
+	// the same format as MSG_C_NET_ACK, sent on idle links only
 
 	public static final byte MSG_S_LOBBY_PLAYERLIST = 0x47; // Bit set
 	/*
 	 * 1 byte message type + 2 byte sequence + 4 byte total number of players +
 	 * 4 byte packet index + 4 byte max index + 4 byte number of players in this
-	 * packet + array of (4 byte player id + 1 byte name length + bytes of name
-	 * string + ((1 byte inRoom flag true + 4 byte room id) or (1 byte inRoom
-	 * flag false)))
+	 * packet + 4 byte version of the list + array of (4 byte player id + 1 byte
+	 * name length + bytes of name string + ((1 byte inRoom flag true + 4 byte
+	 * room id) or (1 byte inRoom flag false)))
 	 */
 	/*
-	 * Currently packet index and max index are hard-coded to 0 and number of
-	 * players in this packet to total number of players, since we don't expect
-	 * to have the number of players one packet does not fit(32 players)
+	 * The list is split into pages of at most MAX_LIST_PAGE_LENGTH bytes,
+	 * which are sent one per request. The version changes whenever the list
+	 * changes, so the client should request the pages it misses with the
+	 * version of the pages it has, and start over when a page of a different
+	 * version arrives
 	 */
 
 	public static final byte MSG_S_LOBBY_ROOMLIST = 0x48; // Bit set
@@ -199,9 +262,34 @@ public class ProtocolConstant {
 	 * number of human players + array of up to 4 4 byte human player id)
 	 */
 	/*
-	 * Max number of rooms is limited to 32 for the same reason above.
-	 * Additionally, we cannot have more rooms than players since each room must
-	 * have at least one player
+	 * 4 byte version of the list after the number of rooms in this packet, and
+	 * split into pages like MSG_S_LOBBY_PLAYERLIST
+	 */
+
+	public static final byte MSG_S_LOBBY_LISTUNCHANGED = 0x54; // Bit set
+	/*
+	 * 1 byte message type + 2 byte sequence + 1 byte message type of the list
+	 * (MSG_S_LOBBY_PLAYERLIST or MSG_S_LOBBY_ROOMLIST) + 4 byte version of the
+	 * list, sent instead of a page when the client has the current version
+	 */
+
+	public static final byte MSG_S_LOBBY_EVENTS = 0x55; // Bit set
+	/*
+	 * 1 byte message type + 2 byte sequence + 1 byte message type of the list
+	 * (MSG_S_LOBBY_PLAYERLIST or MSG_S_LOBBY_ROOMLIST) + 4 byte version of the
+	 * list before the events + 4 byte version after the events + 2 byte number
+	 * of events + array of ((1 byte MSG_S_LOBBY_EVENTS_REMOVED + 4 byte player
+	 * or room id) or (1 byte MSG_S_LOBBY_EVENTS_PUT + player or room in the
+	 * format of the entries of the list))
+	 */
+	public static final byte MSG_S_LOBBY_EVENTS_REMOVED = 0x00;
+	public static final byte MSG_S_LOBBY_EVENTS_PUT = 0x01;
+	/*
+	 * Sent to the subscribed clients with the changes of a list since the last
+	 * lobby tick. A client should apply the events only if it has the version
+	 * before them, and request the list otherwise. The version before is -1
+	 * when the events do not fit in MAX_LIST_PAGE_LENGTH bytes, in which case
+	 * there are no events and every client requests the list
 	 */
 
 	public static final byte MSG_S_LOBBY_ROOMACCEPT = 0x49; // Bit set
@@ -243,7 +331,7 @@ public class ProtocolConstant {
 	public static final byte MSG_S_ROOM_GAMESTART = 0x4f; // Bit set
 	/*
 	 * 1 byte message type + 2 byte sequence + 4 byte room id + 4 byte game map
-	 * id + 1 byte map width + 1 byte map height
+	 * id + 2 byte map width + 2 byte map height
 	 */
 
 	public static final byte MSG_S_ROOM_GAMESTATE = 0x50; // Bit not set
@@ -251,15 +339,16 @@ public class ProtocolConstant {
 	 * Header: 1 byte message type + 2 byte sequence + 4 byte room id
 	 */
 	/*
-	 * Map: 1 byte width(in the range [1,16]) + 1 byte height(in the range
-	 * [1,16]) + 32 byte bit array for bit 3 + 32 byte bit array for bit 2 + 32
-	 * byte bit array for bit 1 + 32 byte bit array for bit 0
+	 * Map: 2 byte width(in the range [1,MAX_MAP_SIZE]) + 2 byte height(in the
+	 * range [1,MAX_MAP_SIZE]) + (width * height + 1) / 2 bytes of blocks, see
+	 * MapEncoder
 	 */
 	/*
 	 * Players: 1 byte number of players + array of (4 byte player id + 4 byte
 	 * pixel position x + 4 byte pixel position y + 4 byte lives + 8 byte speed
 	 * in double precision floating point + 4 byte bomb range + 4 byte max bombs
-	 * + 2 byte keyboard state bit array + 1 byte isAlive)
+	 * + 2 byte keyboard state bit array + 1 byte flags bit array (bit 0
+	 * isAlive, bit 1 isAI))
 	 */
 	/*
 	 * Bombs: 1 byte number of bombs + array of (4 byte player id + 4 byte pixel
@@ -269,6 +358,25 @@ public class ProtocolConstant {
 	/*
 	 * Audio Events: 2 byte audio event bit array
 	 */
+	/*
+	 * The server now sends MSG_S_ROOM_GAMESTATEDELTA instead, whose snapshots
+	 * are the bytes of this message after the header
+	 */
+
+	public static final byte MSG_S_ROOM_GAMESTATEDELTA = 0x53; // Bit not set
+	/*
+	 * 1 byte message type + 2 byte sequence + 4 byte room id + 4 byte snapshot
+	 * id + 4 byte baseline snapshot id(-1 for none) + 2 byte input sequence of
+	 * the last move of the client applied to the snapshot (-1 for none) + 2
+	 * byte snapshot length + array of (2 byte number of bytes unchanged since
+	 * the end of the previous run + 1 byte run length + bytes of the run)
+	 */
+	/*
+	 * The snapshot is rebuilt from the baseline snapshot, which is the last
+	 * snapshot acknowledged by the client in MSG_C_GAME_SENDMOVE, by replacing
+	 * the runs. Bytes past the end of the baseline, or every byte when there is
+	 * no baseline, are 0 unless replaced
+	 */
 
 	public static final byte MSG_S_ROOM_GAMEOVER = 0x51; // Bit set
 	// 1 byte message type + 2 byte sequence + 4 byte room id
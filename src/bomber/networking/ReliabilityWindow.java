@@ -0,0 +1,314 @@
+package bomber.networking;
+
+/**
+ * Sliding window of the sequenced packets exchanged with one peer. The packets
+ * sent to the peer are kept for retransmission in a ring indexed by their
+ * sequence numbers, and the packets received from it are summarised by the
+ * most recent sequence number and a bit mask of the 64 before it. The
+ * summary is the cumulative acknowledgement sent back to the peer, so one
+ * acknowledgement covers every packet received in the window.
+ *
+ * The window is not thread safe, the owner of the window must guard it.
+ */
+public class ReliabilityWindow {
+	// number of packets in the window, the width of the acknowledgement mask
+	public static final int WINDOW_SIZE = 64;
+
+	// 2 byte latest sequence + 8 byte mask of the sequences before it
+	public static final int ACK_LENGTH = 2 + 8;
+
+	// the acknowledgement, if any, + 1 byte length of the acknowledgement
+	public static final int MAX_ACK_TRAILER_LENGTH = ACK_LENGTH + 1;
+
+	private static final int INDEX_MASK = WINDOW_SIZE - 1;
+
+	// the next sequence number that should be used for a packet that will be
+	// sent to the peer
+	private short nextPacketSequence = 0;
+
+	// the packets sent to the peer, indexed by sequence number
+	private final PacketHistoryEntry[] sentPackets = new PacketHistoryEntry[WINDOW_SIZE];
+
+	// whether a sequenced packet has been received from the peer
+	private boolean receivedAny = false;
+	// the most recent sequence number received from the peer
+	private short latestReceived = 0;
+	// bit i is set if sequence latestReceived - 1 - i has been received
+	private long receivedMask = 0;
+	// whether the peer has not been told about the last packets received
+	private boolean ackPending = false;
+
+	/**
+	 * Get the sequence number that should be used for the next packet to the
+	 * peer and increment the counter
+	 *
+	 * @return the sequence number that should be used
+	 */
+	public short getNextPacketSequenceAndIncrement() {
+		return nextPacketSequence++;
+	}
+
+	/**
+	 * Insert a packet into the window for later retransmission (in case not
+	 * acknowledged by the peer). The packet takes the place of the packet sent
+	 * WINDOW_SIZE sequence numbers before it
+	 *
+	 * @param sequence
+	 *            the sequence number of the packet
+	 * @param data
+	 *            the data of the packet, which is copied
+	 * @param length
+	 *            the length of the packet
+	 * @return the entry of the packet in the window
+	 */
+	public PacketHistoryEntry insertPacket(short sequence, byte[] data, int length) {
+		int index = sequence & INDEX_MASK;
+		PacketHistoryEntry entry = sentPackets[index];
+		if (entry == null) {
+			entry = new PacketHistoryEntry(sequence, data, length);
+			sentPackets[index] = entry;
+		} else {
+			entry.reset(sequence, data, length);
+		}
+		return entry;
+	}
+
+	/**
+	 * Get a packet of the window
+	 *
+	 * @param index
+	 *            the index of the packet, from 0 to WINDOW_SIZE - 1
+	 * @return the packet, or null if no packet has been sent at this index
+	 */
+	public PacketHistoryEntry getPacket(int index) {
+		return sentPackets[index];
+	}
+
+	/**
+	 * Get the packet that a packet with the given sequence number would
+	 * replace in the window
+	 *
+	 * @param sequence
+	 *            the sequence number
+	 * @return the packet, or null if no packet has been sent at its index
+	 */
+	public PacketHistoryEntry getPacketAt(short sequence) {
+		return sentPackets[sequence & INDEX_MASK];
+	}
+
+	/**
+	 * Mark the packets covered by a cumulative acknowledgement from the peer
+	 * as acknowledged
+	 *
+	 * @param latest
+	 *            the most recent sequence number received by the peer
+	 * @param mask
+	 *            bit i is set if sequence latest - 1 - i was received
+	 * @return the creation time of the most recent packet acknowledged by this
+	 *         call that has never been retransmitted, or -1 if there is none
+	 */
+	public long acknowledge(short latest, long mask) {
+		long creationTimeStamp = -1;
+		for (int i = -1; i < WINDOW_SIZE; i++) {
+			if (i >= 0 && (mask & (1L << i)) == 0) {
+				continue;
+			}
+
+			short sequence = (short) (latest - 1 - i);
+			PacketHistoryEntry entry = sentPackets[sequence & INDEX_MASK];
+			if (entry != null && !entry.isAcked() && entry.getSequence() == sequence) {
+				entry.setAcked(true);
+				// a retransmitted packet does not tell which copy arrived
+				if (creationTimeStamp == -1 && entry.getRetransmissionCount() == 0) {
+					creationTimeStamp = entry.getCreationTimeStamp();
+				}
+			}
+		}
+
+		return creationTimeStamp;
+	}
+
+	/**
+	 * Record a packet received from the peer and determine whether it is
+	 * duplicate based on its sequence number. Packets older than the window
+	 * are considered duplicate
+	 *
+	 * @param sequence
+	 *            the sequence number of the packet
+	 * @return true if the packet is duplicate
+	 */
+	public boolean isSequenceDuplicate(short sequence) {
+		// the peer is acknowledged even for a duplicate, its acknowledgement
+		// may have been lost
+		ackPending = true;
+
+		if (!receivedAny) {
+			receivedAny = true;
+			latestReceived = sequence;
+			receivedMask = 0;
+			return false;
+		}
+
+		int distance = (short) (sequence - latestReceived);
+		if (distance > 0) {
+			// the window slides forward, the previous latest sequence is
+			// at bit distance - 1
+			if (distance > WINDOW_SIZE) {
+				receivedMask = 0;
+			} else if (distance == WINDOW_SIZE) {
+				receivedMask = 1L << (WINDOW_SIZE - 1);
+			} else {
+				receivedMask = (receivedMask << distance) | (1L << (distance - 1));
+			}
+			latestReceived = sequence;
+			return false;
+		} else if (distance == 0 || -distance > WINDOW_SIZE) {
+			return true;
+		} else {
+			long bit = 1L << (-distance - 1);
+			if ((receivedMask & bit) != 0) {
+				return true;
+			}
+			receivedMask |= bit;
+			return false;
+		}
+	}
+
+	/**
+	 * Returns true if packets have been received from the peer since the last
+	 * acknowledgement was written
+	 *
+	 * @return true if an acknowledgement should be sent to the peer
+	 */
+	public boolean isAckPending() {
+		return ackPending;
+	}
+
+	/**
+	 * Write the cumulative acknowledgement of the packets received from the
+	 * peer
+	 *
+	 * @param dest
+	 *            the destination array
+	 * @param offset
+	 *            the offset at which ACK_LENGTH bytes are written
+	 * @return the number of bytes written, 0 if nothing has been received from
+	 *         the peer yet
+	 */
+	public int writeAck(byte[] dest, int offset) {
+		if (!receivedAny) {
+			return 0;
+		}
+
+		writeAck(latestReceived, receivedMask, dest, offset);
+		ackPending = false;
+		return ACK_LENGTH;
+	}
+
+	/**
+	 * Write the cumulative acknowledgement of the packets received from the
+	 * peer as the trailer of a packet: the acknowledgement, left out if
+	 * nothing has been received from the peer yet, followed by its length
+	 *
+	 * @param dest
+	 *            the destination array
+	 * @param offset
+	 *            the offset of the end of the packet, at which up to
+	 *            MAX_ACK_TRAILER_LENGTH bytes are written
+	 * @return the number of bytes written
+	 */
+	public int writeAckTrailer(byte[] dest, int offset) {
+		int ackLength = writeAck(dest, offset);
+		dest[offset + ackLength] = (byte) ackLength;
+		return ackLength + 1;
+	}
+
+	/**
+	 * Write the trailer of a packet carrying no acknowledgement, for a peer
+	 * without a window
+	 *
+	 * @param dest
+	 *            the destination array
+	 * @param offset
+	 *            the offset of the end of the packet
+	 * @return the number of bytes written
+	 */
+	public static int writeEmptyAckTrailer(byte[] dest, int offset) {
+		dest[offset] = 0;
+		return 1;
+	}
+
+	/**
+	 * Read the length of the acknowledgement in the trailer of a packet
+	 *
+	 * @param src
+	 *            the source array
+	 * @param length
+	 *            the length of the packet, trailer included
+	 * @param headerLength
+	 *            the length of the header, which comes before the trailer
+	 * @return the length of the acknowledgement, which ends 1 byte before the
+	 *         end of the packet, 0 if there is none, or -1 if the trailer is
+	 *         invalid
+	 */
+	public static int readAckTrailerLength(byte[] src, int length, int headerLength) {
+		if (length < headerLength + 1) {
+			return -1;
+		}
+		int ackLength = src[length - 1];
+		if ((ackLength != 0 && ackLength != ACK_LENGTH) || length < headerLength + 1 + ackLength) {
+			return -1;
+		}
+		return ackLength;
+	}
+
+	/**
+	 * Write a cumulative acknowledgement
+	 *
+	 * @param latest
+	 *            the most recent sequence number received
+	 * @param mask
+	 *            bit i is set if sequence latest - 1 - i was received
+	 * @param dest
+	 *            the destination array
+	 * @param offset
+	 *            the offset at which ACK_LENGTH bytes are written
+	 */
+	public static void writeAck(short latest, long mask, byte[] dest, int offset) {
+		dest[offset] = (byte) (latest >> 8);
+		dest[offset + 1] = (byte) latest;
+		for (int i = 0; i < 8; i++) {
+			dest[offset + 2 + i] = (byte) (mask >> (56 - 8 * i));
+		}
+	}
+
+	/**
+	 * Read the latest sequence number of a cumulative acknowledgement
+	 *
+	 * @param src
+	 *            the source array
+	 * @param offset
+	 *            the offset of the acknowledgement
+	 * @return the most recent sequence number received by the peer
+	 */
+	public static short readAckLatest(byte[] src, int offset) {
+		return (short) (((src[offset] & 0xff) << 8) | (src[offset + 1] & 0xff));
+	}
+
+	/**
+	 * Read the mask of a cumulative acknowledgement
+	 *
+	 * @param src
+	 *            the source array
+	 * @param offset
+	 *            the offset of the acknowledgement
+	 * @return the mask of the sequence numbers received before the latest
+	 */
+	public static long readAckMask(byte[] src, int offset) {
+		long mask = 0;
+		for (int i = 0; i < 8; i++) {
+			mask = (mask << 8) | (src[offset + 2 + i] & 0xff);
+		}
+		return mask;
+	}
+}
@@ -0,0 +1,153 @@
+package bomber.networking;
+
+/**
+ * Hashed timer wheel of the packets waiting for retransmission. A packet is
+ * kept in the slot of the tick at which it expires, linked through its own
+ * PacketHistoryEntry, so scheduling and cancelling a packet take constant
+ * time and nothing is allocated, and each tick only visits the packets of its
+ * slot. A packet expiring more than one turn of the wheel away waits for the
+ * number of turns in its slot.
+ */
+public class RetransmitTimerWheel {
+
+	/**
+	 * Receiver of the packets whose retransmission timeout has expired
+	 */
+	public interface ExpiryHandler {
+		/**
+		 * Called for a packet that has expired, which is no longer scheduled
+		 * and may be scheduled again. The wheel is locked during the call
+		 *
+		 * @param entry
+		 *            the packet
+		 * @param now
+		 *            the current time in milliseconds
+		 */
+		void expired(PacketHistoryEntry entry, long now);
+	}
+
+	// the length of a tick in milliseconds
+	private final long tickLength;
+
+	// the first packet of each slot
+	private final PacketHistoryEntry[] slots;
+
+	// the last tick that has been processed
+	private long currentTick;
+
+	// number of scheduled packets
+	private int size = 0;
+
+	/**
+	 * Create a timer wheel
+	 *
+	 * @param slotCount
+	 *            the number of slots, one per tick
+	 * @param tickLength
+	 *            the length of a tick in milliseconds
+	 * @param now
+	 *            the current time in milliseconds
+	 */
+	public RetransmitTimerWheel(int slotCount, long tickLength, long now) {
+		this.slots = new PacketHistoryEntry[slotCount];
+		this.tickLength = tickLength;
+		this.currentTick = now / tickLength;
+	}
+
+	/**
+	 * Schedule a packet which is not scheduled yet
+	 *
+	 * @param entry
+	 *            the packet
+	 * @param deadline
+	 *            the time at which the packet expires in milliseconds
+	 */
+	public synchronized void schedule(PacketHistoryEntry entry, long deadline) {
+		// a packet always expires at a later tick than the current one
+		long ticks = Math.max(1, deadline / tickLength - currentTick);
+		int slot = (int) ((currentTick + ticks) % slots.length);
+
+		entry.timerRounds = (ticks - 1) / slots.length;
+		entry.timerSlot = slot;
+		entry.timerPrev = null;
+		entry.timerNext = slots[slot];
+		if (slots[slot] != null) {
+			slots[slot].timerPrev = entry;
+		}
+		slots[slot] = entry;
+		size++;
+	}
+
+	/**
+	 * Remove a packet from the wheel
+	 *
+	 * @param entry
+	 *            the packet
+	 * @return true if the packet was scheduled
+	 */
+	public synchronized boolean cancel(PacketHistoryEntry entry) {
+		if (entry.timerSlot < 0) {
+			return false;
+		}
+
+		unlink(entry);
+		return true;
+	}
+
+	/**
+	 * Expire the packets of every tick up to now
+	 *
+	 * @param now
+	 *            the current time in milliseconds
+	 * @param handler
+	 *            the receiver of the expired packets
+	 * @return the number of packets that have expired
+	 */
+	public synchronized int advance(long now, ExpiryHandler handler) {
+		int expired = 0;
+		long lastTick = now / tickLength;
+		while (currentTick < lastTick) {
+			currentTick++;
+			PacketHistoryEntry entry = slots[(int) (currentTick % slots.length)];
+			while (entry != null) {
+				// a packet scheduled again by the handler goes to another slot
+				// or waits for a turn, at the head of its slot
+				PacketHistoryEntry next = entry.timerNext;
+				if (entry.timerRounds > 0) {
+					entry.timerRounds--;
+				} else {
+					unlink(entry);
+					expired++;
+					handler.expired(entry, now);
+				}
+				entry = next;
+			}
+		}
+
+		return expired;
+	}
+
+	/**
+	 * Get the number of scheduled packets
+	 *
+	 * @return the number of packets
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	private void unlink(PacketHistoryEntry entry) {
+		if (entry.timerPrev != null) {
+			entry.timerPrev.timerNext = entry.timerNext;
+		} else {
+			slots[entry.timerSlot] = entry.timerNext;
+		}
+		if (entry.timerNext != null) {
+			entry.timerNext.timerPrev = entry.timerPrev;
+		}
+		entry.timerPrev = null;
+		entry.timerNext = null;
+		entry.timerSlot = -1;
+		size--;
+	}
+}
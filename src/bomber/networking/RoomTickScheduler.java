@@ -0,0 +1,362 @@
+package bomber.networking;
+
+import java.util.HashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the ticks of every game room on a fixed pool of threads. The ticks of a
+ * room are due at fixed System.nanoTime deadlines, so the time a tick takes
+ * does not delay the next one. Rooms with the same tick rate are spread over
+ * the tick interval so that they are not all due at once. A room running late
+ * catches up with the ticks it missed, and skips them when it is too far
+ * behind.
+ */
+public class RoomTickScheduler {
+
+	/**
+	 * A room whose ticks are run by the scheduler
+	 */
+	public interface TickTask {
+		/**
+		 * Run one tick of the room. A room whose tick throws an exception gets
+		 * no more ticks, so a room with work to do when it stops catches its
+		 * own exceptions
+		 *
+		 * @return false if the room needs no more ticks
+		 */
+		boolean tick();
+	}
+
+	// a room more than this number of ticks late skips the ticks it missed
+	private final int maxCatchUpTicks = 3;
+
+	// the fraction of the interval between the phases of successive rooms of a
+	// tick rate (the golden ratio keeps any number of rooms evenly spread)
+	private static final double PHASE_STEP = 0.6180339887498949;
+
+	private final DelayQueue<ScheduledRoom> queue = new DelayQueue<>();
+	private final Thread[] threads;
+
+	// the time from which the deadlines of every tick rate are counted
+	private final long epoch = System.nanoTime();
+
+	// number of rooms ever scheduled for each tick interval
+	private final HashMap<Long, Integer> phaseCounters = new HashMap<>();
+
+	private final AtomicInteger roomCount = new AtomicInteger();
+	private final AtomicLong tickCount = new AtomicLong();
+	private final AtomicLong skippedTickCount = new AtomicLong();
+	private final AtomicLong totalTickTime = new AtomicLong();
+	private final AtomicLong maxTickTime = new AtomicLong();
+	private final AtomicLong maxLateness = new AtomicLong();
+
+	/**
+	 * Create a scheduler
+	 *
+	 * @param threadCount
+	 *            the number of threads running the ticks, at least 1
+	 */
+	public RoomTickScheduler(int threadCount) {
+		threads = new Thread[Math.max(1, threadCount)];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(this::runTicks, "RoomTickScheduler-" + i);
+			threads[i].setDaemon(true);
+		}
+	}
+
+	/**
+	 * Start the threads of the scheduler
+	 */
+	public void start() {
+		for (Thread t : threads) {
+			t.start();
+		}
+	}
+
+	/**
+	 * Stop the threads of the scheduler. The rooms get no more ticks
+	 */
+	public void shutdown() {
+		for (Thread t : threads) {
+			t.interrupt();
+		}
+	}
+
+	/**
+	 * Schedule the ticks of a room, the first one at the next free phase of
+	 * its tick rate
+	 *
+	 * @param task
+	 *            the room
+	 * @param tickRate
+	 *            the number of ticks per second
+	 * @return the handle of the scheduled room
+	 */
+	public ScheduledRoom schedule(TickTask task, int tickRate) {
+		long interval = TimeUnit.SECONDS.toNanos(1) / Math.max(1, tickRate);
+		return schedule(task, interval, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Schedule the ticks of a room, the first one at the next free phase of
+	 * its tick interval
+	 *
+	 * @param task
+	 *            the room
+	 * @param interval
+	 *            the time between the ticks
+	 * @param unit
+	 *            the unit of the interval
+	 * @return the handle of the scheduled room
+	 */
+	public ScheduledRoom schedule(TickTask task, long interval, TimeUnit unit) {
+		long nanos = Math.max(1, unit.toNanos(interval));
+
+		int index;
+		synchronized (phaseCounters) {
+			Integer counter = phaseCounters.get(nanos);
+			index = counter == null ? 0 : counter;
+			phaseCounters.put(nanos, index + 1);
+		}
+		long phase = (long) ((index * PHASE_STEP) % 1.0 * nanos);
+
+		// the first deadline of the phase after now
+		long now = System.nanoTime();
+		long ticks = Math.floorDiv(now - epoch - phase, nanos) + 1;
+
+		ScheduledRoom room = new ScheduledRoom(task, nanos, epoch + phase + ticks * nanos);
+		roomCount.incrementAndGet();
+		queue.put(room);
+		return room;
+	}
+
+	private void runTicks() {
+		while (true) {
+			ScheduledRoom room;
+			try {
+				room = queue.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+			if (room.cancelled) {
+				roomCount.decrementAndGet();
+				continue;
+			}
+
+			long start = System.nanoTime();
+			boolean more;
+			try {
+				more = room.task.tick();
+			} catch (RuntimeException e) {
+				System.out.println("RoomTickScheduler: Room stopped by " + e);
+				more = false;
+			}
+			long end = System.nanoTime();
+			room.record(start - room.deadline, end - start);
+			record(start - room.deadline, end - start);
+
+			if (!more || room.cancelled) {
+				roomCount.decrementAndGet();
+				continue;
+			}
+
+			// the next deadline does not depend on when this tick ran
+			long next = room.deadline + room.interval;
+			long behind = end - next;
+			if (behind > maxCatchUpTicks * room.interval) {
+				long missed = behind / room.interval;
+				next += missed * room.interval;
+				room.skippedTicks += missed;
+				skippedTickCount.addAndGet(missed);
+			}
+			room.deadline = next;
+			queue.put(room);
+		}
+	}
+
+	private void record(long lateness, long tickTime) {
+		tickCount.incrementAndGet();
+		totalTickTime.addAndGet(tickTime);
+		maxTickTime.accumulateAndGet(tickTime, Math::max);
+		maxLateness.accumulateAndGet(lateness, Math::max);
+	}
+
+	/**
+	 * Get the number of threads running the ticks
+	 *
+	 * @return the number of threads
+	 */
+	public int getThreadCount() {
+		return threads.length;
+	}
+
+	/**
+	 * Get the number of rooms currently scheduled
+	 *
+	 * @return the number of rooms
+	 */
+	public int getRoomCount() {
+		return roomCount.get();
+	}
+
+	/**
+	 * Get the number of ticks run for all the rooms
+	 *
+	 * @return the number of ticks
+	 */
+	public long getTickCount() {
+		return tickCount.get();
+	}
+
+	/**
+	 * Get the number of ticks skipped by rooms too far behind
+	 *
+	 * @return the number of skipped ticks
+	 */
+	public long getSkippedTickCount() {
+		return skippedTickCount.get();
+	}
+
+	/**
+	 * Get the average time a tick takes
+	 *
+	 * @return the time in nanoseconds
+	 */
+	public long getAverageTickTime() {
+		long ticks = tickCount.get();
+		return ticks == 0 ? 0 : totalTickTime.get() / ticks;
+	}
+
+	/**
+	 * Get the longest time a tick has taken
+	 *
+	 * @return the time in nanoseconds
+	 */
+	public long getMaxTickTime() {
+		return maxTickTime.get();
+	}
+
+	/**
+	 * Get the longest time a tick has started after its deadline
+	 *
+	 * @return the time in nanoseconds
+	 */
+	public long getMaxLateness() {
+		return maxLateness.get();
+	}
+
+	public String toString() {
+		return String.format(
+				"%d rooms on %d threads, %d ticks, %d skipped, tick time: %.3f ms average, %.3f ms max, lateness: %.3f ms max",
+				getRoomCount(), getThreadCount(), getTickCount(), getSkippedTickCount(), getAverageTickTime() / 1e6,
+				getMaxTickTime() / 1e6, getMaxLateness() / 1e6);
+	}
+
+	/**
+	 * A room scheduled on the scheduler, with the statistics of its ticks
+	 */
+	public static class ScheduledRoom implements Delayed {
+		private final TickTask task;
+		private final long interval;
+		private volatile boolean cancelled = false;
+
+		// the time at which the next tick is due
+		private long deadline;
+
+		// only changed by the thread running the tick of the room
+		private volatile long ticks = 0;
+		private volatile long skippedTicks = 0;
+		private long totalTickTime = 0;
+		private volatile long maxTickTime = 0;
+		private volatile long maxLateness = 0;
+
+		private ScheduledRoom(TickTask task, long interval, long deadline) {
+			this.task = task;
+			this.interval = interval;
+			this.deadline = deadline;
+		}
+
+		private void record(long lateness, long tickTime) {
+			ticks++;
+			totalTickTime += tickTime;
+			maxTickTime = Math.max(maxTickTime, tickTime);
+			maxLateness = Math.max(maxLateness, lateness);
+		}
+
+		/**
+		 * Stop running the ticks of the room. A tick in progress is completed
+		 */
+		public void cancel() {
+			cancelled = true;
+		}
+
+		/**
+		 * Get the number of ticks run for the room
+		 *
+		 * @return the number of ticks
+		 */
+		public long getTickCount() {
+			return ticks;
+		}
+
+		/**
+		 * Get the number of ticks skipped because the room was too far behind
+		 *
+		 * @return the number of skipped ticks
+		 */
+		public long getSkippedTickCount() {
+			return skippedTicks;
+		}
+
+		/**
+		 * Get the average time a tick of the room takes
+		 *
+		 * @return the time in nanoseconds
+		 */
+		public long getAverageTickTime() {
+			return ticks == 0 ? 0 : totalTickTime / ticks;
+		}
+
+		/**
+		 * Get the longest time a tick of the room has taken
+		 *
+		 * @return the time in nanoseconds
+		 */
+		public long getMaxTickTime() {
+			return maxTickTime;
+		}
+
+		/**
+		 * Get the longest time a tick of the room has started after its
+		 * deadline
+		 *
+		 * @return the time in nanoseconds
+		 */
+		public long getMaxLateness() {
+			return maxLateness;
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed o) {
+			if (o instanceof ScheduledRoom) {
+				return Long.compare(deadline - ((ScheduledRoom) o).deadline, 0);
+			}
+			return Long.compare(getDelay(TimeUnit.NANOSECONDS), o.getDelay(TimeUnit.NANOSECONDS));
+		}
+
+		public String toString() {
+			return String.format("%d ticks, %d skipped, tick time: %.3f ms average, %.3f ms max, lateness: %.3f ms max",
+					getTickCount(), getSkippedTickCount(), getAverageTickTime() / 1e6, getMaxTickTime() / 1e6,
+					getMaxLateness() / 1e6);
+		}
+	}
+}
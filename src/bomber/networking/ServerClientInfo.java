@@ -3,9 +3,7 @@ package bomber.networking;
 import java.net.DatagramPacket;
 import java.net.SocketAddress;
 import java.time.Instant;
-import java.util.AbstractMap;
-import java.util.ArrayList;
-import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Server side representation of (the state of) a client
@@ -31,29 +29,34 @@ public class ServerClientInfo {
 	private ServerRoom room;
 
 	// time of last packet received from the client in seconds
-	private long timeStamp;
+	private volatile long timeStamp;
 
-	// round trip delay of the client in milliseconds (measured by time of
-	// acknowledgement of packets)
+	// most recent game state snapshot the client has received
+	private volatile int ackedSnapshotID = SnapshotRing.NO_SNAPSHOT;
+
+	// whether the changes of the player and room lists are pushed to the
+	// client
+	private volatile boolean subscribedToLobby = false;
+
+	// the bounds of the retransmission timeout in milliseconds
+	public static final long MIN_RETRANSMIT_TIMEOUT = 30;
+	public static final long MAX_RETRANSMIT_TIMEOUT = 4000;
+
+	// smoothed round trip delay of the client and its mean deviation in
+	// milliseconds (measured by time of acknowledgement of packets)
 	private long roundTripDelay;
+	private long roundTripDelayVariation;
 
-	// the next sequence number that should be used for a packet that will be
-	// sent to the client
-	private short nextPacketSequence = 0;
+	// retransmission timeout of the client in milliseconds, -1 until the
+	// round trip delay has been measured
+	private volatile long retransmitTimeout = -1;
 
-	// keep track of up to 100 packets sent to the client
-	private int nextPacketHistoryIndex = 0;
-	private final int maxPacketHistoryIndex = 99;
-	private ArrayList<PacketHistoryEntry> packetHistoryList = new ArrayList<PacketHistoryEntry>(
-			maxPacketHistoryIndex + 1);
+	// packets retransmitted to the client, and packets never acknowledged
+	private final AtomicLong retransmittedPacketCount = new AtomicLong();
+	private final AtomicLong lostPacketCount = new AtomicLong();
 
-	/*
-	 * keep track of up to 100 packet sequence and time stamp received from the
-	 * client for duplicate packet detection
-	 */
-	private int nextSequenceHistoryIndex = 0;
-	private final int maxSequenceHistoryIndex = 99;
-	private ArrayList<Entry<Short, Long>> sequenceHistoryList = new ArrayList<>(maxSequenceHistoryIndex + 1);
+	// packets sent to and received from the client
+	private final ReliabilityWindow reliabilityWindow = new ReliabilityWindow();
 
 	/**
 	 * Construct a new client representation for the server
@@ -67,12 +70,6 @@ public class ServerClientInfo {
 		this.sockAddr = sockAddr;
 		this.name = name;
 		this.timeStamp = Instant.now().getEpochSecond();
-		for (int i = 0; i <= maxPacketHistoryIndex; i++) {
-			packetHistoryList.add(null);
-		}
-		for (int i = 0; i <= maxSequenceHistoryIndex; i++) {
-			sequenceHistoryList.add(null);
-		}
 	}
 
 	public String toString() {
@@ -131,17 +128,16 @@ public class ServerClientInfo {
 	 * @return the sequence number that should be used
 	 */
 	public short getNextPacketSequenceAndIncrement() {
-		return nextPacketSequence++;
+		return reliabilityWindow.getNextPacketSequenceAndIncrement();
 	}
 
 	/**
-	 * Get the list of up to 100 recent packets that have been sent to the
-	 * client
+	 * Get the window of the packets sent to and received from the client
 	 * 
-	 * @return the list of packets that have been sent to the client
+	 * @return the reliability window
 	 */
-	public ArrayList<PacketHistoryEntry> getPacketHistoryList() {
-		return packetHistoryList;
+	public ReliabilityWindow getReliabilityWindow() {
+		return reliabilityWindow;
 	}
 
 	/**
@@ -155,8 +151,87 @@ public class ServerClientInfo {
 	}
 
 	/**
-	 * Set round trip delay of the client in milliseconds Should be called each
-	 * time an acknowledgement packet is received from the client
+	 * Update the smoothed round trip delay, its deviation and the
+	 * retransmission timeout of the client with a new measurement (Jacobson
+	 * and Karels). Should be called each time a packet that was never
+	 * retransmitted is acknowledged by the client
+	 * 
+	 * @param delay
+	 *            the measured round trip delay in milliseconds
+	 */
+	public void addRoundTripSample(long delay) {
+		if (retransmitTimeout < 0) {
+			roundTripDelay = delay;
+			roundTripDelayVariation = delay / 2;
+		} else {
+			roundTripDelayVariation = (3 * roundTripDelayVariation + Math.abs(roundTripDelay - delay)) / 4;
+			roundTripDelay = (7 * roundTripDelay + delay) / 8;
+		}
+
+		retransmitTimeout = Math.min(MAX_RETRANSMIT_TIMEOUT,
+				Math.max(MIN_RETRANSMIT_TIMEOUT, roundTripDelay + 4 * roundTripDelayVariation));
+	}
+
+	/**
+	 * Get the mean deviation of the round trip delay of the client
+	 * 
+	 * @return the deviation in milliseconds
+	 */
+	public long getRoundTripDelayVariation() {
+		return roundTripDelayVariation;
+	}
+
+	/**
+	 * Get the time after which a packet is retransmitted to the client,
+	 * doubled for each retransmission of the packet
+	 * 
+	 * @param initialTimeout
+	 *            the timeout in milliseconds used until the round trip delay
+	 *            has been measured
+	 * @param retransmissionCount
+	 *            the number of retransmissions of the packet so far
+	 * @return the timeout in milliseconds
+	 */
+	public long getRetransmitTimeout(long initialTimeout, int retransmissionCount) {
+		long timeout = retransmitTimeout < 0 ? initialTimeout : retransmitTimeout;
+		return Math.min(MAX_RETRANSMIT_TIMEOUT, timeout << Math.min(retransmissionCount, 16));
+	}
+
+	/**
+	 * Count a packet retransmitted to the client
+	 */
+	public void countRetransmittedPacket() {
+		retransmittedPacketCount.incrementAndGet();
+	}
+
+	/**
+	 * Count a packet the client never acknowledged, after every retransmission
+	 * or when its place in the window is taken by a newer packet
+	 */
+	public void countLostPacket() {
+		lostPacketCount.incrementAndGet();
+	}
+
+	/**
+	 * Get the number of packets retransmitted to the client
+	 * 
+	 * @return the number of retransmissions
+	 */
+	public long getRetransmittedPacketCount() {
+		return retransmittedPacketCount.get();
+	}
+
+	/**
+	 * Get the number of packets the client never acknowledged
+	 * 
+	 * @return the number of lost packets
+	 */
+	public long getLostPacketCount() {
+		return lostPacketCount.get();
+	}
+
+	/**
+	 * Set round trip delay of the client in milliseconds
 	 * 
 	 * @param delay
 	 *            the delay in milliseconds
@@ -174,61 +249,81 @@ public class ServerClientInfo {
 	}
 
 	/**
-	 * Insert a packet into the packet history list for later retransmission (in
+	 * Insert a packet into the reliability window for later retransmission (in
 	 * case not acknowledged by the client)
 	 * 
 	 * @param packetSequence
 	 *            the sequence number of the packet
 	 * @param packet
 	 *            the packet to insert
+	 * @return the entry of the packet in the window
 	 */
-	public void insertPacket(short packetSequence, DatagramPacket packet) {
-		// index wraps around when there are already 100 packets in history
-		// (older packets will be overwritten)
-		if (nextPacketHistoryIndex > maxPacketHistoryIndex) {
-			nextPacketHistoryIndex = 0;
-		}
-
-		PacketHistoryEntry phe = packetHistoryList.get(nextPacketHistoryIndex);
-		if (phe == null) {
-			packetHistoryList.set(nextPacketHistoryIndex,
-					new PacketHistoryEntry(packetSequence, packet.getData(), packet.getLength()));
-		} else {
-			phe.reset(packetSequence, packet.getData(), packet.getLength());
-		}
-
-		nextPacketHistoryIndex++;
+	public PacketHistoryEntry insertPacket(short packetSequence, DatagramPacket packet) {
+		return reliabilityWindow.insertPacket(packetSequence, packet.getData(), packet.getLength());
 	}
 
 	/**
 	 * Determine whether a packet received from the client is duplicate based on
-	 * its sequence number (up to 100 recent sequence numbers)
+	 * its sequence number (within the last 64 sequence numbers)
 	 * 
 	 * @param sequence
 	 *            the sequence number of the packet
 	 * @return true if the packet is duplicate
 	 */
 	public boolean isSequenceDuplicate(short sequence) {
-		for (Entry<Short, Long> e : sequenceHistoryList) {
-			if (e != null && e.getKey() == sequence) {
-				if (System.currentTimeMillis() - e.getValue() < 25000) {
-					return true;
-				} else {
-					e.setValue(System.currentTimeMillis());
-					return false;
-				}
-			}
-		}
+		return reliabilityWindow.isSequenceDuplicate(sequence);
+	}
 
-		if (nextSequenceHistoryIndex > maxSequenceHistoryIndex) {
-			nextSequenceHistoryIndex = 0;
+	/**
+	 * Get the ID of the most recent game state snapshot the client has
+	 * acknowledged
+	 * 
+	 * @return the ID of the snapshot, or SnapshotRing.NO_SNAPSHOT
+	 */
+	public int getAckedSnapshotID() {
+		return ackedSnapshotID;
+	}
+
+	/**
+	 * Record that the client has received a game state snapshot, unless it has
+	 * already acknowledged a more recent one
+	 * 
+	 * @param snapshotID
+	 *            the ID of the snapshot
+	 */
+	public void acknowledgeSnapshot(int snapshotID) {
+		if (SnapshotRing.isNewer(snapshotID, ackedSnapshotID)) {
+			ackedSnapshotID = snapshotID;
 		}
+	}
+
+	/**
+	 * Forget the snapshots acknowledged by the client, so that the next game
+	 * state is sent in full
+	 */
+	public void resetAckedSnapshot() {
+		ackedSnapshotID = SnapshotRing.NO_SNAPSHOT;
+	}
 
-		Entry<Short, Long> entry = new AbstractMap.SimpleEntry<Short, Long>(sequence, System.currentTimeMillis());
-		sequenceHistoryList.set(nextSequenceHistoryIndex, entry);
-		nextSequenceHistoryIndex++;
+	/**
+	 * Check whether the changes of the player and room lists are pushed to the
+	 * client
+	 * 
+	 * @return true if the client has subscribed to the lobby events
+	 */
+	public boolean isSubscribedToLobby() {
+		return subscribedToLobby;
+	}
 
-		return false;
+	/**
+	 * Set whether the changes of the player and room lists are pushed to the
+	 * client
+	 * 
+	 * @param subscribedToLobby
+	 *            true to push the lobby events to the client
+	 */
+	public void setSubscribedToLobby(boolean subscribedToLobby) {
+		this.subscribedToLobby = subscribedToLobby;
 	}
 
 	/**
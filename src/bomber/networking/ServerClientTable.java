@@ -18,6 +18,9 @@ public class ServerClientTable {
 	private ConcurrentHashMap<Integer, ServerClientInfo> idTable = new ConcurrentHashMap<Integer, ServerClientInfo>();
 	private final int maxTableSize;
 
+	// the IDs of the clients, allocated in constant time
+	private final IDAllocator idAllocator;
+
 	/**
 	 * Construct a ServerClientTable with maximum capacity of tableSize
 	 * 
@@ -26,38 +29,37 @@ public class ServerClientTable {
 	 */
 	public ServerClientTable(int maxTableSize) {
 		this.maxTableSize = maxTableSize;
-	}
-
-	private int nextAvailableID() {
-		for (int i = 0; i < maxTableSize; i++) {
-			if (!idTable.containsKey(i)) {
-				return i;
-			}
-		}
-		return -1;
+		this.idAllocator = new IDAllocator(maxTableSize);
 	}
 
 	/**
 	 * Add a client to the table. Neither the client itself nor the
 	 * socketAddress or name of the client can be null. The ID of the client
 	 * will be chosen by this table automatically. A client will not be added
-	 * when the size of the table reaches maxTableSize
+	 * when the size of the table reaches maxTableSize, or when the table
+	 * already has a client with the same socketAddress or name
 	 * 
 	 * @param client
 	 *            the client to be added
+	 * @return true if the client has been added
 	 */
-	public synchronized void put(ServerClientInfo client) {
+	public synchronized boolean put(ServerClientInfo client) {
 		if (socketTable.size() >= maxTableSize) {
-			return;
+			return false;
 		}
 
-		int id = nextAvailableID();
-		if (id < 0) {
-			return;
+		if (client == null || client.getSocketAddress() == null || client.getName() == null) {
+			return false;
 		}
 
-		if (client == null || client.getSocketAddress() == null || client.getName() == null) {
-			return;
+		// checked here so that clients added at the same time cannot share them
+		if (socketTable.containsKey(client.getSocketAddress()) || nameTable.containsKey(client.getName())) {
+			return false;
+		}
+
+		int id = idAllocator.allocate();
+		if (id < 0) {
+			return false;
 		}
 
 		client.setID(id);
@@ -65,6 +67,7 @@ public class ServerClientTable {
 		nameTable.put(client.getName(), client);
 		idTable.put(client.getID(), client);
 
+		return true;
 	}
 
 	/**
@@ -85,6 +88,7 @@ public class ServerClientTable {
 		socketTable.remove(key);
 		nameTable.remove(name);
 		idTable.remove(id);
+		idAllocator.release(id);
 	}
 
 	/**
@@ -105,6 +109,7 @@ public class ServerClientTable {
 		socketTable.remove(socketAddress);
 		nameTable.remove(key);
 		idTable.remove(id);
+		idAllocator.release(id);
 	}
 
 	/**
@@ -125,6 +130,7 @@ public class ServerClientTable {
 		socketTable.remove(socketAddress);
 		nameTable.remove(name);
 		idTable.remove(key);
+		idAllocator.release(key);
 	}
 
 	/**
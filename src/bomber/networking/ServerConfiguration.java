@@ -6,11 +6,14 @@ package bomber.networking;
  * @author Qiyang Li
  */
 public class ServerConfiguration {
+	// the largest allowed max number of players, IDs are sent in 16 bits
+	public static final int MAX_PLAYER_LIMIT = 65536;
+
 	private String serverName = "Bomb Blitz Dedicated Server";
 
 	private final String gameName = "Bomb Blitz";
 
-	private final String version = "1.3";
+	private final String version = "1.4";
 
 	private long clientTimeOut;
 
@@ -26,6 +29,14 @@ public class ServerConfiguration {
 
 	private final int maxNameLength = 11;
 
+	private boolean nioTransport = true;
+
+	private int workerCount = Math.min(Runtime.getRuntime().availableProcessors(), 16);
+
+	private double aiPlanningShare = 0.25;
+
+	private long aiPlanningBudget = 1000;
+
 	/**
 	 * Construct a configuration for the server before running
 	 * 
@@ -35,14 +46,15 @@ public class ServerConfiguration {
 	 *            The interval at which the server will check whether clients
 	 *            are time-out in *seconds*
 	 * @param retransmitInterval
-	 *            The interval at which unacknowledged packets will be detected
-	 *            and retransmitted in *milliseconds*
+	 *            The time after which unacknowledged packets will be
+	 *            retransmitted in *milliseconds*, until the round trip delay
+	 *            of a client has been measured
 	 * @param maxRetransmitCount
 	 *            The max number of times the server will attempt to retransmit
 	 *            an unacknowledged packet
 	 * @param maxPlayer
 	 *            The max number of players allowed on the server in the range
-	 *            [1,32]
+	 *            [1,MAX_PLAYER_LIMIT]
 	 */
 	public ServerConfiguration(long clientTimeOut, long keepAliveInterval, long retransmitInterval,
 			int maxRetransmitCount, int maxPlayer) {
@@ -58,7 +70,7 @@ public class ServerConfiguration {
 			this.retransmitInterval = retransmitInterval;
 		}
 		this.maxRetransmitCount = maxRetransmitCount;
-		if (maxPlayer < 1 || maxPlayer > 32) {
+		if (maxPlayer < 1 || maxPlayer > MAX_PLAYER_LIMIT) {
 			this.maxPlayer = 32;
 		} else {
 			this.maxPlayer = maxPlayer;
@@ -76,14 +88,14 @@ public class ServerConfiguration {
 	 *            an unacknowledged packet
 	 * @param maxPlayer
 	 *            The max number of players allowed on the server in the range
-	 *            [1,32]
+	 *            [1,MAX_PLAYER_LIMIT]
 	 */
 	public ServerConfiguration(long clientTimeOut, int maxRetransmitCount, int maxPlayer) {
 		setClientTimeOut(clientTimeOut);
 		this.keepAliveInterval = 10;
 		this.retransmitInterval = 500;
 		this.maxRetransmitCount = maxRetransmitCount;
-		if (maxPlayer < 1 || maxPlayer > 32) {
+		if (maxPlayer < 1 || maxPlayer > MAX_PLAYER_LIMIT) {
 			this.maxPlayer = 32;
 		} else {
 			this.maxPlayer = maxPlayer;
@@ -142,8 +154,8 @@ public class ServerConfiguration {
 	}
 
 	/**
-	 * The interval at which unacknowledged packets will be detected and
-	 * retransmitted
+	 * The time after which unacknowledged packets will be retransmitted, until
+	 * the round trip delay of a client has been measured
 	 * 
 	 * @return the interval in *milliseconds*
 	 */
@@ -202,7 +214,8 @@ public class ServerConfiguration {
 	}
 
 	/**
-	 * The max number of players allowed on the server in the range [1,32]
+	 * The max number of players allowed on the server in the range
+	 * [1,MAX_PLAYER_LIMIT]
 	 * 
 	 * @return the max number of players
 	 */
@@ -220,6 +233,112 @@ public class ServerConfiguration {
 		return maxNameLength;
 	}
 
+	/**
+	 * Whether the server uses the non-blocking DatagramChannel transport
+	 * (true, the default) or the blocking DatagramSocket one (false)
+	 * 
+	 * @return true if the DatagramChannel transport is used
+	 */
+	public boolean isNioTransport() {
+		return nioTransport;
+	}
+
+	/**
+	 * Set whether the server uses the non-blocking DatagramChannel transport
+	 * or the blocking DatagramSocket one. Only takes effect for servers created
+	 * afterwards
+	 * 
+	 * @param nioTransport
+	 *            true to use the DatagramChannel transport
+	 */
+	public void setNioTransport(boolean nioTransport) {
+		this.nioTransport = nioTransport;
+	}
+
+	/**
+	 * The number of threads processing the packets received by the server
+	 * 
+	 * @return the number of threads
+	 */
+	public int getWorkerCount() {
+		return workerCount;
+	}
+
+	/**
+	 * Set the number of threads processing the packets received by the server.
+	 * Only takes effect for servers started afterwards
+	 * 
+	 * @param workerCount
+	 *            the number of threads in the range [1,64]
+	 */
+	public void setWorkerCount(int workerCount) {
+		if (workerCount < 1) {
+			this.workerCount = 1;
+		} else if (workerCount > 64) {
+			this.workerCount = 64;
+		} else {
+			this.workerCount = workerCount;
+		}
+	}
+
+	/**
+	 * The share of the processors of the server used for planning the moves
+	 * of the AIs
+	 * @return the share in the range [0.01,1]
+	 */
+	public double getAIPlanningShare() {
+		return aiPlanningShare;
+	}
+
+	/**
+	 * Set the share of the processors of the server used for planning the
+	 * moves of the AIs, at least one thread. Only takes effect for servers
+	 * started afterwards
+	 * @param aiPlanningShare
+	 *            the share in the range [0.01,1]
+	 */
+	public void setAIPlanningShare(double aiPlanningShare) {
+		if (!(aiPlanningShare >= 0.01)) {
+			this.aiPlanningShare = 0.01;
+		} else if (aiPlanningShare > 1) {
+			this.aiPlanningShare = 1;
+		} else {
+			this.aiPlanningShare = aiPlanningShare;
+		}
+	}
+
+	/**
+	 * The number of threads planning the moves of the AIs
+	 * @return the number of threads
+	 */
+	public int getAIPlanningThreadCount() {
+		return Math.max(1, (int) Math.round(aiPlanningShare * Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 * The planning time each AI is allowed per game tick
+	 * @return the time in *microseconds*
+	 */
+	public long getAIPlanningBudget() {
+		return aiPlanningBudget;
+	}
+
+	/**
+	 * Set the planning time each AI is allowed per game tick. Only takes
+	 * effect for servers started afterwards
+	 * @param aiPlanningBudget
+	 *            the time in *microseconds* in the range [10,100000]
+	 */
+	public void setAIPlanningBudget(long aiPlanningBudget) {
+		if (aiPlanningBudget < 10) {
+			this.aiPlanningBudget = 10;
+		} else if (aiPlanningBudget > 100000) {
+			this.aiPlanningBudget = 100000;
+		} else {
+			this.aiPlanningBudget = aiPlanningBudget;
+		}
+	}
+
 	/**
 	 * Get the name of the server
 	 * 
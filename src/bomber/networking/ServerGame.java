@@ -5,7 +5,11 @@ import java.io.IOException;
 import java.net.DatagramPacket;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import bomber.AI.GameAI;
 import bomber.game.Block;
@@ -20,10 +24,11 @@ import bomber.physics.PhysicsEngine;
  *
  * @author Qiyang Li
  */
-public class ServerGame implements Runnable {
-	private GameState gameState;
+public class ServerGame implements RoomTickScheduler.TickTask {
+	// written by the tick thread, read by the server thread
+	private volatile GameState gameState;
 
-	private boolean inGame;
+	private volatile boolean inGame;
 
 	private int roomID;
 
@@ -41,9 +46,44 @@ public class ServerGame implements Runnable {
 
 	private Map map;
 
-	private Thread thread = new Thread(this);
+	private volatile boolean shouldRun;
 
-	private boolean shouldRun;
+	// the handle of the game on the tick scheduler of the server
+	private RoomTickScheduler.ScheduledRoom scheduledRoom;
+
+	// whether the first tick has initialised the game
+	private boolean initialised = false;
+
+	private List<Player> players;
+
+	private PhysicsEngine physics;
+
+	// buffer used to send packets to the players, sized for the map
+	private final byte[] sendBuffer;
+	private final ByteBuffer sendByteBuffer;
+	private final DatagramPacket packet;
+
+	// buffer of the full game state and the recent snapshots
+	private final byte[] stateBuffer;
+	private SnapshotRing snapshots;
+
+	// the moves received since the last tick, by the ID of the client
+	private final ConcurrentHashMap<Integer, PlayerInputQueue> inputQueues = new ConcurrentHashMap<Integer, PlayerInputQueue>();
+
+	// the players steered by the clients, by player ID
+	private final HashMap<Integer, Player> playerIndex = new HashMap<Integer, Player>();
+
+	// number of moves kept for a player between two ticks
+	private final int inputQueueSize = 64;
+
+	// number of recent snapshots kept as baselines for the deltas
+	private final int snapshotRingSize = 32;
+
+	/*
+	 * snapshot IDs are unique across game sessions, so that an
+	 * acknowledgement from an earlier game cannot select a wrong baseline
+	 */
+	private static final AtomicInteger snapshotCounter = new AtomicInteger();
 
 	/**
 	 * Construct a server game session
@@ -69,6 +109,14 @@ public class ServerGame implements Runnable {
 		this.mapID = mapID;
 		this.map = copyMap(map);
 		this.playerList = playerList;
+
+		// the full game state on a large map does not fit in 2000 bytes
+		Block[][] grid = this.map.getGridMap();
+		this.stateBuffer = new byte[ServerPacketEncoder.maxGameStateLength(grid.length, grid[0].length)];
+		this.sendBuffer = new byte[ServerPacketEncoder.maxGameStateDeltaLength(stateBuffer.length - 7)
+				+ ReliabilityWindow.MAX_ACK_TRAILER_LENGTH];
+		this.sendByteBuffer = ByteBuffer.wrap(sendBuffer);
+		this.packet = new DatagramPacket(sendBuffer, 0);
 		this.aiList = aiList;
 		this.tickRate = tickRate;
 		if (this.tickRate < 20) {
@@ -83,14 +131,6 @@ public class ServerGame implements Runnable {
 		this.serverThread = serverThread;
 	}
 
-	private boolean isIDHuman(int playerID) {
-		return playerID < 32;
-	}
-
-	private int aiIDtoPlayerID(int aiID) {
-		return aiID + 32;
-	}
-
 	private Map copyMap(Map map) {
 		Block[][] grid = map.getGridMap();
 		List<Point> spawn = map.getSpawnPoints();
@@ -129,10 +169,6 @@ public class ServerGame implements Runnable {
 	 * @return true if the game is in progress
 	 */
 	public boolean isInGame() {
-		if (gameState == null) {
-			inGame = false;
-			return false;
-		}
 		return inGame;
 	}
 
@@ -145,48 +181,130 @@ public class ServerGame implements Runnable {
 	 *            the KeyboardState
 	 */
 	public void setPlayerKeyState(int playerID, KeyboardState keyState) {
-		if (gameState != null) {
-			List<Player> players = gameState.getPlayers();
-			if (players != null) {
-				for (Player p : players) {
-					if (p != null) {
-						if (p.getPlayerID() == playerID) {
-							p.setKeyState(keyState);
-						}
-					}
-				}
+		// the index only holds human players: the moves of clients never
+		// steer the AIs
+		Player p = playerIndex.get(playerID);
+		if (p != null) {
+			p.setKeyState(keyState);
+		}
+	}
+
+	/**
+	 * Queue the moves of a MSG_C_GAME_SENDMOVE from a player, to be applied by
+	 * the game thread at the beginning of the next tick. Moves received when
+	 * the game is not in progress are ignored
+	 * 
+	 * @param playerID
+	 *            the ID of the player
+	 * @param newestSequence
+	 *            the input sequence of the newest move
+	 * @param src
+	 *            the buffer containing the moves, as keyboard states encoded
+	 *            as shorts, newest first
+	 * @param offset
+	 *            the offset of the moves in the buffer
+	 * @param moves
+	 *            the number of moves
+	 */
+	public void queuePlayerMoves(int playerID, short newestSequence, ByteBuffer src, int offset, int moves) {
+		if (isInGame()) {
+			PlayerInputQueue queue = inputQueues.get(playerID);
+			if (queue != null) {
+				queue.add(newestSequence, src, offset, moves);
+			}
+		}
+	}
+
+	/**
+	 * Set the KeyboardState of the players according to the queued moves
+	 */
+	private void applyQueuedMoves() {
+		for (java.util.Map.Entry<Integer, PlayerInputQueue> e : inputQueues.entrySet()) {
+			long move = e.getValue().take();
+			if (move >= 0) {
+				setPlayerKeyState(e.getKey(), ServerPacketEncoder.shortToKeyboardState((short) move));
 			}
 		}
 	}
 
+	private static int nextSnapshotID() {
+		int id;
+		do {
+			id = snapshotCounter.incrementAndGet();
+		} while (id == SnapshotRing.NO_SNAPSHOT);
+		return id;
+	}
+
 	/**
-	 * Initialise and start running the game thread
+	 * Start running the game on the tick scheduler of the server, the first
+	 * tick initialises the game
 	 */
 	public void start() {
 		shouldRun = true;
+		// in game from now on, so that the room cannot start another game
+		// before the first tick
 		inGame = true;
-		thread.start();
+		// the ticks are as long as the physics steps, so the game runs in real
+		// time
+		scheduledRoom = serverThread.getTickScheduler().schedule(this, interval, TimeUnit.MILLISECONDS);
 	}
 
 	/**
-	 * Terminate the game thread manually. Normally the game thread will
-	 * terminate itself when the game is over
+	 * Terminate the game manually. Normally the game will terminate itself
+	 * when the game is over
 	 */
 	public void terminate() {
 		shouldRun = false;
 	}
 
+	/**
+	 * Get the handle of the game on the tick scheduler, which measures its
+	 * ticks
+	 * 
+	 * @return the handle, or null if the game has not been started
+	 */
+	public RoomTickScheduler.ScheduledRoom getScheduledRoom() {
+		return scheduledRoom;
+	}
+
+	/**
+	 * Run one tick of the game. Called by the tick scheduler of the server
+	 * 
+	 * @return false when the game is over
+	 */
 	@Override
-	public void run() {
-		inGame = true;
+	public boolean tick() {
+		try {
+			if (!initialised) {
+				initialise();
+				initialised = true;
+			}
+
+			// the game ends when terminate() is called or the game is over
+			if (!shouldRun || gameState.gameOver()) {
+				finish();
+				return false;
+			}
 
-		System.out.printf("ServerGame: Game thread for room %d started, tick rate: %d, interval: %d\n", roomID,
-				tickRate, interval);
+			update();
+			return true;
+		} catch (RuntimeException e) {
+			// a game that cannot go on is over for its players too
+			System.out.println("ServerGame: Game for room " + roomID + " stopped by " + e);
+			finish();
+			return false;
+		}
+	}
+
+	private void initialise() {
+		System.out.printf("ServerGame: Game for room %d started, tick rate: %d, interval: %d\n", roomID, tickRate,
+				interval);
 
 		// initialise human & AI players and gameState
-		List<Player> players = new ArrayList<Player>();
+		players = new ArrayList<Player>();
 
 		gameState = new GameState(map, players);
+		inGame = true;
 
 		List<Point> spawnPoints = map.getSpawnPoints();
 		int posIndex = 0;
@@ -208,11 +326,22 @@ public class ServerGame implements Runnable {
 					Player p = new Player(c.getName(), initPos, 5, 300);
 					p.setPlayerID(c.getID());
 					players.add(p);
+					playerIndex.put(c.getID(), p);
+					inputQueues.put(c.getID(), new PlayerInputQueue(inputQueueSize));
 					posIndex += 1;
 				}
 			}
 		}
 
+		/*
+		 * the AIs take the player IDs after the highest ID of the human
+		 * players, so that they never share an ID with a client
+		 */
+		int aiBaseID = 0;
+		for (Player p : players) {
+			aiBaseID = Math.max(aiBaseID, p.getPlayerID() + 1);
+		}
+
 		for (int i = 0; i < aiList.size(); i++) {
 			ServerAI ai = aiList.get(i);
 			if (ai == null) {
@@ -228,21 +357,26 @@ public class ServerGame implements Runnable {
 					}
 				}
 				GameAI a = new GameAI("AI " + ai.getID(), initPos, 5, 300, gameState, ai.getDifficulty());
-				a.setPlayerID(aiIDtoPlayerID(ai.getID()));
+				a.setPlayerID(aiBaseID + ai.getID());
+				a.setPlanner(serverThread.getAIPlanner());
 				players.add(a);
 				ai.setGameAI(a);
 				posIndex += 1;
 			}
 		}
 
-		// initialise send buffer
-		byte[] sendBuffer = new byte[2000];
-		ByteBuffer sendByteBuffer = ByteBuffer.wrap(sendBuffer);
-		int packetLen = 0;
-		DatagramPacket packet = new DatagramPacket(sendBuffer, 0);
+		// initialise the recent snapshots
+		snapshots = new SnapshotRing(snapshotRingSize, 2000);
+		synchronized (playerList) {
+			for (ServerClientInfo c : playerList) {
+				if (c != null) {
+					c.resetAckedSnapshot();
+				}
+			}
+		}
 
 		// initialise physics engine
-		PhysicsEngine physics = new PhysicsEngine(gameState);
+		physics = new PhysicsEngine(gameState);
 
 		// tell clients the game is started
 		sendByteBuffer.position(3);
@@ -250,26 +384,11 @@ public class ServerGame implements Runnable {
 		sendByteBuffer.putInt(mapID);
 		{
 			// get the width and height of the map
-			byte width = 16;
-			byte height = 16;
 			Block[][] gridMap = map.getGridMap();
-			if (gridMap != null) {
-				byte twidth = (byte) gridMap.length;
-				if (twidth > 0 && twidth <= 16) {
-					width = twidth;
-					Block[] column = gridMap[0];
-					if (column != null) {
-						byte theight = (byte) column.length;
-						if (theight > 0 && theight <= 16) {
-							height = theight;
-						}
-					}
-				}
-			}
-			sendByteBuffer.put(width);
-			sendByteBuffer.put(height);
+			sendByteBuffer.putShort((short) gridMap.length);
+			sendByteBuffer.putShort((short) gridMap[0].length);
 		}
-		packet.setLength(1 + 2 + 4 + 4 + 1 + 1);
+		packet.setLength(1 + 2 + 4 + 4 + 2 + 2);
 
 		synchronized (playerList) {
 			for (ServerClientInfo c : playerList) {
@@ -285,7 +404,7 @@ public class ServerGame implements Runnable {
 			}
 		}
 
-		// start AI threads
+		// let the AIs play from the first update
 		for (ServerAI a : aiList) {
 			GameAI ai = a.getGameAI();
 			if (ai == null) {
@@ -293,109 +412,128 @@ public class ServerGame implements Runnable {
 			}
 			ai.begin();
 		}
+	}
 
-		long loopStartTime = System.currentTimeMillis();
-		int busyTime = 0;
-		int sleepTime = interval;
-
-		// thread will end when terminate() is called or the game is over
-		while (shouldRun && !gameState.gameOver()) {
-			loopStartTime = System.currentTimeMillis();
-
-			// game is over when no human player is left in the room
-			if (playerList.size() < 1) {
-				System.out.printf("ServerGame: Ending game in room %d due to no human players in room\n", roomID);
-				terminate();
-			}
+	private void update() {
+		// game is over when no human player is left in the room
+		if (playerList.size() < 1) {
+			System.out.printf("ServerGame: Ending game in room %d due to no human players in room\n", roomID);
+			terminate();
+		}
 
-			// game is over when only one player is left in the room
-			if (playerList.size() + aiList.size() < 2) {
-				System.out.printf("ServerGame: Ending game in room %d due to fewer than 2 players in room\n", roomID);
-				terminate();
-			}
+		// game is over when only one player is left in the room
+		if (playerList.size() + aiList.size() < 2) {
+			System.out.printf("ServerGame: Ending game in room %d due to fewer than 2 players in room\n", roomID);
+			terminate();
+		}
 
-			// game is over when no human player is alive
-			int humanPlayer = 0;
-			int deadHumanPlayer = 0;
-			for (Player p : players) {
-				if (p != null && isIDHuman(p.getPlayerID())) {
-					humanPlayer += 1;
-					if (p.getLives() == 0 || !p.isAlive()) {
-						deadHumanPlayer += 1;
-					}
+		// game is over when no human player is alive
+		int humanPlayer = 0;
+		int deadHumanPlayer = 0;
+		for (Player p : players) {
+			if (p != null && !p.isAI()) {
+				humanPlayer += 1;
+				if (p.getLives() == 0 || !p.isAlive()) {
+					deadHumanPlayer += 1;
 				}
 			}
-			if (humanPlayer == deadHumanPlayer) {
-				System.out.printf("ServerGame: Ending game in room %d due to no human players alive\n", roomID);
-				terminate();
-			}
+		}
+		if (humanPlayer == deadHumanPlayer) {
+			System.out.printf("ServerGame: Ending game in room %d due to no human players alive\n", roomID);
+			terminate();
+		}
 
-			// sync between players and playerList
-			for (Player p : players) {
-				/*
-				 * Does each Player in players still have a corresponding
-				 * ServerClientInfo in playerList ?
-				 */
-				boolean shouldRemove = true;
-				synchronized (playerList) {
-					for (ServerClientInfo c : playerList) {
-						if (p != null && c != null && p.getPlayerID() == c.getID()) {
-							shouldRemove = false;
-						}
+		// sync between players and playerList
+		for (Player p : players) {
+			/*
+			 * Does each Player in players still have a corresponding
+			 * ServerClientInfo in playerList ?
+			 */
+			boolean shouldRemove = true;
+			synchronized (playerList) {
+				for (ServerClientInfo c : playerList) {
+					if (p != null && c != null && p.getPlayerID() == c.getID()) {
+						shouldRemove = false;
 					}
 				}
-				if (shouldRemove && p != null && isIDHuman(p.getPlayerID()) && p.getLives() != 0 && p.isAlive()) {
-					// If no, kill this player
-					System.out.printf("ServerGame: Killing player %d due to not in room\n", p.getPlayerID());
-					p.setLives(0);
-					p.setAlive(false);
-				}
 			}
+			if (shouldRemove && p != null && !p.isAI() && p.getLives() != 0 && p.isAlive()) {
+				// If no, kill this player
+				System.out.printf("ServerGame: Killing player %d due to not in room\n", p.getPlayerID());
+				p.setLives(0);
+				p.setAlive(false);
+			}
+		}
 
-			/*
-			 * There is no audio subsystem on server side, so we empty the audio
-			 * event list each time game state is updated
-			 */
-			gameState.getAudioEvents().clear();
+		/*
+		 * There is no audio subsystem on server side, so we empty the audio
+		 * event list each time game state is updated
+		 */
+		gameState.getAudioEvents().clear();
 
-			// update gameState
-			physics.update(interval);
+		// apply the moves received since the last tick
+		applyQueuedMoves();
 
-			// encode gameState
-			try {
-				packetLen = ServerPacketEncoder.encodeGameState(gameState, roomID, sendBuffer);
-			} catch (IOException e) {
-				System.out.println("ServerGame: Failed to encode game state: " + e);
-				continue;
+		// let the AIs make their moves of this tick
+		for (ServerAI a : aiList) {
+			GameAI ai = a.getGameAI();
+			if (ai != null) {
+				ai.tick(interval);
 			}
-			packet.setLength(packetLen);
+		}
 
-			synchronized (playerList) {
-				// send new gameState to clients
-				for (ServerClientInfo c : playerList) {
+		// update gameState
+		physics.update(interval);
 
-					packet.setSocketAddress(c.getSocketAddress());
-					try {
-						serverThread.sendPacket(packet, ProtocolConstant.MSG_S_ROOM_GAMESTATE, false);
-					} catch (IOException e) {
-						System.out.println("ServerGame: Failed to send packet: " + e);
+		// encode gameState and keep it as a snapshot
+		int stateLen;
+		try {
+			stateLen = ServerPacketEncoder.encodeGameState(gameState, roomID, stateBuffer);
+		} catch (IOException e) {
+			System.out.println("ServerGame: Failed to encode game state: " + e);
+			return;
+		}
+		int snapshotID = nextSnapshotID();
+		snapshots.put(snapshotID, stateBuffer, 7, stateLen - 7);
+
+		synchronized (playerList) {
+			// send new gameState to clients
+			for (ServerClientInfo c : playerList) {
+				/*
+				 * encode the delta against the last snapshot acknowledged by
+				 * the client, or the full state when it is no longer kept
+				 */
+				int baselineID = c.getAckedSnapshotID();
+				int slot = snapshots.find(baselineID);
+				PlayerInputQueue inputs = inputQueues.get(c.getID());
+				short inputSequence = inputs == null ? -1 : inputs.getLastTaken();
+				int packetLen;
+				try {
+					if (slot < 0) {
+						packetLen = ServerPacketEncoder.encodeGameStateDelta(stateBuffer, 7, stateLen - 7, null, 0,
+								roomID, snapshotID, SnapshotRing.NO_SNAPSHOT, inputSequence, sendBuffer);
+					} else {
+						packetLen = ServerPacketEncoder.encodeGameStateDelta(stateBuffer, 7, stateLen - 7,
+								snapshots.getBody(slot), snapshots.getLength(slot), roomID, snapshotID, baselineID,
+								inputSequence, sendBuffer);
 					}
+				} catch (IOException e) {
+					System.out.println("ServerGame: Failed to encode game state delta: " + e);
+					continue;
 				}
-			}
+				packet.setLength(packetLen);
 
-			// sleep according to tick rate
-			busyTime = (int) (System.currentTimeMillis() - loopStartTime);
-			sleepTime = interval - busyTime;
-			if (sleepTime > 0) {
+				packet.setSocketAddress(c.getSocketAddress());
 				try {
-					Thread.sleep(sleepTime);
-				} catch (InterruptedException e) {
-					System.out.println("ServerGame: Thread is interrupted");
+					serverThread.sendPacketWithAck(packet, ProtocolConstant.MSG_S_ROOM_GAMESTATEDELTA);
+				} catch (IOException e) {
+					System.out.println("ServerGame: Failed to send packet: " + e);
 				}
 			}
-
 		}
+	}
 
+	private void finish() {
 		// terminate AI threads if there is any
 		for (ServerAI a : aiList) {
 			GameAI ai = a.getGameAI();
@@ -424,9 +562,12 @@ public class ServerGame implements Runnable {
 			}
 		}
 
-		System.out.printf("ServerGame: Game thread for room %d terminating\n", roomID);
+		System.out.printf("ServerGame: Game for room %d terminating, %s\n", roomID, scheduledRoom);
 
 		inGame = false;
+		if (serverThread != null) {
+			serverThread.lobbyChanged();
+		}
 	}
 
 }
@@ -5,9 +5,11 @@ import java.io.IOException;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 import bomber.AI.AIDifficulty;
 import bomber.game.AudioEvent;
@@ -19,6 +21,7 @@ import bomber.game.KeyboardState;
 import bomber.game.Map;
 import bomber.game.Movement;
 import bomber.game.Player;
+import bomber.game.WorldStore;
 
 /**
  * Methods for encoding and decoding more complex packets for the server
@@ -27,62 +30,52 @@ import bomber.game.Player;
  */
 public class ServerPacketEncoder {
 	/**
-	 * Encode List of ClientServerPlayer from ServerClientTable in
-	 * MSG_S_LOBBY_PLAYERLIST format. The first three bytes in the destination
-	 * byte array are reserved for message type and sequence number and will not
-	 * be overwritten by this method. The caller should set the first three
-	 * bytes properly before sending.
+	 * Encode List of ClientServerPlayer from ServerClientTable into pages in
+	 * MSG_S_LOBBY_PLAYERLIST format. The first three bytes of each page are
+	 * reserved for message type and sequence number and are left as 0. The
+	 * caller should set the first three bytes properly before sending.
 	 * 
 	 * @param table
 	 *            the client table
-	 * @param dest
-	 *            the destination byte array that will be sent over the network
-	 * @return the number of bytes of the encoded data in the byte array
+	 * @param version
+	 *            the version of the list put in every page
+	 * @param pageLength
+	 *            the max length of a page
+	 * @return the pages, at least one even if the table is empty
 	 * @throws IOException
 	 */
-	public static int encodePlayerList(ServerClientTable table, byte[] dest) throws IOException {
-		if (table == null || dest == null) {
-			throw new IOException("table or dest is null");
-		}
+	public static List<byte[]> encodePlayerList(ServerClientTable table, int version, int pageLength)
+			throws IOException {
+		return encodeListPages(new ArrayList<byte[]>(encodePlayerEntries(table).values()), version, pageLength);
+	}
 
-		// length required before array of player id and name pairs
-		int len = 1 + 2 + 4 + 4 + 4 + 4;
-		if (dest.length < len) {
-			throw new IOException("dest is too short");
+	/**
+	 * Encode each ClientServerPlayer from ServerClientTable in the format of
+	 * the entries of MSG_S_LOBBY_PLAYERLIST
+	 * 
+	 * @param table
+	 *            the client table
+	 * @return the encoded players sorted by player id
+	 * @throws IOException
+	 */
+	public static SortedMap<Integer, byte[]> encodePlayerEntries(ServerClientTable table) throws IOException {
+		if (table == null) {
+			throw new IOException("table is null");
 		}
 
-		// wrap byte array into a ByteBuffer
-		ByteBuffer buffer = ByteBuffer.wrap(dest);
-		// turn table into an ArrayList
-		ArrayList<Entry<SocketAddress, ServerClientInfo>> list = new ArrayList<Entry<SocketAddress, ServerClientInfo>>(
-				table.entrySet());
-		// sort the ArrayList by player id
-		list.sort(new Comparator<Entry<SocketAddress, ServerClientInfo>>() {
-			@Override
-			public int compare(Entry<SocketAddress, ServerClientInfo> o1, Entry<SocketAddress, ServerClientInfo> o2) {
-				return o1.getValue().getID() - o2.getValue().getID();
-			}
-		});
-
-		// put the 4 integers
-		buffer.putInt(3, list.size());
-		buffer.putInt(7, 0);
-		buffer.putInt(11, 0);
-		buffer.putInt(15, list.size());
+		// put id, name, inRoom and (optionally)room id of each player
+		SortedMap<Integer, byte[]> entries = new TreeMap<Integer, byte[]>();
+		ByteBuffer buffer = ByteBuffer.allocate(4 + 1 + 255 + 1 + 4);
+		for (Entry<SocketAddress, ServerClientInfo> e : table.entrySet()) {
+			buffer.clear();
 
-		// put id, name, inRoom and (optionally)room id into byte array
-		buffer.position(1 + 2 + 4 + 4 + 4 + 4);
-		for (Entry<SocketAddress, ServerClientInfo> e : list) {
 			// id
-			if (dest.length < buffer.position() + 4) {
-				throw new IOException("dest is too short");
-			}
 			buffer.putInt(e.getValue().getID());
 
 			// name
 			byte[] nameData = e.getValue().getName().getBytes("UTF-8");
-			if (dest.length < buffer.position() + 1 + nameData.length) {
-				throw new IOException("dest is too short");
+			if (nameData.length > 255) {
+				throw new IOException("name is too long");
 			}
 			buffer.put((byte) nameData.length);
 			buffer.put(nameData);
@@ -93,9 +86,6 @@ public class ServerPacketEncoder {
 			if (inRoom && room == null) {
 				inRoom = false;
 			}
-			if (dest.length < buffer.position() + 1) {
-				throw new IOException("dest is too short");
-			}
 			if (inRoom) {
 				buffer.put((byte) 1);
 			} else {
@@ -104,95 +94,73 @@ public class ServerPacketEncoder {
 
 			// room id
 			if (inRoom) {
-				if (dest.length < buffer.position() + 4) {
-					throw new IOException("dest is too short");
-				}
 				buffer.putInt(room.getID());
 			}
+
+			entries.put(e.getValue().getID(), Arrays.copyOf(buffer.array(), buffer.position()));
 		}
 
-		len = buffer.position();
-		return len;
+		return entries;
 	}
 
 	/**
-	 * Encode List of ClientServerRoom from ServerRoomTable in
-	 * MSG_S_LOBBY_ROOMLIST format. The first three bytes in the destination
-	 * byte array are reserved for message type and sequence number and will not
-	 * be overwritten by this method. The caller should set the first three
-	 * bytes properly before sending.
+	 * Encode List of ClientServerRoom from ServerRoomTable into pages in
+	 * MSG_S_LOBBY_ROOMLIST format. The first three bytes of each page are
+	 * reserved for message type and sequence number and are left as 0. The
+	 * caller should set the first three bytes properly before sending.
 	 * 
 	 * @param table
 	 *            the room table
-	 * @param dest
-	 *            the destination byte array that will be sent over the network
-	 * @return the number of bytes of the encoded data in the byte array
+	 * @param version
+	 *            the version of the list put in every page
+	 * @param pageLength
+	 *            the max length of a page
+	 * @return the pages, at least one even if the table is empty
 	 * @throws IOException
 	 */
-	public static int encodeRoomList(ServerRoomTable table, byte[] dest) throws IOException {
-		if (table == null || dest == null) {
-			throw new IOException("table or dest is null");
-		}
+	public static List<byte[]> encodeRoomList(ServerRoomTable table, int version, int pageLength) throws IOException {
+		return encodeListPages(new ArrayList<byte[]>(encodeRoomEntries(table).values()), version, pageLength);
+	}
 
-		// length required before actual array of room info
-		int len = 1 + 2 + 4 + 4 + 4 + 4;
-		if (dest.length < len) {
-			throw new IOException("dest is too short");
+	/**
+	 * Encode each ClientServerLobbyRoom from ServerRoomTable in the format of
+	 * the entries of MSG_S_LOBBY_ROOMLIST
+	 * 
+	 * @param table
+	 *            the room table
+	 * @return the encoded rooms sorted by room id
+	 * @throws IOException
+	 */
+	public static SortedMap<Integer, byte[]> encodeRoomEntries(ServerRoomTable table) throws IOException {
+		if (table == null) {
+			throw new IOException("table is null");
 		}
 
-		// wrap byte array into a ByteBuffer
-		ByteBuffer buffer = ByteBuffer.wrap(dest);
-		// turn table into an ArrayList
-		ArrayList<Entry<Integer, ServerRoom>> list = new ArrayList<Entry<Integer, ServerRoom>>(table.entrySet2());
-		// sort the ArrayList by player id
-		list.sort(new Comparator<Entry<Integer, ServerRoom>>() {
-			@Override
-			public int compare(Entry<Integer, ServerRoom> o1, Entry<Integer, ServerRoom> o2) {
-				return o1.getValue().getID() - o2.getValue().getID();
-			}
-		});
-
-		// put the 4 integers
-		buffer.putInt(3, list.size());
-		buffer.putInt(7, 0);
-		buffer.putInt(11, 0);
-		buffer.putInt(15, list.size());
-
-		// put room info into byte array
-		buffer.position(1 + 2 + 4 + 4 + 4 + 4);
-		for (Entry<Integer, ServerRoom> e : list) {
+		// put the info of each room
+		SortedMap<Integer, byte[]> entries = new TreeMap<Integer, byte[]>();
+		ByteBuffer buffer = ByteBuffer.allocate(4 + 1 + 255 + 1 + 1 + 1 + 4 + 1 + 4 * 255);
+		for (Entry<Integer, ServerRoom> e : table.entrySet2()) {
 			ServerRoom room = e.getValue();
+			buffer.clear();
 
 			// put room ID
-			if (dest.length < buffer.position() + 4) {
-				throw new IOException("dest is too short");
-			}
 			buffer.putInt(room.getID());
 
 			// put room name
 			byte[] nameData = room.getName().getBytes("UTF-8");
-			if (dest.length < buffer.position() + 1 + nameData.length) {
-				throw new IOException("dest is too short");
+			if (nameData.length > 255) {
+				throw new IOException("room name is too long");
 			}
 			buffer.put((byte) nameData.length);
 			buffer.put(nameData);
 
 			// put player number
-			if (dest.length < buffer.position() + 1) {
-				throw new IOException("dest is too short");
-			}
 			buffer.put((byte) room.getPlayerNumber());
 
 			// put max player limit
-			if (dest.length < buffer.position() + 1) {
-				throw new IOException("dest is too short");
-			}
 			buffer.put((byte) room.getMaxPlayer());
 
 			// put inGame boolean flag
-			if (dest.length < buffer.position() + 1) {
-				throw new IOException("dest is too short");
-			}
 			byte inGame;
 			if (room.isInGame()) {
 				inGame = 1;
@@ -202,31 +170,140 @@ public class ServerPacketEncoder {
 			buffer.put(inGame);
 
 			// put game map id
-			if (dest.length < buffer.position() + 4) {
-				throw new IOException("dest is too short");
-			}
 			int mapID = room.getMapID();
 			buffer.putInt(mapID);
 
 			// put number of human players
-			if (dest.length < buffer.position() + 1) {
-				throw new IOException("dest is too short");
-			}
 			ServerClientInfo[] humanPlayers = room.getHumanPlayers();
-			int humanPlayerNumber = humanPlayers.length;
+			int humanPlayerNumber = Math.min(humanPlayers.length, 255);
 			buffer.put((byte) humanPlayerNumber);
 
 			// put array of human player id
-			if (dest.length < buffer.position() + 4 * humanPlayerNumber) {
-				throw new IOException("dest is too short");
-			}
 			for (int i = 0; i < humanPlayerNumber; i++) {
 				buffer.putInt(humanPlayers[i].getID());
 			}
+
+			entries.put(room.getID(), Arrays.copyOf(buffer.array(), buffer.position()));
 		}
 
-		len = buffer.position();
-		return len;
+		return entries;
+	}
+
+	/**
+	 * Put the encoded entries of a MSG_S_LOBBY_PLAYERLIST or
+	 * MSG_S_LOBBY_ROOMLIST list into as few pages as possible, keeping their
+	 * order, and fill in the header of each page
+	 * 
+	 * @param entries
+	 *            the encoded entries
+	 * @param version
+	 *            the version of the list
+	 * @param pageLength
+	 *            the max length of a page
+	 * @return the pages
+	 * @throws IOException
+	 */
+	public static List<byte[]> encodeListPages(List<byte[]> entries, int version, int pageLength)
+			throws IOException {
+		// length of the header before the entries
+		int headerLength = 1 + 2 + 4 + 4 + 4 + 4 + 4;
+
+		List<byte[]> pages = new ArrayList<byte[]>();
+		List<Integer> pageCounts = new ArrayList<Integer>();
+		ByteBuffer page = ByteBuffer.allocate(pageLength);
+		page.position(headerLength);
+		int count = 0;
+		for (byte[] entry : entries) {
+			if (headerLength + entry.length > pageLength) {
+				throw new IOException("pageLength is too short");
+			}
+			if (page.remaining() < entry.length) {
+				pages.add(Arrays.copyOf(page.array(), page.position()));
+				pageCounts.add(count);
+				page.position(headerLength);
+				count = 0;
+			}
+			page.put(entry);
+			count++;
+		}
+		pages.add(Arrays.copyOf(page.array(), page.position()));
+		pageCounts.add(count);
+
+		// put the 5 integers
+		for (int i = 0; i < pages.size(); i++) {
+			ByteBuffer header = ByteBuffer.wrap(pages.get(i));
+			header.putInt(3, entries.size());
+			header.putInt(7, i);
+			header.putInt(11, pages.size() - 1);
+			header.putInt(15, pageCounts.get(i));
+			header.putInt(19, version);
+		}
+
+		return pages;
+	}
+
+	/**
+	 * Encode the changes of a list into MSG_S_LOBBY_EVENTS format. If the
+	 * events do not fit in the destination byte array, the message tells the
+	 * client to request the list instead. The first three bytes in the
+	 * destination byte array are reserved for message type and sequence number
+	 * and will not be overwritten by this method. The caller should set the
+	 * first three bytes properly before sending.
+	 * 
+	 * @param delta
+	 *            the changes of the list
+	 * @param listType
+	 *            the message type of the list
+	 * @param dest
+	 *            the destination byte array that will be sent over the network
+	 * @return the number of bytes of the encoded data in the byte array
+	 * @throws IOException
+	 */
+	public static int encodeLobbyEvents(LobbyListCache.Delta delta, byte listType, byte[] dest) throws IOException {
+		if (delta == null || dest == null) {
+			throw new IOException("delta or dest is null");
+		}
+
+		// length required before the array of events
+		int len = 1 + 2 + 1 + 4 + 4 + 2;
+		if (dest.length < len) {
+			throw new IOException("dest is too short");
+		}
+
+		ByteBuffer buffer = ByteBuffer.wrap(dest);
+		buffer.put(3, listType);
+		buffer.putInt(8, delta.getToVersion());
+
+		int eventNumber = delta.getRemovedIDs().size() + delta.getPutEntries().size();
+		boolean fits = eventNumber <= 0xffff;
+		buffer.position(len);
+		for (int id : delta.getRemovedIDs()) {
+			if (!fits || buffer.remaining() < 1 + 4) {
+				fits = false;
+				break;
+			}
+			buffer.put(ProtocolConstant.MSG_S_LOBBY_EVENTS_REMOVED);
+			buffer.putInt(id);
+		}
+		for (byte[] entry : delta.getPutEntries()) {
+			if (!fits || buffer.remaining() < 1 + entry.length) {
+				fits = false;
+				break;
+			}
+			buffer.put(ProtocolConstant.MSG_S_LOBBY_EVENTS_PUT);
+			buffer.put(entry);
+		}
+
+		// too many events, the clients have to request the whole list
+		if (!fits) {
+			buffer.putInt(4, -1);
+			buffer.putShort(12, (short) 0);
+			return len;
+		}
+
+		buffer.putInt(4, delta.getFromVersion());
+		buffer.putShort(12, (short) eventNumber);
+		return buffer.position();
 	}
 
 	/**
@@ -327,6 +404,33 @@ public class ServerPacketEncoder {
 		return len;
 	}
 
+	/**
+	 * Get the max length of a game state on a map encoded by encodeGameState,
+	 * with 127 players and 127 bombs
+	 * 
+	 * @param width
+	 *            the width of the map
+	 * @param height
+	 *            the height of the map
+	 * @return the max number of bytes of the encoded data
+	 */
+	public static int maxGameStateLength(int width, int height) {
+		return 7 + MapEncoder.encodedLength(width, height) + 1 + 35 * Byte.MAX_VALUE + 1 + 20 * Byte.MAX_VALUE + 2;
+	}
+
+	/**
+	 * Get the max length of a snapshot encoded by encodeGameStateDelta. A run
+	 * of changed bytes costs 3 more bytes, and is either followed by 3
+	 * unchanged bytes or 255 bytes long
+	 * 
+	 * @param length
+	 *            the length of the snapshot
+	 * @return the max number of bytes of the encoded data
+	 */
+	public static int maxGameStateDeltaLength(int length) {
+		return 3 + 4 + 4 + 4 + 2 + 2 + length + 3 * (length / 255 + 2);
+	}
+
 	/**
 	 * Encode GameState into MSG_S_ROOM_GAMESTATE format. The first three bytes
 	 * in the destination byte array are reserved for message type and sequence
@@ -348,8 +452,7 @@ public class ServerPacketEncoder {
 		}
 
 		// null check
-		byte gridMapWidth;
-		byte gridMapHeight = -1;
+		int mapLength;
 		Block[][] gridMap;
 
 		byte numPlayer;
@@ -367,45 +470,7 @@ public class ServerPacketEncoder {
 		}
 
 		gridMap = map.getGridMap();
-		if (gridMap == null) {
-			throw new IOException("gridMap is null");
-		}
-
-		if (gridMap.length < 1 || gridMap.length > 16) {
-			throw new IOException("gridMap width is not in the range [1,16]");
-		}
-		gridMapWidth = (byte) gridMap.length;
-
-		for (int i = 0; i < gridMap.length - 1; i++) {
-			Block[] column = gridMap[i];
-			Block[] columnNext = gridMap[i + 1];
-
-			if (column == null || columnNext == null) {
-				throw new IOException("gridMap has null column");
-			}
-
-			if (column.length != columnNext.length) {
-				throw new IOException("gridMap has inconsistent column length");
-			}
-
-			for (Block b : column) {
-				if (b == null) {
-					throw new IOException("gridMap has null block");
-				}
-			}
-
-			for (Block b : columnNext) {
-				if (b == null) {
-					throw new IOException("gridMap has null block");
-				}
-			}
-
-			gridMapHeight = (byte) column.length;
-		}
-
-		if (gridMapHeight < 1 || gridMapHeight > 16) {
-			throw new IOException("gridMap height is not in the range [1,16]");
-		}
+		mapLength = MapEncoder.check(gridMap);
 
 		playerList = gameState.getPlayers();
 		if (playerList == null) {
@@ -475,7 +540,7 @@ public class ServerPacketEncoder {
 		}
 
 		// length calculation
-		int dataLength = 7 + 130 + 1 + 35 * numPlayer + 1 + 20 * numBomb + 2;
+		int dataLength = 7 + mapLength + 1 + 35 * numPlayer + 1 + 20 * numBomb + 2;
 		if (dataLength > dest.length) {
 			throw new IOException("dest is too short to fit " + dataLength + " bytes");
 		}
@@ -486,34 +551,20 @@ public class ServerPacketEncoder {
 		buffer.position(3);
 		buffer.putInt(roomID);
 
-		// Map (130 Bytes)
-		buffer.put(gridMapWidth);
-		buffer.put(gridMapHeight);
-
-		long bitArr[][] = new long[4][4];
-		for (int y = 0; y < gridMapHeight; y++) {
-			for (int x = 0; x < gridMapWidth; x++) {
-
-				Block b = gridMap[x][y];
-
-				byte bits = blockToByte(b);
-
-				int bitIndex = x + y * gridMapWidth;
-
-				for (int i = 3; i >= 0; i--) {
-					if (BitArray.getBit(bits, i)) {
-						bitArr[i][bitIndex / 64] = BitArray.setBit(bitArr[i][bitIndex / 64], bitIndex % 64, true);
-					}
-				}
-
-			}
-		}
-
-		for (int b = 3; b >= 0; b--) {
-			for (int i = 3; i >= 0; i--) {
-				buffer.putLong(bitArr[b][i]);
-			}
-		}
+		// Map
+		MapEncoder.encode(gridMap, buffer);
+
+		// the numeric fields are read from the parallel arrays of the world,
+		// whose slots are in the order of the player and bomb lists
+		WorldStore world = gameState.getWorld();
+		int[] playerIDs = world.getPlayerIDs();
+		int[] playerXs = world.getPlayerXs();
+		int[] playerYs = world.getPlayerYs();
+		int[] lives = world.getLives();
+		int[] speeds = world.getSpeeds();
+		int[] bombRanges = world.getBombRanges();
+		int[] maxNrOfBombs = world.getMaxNrOfBombs();
+		boolean[] alives = world.getAlive();
 
 		// Players (1 + numPlayer * 35 Bytes)
 		buffer.put(numPlayer);
@@ -540,35 +591,35 @@ public class ServerPacketEncoder {
 				keyState = BitArray.setBit(keyState, 5, true);
 			}
 
-			byte alive;
-			if (p.isAlive()) {
-				alive = 1;
-			} else {
-				alive = 0;
-			}
+			byte flags = 0;
+			flags = BitArray.setBit(flags, 0, alives[i]);
+			flags = BitArray.setBit(flags, 1, p.isAI());
 
-			buffer.putInt(p.getPlayerID());
-			buffer.putInt(p.getPos().x);
-			buffer.putInt(p.getPos().y);
-			buffer.putInt(p.getLives());
-			buffer.putDouble(p.getSpeed());
-			buffer.putInt(p.getBombRange());
-			buffer.putInt(p.getMaxNrOfBombs());
+			buffer.putInt(playerIDs[i]);
+			buffer.putInt(playerXs[i]);
+			buffer.putInt(playerYs[i]);
+			buffer.putInt(lives[i]);
+			buffer.putDouble(speeds[i] / 1000.0);
+			buffer.putInt(bombRanges[i]);
+			buffer.putInt(maxNrOfBombs[i]);
 			buffer.putShort(keyState);
-			buffer.put(alive);
+			buffer.put(flags);
 		}
 
 		// Bombs (1 + numBomb * 20)
 		buffer.put(numBomb);
 
+		int[] bombOwners = world.getBombOwners();
+		int[] bombXs = world.getBombXs();
+		int[] bombYs = world.getBombYs();
+		int[] bombTimes = world.getBombTimes();
+		int[] bombRadii = world.getBombRadii();
 		for (int i = 0; i < numBomb; i++) {
-			Bomb b = bombList.get(i);
-
-			buffer.putInt(b.getPlayerID());
-			buffer.putInt(b.getPos().x);
-			buffer.putInt(b.getPos().y);
-			buffer.putInt(b.getTime());
-			buffer.putInt(b.getRadius());
+			buffer.putInt(bombOwners[i]);
+			buffer.putInt(bombXs[i]);
+			buffer.putInt(bombYs[i]);
+			buffer.putInt(bombTimes[i]);
+			buffer.putInt(bombRadii[i]);
 		}
 
 		// Audio Events
@@ -600,6 +651,112 @@ public class ServerPacketEncoder {
 		return dataLength;
 	}
 
+	/**
+	 * Encode a game state snapshot in MSG_S_ROOM_GAMESTATEDELTA format, as the
+	 * runs of bytes which differ from a baseline snapshot. The first three bytes
+	 * in the destination byte array are reserved for message type and sequence
+	 * number and will not be overwritten by this method. The caller should set
+	 * the first three bytes properly before sending.
+	 * 
+	 * @param state
+	 *            the array containing the snapshot, which is a game state
+	 *            encoded by encodeGameState without its header
+	 * @param offset
+	 *            the offset of the snapshot in state
+	 * @param length
+	 *            the length of the snapshot
+	 * @param baseline
+	 *            the array containing the baseline snapshot, or null when there
+	 *            is no baseline
+	 * @param baselineLength
+	 *            the length of the baseline snapshot
+	 * @param roomID
+	 *            the ID of the room
+	 * @param snapshotID
+	 *            the ID of the snapshot
+	 * @param baselineID
+	 *            the ID of the baseline snapshot, or SnapshotRing.NO_SNAPSHOT
+	 * @param inputSequence
+	 *            the input sequence of the last move of the client applied to
+	 *            the snapshot, or -1 for none
+	 * @param dest
+	 *            the destination byte array that will be sent over the network
+	 * @return the number of bytes of the encoded data in the byte array
+	 * @throws IOException
+	 */
+	public static int encodeGameStateDelta(byte[] state, int offset, int length, byte[] baseline, int baselineLength,
+			int roomID, int snapshotID, int baselineID, short inputSequence, byte[] dest) throws IOException {
+		if (state == null || dest == null) {
+			throw new IOException("state or dest is null");
+		}
+
+		if (length < 0 || length > 0xffff || offset + length > state.length) {
+			throw new IOException("state length is invalid");
+		}
+
+		if (baseline == null) {
+			baselineLength = 0;
+		}
+
+		int headerLength = 3 + 4 + 4 + 4 + 2 + 2;
+		if (headerLength > dest.length) {
+			throw new IOException("dest is too short to fit " + headerLength + " bytes");
+		}
+
+		ByteBuffer buffer = ByteBuffer.wrap(dest);
+
+		// Header
+		buffer.position(3);
+		buffer.putInt(roomID);
+		buffer.putInt(snapshotID);
+		buffer.putInt(baselineID);
+		buffer.putShort(inputSequence);
+		buffer.putShort((short) length);
+
+		// Runs
+		int runEnd = 0;
+		int i = 0;
+		while (i < length) {
+			if (state[offset + i] == baselineByte(baseline, baselineLength, i)) {
+				i++;
+				continue;
+			}
+
+			/*
+			 * a run goes on over up to 2 unchanged bytes, which cost less than
+			 * the 3 bytes of starting a new run
+			 */
+			int start = i;
+			int end = i + 1;
+			int j = end;
+			while (j < length && j - start < 255 && j - end < 3) {
+				if (state[offset + j] != baselineByte(baseline, baselineLength, j)) {
+					end = j + 1;
+				}
+				j++;
+			}
+
+			if (buffer.position() + 3 + end - start > dest.length) {
+				throw new IOException("dest is too short to fit the delta");
+			}
+			buffer.putShort((short) (start - runEnd));
+			buffer.put((byte) (end - start));
+			buffer.put(state, offset + start, end - start);
+
+			runEnd = end;
+			i = end;
+		}
+
+		return buffer.position();
+	}
+
+	private static byte baselineByte(byte[] baseline, int baselineLength, int index) {
+		if (index < baselineLength) {
+			return baseline[index];
+		}
+		return 0;
+	}
+
 	/**
 	 * Convert short into KeyboardState
 	 * 
@@ -802,7 +959,7 @@ public class ServerPacketEncoder {
 			throw new IOException("length is invalid");
 		}
 
-		if (length < 1 + 2 + 4 + 1 + 130 + 32) {
+		if (length < 1 + 2 + 4 + 1 + 4) {
 			throw new IOException("packet format is invalid");
 		}
 
@@ -812,39 +969,13 @@ public class ServerPacketEncoder {
 			throw new IOException("packet format is invalid");
 		}
 
-		byte gridMapWidth = buffer.get();
-		if (gridMapWidth < 1 || gridMapWidth > 16) {
-			throw new IOException("gridMap width is not in the range [1,16]");
-		}
-
-		byte gridMapHeight = buffer.get();
-		if (gridMapHeight < 1 || gridMapHeight > 16) {
-			throw new IOException("gridMap height is not in the range [1,16]");
-		}
-
-		Block[][] gridMap = new Block[gridMapWidth][gridMapHeight];
-
-		long bitArr[][] = new long[4][4];
-		for (int b = 3; b >= 0; b--) {
-			for (int i = 3; i >= 0; i--) {
-				bitArr[b][i] = buffer.getLong();
-			}
+		int gridMapWidth = MapEncoder.getWidth(buffer, 8);
+		int gridMapHeight = MapEncoder.getHeight(buffer, 8);
+		if (length < 1 + 2 + 4 + 1 + MapEncoder.encodedLength(gridMapWidth, gridMapHeight) + 32) {
+			throw new IOException("packet format is invalid");
 		}
-		for (int x = 0; x < gridMapWidth; x++) {
-			for (int y = 0; y < gridMapHeight; y++) {
-				Block b;
-
-				byte bits = 0;
-				int bitIndex = x + y * gridMapWidth;
-				for (int i = 3; i >= 0; i--) {
-					boolean bit = BitArray.getBit(bitArr[i][bitIndex / 64], bitIndex % 64);
-					bits = BitArray.setBit(bits, i, bit);
-				}
 
-				b = byteToBlock(bits);
-				gridMap[x][y] = b;
-			}
-		}
+		Block[][] gridMap = MapEncoder.decode(buffer, null);
 
 		List<Point> spawnPoints = new ArrayList<Point>(4);
 		for (int i = 0; i < 4; i++) {
@@ -14,6 +14,9 @@ public class ServerRoomTable {
 	private ConcurrentHashMap<Integer, ServerRoom> idTable = new ConcurrentHashMap<Integer, ServerRoom>();
 	private final int maxTableSize;
 
+	// the IDs of the rooms, allocated in constant time
+	private final IDAllocator idAllocator;
+
 	/**
 	 * Construct a ServerRoomTable with maximum capacity of tableSize
 	 * 
@@ -22,15 +25,7 @@ public class ServerRoomTable {
 	 */
 	public ServerRoomTable(int maxTableSize) {
 		this.maxTableSize = maxTableSize;
-	}
-
-	private int nextAvailableID() {
-		for (int i = 0; i < maxTableSize; i++) {
-			if (!idTable.containsKey(i)) {
-				return i;
-			}
-		}
-		return -1;
+		this.idAllocator = new IDAllocator(maxTableSize);
 	}
 
 	/**
@@ -47,12 +42,12 @@ public class ServerRoomTable {
 			return;
 		}
 
-		int id = nextAvailableID();
-		if (id < 0) {
+		if (room == null || room.getName() == null) {
 			return;
 		}
 
-		if (room == null || room.getName() == null) {
+		int id = idAllocator.allocate();
+		if (id < 0) {
 			return;
 		}
 
@@ -96,6 +91,7 @@ public class ServerRoomTable {
 
 		// nameTable.remove(name);
 		idTable.remove(key);
+		idAllocator.release(key);
 	}
 
 	/**
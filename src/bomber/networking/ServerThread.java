@@ -3,7 +3,6 @@ package bomber.networking;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.SocketAddress;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
@@ -12,16 +11,20 @@ import java.nio.ByteBuffer;
 import java.security.SecureRandom;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Hashtable;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import bomber.AI.AIDifficulty;
+import bomber.AI.AIPlanner;
 import bomber.game.Block;
-import bomber.game.KeyboardState;
 import bomber.game.Map;
 import bomber.game.Maps;
 
@@ -37,11 +40,11 @@ public class ServerThread implements Runnable {
 
 	private final ServerConfiguration config;
 
-	private final DatagramSocket socket;
+	private final ServerTransport transport;
 
-	// table for storing nonce
-	private final Hashtable<SocketAddress, Long> nonceTable;
+	// stateless cookies sent as the nonce of the connection handshake
 	private final SecureRandom random = new SecureRandom();
+	private final HandshakeCookie handshakeCookie = new HandshakeCookie(random);
 
 	// table for storing client info
 	private final ServerClientTable clientTable;
@@ -52,16 +55,61 @@ public class ServerThread implements Runnable {
 	// list of maps
 	private List<Map> mapList;
 
-	// 2000 bytes of receiving buffer
+	// encoded pages of the player and room lists, encoded again only after the
+	// tables have changed
+	private final LobbyListCache playerListCache = new LobbyListCache(this::encodePlayerEntries,
+			ProtocolConstant.MAX_LIST_PAGE_LENGTH, random.nextInt());
+	private final LobbyListCache roomListCache = new LobbyListCache(this::encodeRoomEntries,
+			ProtocolConstant.MAX_LIST_PAGE_LENGTH, random.nextInt());
+
+	// the changes of the lists are pushed to the subscribed clients once per
+	// lobby tick of 100ms
+	private final long lobbyTickLength = 100;
+	private final DatagramPacket lobbyEventPacket = new DatagramPacket(
+			new byte[ProtocolConstant.MAX_LIST_PAGE_LENGTH + ReliabilityWindow.MAX_ACK_TRAILER_LENGTH],
+			ProtocolConstant.MAX_LIST_PAGE_LENGTH);
+
+	// 2000 bytes of receiving and sending buffers
 	private final int recvBufferLen = 2000;
-	private final byte[] recvBuffer = new byte[recvBufferLen];
-	private final ByteBuffer recvByteBuffer = ByteBuffer.wrap(recvBuffer);
-	private final DatagramPacket packet = new DatagramPacket(recvBuffer, recvBuffer.length);
-
-	// 2000 bytes of sending buffer
 	private final int sendBufferLen = 2000;
-	private final byte[] sendBuffer = new byte[sendBufferLen];
-	private final ByteBuffer sendByteBuffer = ByteBuffer.wrap(sendBuffer);
+
+	// number of received packets each worker can hold
+	private final int workerQueueLen = 256;
+
+	// workers processing the received packets, each serving its share of the
+	// clients so that the packets of a client are processed in order
+	private PacketWorker[] workers;
+
+	// received packets which are not held by a worker
+	private BlockingQueue<ReceivedPacket> freePackets;
+
+	// used to receive packets that are dropped because every worker is busy
+	private final ReceivedPacket overflowPacket = new ReceivedPacket(recvBufferLen);
+	private final AtomicLong droppedPackets = new AtomicLong();
+
+	// packets reused by the keep alive, retransmission and acknowledgement
+	// tasks (retransmissions are sent while holding the wheel)
+	private final DatagramPacket pingPacket = new DatagramPacket(
+			new byte[3 + ReliabilityWindow.MAX_ACK_TRAILER_LENGTH], 3);
+	private final DatagramPacket retransmitPacket = new DatagramPacket(new byte[0], 0);
+	private final DatagramPacket ackPacket = new DatagramPacket(new byte[3 + ReliabilityWindow.ACK_LENGTH],
+			3 + ReliabilityWindow.ACK_LENGTH);
+
+	// the packets received from a client are acknowledged together every 10ms
+	private final long ackInterval = 10;
+
+	// unacknowledged packets wait for their retransmission timeout on a wheel
+	// of 10ms ticks, which turns every 5.12 seconds
+	private final long retransmitTickLength = 10;
+	private final RetransmitTimerWheel retransmitWheel = new RetransmitTimerWheel(512, retransmitTickLength,
+			System.currentTimeMillis());
+	private final RetransmitTimerWheel.ExpiryHandler retransmitHandler = this::retransmitExpired;
+
+	// runs the ticks of the games of every room, a thread per core
+	private final RoomTickScheduler tickScheduler = new RoomTickScheduler(Runtime.getRuntime().availableProcessors());
+
+	// plans the moves of the AIs of every room, on a share of the cores
+	private AIPlanner aiPlanner;
 
 	// scheduled executor for client keep alive and packet retransmission tasks
 	private final ScheduledExecutorService scheduledExecutor = Executors.newScheduledThreadPool(4);
@@ -81,13 +129,12 @@ public class ServerThread implements Runnable {
 		this.port = port;
 		this.printStream = printStream;
 		this.config = config;
-		this.nonceTable = new Hashtable<>(config.getMaxPlayer());
 		this.clientTable = new ServerClientTable(config.getMaxPlayer());
 		this.roomTable = new ServerRoomTable(config.getMaxPlayer());
 		initMaps();
 
 		// open socket
-		socket = new DatagramSocket(port);
+		transport = openTransport(port, this.config, sendBufferLen);
 	}
 
 	/**
@@ -103,13 +150,12 @@ public class ServerThread implements Runnable {
 		this.port = port;
 		this.printStream = System.out;
 		this.config = config;
-		this.nonceTable = new Hashtable<>(config.getMaxPlayer());
 		this.clientTable = new ServerClientTable(config.getMaxPlayer());
 		this.roomTable = new ServerRoomTable(config.getMaxPlayer());
 		initMaps();
 
 		// open socket
-		socket = new DatagramSocket(port);
+		transport = openTransport(port, this.config, sendBufferLen);
 	}
 
 	/**
@@ -123,13 +169,12 @@ public class ServerThread implements Runnable {
 		this.port = port;
 		this.printStream = System.out;
 		this.config = new ServerConfiguration();
-		this.nonceTable = new Hashtable<>(config.getMaxPlayer());
 		this.clientTable = new ServerClientTable(config.getMaxPlayer());
 		this.roomTable = new ServerRoomTable(config.getMaxPlayer());
 		initMaps();
 
 		// open socket
-		socket = new DatagramSocket(port);
+		transport = openTransport(port, this.config, sendBufferLen);
 	}
 
 	public void run() {
@@ -150,10 +195,9 @@ public class ServerThread implements Runnable {
 				} else {
 					// send a ping packet to each active client
 					try {
-						byte[] data = new byte[3];
+						pingPacket.setSocketAddress(e.getKey());
 						// must be set to true in sendPacket for acknowledgement
-						sendPacket(new DatagramPacket(data, data.length, e.getKey()), ProtocolConstant.MSG_S_NET_PING,
-								true);
+						sendPacket(pingPacket, ProtocolConstant.MSG_S_NET_PING, true);
 					} catch (IOException e1) {
 						pServer("keepAliveTask: " + e1);
 					}
@@ -162,55 +206,170 @@ public class ServerThread implements Runnable {
 		};
 		scheduledExecutor.scheduleWithFixedDelay(keepAliveTask, config.getKeepAliveInterval(),
 				config.getKeepAliveInterval(), TimeUnit.SECONDS);
-		// client packet acknowledgement checking and retransmission task
+		// client packet retransmission task, for the packets whose
+		// retransmission timeout has expired
 		Runnable retransmitTask = () -> {
+			retransmitWheel.advance(System.currentTimeMillis(), retransmitHandler);
+		};
+		scheduledExecutor.scheduleWithFixedDelay(retransmitTask, retransmitTickLength, retransmitTickLength,
+				TimeUnit.MILLISECONDS);
+		// cumulative acknowledgement task, for the clients whose packets have
+		// not been acknowledged by a previous acknowledgement: the sequenced
+		// packets and game states carry it, so it is only sent on idle links
+		Runnable ackTask = () -> {
 			for (Entry<SocketAddress, ServerClientInfo> e : clientTable.entrySet()) {
-				ArrayList<PacketHistoryEntry> packetList = e.getValue().getPacketHistoryList();
-				for (PacketHistoryEntry f : packetList) {
-					if (f != null && !f.isAcked() && f.getRetransmissionCount() < config.getMaxRetransmitCount()) {
-						/*
-						 * pServerf(
-						 * "retransmitTask: Retransmitting packet %d created at %d with length %d and retransmission count %d to client %s\n"
-						 * , f.getSequence(), f.getCreationTimeStamp(),
-						 * f.getPacketLength(),
-						 * f.getRetransmissionCountAndIncrement(), e.getKey());
-						 */
+				synchronized (e.getValue()) {
+					ReliabilityWindow window = e.getValue().getReliabilityWindow();
+					if (window.isAckPending()) {
 						try {
-							sendPacket(new DatagramPacket(f.getPacketData(), f.getPacketLength(), e.getKey()));
+							window.writeAck(ackPacket.getData(), 3);
+							ackPacket.setSocketAddress(e.getKey());
+							sendPacket(ackPacket, ProtocolConstant.MSG_S_NET_ACK);
 						} catch (IOException e1) {
-							pServer("retransmitTask: " + e);
+							pServer("ackTask: " + e1);
 						}
 					}
 				}
 			}
 		};
-		scheduledExecutor.scheduleWithFixedDelay(retransmitTask, config.getRetransmitInterval(),
-				config.getRetransmitInterval(), TimeUnit.MILLISECONDS);
+		scheduledExecutor.scheduleWithFixedDelay(ackTask, ackInterval, ackInterval, TimeUnit.MILLISECONDS);
+
+		// lobby tick task, pushing the changes of the player and room lists
+		// to the subscribed clients
+		Runnable lobbyTickTask = () -> {
+			try {
+				sendLobbyEvents(playerListCache, ProtocolConstant.MSG_S_LOBBY_PLAYERLIST);
+				sendLobbyEvents(roomListCache, ProtocolConstant.MSG_S_LOBBY_ROOMLIST);
+			} catch (IOException e) {
+				pServer("lobbyTickTask: " + e);
+			}
+		};
+		scheduledExecutor.scheduleWithFixedDelay(lobbyTickTask, lobbyTickLength, lobbyTickLength,
+				TimeUnit.MILLISECONDS);
+
+		// start the workers
+		int workerCount = config.getWorkerCount();
+		workers = new PacketWorker[workerCount];
+		freePackets = new ArrayBlockingQueue<>(workerCount * workerQueueLen);
+		for (int i = 0; i < workerCount * workerQueueLen; i++) {
+			freePackets.add(new ReceivedPacket(recvBufferLen));
+		}
+		for (int i = 0; i < workerCount; i++) {
+			workers[i] = new PacketWorker(i);
+			workers[i].start();
+		}
+
+		// start the AI planning and game tick threads
+		aiPlanner = new AIPlanner(config.getAIPlanningThreadCount(), config.getAIPlanningBudget(),
+				TimeUnit.MICROSECONDS);
+		aiPlanner.start();
+		tickScheduler.start();
 
 		// main loop
 		while (true) {
 			try {
-				recvPacket(packet);
-				processPacket(packet);
+				ReceivedPacket received = freePackets.poll();
+				if (received == null) {
+					// every worker is full, so the packet is dropped
+					recvPacket(overflowPacket.packet);
+					droppedPackets.incrementAndGet();
+					continue;
+				}
+				try {
+					recvPacket(received.packet);
+				} catch (IOException e) {
+					freePackets.add(received);
+					throw e;
+				}
+				dispatchPacket(received);
 			} catch (SocketTimeoutException e) {
 				pServer("" + e);
 			} catch (IOException e) {
 				pServer("" + e);
 				scheduledExecutor.shutdown();
+				for (PacketWorker w : workers) {
+					w.interrupt();
+				}
 				// terminate active game sessions
 				for (Entry<Integer, ServerRoom> e1 : roomTable.entrySet2()) {
 					if (e1 != null && e1.getValue() != null && e1.getValue().getGame() != null) {
 						e1.getValue().getGame().terminate();
 					}
 				}
-				socket.close();
+				transport.close();
+				pServer("Room ticks: " + tickScheduler);
+				pServer("AI planning: " + aiPlanner);
+				tickScheduler.shutdown();
+				aiPlanner.shutdown();
 				break;
 			}
 		}
 		pServer("Exiting");
 	}
 
-	private void processPacket(DatagramPacket packet) throws IOException {
+	/**
+	 * Hand a received packet to the worker of its client. Game moves do not
+	 * wait for the worker: they are queued straight to the game of the room of
+	 * the client
+	 * 
+	 * @param received
+	 *            the received packet
+	 */
+	private void dispatchPacket(ReceivedPacket received) {
+		DatagramPacket packet = received.packet;
+		SocketAddress sockAddr = packet.getSocketAddress();
+
+		// moves are sent without sequence numbers, so they need no reply
+		int moves = sendMoveCount(received);
+		if (moves > 0) {
+			ServerClientInfo client = clientTable.get(sockAddr);
+			ServerRoom room = client == null || !client.isInRoom() ? null : client.getRoom();
+			ServerGame game = room == null ? null : room.getGame();
+			if (game != null && room.getID() == received.buffer.getInt(3)) {
+				client.updateTimeStamp();
+				int snapshotOffset = 10 + 2 * moves;
+				if (packet.getLength() >= snapshotOffset + 4) {
+					client.acknowledgeSnapshot(received.buffer.getInt(snapshotOffset));
+				}
+				if (packet.getLength() >= snapshotOffset + 4 + ReliabilityWindow.ACK_LENGTH) {
+					acknowledgePackets(client, received.data, snapshotOffset + 4);
+				}
+				game.queuePlayerMoves(client.getID(), received.buffer.getShort(7), received.buffer, 10, moves);
+				freePackets.add(received);
+				return;
+			}
+		}
+
+		// the queues of the workers can hold every packet in the pool
+		workers[(sockAddr.hashCode() & Integer.MAX_VALUE) % workers.length].queue.add(received);
+	}
+
+	/**
+	 * Get the number of moves in a packet if it is a MSG_C_GAME_SENDMOVE long
+	 * enough to hold them
+	 * 
+	 * @param received
+	 *            the received packet
+	 * @return the number of moves, or 0 if the packet is not a valid
+	 *         MSG_C_GAME_SENDMOVE
+	 */
+	private static int sendMoveCount(ReceivedPacket received) {
+		int length = received.packet.getLength();
+		if (length < 10 || received.buffer.get(0) != ProtocolConstant.MSG_C_GAME_SENDMOVE) {
+			return 0;
+		}
+		int moves = received.buffer.get(9) & 0xff;
+		if (moves > ProtocolConstant.MAX_MOVES_PER_PACKET || length < 10 + 2 * moves) {
+			return 0;
+		}
+		return moves;
+	}
+
+	private void processPacket(PacketWorker worker, ReceivedPacket received) throws IOException {
+		DatagramPacket packet = received.packet;
+		ByteBuffer recvByteBuffer = received.buffer;
+		ByteBuffer sendByteBuffer = worker.sendByteBuffer;
+
 		if (packet.getLength() < 3) {
 			// ignore short packets
 			return;
@@ -222,7 +381,7 @@ public class ServerThread implements Runnable {
 		if (packet.getLength() == 25 && recvByteBuffer.getInt(0) == 0xffffffff && recvByteBuffer.get(24) == 0) {
 			if (recvByteBuffer.getLong(4) == 0x54536F7572636520l && recvByteBuffer.getLong(12) == 0x456E67696E652051l
 					&& recvByteBuffer.getInt(20) == 0x75657279) {
-				sendSteamQueryResponse(sockAddr);
+				sendSteamQueryResponse(worker, sockAddr);
 				return;
 			}
 		}
@@ -232,23 +391,33 @@ public class ServerThread implements Runnable {
 		short messageSequence = 0;
 		if (messageHasSequence) {
 			messageSequence = recvByteBuffer.getShort(1);
-			// send acknowledgement to client
-			sendByteBuffer.putShort(3, messageSequence);
-			DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2 + 2, sockAddr);
-			sendPacket(p, ProtocolConstant.MSG_S_NET_ACK);
 		}
 
 		ServerClientInfo clientInfo = clientTable.get(sockAddr);
 		if (clientInfo != null) {
 			clientInfo.updateTimeStamp();
 			/*
-			 * log the sequence number of last 100 received packets from this
-			 * client and drop duplicate packets based on the sequence number
+			 * log the sequence number of the packet in the window of the
+			 * client, which is acknowledged by the acknowledgement task, and
+			 * drop duplicate packets based on the sequence number
 			 */
-			if (messageHasSequence && clientInfo.isSequenceDuplicate(messageSequence)) {
-				return;
+			if (messageHasSequence) {
+				boolean duplicate;
+				synchronized (clientInfo) {
+					duplicate = clientInfo.isSequenceDuplicate(messageSequence);
+				}
+				if (duplicate) {
+					return;
+				}
 			}
 		} else {
+			// a client without a window is acknowledged at once
+			if (messageHasSequence) {
+				ReliabilityWindow.writeAck(messageSequence, 0, worker.sendBuffer, 3);
+				DatagramPacket p = worker.reply(1 + 2 + ReliabilityWindow.ACK_LENGTH, sockAddr);
+				sendPacket(p, ProtocolConstant.MSG_S_NET_ACK);
+			}
+
 			/*
 			 * if the client does not exist in the client table and the message
 			 * type is not MSG_C_NET_GETNONCE or MSG_C_NET_CONNECT, tell the
@@ -260,32 +429,27 @@ public class ServerThread implements Runnable {
 					return;
 				}
 
-				// generate the nonce
-				long nonce;
-				Long n = nonceTable.get(sockAddr);
-				if (n == null) {
-					nonce = random.nextLong();
-				} else {
-					nonce = n.longValue();
-				}
-
-				// if the nonce table grows too large, empty it first
-				if (nonceTable.size() > 10 * config.getMaxPlayer()) {
-					nonceTable.clear();
+				// clients speaking another version of the protocol cannot play
+				if (recvByteBuffer.getInt(3) != ProtocolConstant.PROTOCOL_VERSION) {
+					sendByteBuffer.put(3, ProtocolConstant.MSG_S_NET_REJECT_REASON_VERSIONMISMATCH);
+					DatagramPacket p = worker.reply(1 + 2 + 1, sockAddr);
+					sendPacket(p, ProtocolConstant.MSG_S_NET_REJECT, false);
+					return;
 				}
 
-				// store the nonce
-				nonceTable.put(sockAddr, nonce);
+				// the nonce is a cookie checked on connection, nothing is
+				// stored until then
+				long nonce = handshakeCookie.issue(sockAddr);
 
 				// send the nonce
 				sendByteBuffer.putLong(3, nonce);
-				DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2 + 8, sockAddr);
+				DatagramPacket p = worker.reply(1 + 2 + 8, sockAddr);
 				sendPacket(p, ProtocolConstant.MSG_S_NET_NONCE, false);
 
 				return;
 
 			} else if (messageType != ProtocolConstant.MSG_C_NET_CONNECT) {
-				DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2, sockAddr);
+				DatagramPacket p = worker.reply(1 + 2, sockAddr);
 				sendPacket(p, ProtocolConstant.MSG_S_NET_NOTCONNECTED, false);
 
 				return;
@@ -297,10 +461,47 @@ public class ServerThread implements Runnable {
 		 * clients can reach here
 		 */
 
+		/*
+		 * messages changing rooms are processed one at a time, as a room is
+		 * shared by clients served by different workers
+		 */
+		if (changesRooms(messageType)) {
+			synchronized (this) {
+				processMessage(worker, received, messageType, clientInfo);
+			}
+			lobbyChanged();
+		} else {
+			processMessage(worker, received, messageType, clientInfo);
+		}
+	}
+
+	private boolean changesRooms(byte messageType) {
+		switch (messageType) {
+		case ProtocolConstant.MSG_C_NET_DISCONNECT:
+		case ProtocolConstant.MSG_C_LOBBY_CREATEROOM:
+		case ProtocolConstant.MSG_C_LOBBY_JOINROOM:
+		case ProtocolConstant.MSG_C_ROOM_LEAVE:
+		case ProtocolConstant.MSG_C_ROOM_READYTOPLAY:
+		case ProtocolConstant.MSG_C_ROOM_SETINFO:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private void processMessage(PacketWorker worker, ReceivedPacket received, byte messageType,
+			ServerClientInfo clientInfo) throws IOException {
+		DatagramPacket packet = received.packet;
+		SocketAddress sockAddr = packet.getSocketAddress();
+		byte[] recvBuffer = received.data;
+		ByteBuffer recvByteBuffer = received.buffer;
+		byte[] sendBuffer = worker.sendBuffer;
+		ByteBuffer sendByteBuffer = worker.sendByteBuffer;
+
 		switch (messageType) {
 		case ProtocolConstant.MSG_C_NET_GETNONCE: {
 			if (clientInfo != null) {
-				DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2, sockAddr);
+				DatagramPacket p = worker.reply(1 + 2, sockAddr);
 				sendPacket(p, ProtocolConstant.MSG_S_NET_ALREADYCONNECTED, true);
 			} else {
 				System.out.println("Server bug: this line should be unreachable");
@@ -317,16 +518,11 @@ public class ServerThread implements Runnable {
 
 			// nonce check
 			long nonce = recvByteBuffer.getLong(3);
-			Long n = nonceTable.get(sockAddr);
-			if (n == null || n.longValue() != nonce) {
-				DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2 + 1, sockAddr);
+			if (!handshakeCookie.verify(sockAddr, nonce)) {
+				DatagramPacket p = worker.reply(1 + 2 + 1, sockAddr);
 				sendByteBuffer.put(3, ProtocolConstant.MSG_S_NET_REJECT_REASON_OTHER);
 				sendPacket(p, ProtocolConstant.MSG_S_NET_REJECT, false);
 				return;
-			} else {
-				/*
-				 * nonceTable is cleared after exceeding a particular size
-				 */
 			}
 
 			// name length check
@@ -342,7 +538,7 @@ public class ServerThread implements Runnable {
 			if (nameLength > config.getMaxNameLength()) {
 				pServer("Warning: name length longer than " + config.getMaxNameLength() + " in conection request from "
 						+ sockAddr + ", request ignored");
-				DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2 + 1, sockAddr);
+				DatagramPacket p = worker.reply(1 + 2 + 1, sockAddr);
 				sendByteBuffer.put(3, ProtocolConstant.MSG_S_NET_REJECT_REASON_INVALIDNAMELENGTH);
 				sendPacket(p, ProtocolConstant.MSG_S_NET_REJECT, false);
 				return;
@@ -357,7 +553,7 @@ public class ServerThread implements Runnable {
 				 * when the client exists, tell the client that it has already
 				 * connected to the server
 				 */
-				DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2, sockAddr);
+				DatagramPacket p = worker.reply(1 + 2, sockAddr);
 				sendPacket(p, ProtocolConstant.MSG_S_NET_ALREADYCONNECTED, true);
 
 				return;
@@ -372,7 +568,7 @@ public class ServerThread implements Runnable {
 
 			// server full check
 			if (clientTable.size() >= config.getMaxPlayer()) {
-				DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2 + 1, sockAddr);
+				DatagramPacket p = worker.reply(1 + 2 + 1, sockAddr);
 				sendByteBuffer.put(3, ProtocolConstant.MSG_S_NET_REJECT_REASON_SERVERFULL);
 				sendPacket(p, ProtocolConstant.MSG_S_NET_REJECT, false);
 				return;
@@ -383,19 +579,27 @@ public class ServerThread implements Runnable {
 
 			// duplicate name check
 			if (clientTable.contains(name)) {
-				DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2 + 1, sockAddr);
+				DatagramPacket p = worker.reply(1 + 2 + 1, sockAddr);
 				sendByteBuffer.put(3, ProtocolConstant.MSG_S_NET_REJECT_REASON_DUPLICATENAME);
 				sendPacket(p, ProtocolConstant.MSG_S_NET_REJECT, false);
 				return;
 			}
 
-			// create and add client
+			// create and add client, unless another worker took the name first
 			client = new ServerClientInfo(sockAddr, name);
-			clientTable.put(client);
+			if (!clientTable.put(client)) {
+				DatagramPacket p = worker.reply(1 + 2 + 1, sockAddr);
+				sendByteBuffer.put(3, clientTable.contains(name) ? ProtocolConstant.MSG_S_NET_REJECT_REASON_DUPLICATENAME
+						: ProtocolConstant.MSG_S_NET_REJECT_REASON_SERVERFULL);
+				sendPacket(p, ProtocolConstant.MSG_S_NET_REJECT, false);
+				return;
+			}
+
+			playerListCache.invalidate();
 
 			// tell the client that the connection has been accepted
 			sendByteBuffer.putInt(3, client.getID());
-			DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2 + 4, sockAddr);
+			DatagramPacket p = worker.reply(1 + 2 + 4, sockAddr);
 			sendPacket(p, ProtocolConstant.MSG_S_NET_ACCEPT, true);
 
 			pServerf("Accepted new client with name %s, id %d from %s\n", client.getName(), client.getID(),
@@ -409,7 +613,7 @@ public class ServerThread implements Runnable {
 
 			removeClient(clientInfo);
 
-			DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2, sockAddr);
+			DatagramPacket p = worker.reply(1 + 2, sockAddr);
 			sendPacket(p, ProtocolConstant.MSG_S_NET_DISCONNECTED, false);
 
 			break;
@@ -427,50 +631,35 @@ public class ServerThread implements Runnable {
 		}
 
 		case ProtocolConstant.MSG_C_NET_ACK: {
-			if (packet.getLength() < 5) {
+			if (packet.getLength() < 1 + 2 + ReliabilityWindow.ACK_LENGTH) {
 				return;
 			}
 
 			if (clientInfo != null) {
-				for (PacketHistoryEntry e : clientInfo.getPacketHistoryList()) {
-					if (e != null && !e.isAcked() && e.getSequence() == recvByteBuffer.getShort(3)) {
-						e.setAcked(true);
-						long lastDelay = clientInfo.getRoundTripDelay();
-						long thisDelay = System.currentTimeMillis() - e.getCreationTimeStamp();
-						clientInfo.setRoundTripDelay(lastDelay + (long) (0.1f * (float) (thisDelay - lastDelay)));
-					}
-				}
+				acknowledgePackets(clientInfo, recvBuffer, 3);
 			}
 
 			break;
 		}
 
 		case ProtocolConstant.MSG_C_LOBBY_GETPLAYERLIST: {
-			int len = 0;
-			try {
-				len = ServerPacketEncoder.encodePlayerList(clientTable, sendBuffer);
-			} catch (IOException e) {
-				pServer("Failed to encode player list: " + e);
-				return;
-			}
-
-			DatagramPacket p = new DatagramPacket(sendBuffer, 0, len, sockAddr);
-			sendPacket(p, ProtocolConstant.MSG_S_LOBBY_PLAYERLIST, true);
+			sendListPage(worker, received, playerListCache, ProtocolConstant.MSG_S_LOBBY_PLAYERLIST);
 
 			break;
 		}
 
 		case ProtocolConstant.MSG_C_LOBBY_GETROOMLIST: {
-			int len = 0;
-			try {
-				len = ServerPacketEncoder.encodeRoomList(roomTable, sendBuffer);
-			} catch (IOException e) {
-				pServer("Failed to encode room list: " + e);
+			sendListPage(worker, received, roomListCache, ProtocolConstant.MSG_S_LOBBY_ROOMLIST);
+
+			break;
+		}
+
+		case ProtocolConstant.MSG_C_LOBBY_SUBSCRIBE: {
+			if (packet.getLength() < 1 + 2 + 1) {
 				return;
 			}
 
-			DatagramPacket p = new DatagramPacket(sendBuffer, 0, len, sockAddr);
-			sendPacket(p, ProtocolConstant.MSG_S_LOBBY_ROOMLIST, true);
+			clientInfo.setSubscribedToLobby(recvBuffer[3] != 0);
 
 			break;
 		}
@@ -491,7 +680,7 @@ public class ServerThread implements Runnable {
 			if (nameLength > config.getMaxNameLength()) {
 				pServer("Warning: name length longer than " + config.getMaxNameLength()
 						+ " in room creation request from " + sockAddr + ", request ignored");
-				DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2 + 1, sockAddr);
+				DatagramPacket p = worker.reply(1 + 2 + 1, sockAddr);
 				sendByteBuffer.put(3, ProtocolConstant.MSG_S_LOBBY_ROOMREJECT_REASON_INVALIDNAMELENGTH);
 				sendPacket(p, ProtocolConstant.MSG_S_LOBBY_ROOMREJECT, false);
 				return;
@@ -538,14 +727,14 @@ public class ServerThread implements Runnable {
 					return;
 				}
 				sendByteBuffer.putInt(3, room.getID());
-				DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2 + 4, sockAddr);
+				DatagramPacket p = worker.reply(1 + 2 + 4, sockAddr);
 				sendPacket(p, ProtocolConstant.MSG_S_ROOM_ALREADYINROOM, true);
 				return;
 			}
 
 			// check whether there are more rooms than clients
 			if (roomTable.size() >= clientTable.size()) {
-				DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2 + 1, sockAddr);
+				DatagramPacket p = worker.reply(1 + 2 + 1, sockAddr);
 				sendByteBuffer.put(3, ProtocolConstant.MSG_S_LOBBY_ROOMREJECT_REASON_OTHER);
 				sendPacket(p, ProtocolConstant.MSG_S_LOBBY_ROOMREJECT, true);
 				return;
@@ -561,7 +750,7 @@ public class ServerThread implements Runnable {
 
 			// tell the client it has been accepted into the new room
 			sendByteBuffer.putInt(3, room.getID());
-			DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2 + 4, sockAddr);
+			DatagramPacket p = worker.reply(1 + 2 + 4, sockAddr);
 			sendPacket(p, ProtocolConstant.MSG_S_LOBBY_ROOMACCEPT, true);
 
 			// send room info MSG_S_ROOM_ROOMINFO to this client
@@ -572,7 +761,7 @@ public class ServerThread implements Runnable {
 				pServer("Failed to encode room: " + e);
 				return;
 			}
-			DatagramPacket roomP = new DatagramPacket(sendBuffer, 0, encodedRoomLen, sockAddr);
+			DatagramPacket roomP = worker.reply(encodedRoomLen, sockAddr);
 			sendPacket(roomP, ProtocolConstant.MSG_S_ROOM_ROOMINFO, true);
 
 			break;
@@ -600,7 +789,7 @@ public class ServerThread implements Runnable {
 					return;
 				}
 				sendByteBuffer.putInt(3, room.getID());
-				DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2 + 4, sockAddr);
+				DatagramPacket p = worker.reply(1 + 2 + 4, sockAddr);
 				sendPacket(p, ProtocolConstant.MSG_S_ROOM_ALREADYINROOM, true);
 				return;
 			}
@@ -608,7 +797,7 @@ public class ServerThread implements Runnable {
 			// check whether the room exists
 			ServerRoom room = roomTable.get(roomID);
 			if (room == null) {
-				DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2 + 1, sockAddr);
+				DatagramPacket p = worker.reply(1 + 2 + 1, sockAddr);
 				sendByteBuffer.put(3, ProtocolConstant.MSG_S_LOBBY_ROOMREJECT_REASON_INVALIDROOMID);
 				sendPacket(p, ProtocolConstant.MSG_S_LOBBY_ROOMREJECT, true);
 				return;
@@ -616,7 +805,7 @@ public class ServerThread implements Runnable {
 
 			// check whether the room is full
 			if (room.getPlayerNumber() >= room.getMaxPlayer()) {
-				DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2 + 1, sockAddr);
+				DatagramPacket p = worker.reply(1 + 2 + 1, sockAddr);
 				sendByteBuffer.put(3, ProtocolConstant.MSG_S_LOBBY_ROOMREJECT_REASON_ROOMFULL);
 				sendPacket(p, ProtocolConstant.MSG_S_LOBBY_ROOMREJECT, true);
 				return;
@@ -624,7 +813,7 @@ public class ServerThread implements Runnable {
 
 			// check whether the room has a game in progress
 			if (room.isInGame()) {
-				DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2 + 1, sockAddr);
+				DatagramPacket p = worker.reply(1 + 2 + 1, sockAddr);
 				sendByteBuffer.put(3, ProtocolConstant.MSG_S_LOBBY_ROOMREJECT_REASON_GAMEINPROGRESS);
 				sendPacket(p, ProtocolConstant.MSG_S_LOBBY_ROOMREJECT, true);
 				return;
@@ -638,7 +827,7 @@ public class ServerThread implements Runnable {
 
 			// tell the client it has been accepted into the new room
 			sendByteBuffer.putInt(3, room.getID());
-			DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2 + 4, sockAddr);
+			DatagramPacket p = worker.reply(1 + 2 + 4, sockAddr);
 			sendPacket(p, ProtocolConstant.MSG_S_LOBBY_ROOMACCEPT, true);
 
 			// send room info MSG_S_ROOM_ROOMINFO to all clients in this room
@@ -650,7 +839,7 @@ public class ServerThread implements Runnable {
 				return;
 			}
 			for (ServerClientInfo c : room.getHumanPlayers()) {
-				DatagramPacket roomP = new DatagramPacket(sendBuffer, 0, encodedRoomLen, c.getSocketAddress());
+				DatagramPacket roomP = worker.reply(encodedRoomLen, c.getSocketAddress());
 				sendPacket(roomP, ProtocolConstant.MSG_S_ROOM_ROOMINFO, true);
 			}
 
@@ -681,7 +870,7 @@ public class ServerThread implements Runnable {
 
 			// when the client is not in room yet
 			if (!client.isInRoom()) {
-				DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2, sockAddr);
+				DatagramPacket p = worker.reply(1 + 2, sockAddr);
 				sendPacket(p, ProtocolConstant.MSG_S_LOBBY_NOTINROOM, true);
 				return;
 			}
@@ -701,14 +890,14 @@ public class ServerThread implements Runnable {
 				pServerf("Warning: roomID mismatch: %d(request) != %d(server)\n", roomID, room.getID());
 
 				sendByteBuffer.putInt(3, room.getID());
-				DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2 + 4, sockAddr);
+				DatagramPacket p = worker.reply(1 + 2 + 4, sockAddr);
 				sendPacket(p, ProtocolConstant.MSG_S_ROOM_ALREADYINROOM, true);
 				return;
 			}
 
 			// remove the client from room
 			removeClientFromRoom(client);
-			DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2, sockAddr);
+			DatagramPacket p = worker.reply(1 + 2, sockAddr);
 			sendPacket(p, ProtocolConstant.MSG_S_ROOM_HAVELEFT, true);
 
 			/*
@@ -723,7 +912,7 @@ public class ServerThread implements Runnable {
 				return;
 			}
 			for (ServerClientInfo c : room.getHumanPlayers()) {
-				DatagramPacket roomP = new DatagramPacket(sendBuffer, 0, encodedRoomLen, c.getSocketAddress());
+				DatagramPacket roomP = worker.reply(encodedRoomLen, c.getSocketAddress());
 				sendPacket(roomP, ProtocolConstant.MSG_S_ROOM_ROOMINFO, true);
 			}
 
@@ -756,7 +945,7 @@ public class ServerThread implements Runnable {
 
 			// when the client is not in room yet
 			if (!client.isInRoom()) {
-				DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2, sockAddr);
+				DatagramPacket p = worker.reply(1 + 2, sockAddr);
 				sendPacket(p, ProtocolConstant.MSG_S_LOBBY_NOTINROOM, true);
 				return;
 			}
@@ -776,7 +965,7 @@ public class ServerThread implements Runnable {
 				pServerf("roomID mismatch: %d(request) != %d(server)\n", roomID, room.getID());
 
 				sendByteBuffer.putInt(3, room.getID());
-				DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2 + 4, sockAddr);
+				DatagramPacket p = worker.reply(1 + 2 + 4, sockAddr);
 				sendPacket(p, ProtocolConstant.MSG_S_ROOM_ALREADYINROOM, true);
 				return;
 			}
@@ -793,7 +982,7 @@ public class ServerThread implements Runnable {
 				return;
 			}
 			for (ServerClientInfo c : room.getHumanPlayers()) {
-				DatagramPacket roomP = new DatagramPacket(sendBuffer, 0, encodedRoomLen, c.getSocketAddress());
+				DatagramPacket roomP = worker.reply(encodedRoomLen, c.getSocketAddress());
 				sendPacket(roomP, ProtocolConstant.MSG_S_ROOM_ROOMINFO, true);
 			}
 
@@ -847,7 +1036,7 @@ public class ServerThread implements Runnable {
 
 			// when the client is not in room yet
 			if (!client.isInRoom()) {
-				DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2, sockAddr);
+				DatagramPacket p = worker.reply(1 + 2, sockAddr);
 				sendPacket(p, ProtocolConstant.MSG_S_LOBBY_NOTINROOM, true);
 				return;
 			}
@@ -867,7 +1056,7 @@ public class ServerThread implements Runnable {
 				pServerf("roomID mismatch: %d(request) != %d(server)\n", roomID, room.getID());
 
 				sendByteBuffer.putInt(3, room.getID());
-				DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2 + 4, sockAddr);
+				DatagramPacket p = worker.reply(1 + 2 + 4, sockAddr);
 				sendPacket(p, ProtocolConstant.MSG_S_ROOM_ALREADYINROOM, true);
 				return;
 			}
@@ -945,7 +1134,7 @@ public class ServerThread implements Runnable {
 				return;
 			}
 			for (ServerClientInfo c : room.getHumanPlayers()) {
-				DatagramPacket roomP = new DatagramPacket(sendBuffer, 0, encodedRoomLen, c.getSocketAddress());
+				DatagramPacket roomP = worker.reply(encodedRoomLen, c.getSocketAddress());
 				sendPacket(roomP, ProtocolConstant.MSG_S_ROOM_ROOMINFO, true);
 			}
 
@@ -954,8 +1143,9 @@ public class ServerThread implements Runnable {
 		}
 
 		case ProtocolConstant.MSG_C_GAME_SENDMOVE: {
-			if (packet.getLength() < 9) {
-				pServer("Failed to decode readyToPlay request from " + sockAddr);
+			int moves = sendMoveCount(received);
+			if (moves == 0) {
+				pServer("Failed to decode move from " + sockAddr);
 				return;
 			}
 
@@ -965,9 +1155,6 @@ public class ServerThread implements Runnable {
 			 * }
 			 */
 
-			short keyState = recvByteBuffer.getShort(7);
-			KeyboardState keyboardState = ServerPacketEncoder.shortToKeyboardState(keyState);
-
 			/*
 			 * pServer("Received movement from " + sockAddr + ", roomID: " +
 			 * roomID + ", direction: " + keyboardState.getMovement() +
@@ -983,7 +1170,7 @@ public class ServerThread implements Runnable {
 
 			// when the client is not in room yet
 			if (!client.isInRoom()) {
-				DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2, sockAddr);
+				DatagramPacket p = worker.reply(1 + 2, sockAddr);
 				sendPacket(p, ProtocolConstant.MSG_S_LOBBY_NOTINROOM, true);
 				return;
 			}
@@ -1003,15 +1190,24 @@ public class ServerThread implements Runnable {
 				pServerf("roomID mismatch: %d(request) != %d(server)\n", roomID, room.getID());
 
 				sendByteBuffer.putInt(3, room.getID());
-				DatagramPacket p = new DatagramPacket(sendBuffer, 0, 1 + 2 + 4, sockAddr);
+				DatagramPacket p = worker.reply(1 + 2 + 4, sockAddr);
 				sendPacket(p, ProtocolConstant.MSG_S_ROOM_ALREADYINROOM, true);
 				return;
 			}
 
-			// set the keyboard state of the player in game
+			// record the last game state received by the client
+			int snapshotOffset = 10 + 2 * moves;
+			if (packet.getLength() >= snapshotOffset + 4) {
+				client.acknowledgeSnapshot(recvByteBuffer.getInt(snapshotOffset));
+			}
+			if (packet.getLength() >= snapshotOffset + 4 + ReliabilityWindow.ACK_LENGTH) {
+				acknowledgePackets(client, recvBuffer, snapshotOffset + 4);
+			}
+
+			// queue the moves of the player in game
 			ServerGame game = room.getGame();
 			if (game != null) {
-				game.setPlayerKeyState(client.getID(), keyboardState);
+				game.queuePlayerMoves(client.getID(), recvByteBuffer.getShort(7), recvByteBuffer, 10, moves);
 			}
 
 			break;
@@ -1025,7 +1221,70 @@ public class ServerThread implements Runnable {
 		}
 	}
 
-	private void sendSteamQueryResponse(SocketAddress sockAddr) throws IOException {
+	/**
+	 * Mark the packets covered by a cumulative acknowledgement from a client as
+	 * acknowledged and update the round trip delay of the client
+	 * 
+	 * @param clientInfo
+	 *            the client
+	 * @param data
+	 *            the received packet
+	 * @param offset
+	 *            the offset of the acknowledgement in the packet
+	 */
+	private void acknowledgePackets(ServerClientInfo clientInfo, byte[] data, int offset) {
+		short latest = ReliabilityWindow.readAckLatest(data, offset);
+		long mask = ReliabilityWindow.readAckMask(data, offset);
+		synchronized (clientInfo) {
+			long creationTimeStamp = clientInfo.getReliabilityWindow().acknowledge(latest, mask);
+			if (creationTimeStamp != -1) {
+				clientInfo.addRoundTripSample(System.currentTimeMillis() - creationTimeStamp);
+			}
+		}
+	}
+
+	/**
+	 * Retransmit a packet whose retransmission timeout has expired, and
+	 * schedule it again with twice the timeout. Called by the retransmission
+	 * wheel
+	 * 
+	 * @param entry
+	 *            the packet
+	 * @param now
+	 *            the current time in milliseconds
+	 */
+	private void retransmitExpired(PacketHistoryEntry entry, long now) {
+		if (entry.isAcked()) {
+			return;
+		}
+
+		// the client may have left and connected again with a new window
+		ServerClientInfo clientInfo = clientTable.get(entry.getDestination());
+		if (clientInfo == null || clientInfo.getReliabilityWindow().getPacketAt(entry.getSequence()) != entry) {
+			return;
+		}
+
+		if (entry.getRetransmissionCount() >= config.getMaxRetransmitCount()) {
+			clientInfo.countLostPacket();
+			return;
+		}
+
+		try {
+			retransmitPacket.setData(entry.getPacketData(), 0, entry.getPacketLength());
+			retransmitPacket.setSocketAddress(entry.getDestination());
+			sendPacket(retransmitPacket);
+		} catch (IOException e) {
+			pServer("retransmitTask: " + e);
+		}
+
+		entry.incrementRetransmissionCount();
+		clientInfo.countRetransmittedPacket();
+		retransmitWheel.schedule(entry,
+				now + clientInfo.getRetransmitTimeout(config.getRetransmitInterval(), entry.getRetransmissionCount()));
+	}
+
+	private void sendSteamQueryResponse(PacketWorker worker, SocketAddress sockAddr) throws IOException {
+		ByteBuffer sendByteBuffer = worker.sendByteBuffer;
 		try {
 			sendByteBuffer.position(0);
 			// header
@@ -1045,10 +1304,10 @@ public class ServerThread implements Runnable {
 			sendByteBuffer.put((byte) 0);
 			// id of game
 			sendByteBuffer.putShort((byte) 0);
-			// number of players
-			sendByteBuffer.put((byte) clientTable.size());
+			// number of players, the query has a single byte for it
+			sendByteBuffer.put((byte) Math.min(clientTable.size(), 255));
 			// maximum number of players
-			sendByteBuffer.put((byte) config.getMaxPlayer());
+			sendByteBuffer.put((byte) Math.min(config.getMaxPlayer(), 255));
 			// number of bots
 			sendByteBuffer.put((byte) 0);
 			// type of server
@@ -1065,8 +1324,7 @@ public class ServerThread implements Runnable {
 		} catch (BufferOverflowException e) {
 			throw new IOException("send buffer is too small for query response");
 		}
-		DatagramPacket packet = new DatagramPacket(sendBuffer, sendByteBuffer.position(), sockAddr);
-		sendPacket(packet);
+		sendPacket(worker.reply(sendByteBuffer.position(), sockAddr));
 	}
 
 	private void pServer(String string) {
@@ -1078,7 +1336,34 @@ public class ServerThread implements Runnable {
 	}
 
 	private void recvPacket(DatagramPacket packet) throws IOException {
-		socket.receive(packet);
+		transport.receive(packet);
+	}
+
+	/**
+	 * Open the transport selected by the configuration
+	 * 
+	 * @param port
+	 *            the UDP port on which the server listens
+	 * @param config
+	 *            the configuration of the server
+	 * @param bufferLength
+	 *            the length of the buffers of the transport
+	 * @return the transport
+	 * @throws SocketException
+	 */
+	private static ServerTransport openTransport(int port, ServerConfiguration config, int bufferLength)
+			throws SocketException {
+		if (!config.isNioTransport()) {
+			return new DatagramSocketTransport(port);
+		}
+
+		try {
+			return new DatagramChannelTransport(port, bufferLength);
+		} catch (SocketException e) {
+			throw e;
+		} catch (IOException e) {
+			throw new SocketException("Failed to open the channel: " + e);
+		}
 	}
 
 	private synchronized void removeClient(ServerClientInfo client) {
@@ -1090,6 +1375,109 @@ public class ServerThread implements Runnable {
 
 		clientTable.remove(client.getSocketAddress());
 
+		lobbyChanged();
+	}
+
+	/**
+	 * Mark the player and room lists as changed, so that they are encoded
+	 * again with new versions when they are requested next. Called whenever
+	 * the client table, the room table or a room changes
+	 */
+	public void lobbyChanged() {
+		playerListCache.invalidate();
+		roomListCache.invalidate();
+	}
+
+	private SortedMap<Integer, byte[]> encodePlayerEntries() throws IOException {
+		return ServerPacketEncoder.encodePlayerEntries(clientTable);
+	}
+
+	private SortedMap<Integer, byte[]> encodeRoomEntries() throws IOException {
+		return ServerPacketEncoder.encodeRoomEntries(roomTable);
+	}
+
+	/**
+	 * Push the changes of a list since they were last pushed to the subscribed
+	 * clients. Called by the lobby tick task, and before a list is fetched so
+	 * that the version fetched is one the following changes start from
+	 * 
+	 * @param cache
+	 *            the cache of the list
+	 * @param listType
+	 *            the message type of the pages of the list
+	 * @throws IOException
+	 */
+	private void sendLobbyEvents(LobbyListCache cache, byte listType) throws IOException {
+		synchronized (lobbyEventPacket) {
+			LobbyListCache.Delta delta = cache.takeDelta();
+			if (delta == null) {
+				return;
+			}
+
+			int len = ServerPacketEncoder.encodeLobbyEvents(delta, listType, lobbyEventPacket.getData());
+			for (Entry<SocketAddress, ServerClientInfo> e : clientTable.entrySet()) {
+				if (e.getValue().isSubscribedToLobby()) {
+					lobbyEventPacket.setLength(len);
+					lobbyEventPacket.setSocketAddress(e.getKey());
+					sendPacket(lobbyEventPacket, ProtocolConstant.MSG_S_LOBBY_EVENTS, true);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reply to a request for a page of the player or room list, with the page
+	 * of the current version of the list, or with MSG_S_LOBBY_LISTUNCHANGED
+	 * if the client already has the current version
+	 * 
+	 * @param worker
+	 *            the worker processing the request
+	 * @param received
+	 *            the request
+	 * @param cache
+	 *            the cache of the list
+	 * @param listType
+	 *            the message type of the pages of the list
+	 * @throws IOException
+	 */
+	private void sendListPage(PacketWorker worker, ReceivedPacket received, LobbyListCache cache, byte listType)
+			throws IOException {
+		DatagramPacket packet = received.packet;
+		ByteBuffer recvByteBuffer = received.buffer;
+
+		// requests without version and page index are from older clients
+		int knownVersion = -1;
+		int pageIndex = 0;
+		if (packet.getLength() >= 1 + 2 + 4 + 4) {
+			knownVersion = recvByteBuffer.getInt(3);
+			pageIndex = recvByteBuffer.getInt(7);
+		}
+
+		LobbyListCache.Pages pages;
+		try {
+			// a fetch starts from the first page, and gets the list as it is
+			// now rather than as it was at the last lobby tick
+			if (pageIndex == 0) {
+				sendLobbyEvents(cache, listType);
+			}
+			pages = cache.getPages();
+		} catch (IOException e) {
+			pServer("Failed to encode list: " + e);
+			return;
+		}
+
+		if (knownVersion == pages.getVersion()) {
+			worker.sendByteBuffer.put(3, listType);
+			worker.sendByteBuffer.putInt(4, pages.getVersion());
+			DatagramPacket p = worker.reply(1 + 2 + 1 + 4, packet.getSocketAddress());
+			sendPacket(p, ProtocolConstant.MSG_S_LOBBY_LISTUNCHANGED, true);
+			return;
+		}
+
+		byte[] page = pages.get(pageIndex);
+		System.arraycopy(page, 3, worker.sendBuffer, 3, page.length - 3);
+		DatagramPacket p = worker.reply(page.length, packet.getSocketAddress());
+		sendPacket(p, listType, true);
 	}
 
 	private synchronized void removeClientFromRoom(ServerClientInfo client) {
@@ -1179,14 +1567,16 @@ public class ServerThread implements Runnable {
 	}
 
 	/**
-	 * Send a packet without retransmission
+	 * Send a packet without retransmission. This method can be called by
+	 * several threads at the same time, as long as each of them uses its own
+	 * packet
 	 * 
 	 * @param packet
 	 *            the packet to be sent
 	 * @throws IOException
 	 */
-	public synchronized void sendPacket(DatagramPacket packet) throws IOException {
-		socket.send(packet);
+	public void sendPacket(DatagramPacket packet) throws IOException {
+		transport.send(packet);
 	}
 
 	/**
@@ -1198,15 +1588,73 @@ public class ServerThread implements Runnable {
 	 *            the type of the message in the packet
 	 * @throws IOException
 	 */
-	public synchronized void sendPacket(DatagramPacket packet, byte type) throws IOException {
-		ByteBuffer buffer = ByteBuffer.wrap(packet.getData());
-		buffer.put(0, (byte) (type & (~ProtocolConstant.MSG_B_HASSEQUENCE)));
-		buffer.putShort(1, (short) 0);
-		socket.send(packet);
+	public void sendPacket(DatagramPacket packet, byte type) throws IOException {
+		byte[] data = packet.getData();
+		data[0] = (byte) (type & (~ProtocolConstant.MSG_B_HASSEQUENCE));
+		data[1] = 0;
+		data[2] = 0;
+		transport.send(packet);
 	}
 
 	/**
-	 * Send a packet
+	 * Send a packet without retransmission, ending with the acknowledgement of
+	 * the packets received from its recipient
+	 * 
+	 * @param packet
+	 *            the packet to be sent
+	 * @param type
+	 *            the type of the message in the packet
+	 * @throws IOException
+	 */
+	public void sendPacketWithAck(DatagramPacket packet, byte type) throws IOException {
+		byte[] data = packet.getData();
+		data[0] = (byte) (type & (~ProtocolConstant.MSG_B_HASSEQUENCE));
+		data[1] = 0;
+		data[2] = 0;
+
+		int length = packet.getLength();
+		ServerClientInfo clientInfo = clientTable.get(packet.getSocketAddress());
+		if (clientInfo != null) {
+			synchronized (clientInfo) {
+				transport.send(appendAck(clientInfo, packet));
+			}
+		} else {
+			transport.send(appendAck(null, packet));
+		}
+		packet.setLength(length);
+	}
+
+	/**
+	 * Append the acknowledgement trailer to a packet (see ProtocolConstant).
+	 * The packet is copied if its buffer has no room for the trailer
+	 * 
+	 * @param clientInfo
+	 *            the recipient, whose lock is held by the caller, or null if
+	 *            it is not in the client table
+	 * @param packet
+	 *            the packet
+	 * @return the packet with the trailer, whose length the caller restores
+	 */
+	private DatagramPacket appendAck(ServerClientInfo clientInfo, DatagramPacket packet) {
+		int length = packet.getLength();
+		if (packet.getData().length < length + ReliabilityWindow.MAX_ACK_TRAILER_LENGTH) {
+			byte[] copy = Arrays.copyOf(packet.getData(), length + ReliabilityWindow.MAX_ACK_TRAILER_LENGTH);
+			packet = new DatagramPacket(copy, length, packet.getSocketAddress());
+		}
+
+		byte[] data = packet.getData();
+		if (clientInfo != null) {
+			length += clientInfo.getReliabilityWindow().writeAckTrailer(data, length);
+		} else {
+			length += ReliabilityWindow.writeEmptyAckTrailer(data, length);
+		}
+		packet.setLength(length);
+		return packet;
+	}
+
+	/**
+	 * Send a packet. A retransmitted packet ends with the acknowledgement of
+	 * the packets received from its recipient
 	 * 
 	 * @param packet
 	 *            the packet to be sent
@@ -1218,22 +1666,51 @@ public class ServerThread implements Runnable {
 	 *            client table
 	 * @throws IOException
 	 */
-	public synchronized void sendPacket(DatagramPacket packet, byte type, boolean tryRetransmit) throws IOException {
+	public void sendPacket(DatagramPacket packet, byte type, boolean tryRetransmit) throws IOException {
 		if (tryRetransmit) {
 			ServerClientInfo clientInfo = clientTable.get(packet.getSocketAddress());
 			if (clientInfo != null) {
-				short sequence = clientInfo.getNextPacketSequenceAndIncrement();
+				/*
+				 * the sequence numbers and the packet history of a client are
+				 * guarded by the client, so that sends to different clients do
+				 * not wait for each other
+				 */
+				synchronized (clientInfo) {
+					short sequence = clientInfo.getNextPacketSequenceAndIncrement();
+
+					// set the sequence number in the packet before sending
+					byte[] data = packet.getData();
+					data[0] = (byte) (type | ProtocolConstant.MSG_B_HASSEQUENCE);
+					data[1] = (byte) (sequence >> 8);
+					data[2] = (byte) sequence;
+
+					// the packet also acknowledges the packets received from
+					// the client, and so do its retransmissions
+					int length = packet.getLength();
+					DatagramPacket sent = appendAck(clientInfo, packet);
+
+					// the packet replaced in the window is no longer
+					// retransmitted
+					PacketHistoryEntry replaced = clientInfo.getReliabilityWindow().getPacketAt(sequence);
+					if (replaced != null && retransmitWheel.cancel(replaced) && !replaced.isAcked()) {
+						clientInfo.countLostPacket();
+					}
 
-				// set the sequence number in the packet before sending
-				ByteBuffer buffer = ByteBuffer.wrap(packet.getData());
-				buffer.put(0, (byte) (type | ProtocolConstant.MSG_B_HASSEQUENCE));
-				buffer.putShort(1, sequence);
+					// insert the packet to history
+					PacketHistoryEntry entry = clientInfo.insertPacket(sequence, sent);
+					entry.setDestination(packet.getSocketAddress());
 
-				// insert the packet to history
-				clientInfo.insertPacket(sequence, packet);
+					// retransmit the packet if it is not acknowledged in time
+					retransmitWheel.schedule(entry, entry.getCreationTimeStamp()
+							+ clientInfo.getRetransmitTimeout(config.getRetransmitInterval(), 0));
 
-				// send the packet
-				socket.send(packet);
+					// send the packet, and leave it as the caller built it
+					try {
+						transport.send(sent);
+					} finally {
+						packet.setLength(length);
+					}
+				}
 			} else {
 				// pServer("recipient does not exist in client table but
 				// tryRetransmit is set to true");
@@ -1244,12 +1721,108 @@ public class ServerThread implements Runnable {
 		}
 	}
 
+	/**
+	 * Get the scheduler running the ticks of the games
+	 * 
+	 * @return the tick scheduler
+	 */
+	public RoomTickScheduler getTickScheduler() {
+		return tickScheduler;
+	}
+
+	/**
+	 * Get the planner making the plans of the AIs of the games
+	 * 
+	 * @return the AI planner
+	 */
+	public AIPlanner getAIPlanner() {
+		return aiPlanner;
+	}
+
+	/**
+	 * Get the number of packets dropped by the server, because the send buffer
+	 * of the socket was full or every worker was busy
+	 * 
+	 * @return the number of dropped packets
+	 */
+	public long getDroppedPacketCount() {
+		return transport.getDroppedPacketCount() + droppedPackets.get();
+	}
+
 	/**
 	 * Terminate the server
 	 */
 	public void exit() {
 		pServer("Closing the socket");
-		socket.close();
+		transport.close();
+	}
+
+	/**
+	 * A received packet and a buffer wrapping its data
+	 */
+	private static class ReceivedPacket {
+		private final byte[] data;
+		private final ByteBuffer buffer;
+		private final DatagramPacket packet;
+
+		private ReceivedPacket(int length) {
+			this.data = new byte[length];
+			this.buffer = ByteBuffer.wrap(data);
+			this.packet = new DatagramPacket(data, length);
+		}
+	}
+
+	/**
+	 * Thread processing the packets of a share of the clients, with its own
+	 * sending buffer
+	 */
+	private class PacketWorker extends Thread {
+		private final BlockingQueue<ReceivedPacket> queue = new ArrayBlockingQueue<>(
+				config.getWorkerCount() * workerQueueLen);
+
+		private final byte[] sendBuffer = new byte[sendBufferLen];
+		private final ByteBuffer sendByteBuffer = ByteBuffer.wrap(sendBuffer);
+		// reused for every reply sent by this worker
+		private final DatagramPacket replyPacket = new DatagramPacket(sendBuffer, sendBufferLen);
+
+		private PacketWorker(int index) {
+			super("ServerThread worker " + index);
+		}
+
+		/**
+		 * Prepare the reply packet of this worker, which holds its send buffer
+		 * 
+		 * @param length
+		 *            the length of the reply
+		 * @param sockAddr
+		 *            the recipient of the reply
+		 * @return the reply packet
+		 */
+		private DatagramPacket reply(int length, SocketAddress sockAddr) {
+			replyPacket.setLength(length);
+			replyPacket.setSocketAddress(sockAddr);
+			return replyPacket;
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				ReceivedPacket received;
+				try {
+					received = queue.take();
+				} catch (InterruptedException e) {
+					break;
+				}
+
+				try {
+					processPacket(this, received);
+				} catch (IOException e) {
+					pServer(getName() + ": " + e);
+				} finally {
+					freePackets.add(received);
+				}
+			}
+		}
 	}
 
 }
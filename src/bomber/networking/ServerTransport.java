@@ -0,0 +1,48 @@
+package bomber.networking;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+
+/**
+ * The UDP transport used by the server to receive and send packets. Packets
+ * are received by a single thread, but they may be sent by any number of
+ * threads at the same time (the server thread, the keep alive and
+ * retransmission tasks and every game session)
+ */
+interface ServerTransport {
+
+	/**
+	 * Wait for a packet and copy it into a DatagramPacket, setting its length
+	 * and socket address
+	 * 
+	 * @param packet
+	 *            the packet to receive into
+	 * @throws IOException
+	 *             if the transport is closed or failed
+	 */
+	public void receive(DatagramPacket packet) throws IOException;
+
+	/**
+	 * Send a packet. This method is thread safe and the packet can be reused
+	 * as soon as it returns
+	 * 
+	 * @param packet
+	 *            the packet to be sent
+	 * @throws IOException
+	 */
+	public void send(DatagramPacket packet) throws IOException;
+
+	/**
+	 * Get the number of packets dropped because the send buffer of the socket
+	 * was full
+	 * 
+	 * @return the number of dropped packets
+	 */
+	public long getDroppedPacketCount();
+
+	/**
+	 * Close the transport, making a pending receive fail
+	 */
+	public void close();
+
+}
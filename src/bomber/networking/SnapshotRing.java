@@ -0,0 +1,123 @@
+package bomber.networking;
+
+/**
+ * Ring of the most recent encoded game state snapshots, identified by their
+ * snapshot ID. The server keeps one per game session to encode deltas against
+ * the snapshots acknowledged by the clients, and the client keeps one to
+ * rebuild the snapshots from those deltas. Buffers are allocated once and
+ * reused as the ring wraps around
+ */
+public class SnapshotRing {
+	// value of the ID of an empty slot, also used for "no snapshot"
+	public static final int NO_SNAPSHOT = -1;
+
+	private final int[] ids;
+	private final int[] lengths;
+	private final byte[][] bodies;
+	private int next = 0;
+
+	/**
+	 * Construct an empty ring
+	 * 
+	 * @param capacity
+	 *            the number of snapshots kept
+	 * @param maxLength
+	 *            the maximum length of a snapshot in bytes
+	 */
+	public SnapshotRing(int capacity, int maxLength) {
+		this.ids = new int[capacity];
+		this.lengths = new int[capacity];
+		this.bodies = new byte[capacity][maxLength];
+		clear();
+	}
+
+	/**
+	 * Remove every snapshot from the ring
+	 */
+	public void clear() {
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = NO_SNAPSHOT;
+			lengths[i] = 0;
+		}
+		next = 0;
+	}
+
+	/**
+	 * Copy a snapshot into the ring, replacing the oldest one
+	 * 
+	 * @param id
+	 *            the ID of the snapshot
+	 * @param src
+	 *            the array containing the snapshot
+	 * @param offset
+	 *            the offset of the snapshot in src
+	 * @param length
+	 *            the length of the snapshot
+	 */
+	public void put(int id, byte[] src, int offset, int length) {
+		if (length > bodies[next].length) {
+			bodies[next] = new byte[length];
+		}
+		System.arraycopy(src, offset, bodies[next], 0, length);
+		ids[next] = id;
+		lengths[next] = length;
+		next = (next + 1) % ids.length;
+	}
+
+	/**
+	 * Find the slot of a snapshot
+	 * 
+	 * @param id
+	 *            the ID of the snapshot
+	 * @return the slot, or -1 when the snapshot is not in the ring
+	 */
+	public int find(int id) {
+		if (id == NO_SNAPSHOT) {
+			return -1;
+		}
+		for (int i = 0; i < ids.length; i++) {
+			if (ids[i] == id) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Get the bytes of the snapshot in a slot. Only the first getLength(slot)
+	 * bytes are valid
+	 * 
+	 * @param slot
+	 *            the slot
+	 * @return the bytes of the snapshot
+	 */
+	public byte[] getBody(int slot) {
+		return bodies[slot];
+	}
+
+	/**
+	 * Get the length of the snapshot in a slot
+	 * 
+	 * @param slot
+	 *            the slot
+	 * @return the length of the snapshot
+	 */
+	public int getLength(int slot) {
+		return lengths[slot];
+	}
+
+	/**
+	 * Returns true if a snapshot ID is more recent than another one, taking
+	 * wrapping around into account
+	 * 
+	 * @param id
+	 *            the snapshot ID
+	 * @param other
+	 *            the other snapshot ID, or NO_SNAPSHOT
+	 * @return true if id is more recent than other
+	 */
+	public static boolean isNewer(int id, int other) {
+		return other == NO_SNAPSHOT || id - other > 0;
+	}
+
+}
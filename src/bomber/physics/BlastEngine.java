@@ -0,0 +1,231 @@
+package bomber.physics;
+
+import bomber.game.*;
+import bomber.game.Map;
+
+import java.awt.*;
+import java.util.*;
+import java.util.List;
+
+/**
+ * Detonates bombs and keeps track of the explosions on the map.
+ * Bombs caught in a blast detonate in the same update (chain reactions), using a work queue of bombs,
+ * the per-cell bomb index of the GameState and a per-cell index of explosions,
+ * so a cascade costs time linear in the number of blasted cells.
+ */
+class BlastEngine
+{
+
+    // The directions of the blast propagation: up, right, down, left
+    private static final int[] DIRECTION_XS = {0, 1, 0, -1};
+    private static final int[] DIRECTION_YS = {-1, 0, 1, 0};
+
+    private final GameState gameState;
+    private final Random generator;
+
+    // The explosion at each grid cell (x * height + y), or null
+    private BlastTimer[] blastCells;
+    private int width;
+    private int height;
+
+    // The bombs waiting to detonate
+    private Bomb[] detonationQueue;
+    private int queueHead;
+    private int queueTail;
+
+    /**
+     * Creates a blast engine for a GameState
+     *
+     * @param gameState The GameState object
+     * @param generator The random number generator used for the revealed power-ups
+     */
+    BlastEngine(GameState gameState, Random generator)
+    {
+        this.gameState = gameState;
+        this.generator = generator;
+        blastCells = new BlastTimer[0];
+        detonationQueue = new Bomb[0];
+    }
+
+    /**
+     * Detonates every bomb whose timer ran out, together with the bombs caught in their blasts,
+     * and removes all of them from the game
+     */
+    void detonateBombs()
+    {
+        List<Bomb> bombs = gameState.getBombs();
+        fitToMap();
+        if (detonationQueue.length < bombs.size())
+            detonationQueue = new Bomb[bombs.size() * 2];
+
+        // every bomb is queued at most once, when its timer goes down to 0
+        queueHead = 0;
+        queueTail = 0;
+        for (int i = 0; i < bombs.size(); i++)
+            if (bombs.get(i).getTime() <= 0)
+                detonationQueue[queueTail++] = bombs.get(i);
+
+        while (queueHead < queueTail)
+        {
+            Bomb bomb = detonationQueue[queueHead];
+            detonationQueue[queueHead++] = null;
+            explode(bomb);
+        }
+
+        // every detonated bomb has its timer at 0 or less
+        bombs.removeIf(bomb -> bomb.getTime() <= 0);
+    }
+
+    /**
+     * Updates the explosions, revealing the blocks under the ones that are done
+     *
+     * @param milliseconds The amount of time in milliseconds from the last update
+     */
+    void updateBlasts(int milliseconds)
+    {
+        List<BlastTimer> blastList = gameState.getBlastList();
+        if (blastList.isEmpty())
+            return;
+
+        fitToMap();
+        Map map = gameState.getMap();
+        int kept = 0;
+        for (int i = 0; i < blastList.size(); i++)
+        {
+            BlastTimer blastTimer = blastList.get(i);
+            blastTimer.decreaseTimer(milliseconds);
+            if (blastTimer.isDone())
+            {
+                Point location = blastTimer.getLocation();
+                map.setGridBlockAt(location.x, location.y, blastTimer.getReveal());
+                int cell = location.x * height + location.y;
+                if (blastCells[cell] == blastTimer)
+                    blastCells[cell] = null;
+            } else
+                blastList.set(kept++, blastTimer);
+        }
+        while (blastList.size() > kept)
+            blastList.remove(blastList.size() - 1);
+    }
+
+    /**
+     * Makes a bomb explode, spreading its blast in the four directions
+     *
+     * @param bomb The bomb that explodes
+     */
+    private void explode(Bomb bomb)
+    {
+        gameState.getAudioEvents().add(AudioEvent.EXPLOSION);
+        Point pos = bomb.getPos();
+        int x = pos.x / Constants.MAP_BLOCK_TO_GRID_MULTIPLIER;
+        int y = pos.y / Constants.MAP_BLOCK_TO_GRID_MULTIPLIER;
+        int radius = bomb.getRadius();
+
+        // the "power" of the blast is decreased by 1 for each block the explosion travels through
+        if (radius <= 0 || !blastCell(x, y))
+            return;
+        for (int direction = 0; direction < 4; direction++)
+            for (int step = 1; step < radius; step++)
+                if (!blastCell(x + DIRECTION_XS[direction] * step, y + DIRECTION_YS[direction] * step))
+                    break;
+    }
+
+    /**
+     * Puts a blast on a grid cell and detonates any bomb in it
+     *
+     * @param x The x coordinate of the cell
+     * @param y The y coordinate of the cell
+     * @return Whether the blast carries on past this cell
+     */
+    private boolean blastCell(int x, int y)
+    {
+        Map map = gameState.getMap();
+        if (!map.isInGridBounds(x, y))
+            return false;
+        Block block = map.getGridBlockAt(x, y);
+        if (block == Block.SOLID)
+            return false;
+
+        queueBombsAt(x, y);
+        map.setGridBlockAt(x, y, Block.BLAST);
+        if (block == Block.SOFT)
+        {
+            startBlast(x, y, new BlastTimer(new Point(x, y), generator));
+            return false;
+        }
+        // holes can't be destroyed but do not stop the blast
+        startBlast(x, y, block == Block.HOLE ? Block.HOLE : Block.BLANK);
+        return true;
+    }
+
+    /**
+     * Starts an explosion on a cell. If the cell is already exploding, its timer is restarted.
+     *
+     * @param x      The x coordinate of the cell
+     * @param y      The y coordinate of the cell
+     * @param reveal The block that will be revealed after the explosion
+     */
+    private void startBlast(int x, int y, Block reveal)
+    {
+        BlastTimer blastTimer = blastCells[x * height + y];
+        if (blastTimer != null)
+            blastTimer.setTimer(Constants.EXPLOSION_LENGTH);
+        else
+            startBlast(x, y, new BlastTimer(new Point(x, y), reveal));
+    }
+
+    /**
+     * Starts an explosion on a cell with a new timer, replacing any timer the cell had
+     *
+     * @param x          The x coordinate of the cell
+     * @param y          The y coordinate of the cell
+     * @param blastTimer The timer of the explosion
+     */
+    private void startBlast(int x, int y, BlastTimer blastTimer)
+    {
+        int cell = x * height + y;
+        if (blastCells[cell] != null)
+            gameState.getBlastList().remove(blastCells[cell]);
+        blastCells[cell] = blastTimer;
+        gameState.getBlastList().add(blastTimer);
+    }
+
+    /**
+     * Adds the bombs in a cell that have not detonated yet to the detonation queue
+     *
+     * @param x The x coordinate of the cell
+     * @param y The y coordinate of the cell
+     */
+    private void queueBombsAt(int x, int y)
+    {
+        for (int i = 0; i < gameState.getBombCountAt(x, y); i++)
+        {
+            Bomb bomb = gameState.getBombAt(x, y, i);
+            if (bomb.getTime() > 0)
+            {
+                bomb.setTime(0);
+                detonationQueue[queueTail++] = bomb;
+            }
+        }
+    }
+
+    /**
+     * Resizes the per-cell indices if the map changed size, re-indexing the current explosions
+     */
+    private void fitToMap()
+    {
+        Block[][] gridMap = gameState.getMap().getGridMap();
+        if (gridMap.length == width && gridMap[0].length == height)
+            return;
+
+        width = gridMap.length;
+        height = gridMap[0].length;
+        blastCells = new BlastTimer[width * height];
+        for (BlastTimer blastTimer : gameState.getBlastList())
+        {
+            Point location = blastTimer.getLocation();
+            if (gameState.getMap().isInGridBounds(location))
+                blastCells[location.x * height + location.y] = blastTimer;
+        }
+    }
+}
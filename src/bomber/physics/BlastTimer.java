@@ -21,12 +21,13 @@ public class BlastTimer
     /**
      * Constructs a timer for an explosion that will reveal a powerup
      *
-     * @param location The grid point of the explosion
+     * @param location  The grid point of the explosion
+     * @param generator The random number generator of the game
      */
-    BlastTimer(Point location)
+    BlastTimer(Point location, Random generator)
     {
         this.location = location;
-        this.reveal = getRandomBlock();
+        this.reveal = getRandomBlock(generator);
         timer = Constants.EXPLOSION_LENGTH;
     }
 
@@ -63,6 +64,16 @@ public class BlastTimer
         this.timer = timer;
     }
 
+    /**
+     * Gets the amount of time left until the explosion is cleared
+     *
+     * @return The amount of milliseconds left
+     */
+    int getTimer()
+    {
+        return timer;
+    }
+
     /**
      * Decreases the timer by an amount of milliseconds
      *
@@ -96,11 +107,11 @@ public class BlastTimer
     /**
      * Randomly generates a block type, according to the probabilities in Constants
      *
+     * @param generator The random number generator to use
      * @return A random Block object
      */
-    private Block getRandomBlock()
+    private Block getRandomBlock(Random generator)
     {
-        Random generator = new Random();
         boolean isPowerup = generator.nextInt(100) < Constants.POWERUP_PROBABILITY;
         if (!isPowerup)
             return Block.BLANK;
@@ -0,0 +1,252 @@
+package bomber.physics;
+
+import bomber.game.*;
+import bomber.game.Map;
+
+import java.awt.*;
+import java.util.*;
+import java.util.List;
+
+/**
+ * Keeps the grid cells where a hole can be put, so that a random one can be picked in O(1).
+ * The "aggressive" pool has every cell whose block allows a hole, the other one leaves out the cells under players.
+ * Cell changes arrive through the map listener, while player positions are synchronised before each pick.
+ */
+class HoleCandidates implements MapListener
+{
+
+    private final GameState gameState;
+    private Map map;
+    private int width;
+    private int height;
+
+    private final CellPool aggressivePool;
+    private final CellPool safePool;
+
+    // The number of players over each cell (x * height + y)
+    private int[] playerCounts;
+
+    // The cells covered by each player at the last synchronisation, as {minX, minY, maxX, maxY}
+    private int[] playerBoxes;
+    private int syncedPlayers;
+
+    /**
+     * Creates the candidate pools for a GameState
+     *
+     * @param gameState The GameState object
+     */
+    HoleCandidates(GameState gameState)
+    {
+        this.gameState = gameState;
+        aggressivePool = new CellPool();
+        safePool = new CellPool();
+        playerBoxes = new int[0];
+        fitToMap();
+    }
+
+    /**
+     * Picks a random cell where a hole can be put
+     *
+     * @param aggressive Whether the hole can be put on players or not
+     * @param generator  The random number generator of the game
+     * @return The cell (x * height + y), or -1 if there is none
+     */
+    int pick(boolean aggressive, Random generator)
+    {
+        fitToMap();
+        CellPool pool = aggressivePool;
+        if (!aggressive)
+        {
+            syncPlayers();
+            pool = safePool;
+        }
+        if (pool.size == 0)
+            return -1;
+        return pool.cells[generator.nextInt(pool.size)];
+    }
+
+    /**
+     * Gets the height of the map, to turn the cells returned by pick into coordinates
+     *
+     * @return The height of the map
+     */
+    int getHeight()
+    {
+        return height;
+    }
+
+    @Override
+    public void blockChanged(int x, int y, Block oldBlock, Block newBlock)
+    {
+        if (x >= width || y >= height)
+            return;
+        int cell = x * height + y;
+        boolean allowed = allowsHole(newBlock);
+        if (allowed == allowsHole(oldBlock))
+            return;
+        if (allowed)
+        {
+            aggressivePool.add(cell);
+            if (playerCounts[cell] == 0)
+                safePool.add(cell);
+        } else
+        {
+            aggressivePool.remove(cell);
+            safePool.remove(cell);
+        }
+    }
+
+    /**
+     * Checks if a block allows a hole to be put over it
+     *
+     * @param block The block
+     * @return Whether a hole can be put there
+     */
+    private static boolean allowsHole(Block block)
+    {
+        return block != Block.HOLE && block != Block.SOFT && block != Block.SOLID && block != Block.BLAST;
+    }
+
+    /**
+     * Moves the player counts from where the players were at the last synchronisation to where they are now
+     */
+    private void syncPlayers()
+    {
+        WorldStore world = gameState.getWorld();
+        int[] playerXs = world.getPlayerXs();
+        int[] playerYs = world.getPlayerYs();
+        int count = world.getPlayerCount();
+        if (playerBoxes.length < count * 4)
+            playerBoxes = Arrays.copyOf(playerBoxes, count * 8);
+
+        int mult = Constants.MAP_BLOCK_TO_GRID_MULTIPLIER;
+        for (int i = 0; i < Math.max(count, syncedPlayers); i++)
+        {
+            int box = i * 4;
+            if (i < count)
+            {
+                // the cells the player rectangle intersects
+                int minX = Math.floorDiv(playerXs[i], mult);
+                int minY = Math.floorDiv(playerYs[i], mult);
+                int maxX = Math.floorDiv(playerXs[i] + Constants.PLAYER_WIDTH - 1, mult);
+                int maxY = Math.floorDiv(playerYs[i] + Constants.PLAYER_HEIGHT - 1, mult);
+                if (i < syncedPlayers && playerBoxes[box] == minX && playerBoxes[box + 1] == minY
+                        && playerBoxes[box + 2] == maxX && playerBoxes[box + 3] == maxY)
+                    continue;
+                if (i < syncedPlayers)
+                    addPlayerBox(box, -1);
+                playerBoxes[box] = minX;
+                playerBoxes[box + 1] = minY;
+                playerBoxes[box + 2] = maxX;
+                playerBoxes[box + 3] = maxY;
+                addPlayerBox(box, 1);
+            } else
+                addPlayerBox(box, -1);
+        }
+        syncedPlayers = count;
+    }
+
+    /**
+     * Adds a player to (or removes one from) the counts of the cells in a box of playerBoxes
+     *
+     * @param box   The index of the box in playerBoxes
+     * @param delta 1 to add the player, -1 to remove it
+     */
+    private void addPlayerBox(int box, int delta)
+    {
+        int minX = Math.max(0, playerBoxes[box]);
+        int minY = Math.max(0, playerBoxes[box + 1]);
+        int maxX = Math.min(width - 1, playerBoxes[box + 2]);
+        int maxY = Math.min(height - 1, playerBoxes[box + 3]);
+        Block[][] gridMap = map.getGridMap();
+        for (int x = minX; x <= maxX; x++)
+            for (int y = minY; y <= maxY; y++)
+            {
+                int cell = x * height + y;
+                playerCounts[cell] += delta;
+                if (playerCounts[cell] == 0 && allowsHole(gridMap[x][y]))
+                    safePool.add(cell);
+                else if (playerCounts[cell] == delta && delta > 0)
+                    safePool.remove(cell);
+            }
+    }
+
+    /**
+     * Rebuilds the pools from scratch if the map of the game changed
+     */
+    private void fitToMap()
+    {
+        Map current = gameState.getMap();
+        Block[][] gridMap = current.getGridMap();
+        if (current == map && gridMap.length == width && gridMap[0].length == height)
+            return;
+
+        map = current;
+        map.setListener(this);
+        width = gridMap.length;
+        height = gridMap[0].length;
+        aggressivePool.reset(width * height);
+        safePool.reset(width * height);
+        playerCounts = new int[width * height];
+        syncedPlayers = 0;
+        for (int x = 0; x < width; x++)
+            for (int y = 0; y < height; y++)
+                if (allowsHole(gridMap[x][y]))
+                {
+                    aggressivePool.add(x * height + y);
+                    safePool.add(x * height + y);
+                }
+    }
+
+    /**
+     * A set of cells supporting O(1) add, remove and random access
+     */
+    private static class CellPool
+    {
+        private int[] cells = new int[0];
+        private int[] positions = new int[0]; // the index of each cell in cells, or -1
+        private int size;
+
+        /**
+         * Empties the pool and resizes it for a number of cells
+         *
+         * @param capacity The number of cells of the map
+         */
+        void reset(int capacity)
+        {
+            cells = new int[capacity];
+            positions = new int[capacity];
+            Arrays.fill(positions, -1);
+            size = 0;
+        }
+
+        /**
+         * Adds a cell to the pool, if it is not there already
+         *
+         * @param cell The cell
+         */
+        void add(int cell)
+        {
+            if (positions[cell] != -1)
+                return;
+            positions[cell] = size;
+            cells[size++] = cell;
+        }
+
+        /**
+         * Removes a cell from the pool, if it is there
+         *
+         * @param cell The cell
+         */
+        void remove(int cell)
+        {
+            int position = positions[cell];
+            if (position == -1)
+                return;
+            int last = cells[--size];
+            cells[position] = last;
+            positions[last] = position;
+            positions[cell] = -1;
+        }
+    }
+}
@@ -4,8 +4,8 @@ import bomber.game.*;
 import bomber.game.Map;
 
 import java.awt.*;
-import java.awt.geom.Rectangle2D;
 import java.util.*;
+import java.util.List;
 
 /**
  * Manages the physics of the game
@@ -15,20 +15,69 @@ import java.util.*;
 public class PhysicsEngine
 {
 
+    // Masks of the block types a player can touch, used with touchedBlocks()
+    private static final int BLAST_MASK = blockMask(Block.BLAST);
+    private static final int HOLE_MASK = blockMask(Block.HOLE);
+    private static final int POWERUP_MASK = blockMask(Block.MINUS_BOMB) | blockMask(Block.PLUS_BOMB) |
+            blockMask(Block.MINUS_RANGE) | blockMask(Block.PLUS_RANGE) |
+            blockMask(Block.MINUS_SPEED) | blockMask(Block.PLUS_SPEED);
+
+    // The order in which power-ups touched in the same update are applied
+    private static final Block[] POWERUP_ORDER = {Block.MINUS_BOMB, Block.PLUS_BOMB,
+            Block.MINUS_RANGE, Block.PLUS_RANGE, Block.MINUS_SPEED, Block.PLUS_SPEED};
+
+    // The constants of the 64-bit FNV-1a hash used by stateHash()
+    private static final long HASH_OFFSET = 0xcbf29ce484222325L;
+    private static final long HASH_PRIME = 0x100000001b3L;
+
     private final GameState gameState;
-    private final HashMap<String, Boolean> okToPlaceBomb;
+    private boolean[] bombKeyHeld; // indexed by player ID, a new bomb needs the key to be released first
+    private final Random generator;
+    private final BlastEngine blastEngine;
+    private final HoleCandidates holeCandidates;
+
+    // Scratch buffers reused by every update, so a steady-state tick does not allocate
+    private final int[] cornerXs;
+    private final int[] cornerYs;
+
+    private int tickAccumulator; // the time not yet simulated by advance()
 
     /**
-     * Creates an engine using a GameState
+     * Creates an engine using a GameState.
+     * All the randomness of the engine comes from the random number generator of the GameState,
+     * so engines on GameStates with the same seed give identical results for the same inputs and updates.
      *
      * @param gameState The GameState object
      */
     public PhysicsEngine(GameState gameState)
     {
         this.gameState = gameState;
-        okToPlaceBomb = new HashMap<>();
-        gameState.getPlayers().forEach(player ->
-                okToPlaceBomb.put(player.getName(), true));
+        bombKeyHeld = new boolean[0];
+        generator = gameState.getRandom();
+        blastEngine = new BlastEngine(gameState, generator);
+        holeCandidates = new HoleCandidates(gameState);
+        cornerXs = new int[4];
+        cornerYs = new int[4];
+    }
+
+    /**
+     * Advances the game world by an amount of time, in fixed ticks of Constants.SIMULATION_TICK_LENGTH.
+     * The time left over is carried to the next call, so the result only depends on the total time.
+     *
+     * @param milliseconds The time in milliseconds since the last call
+     * @return The number of ticks that were run
+     */
+    public synchronized int advance(int milliseconds)
+    {
+        tickAccumulator += milliseconds;
+        int ticks = 0;
+        while (tickAccumulator >= Constants.SIMULATION_TICK_LENGTH)
+        {
+            tickAccumulator -= Constants.SIMULATION_TICK_LENGTH;
+            update(Constants.SIMULATION_TICK_LENGTH);
+            ticks++;
+        }
+        return ticks;
     }
 
     /**
@@ -39,17 +88,28 @@ public class PhysicsEngine
     public synchronized void update(int milliseconds)
     {
         // update map after blast
-        updateMap(milliseconds);
-
-        // update bombs
-        ArrayList<Bomb> toBeDeleted = new ArrayList<>();
-        gameState.getBombs().forEach(b ->
-                updateBomb(b, toBeDeleted, milliseconds));
-        toBeDeleted.forEach(b -> gameState.getBombs().remove(b));
+        blastEngine.updateBlasts(milliseconds);
+
+        // update bombs, detonating them (and everything caught in their blasts) when their timers run out
+        WorldStore world = gameState.getWorld();
+        int[] bombTimes = world.getBombTimes();
+        int bombCount = world.getBombCount();
+        boolean detonation = false;
+        for (int i = 0; i < bombCount; i++)
+            if (world.hasBomb(i))
+            {
+                bombTimes[i] -= milliseconds;
+                detonation |= bombTimes[i] <= 0;
+            }
+        if (detonation)
+            blastEngine.detonateBombs();
 
-        // update players
-        gameState.getPlayers().forEach(p ->
-                updatePlayer(p, milliseconds));
+        // update players, the slots of the world being in the order of the players list
+        List<Player> players = gameState.getPlayers();
+        boolean[] alive = world.getAlive();
+        for (int i = 0; i < world.getPlayerCount(); i++)
+            if (alive[i])
+                updatePlayer(players.get(i), milliseconds);
 
         // update counter
         int gameCounter = gameState.getGameCounter() + milliseconds;
@@ -60,20 +120,7 @@ public class PhysicsEngine
             if (holeCounter >= Constants.HOLES_SECOND_PHASE_RANDOM_TIMER)
             {
                 holeCounter = 0;
-                Random generator = new Random();
-                Block[][] gridMap = gameState.getMap().getGridMap();
-                LinkedList<Point> possibleHoleLocations = new LinkedList<>();
-                for (int x = 0; x < gridMap.length; x++)
-                    for (int y = 0; y < gridMap[0].length; y++)
-                        if (okToPutHole(new Point(x, y), gridMap[x][y], true))
-                            possibleHoleLocations.add(new Point(x, y));
-                if (!possibleHoleLocations.isEmpty())
-                {
-                    int randomIndex = generator
-                            .nextInt(possibleHoleLocations.size());
-                    gameState.getMap().setGridBlockAt(
-                            possibleHoleLocations.get(randomIndex), Block.HOLE);
-                }
+                putRandomHole(true);
             }
             gameState.setHoleCounter(holeCounter);
         } else if (gameCounter >= Constants.HOLES_FIRST_PHASE_BEGINNING)
@@ -82,53 +129,47 @@ public class PhysicsEngine
             if (holeCounter >= Constants.HOLES_FIRST_PHASE_RANDOM_TIMER)
             {
                 holeCounter = 0;
-                Random generator = new Random();
-                Block[][] gridMap = gameState.getMap().getGridMap();
-                LinkedList<Point> possibleHoleLocations = new LinkedList<>();
-                for (int x = 0; x < gridMap.length; x++)
-                    for (int y = 0; y < gridMap[0].length; y++)
-                        if (okToPutHole(new Point(x, y), gridMap[x][y], false))
-                            possibleHoleLocations.add(new Point(x, y));
-                if (!possibleHoleLocations.isEmpty())
-                {
-                    int randomIndex = generator.nextInt(possibleHoleLocations.size());
-                    gameState.getMap().setGridBlockAt(
-                            possibleHoleLocations.get(randomIndex), Block.HOLE);
-                }
+                putRandomHole(false);
             }
             gameState.setHoleCounter(holeCounter);
         }
+
+        // let the readers (the AIs) see the end of the tick
+        gameState.publishSnapshot();
     }
 
     /**
-     * Checks if a hole can be put in a particular location
+     * Puts a hole in a random location where holes are allowed, if there is any
      *
-     * @param blockPosition The location to be checked
-     * @param block         The block that is in that location
-     * @param aggressive    Whether the hole can be put on players or not
-     * @return Whether the block can be considered for putting a hole there
+     * @param aggressive Whether the hole can be put on players or not
      */
-    private boolean okToPutHole(Point blockPosition, Block block, boolean aggressive)
+    private void putRandomHole(boolean aggressive)
     {
-        if (block == Block.HOLE || block == Block.SOFT
-                || block == Block.SOLID || block == Block.BLAST)
-            return false;
-        if (aggressive)
-            return true;
-        Rectangle2D blockRect = new Rectangle(
-                blockPosition.x * Constants.MAP_BLOCK_TO_GRID_MULTIPLIER,
-                blockPosition.y * Constants.MAP_BLOCK_TO_GRID_MULTIPLIER,
-                Constants.MAP_BLOCK_TO_GRID_MULTIPLIER,
-                Constants.MAP_BLOCK_TO_GRID_MULTIPLIER);
-        for (Player player : gameState.getPlayers())
+        int chosen = holeCandidates.pick(aggressive, generator);
+        if (chosen != -1)
         {
-            Rectangle2D playerRect = new Rectangle(
-                    player.getPos().x, player.getPos().y,
-                    Constants.PLAYER_WIDTH, Constants.PLAYER_HEIGHT);
-            if (playerRect.intersects(blockRect))
-                return false;
+            int height = holeCandidates.getHeight();
+            gameState.getMap().setGridBlockAt(chosen / height, chosen % height, Block.HOLE);
         }
-        return true;
+    }
+
+    /**
+     * Checks if two rectangles intersect, with the same semantics as java.awt.Rectangle.intersects
+     *
+     * @param ax      The x coordinate of the first rectangle
+     * @param ay      The y coordinate of the first rectangle
+     * @param aWidth  The width of the first rectangle
+     * @param aHeight The height of the first rectangle
+     * @param bx      The x coordinate of the second rectangle
+     * @param by      The y coordinate of the second rectangle
+     * @param bWidth  The width of the second rectangle
+     * @param bHeight The height of the second rectangle
+     * @return Whether the rectangles share any interior area
+     */
+    private static boolean intersects(int ax, int ay, int aWidth, int aHeight,
+                                      int bx, int by, int bWidth, int bHeight)
+    {
+        return ax < bx + bWidth && ay < by + bHeight && bx < ax + aWidth && by < ay + aHeight;
     }
 
     /**
@@ -140,6 +181,82 @@ public class PhysicsEngine
     }
 
 
+    /**
+     * Computes a hash of everything that determines how the game world evolves:
+     * the counters, the map, the players, the bombs and the explosions, in their list order.
+     * Two engines that are in sync have the same hash after every update.
+     *
+     * @return A 64-bit hash of the state of the game world
+     */
+    public synchronized long stateHash()
+    {
+        long hash = HASH_OFFSET;
+        hash = mix(hash, gameState.getGameCounter());
+        hash = mix(hash, gameState.getHoleCounter());
+        hash = mix(hash, tickAccumulator);
+
+        Block[][] gridMap = gameState.getMap().getGridMap();
+        for (int x = 0; x < gridMap.length; x++)
+            for (int y = 0; y < gridMap[x].length; y++)
+                hash = mix(hash, gridMap[x][y] == null ? -1 : gridMap[x][y].ordinal());
+
+        WorldStore world = gameState.getWorld();
+        for (int i = 0; i < world.getPlayerCount(); i++)
+        {
+            int playerID = world.getPlayerIDs()[i];
+            hash = mix(hash, playerID);
+            hash = mix(hash, world.getPlayerXs()[i]);
+            hash = mix(hash, world.getPlayerYs()[i]);
+            hash = mix(hash, world.getSubPixelXs()[i]);
+            hash = mix(hash, world.getSubPixelYs()[i]);
+            hash = mix(hash, world.getLives()[i]);
+            hash = mix(hash, world.getSpeeds()[i]);
+            hash = mix(hash, world.getBombRanges()[i]);
+            hash = mix(hash, world.getMaxNrOfBombs()[i]);
+            hash = mix(hash, world.getInvulnerabilities()[i]);
+            hash = mix(hash, world.getAlive()[i] ? 1 : 0);
+            hash = mix(hash, playerID >= 0 && playerID < bombKeyHeld.length && bombKeyHeld[playerID] ? 1 : 0);
+        }
+
+        for (int i = 0; i < world.getBombCount(); i++)
+        {
+            hash = mix(hash, world.getBombXs()[i]);
+            hash = mix(hash, world.getBombYs()[i]);
+            hash = mix(hash, world.getBombTimes()[i]);
+            hash = mix(hash, world.getBombRadii()[i]);
+            hash = mix(hash, world.getBombOwners()[i]);
+        }
+
+        List<BlastTimer> blastList = gameState.getBlastList();
+        for (int i = 0; i < blastList.size(); i++)
+        {
+            BlastTimer blastTimer = blastList.get(i);
+            hash = mix(hash, blastTimer.getLocation().x);
+            hash = mix(hash, blastTimer.getLocation().y);
+            hash = mix(hash, blastTimer.getTimer());
+            hash = mix(hash, blastTimer.getReveal().ordinal());
+        }
+        return hash;
+    }
+
+    /**
+     * Adds a value to a hash (64-bit FNV-1a over the bytes of the value)
+     *
+     * @param hash  The hash so far
+     * @param value The value to add
+     * @return The new hash
+     */
+    private static long mix(long hash, long value)
+    {
+        for (int i = 0; i < 8; i++)
+        {
+            hash ^= (value >>> (i * 8)) & 0xff;
+            hash *= HASH_PRIME;
+        }
+        return hash;
+    }
+
+
     // Player update related methods
 
     /**
@@ -154,146 +271,36 @@ public class PhysicsEngine
         // Only update if the player is alive
         if (!player.isAlive()) return;
 
-        // Initialise data
-        Point pos = player.getPos();
-
         // Update invulnerability period
         int invulnerability = player.getInvulnerability();
         if (invulnerability > 0)
             player.setInvulnerability(Math.max(0, invulnerability - milliseconds));
 
         // Movement
-        Movement movement = player.getKeyState().getMovement();
-        if (movement != Movement.NONE)
-        {
-
-            // Play sound effects
-            //gameState.getAudioEvents().add(AudioEvent.MOVEMENT);
-
-            // Initialise data
-            int speed = (int) (milliseconds * player.getSpeed() / 1000);
-            Rectangle initialPlayerRect = new Rectangle(pos.x, pos.y, Constants.PLAYER_WIDTH, Constants.PLAYER_HEIGHT);
-            Point fromDirection = null;
-            switch (movement)
-            {
-                case UP:
-                    pos.translate(0, -speed);
-                    fromDirection = new Point(0, 1);
-                    break;
-                case DOWN:
-                    pos.translate(0, speed);
-                    fromDirection = new Point(0, -1);
-                    break;
-                case LEFT:
-                    pos.translate(-speed, 0);
-                    fromDirection = new Point(1, 0);
-                    break;
-                case RIGHT:
-                    pos.translate(speed, 0);
-                    fromDirection = new Point(-1, 0);
-                    break;
-                default: break;
-            }
-
-            assert (fromDirection != null);
-
-
-
-            // Collision with solid/soft blocks
-            revertPosition(fromDirection, new Point(pos), pos); // check up-left corner
-
-            Point upRightCorner = new Point(pos.x + Constants.PLAYER_WIDTH, pos.y);
-            revertPosition(fromDirection, upRightCorner, pos);
-
-            Point downLeftCorner = new Point(pos.x, pos.y + Constants.PLAYER_HEIGHT);
-            revertPosition(fromDirection, downLeftCorner, pos);
-
-            Point downRightCorner = new Point(pos.x + Constants.PLAYER_WIDTH, pos.y + Constants.PLAYER_HEIGHT);
-            revertPosition(fromDirection, downRightCorner, pos);
-
-
-            // Corner helping
-            Point initialPosition = new Point(pos);
-
-            switch (movement)
-            {
-                case UP:
-                    if(neighboursAreClear(pos) && !neighboursAreClear(upRightCorner))
-                        pos.translate(-speed, 0);
-                    else if(!neighboursAreClear(pos) && neighboursAreClear(upRightCorner))
-                        pos.translate(speed, 0);
-                    break;
-                case DOWN:
-                    if(neighboursAreClear(downLeftCorner) && !neighboursAreClear(downRightCorner))
-                        pos.translate(-speed, 0);
-                    else if(!neighboursAreClear(downLeftCorner) && neighboursAreClear(downRightCorner))
-                        pos.translate(speed, 0);
-                    break;
-                case LEFT:
-                    if(neighboursAreClear(pos) && !neighboursAreClear(downLeftCorner))
-                        pos.translate(0, -speed);
-                    else if(!neighboursAreClear(pos) && neighboursAreClear(downLeftCorner))
-                        pos.translate(0, speed);
-                    break;
-                case RIGHT:
-                    if(neighboursAreClear(upRightCorner) && !neighboursAreClear(downRightCorner))
-                        pos.translate(0, -speed);
-                    else if(!neighboursAreClear(upRightCorner) && neighboursAreClear(downRightCorner))
-                        pos.translate(0, speed);
-                    break;
-                case NONE:
-                    break;
-            }
-
-            boolean cornerHelping = false;
-            if(!initialPosition.equals(pos))
-                cornerHelping = true;
-
-            // Collision with bombs
-            Rectangle translatedPlayerRect =
-                    new Rectangle(pos.x, pos.y, Constants.PLAYER_WIDTH, Constants.PLAYER_HEIGHT);
-            for (Bomb bomb : gameState.getBombs())
-            {
-                Rectangle bombRect =
-                        new Rectangle(bomb.getPos().x, bomb.getPos().y, Constants.BOMB_WIDTH, Constants.BOMB_HEIGHT);
-                if (!bombRect.intersects(initialPlayerRect))
-                {
-                    if (cornerHelping && bombRect.intersects(translatedPlayerRect))
-                    {
-                        pos.move(initialPosition.x, initialPosition.y);
-                        translatedPlayerRect =
-                                new Rectangle(pos.x, pos.y, Constants.PLAYER_WIDTH, Constants.PLAYER_HEIGHT);
-                    }
-
-                    while (bombRect.intersects(translatedPlayerRect))
-                    {
-                        translatedPlayerRect.translate(fromDirection.x, fromDirection.y);
-                        translatePoint(pos, fromDirection);
-                    }
-                }
-            }
-
-        }
+        movePlayer(player, player.getKeyState().getMovement(), milliseconds);
+        Point pos = player.getPos();
+        int x = pos.x;
+        int y = pos.y;
 
         // Planting bombs
-        if (player.getKeyState().isBomb() && okToPlaceBomb.get(player.getName()))
+        int playerID = player.getPlayerID();
+        if (playerID >= bombKeyHeld.length)
+            bombKeyHeld = Arrays.copyOf(bombKeyHeld, Math.max(playerID + 1, bombKeyHeld.length * 2));
+        if (player.getKeyState().isBomb() && !bombKeyHeld[playerID]
+                && gameState.getBombCount(playerID) < player.getMaxNrOfBombs())
         {
-            int bombCount = 0;
-            for (Bomb bomb : gameState.getBombs())
-                if (bomb.getPlayerName().equals(player.getName()))
-                    bombCount++;
-            if (bombCount < player.getMaxNrOfBombs())
-            {
-                plantBomb(player);
-                okToPlaceBomb.put(player.getName(), false);
-            }
+            plantBomb(player);
+            bombKeyHeld[playerID] = true;
         }
         if (!player.getKeyState().isBomb())
-            okToPlaceBomb.put(player.getName(), true);
+            bombKeyHeld[playerID] = false;
+
 
+        // Everything the player stands on, in a single query
+        int touched = touchedBlocks(x, y);
 
         // Damage
-        if (player.getInvulnerability() == 0 && playerTouchesBlock(pos, Block.BLAST) != null)
+        if (player.getInvulnerability() == 0 && (touched & BLAST_MASK) != 0)
         {
             player.setInvulnerability(Constants.INVULNERABILITY_LENGTH);
             player.setLives(player.getLives() - 1);
@@ -303,7 +310,7 @@ public class PhysicsEngine
         }
 
         // Collision with holes
-        if (player.getInvulnerability() == 0 && playerTouchesBlock(pos, Block.HOLE) != null)
+        if (player.getInvulnerability() == 0 && (touched & HOLE_MASK) != 0)
         {
             player.setLives(player.getLives() - 1);
             if (player.getLives() == 0)
@@ -313,85 +320,297 @@ public class PhysicsEngine
         }
 
         // Getting power-ups
-        Point powerup;
-        while ((powerup = playerTouchesBlock(pos, Block.MINUS_BOMB)) != null)
-        {
-            player.setMaxNrOfBombs(Math.max(1, player.getMaxNrOfBombs() - 1));
-            gameState.getAudioEvents().add(AudioEvent.POWERUP);
-            gameState.getMap().setGridBlockAt(powerup, Block.BLANK);
-        }
-        while ((powerup = playerTouchesBlock(pos, Block.PLUS_BOMB)) != null)
-        {
-            player.setMaxNrOfBombs(player.getMaxNrOfBombs() + 1);
-            gameState.getAudioEvents().add(AudioEvent.POWERUP);
-            gameState.getMap().setGridBlockAt(powerup, Block.BLANK);
-        }
-        while ((powerup = playerTouchesBlock(pos, Block.MINUS_RANGE)) != null)
-        {
-            player.setBombRange(Math.max(Constants.MINIMUM_BOMB_RANGE,
-                    player.getBombRange() - Constants.BOMB_RANGE_CHANGE));
-            gameState.getAudioEvents().add(AudioEvent.POWERUP);
-            gameState.getMap().setGridBlockAt(powerup, Block.BLANK);
-        }
-        while ((powerup = playerTouchesBlock(pos, Block.PLUS_RANGE)) != null)
+        if ((touched & POWERUP_MASK) != 0)
+            collectPowerups(player, touched);
+
+    }
+
+    /**
+     * Moves a player as update() would, without any of the other effects of the update, for a client predicting
+     * the movement of its own player before the server has confirmed it
+     *
+     * @param player       The Player to be moved
+     * @param movement     The movement of the player
+     * @param milliseconds The amount of time in milliseconds the player moves for
+     */
+    public synchronized void predictMovement(Player player, Movement movement, int milliseconds)
+    {
+        if (player.isAlive())
+            movePlayer(player, movement, milliseconds);
+    }
+
+    /**
+     * Moves a player, stopping at the blocks and bombs in the way
+     *
+     * @param player       The Player to be moved
+     * @param movement     The movement of the player
+     * @param milliseconds The amount of time in milliseconds from the last update
+     */
+    private void movePlayer(Player player, Movement movement, int milliseconds)
+    {
+        if (movement == Movement.NONE)
+            return;
+
+        Point pos = player.getPos();
+        int x = pos.x;
+        int y = pos.y;
+
+        // Play sound effects
+        //gameState.getAudioEvents().add(AudioEvent.MOVEMENT);
+
+        // Initialise data. The position is moved in sub-pixels and the remainder is carried between updates,
+        // so the distance travelled does not depend on the length of the updates.
+        long sub = Constants.SUB_PIXELS_PER_PIXEL;
+        long distance = Math.round(milliseconds * player.getSpeed() * sub / 1000);
+        long exactX = x * sub + player.getSubPixelX();
+        long exactY = y * sub + player.getSubPixelY();
+        int initialX = x;
+        int initialY = y;
+        int fromX = 0;
+        int fromY = 0;
+        switch (movement)
         {
-            player.setBombRange(Math.min(Constants.MAXIMUM_BOMB_RANGE,
-                    player.getBombRange() + Constants.BOMB_RANGE_CHANGE));
-            gameState.getAudioEvents().add(AudioEvent.POWERUP);
-            gameState.getMap().setGridBlockAt(powerup, Block.BLANK);
+            case UP:
+                exactY -= distance;
+                fromY = 1;
+                break;
+            case DOWN:
+                exactY += distance;
+                fromY = -1;
+                break;
+            case LEFT:
+                exactX -= distance;
+                fromX = 1;
+                break;
+            case RIGHT:
+                exactX += distance;
+                fromX = -1;
+                break;
+            default: break;
         }
-        while ((powerup = playerTouchesBlock(pos, Block.MINUS_SPEED)) != null)
+        x = (int) Math.floorDiv(exactX, sub);
+        y = (int) Math.floorDiv(exactY, sub);
+        int targetX = x;
+        int targetY = y;
+        int moved = Math.abs(x - initialX) + Math.abs(y - initialY);
+
+        // Collision with solid/soft blocks, one corner at a time, sweeping each corner along the movement.
+        // Each corner is reverted on its own and keeps its reverted position for the corner helping below.
+        int steps = revertSteps(fromX, fromY, x, y, moved); // check up-left corner
+        x += steps * fromX;
+        y += steps * fromY;
+        moved = Math.max(0, moved - steps);
+
+        steps = revertSteps(fromX, fromY, x + Constants.PLAYER_WIDTH, y, moved);
+        int upRightX = x + Constants.PLAYER_WIDTH + steps * fromX;
+        int upRightY = y + steps * fromY;
+        x += steps * fromX;
+        y += steps * fromY;
+        moved = Math.max(0, moved - steps);
+
+        steps = revertSteps(fromX, fromY, x, y + Constants.PLAYER_HEIGHT, moved);
+        int downLeftX = x + steps * fromX;
+        int downLeftY = y + Constants.PLAYER_HEIGHT + steps * fromY;
+        x += steps * fromX;
+        y += steps * fromY;
+        moved = Math.max(0, moved - steps);
+
+        steps = revertSteps(fromX, fromY, x + Constants.PLAYER_WIDTH, y + Constants.PLAYER_HEIGHT, moved);
+        int downRightX = x + Constants.PLAYER_WIDTH + steps * fromX;
+        int downRightY = y + Constants.PLAYER_HEIGHT + steps * fromY;
+        x += steps * fromX;
+        y += steps * fromY;
+
+
+        // Corner helping, moving along the other axis by the same distance
+        int revertedX = x;
+        int revertedY = y;
+        long helpedExactX = exactX;
+        long helpedExactY = exactY;
+
+        switch (movement)
         {
-            if (player.getSpeed() == Constants.HIGH_PLAYER_SPEED)
-                player.setSpeed(Constants.DEFAULT_PLAYER_SPEED);
-            else
-                player.setSpeed(Constants.LOW_PLAYER_SPEED);
-            gameState.getAudioEvents().add(AudioEvent.POWERUP);
-            gameState.getMap().setGridBlockAt(powerup, Block.BLANK);
+            case UP:
+                if(neighboursAreClear(x, y) && !neighboursAreClear(upRightX, upRightY))
+                    helpedExactX -= distance;
+                else if(!neighboursAreClear(x, y) && neighboursAreClear(upRightX, upRightY))
+                    helpedExactX += distance;
+                break;
+            case DOWN:
+                if(neighboursAreClear(downLeftX, downLeftY) && !neighboursAreClear(downRightX, downRightY))
+                    helpedExactX -= distance;
+                else if(!neighboursAreClear(downLeftX, downLeftY) && neighboursAreClear(downRightX, downRightY))
+                    helpedExactX += distance;
+                break;
+            case LEFT:
+                if(neighboursAreClear(x, y) && !neighboursAreClear(downLeftX, downLeftY))
+                    helpedExactY -= distance;
+                else if(!neighboursAreClear(x, y) && neighboursAreClear(downLeftX, downLeftY))
+                    helpedExactY += distance;
+                break;
+            case RIGHT:
+                if(neighboursAreClear(upRightX, upRightY) && !neighboursAreClear(downRightX, downRightY))
+                    helpedExactY -= distance;
+                else if(!neighboursAreClear(upRightX, upRightY) && neighboursAreClear(downRightX, downRightY))
+                    helpedExactY += distance;
+                break;
+            case NONE:
+                break;
         }
-        while ((powerup = playerTouchesBlock(pos, Block.PLUS_SPEED)) != null)
+
+        boolean cornerHelping = helpedExactX != exactX || helpedExactY != exactY;
+        if (fromY != 0)
+            x = (int) Math.floorDiv(helpedExactX, sub);
+        else
+            y = (int) Math.floorDiv(helpedExactY, sub);
+
+        // Collision with bombs, only looking at the cells the player moved through.
+        // A bomb is indexed by the cell of its corner, so it can also cover the next cell.
+        int mult = Constants.MAP_BLOCK_TO_GRID_MULTIPLIER;
+        int minCellX = Math.min(initialX, Math.min(x, revertedX)) / mult - 1;
+        int minCellY = Math.min(initialY, Math.min(y, revertedY)) / mult - 1;
+        int maxCellX = (Math.max(initialX, Math.max(x, revertedX)) + Constants.PLAYER_WIDTH) / mult;
+        int maxCellY = (Math.max(initialY, Math.max(y, revertedY)) + Constants.PLAYER_HEIGHT) / mult;
+        for (int cellX = minCellX; cellX <= maxCellX; cellX++)
+            for (int cellY = minCellY; cellY <= maxCellY; cellY++)
+                for (int i = 0; i < gameState.getBombCountAt(cellX, cellY); i++)
+                {
+                    Point bombPos = gameState.getBombAt(cellX, cellY, i).getPos();
+                    if (!intersects(bombPos.x, bombPos.y, Constants.BOMB_WIDTH, Constants.BOMB_HEIGHT,
+                            initialX, initialY, Constants.PLAYER_WIDTH, Constants.PLAYER_HEIGHT))
+                    {
+                        if (cornerHelping && intersects(bombPos.x, bombPos.y, Constants.BOMB_WIDTH,
+                                Constants.BOMB_HEIGHT, x, y, Constants.PLAYER_WIDTH, Constants.PLAYER_HEIGHT))
+                        {
+                            x = revertedX;
+                            y = revertedY;
+                            cornerHelping = false;
+                        }
+
+                        // the rectangle swept along the movement, stopped at the edge of the bomb
+                        if (intersects(bombPos.x, bombPos.y, Constants.BOMB_WIDTH, Constants.BOMB_HEIGHT,
+                                fromX == 0 ? x : Math.min(initialX, x), fromY == 0 ? y : Math.min(initialY, y),
+                                Constants.PLAYER_WIDTH + (fromX == 0 ? 0 : Math.abs(x - initialX)),
+                                Constants.PLAYER_HEIGHT + (fromY == 0 ? 0 : Math.abs(y - initialY))))
+                        {
+                            if (fromX < 0)
+                                x = Math.max(initialX, Math.min(x, bombPos.x - Constants.PLAYER_WIDTH));
+                            else if (fromX > 0)
+                                x = Math.min(initialX, Math.max(x, bombPos.x + Constants.BOMB_WIDTH));
+                            else if (fromY < 0)
+                                y = Math.max(initialY, Math.min(y, bombPos.y - Constants.PLAYER_HEIGHT));
+                            else
+                                y = Math.min(initialY, Math.max(y, bombPos.y + Constants.BOMB_HEIGHT));
+                        }
+                    }
+                }
+
+        // A blocked movement loses its remainder, and corner helping undone by a bomb does not move the player
+        int subPixelX = (int) Math.floorMod(cornerHelping ? helpedExactX : exactX, sub);
+        int subPixelY = (int) Math.floorMod(cornerHelping ? helpedExactY : exactY, sub);
+        if (fromX != 0 && x != targetX)
+            subPixelX = 0;
+        if (fromY != 0 && y != targetY)
+            subPixelY = 0;
+        if (fromY != 0 && !cornerHelping)
+            subPixelX = player.getSubPixelX();
+        if (fromX != 0 && !cornerHelping)
+            subPixelY = player.getSubPixelY();
+        player.setSubPixels(subPixelX, subPixelY);
+        player.setPosition(x, y);
+    }
+
+    /**
+     * Applies every power-up the player touches and clears them from the map.
+     * Each touched cell holding a power-up is collected once, in the order given by POWERUP_ORDER.
+     *
+     * @param player  The player collecting the power-ups
+     * @param touched The mask of the blocks the player touches, as returned by touchedBlocks
+     */
+    private void collectPowerups(Player player, int touched)
+    {
+        Map map = gameState.getMap();
+        for (Block powerup : POWERUP_ORDER)
         {
-            if (player.getSpeed() == Constants.LOW_PLAYER_SPEED)
-                player.setSpeed(Constants.DEFAULT_PLAYER_SPEED);
-            else
-                player.setSpeed(Constants.HIGH_PLAYER_SPEED);
-            gameState.getAudioEvents().add(AudioEvent.POWERUP);
-            gameState.getMap().setGridBlockAt(powerup, Block.BLANK);
+            if ((touched & blockMask(powerup)) == 0)
+                continue;
+            for (int corner = 0; corner < 4; corner++)
+            {
+                // the block is re-read, as a cell shared by two corners is cleared by the first one
+                if (map.getGridBlockAt(cornerXs[corner], cornerYs[corner]) != powerup)
+                    continue;
+                switch (powerup)
+                {
+                    case MINUS_BOMB:
+                        player.setMaxNrOfBombs(Math.max(1, player.getMaxNrOfBombs() - 1));
+                        break;
+                    case PLUS_BOMB:
+                        player.setMaxNrOfBombs(player.getMaxNrOfBombs() + 1);
+                        break;
+                    case MINUS_RANGE:
+                        player.setBombRange(Math.max(Constants.MINIMUM_BOMB_RANGE,
+                                player.getBombRange() - Constants.BOMB_RANGE_CHANGE));
+                        break;
+                    case PLUS_RANGE:
+                        player.setBombRange(Math.min(Constants.MAXIMUM_BOMB_RANGE,
+                                player.getBombRange() + Constants.BOMB_RANGE_CHANGE));
+                        break;
+                    case MINUS_SPEED:
+                        if (player.getSpeed() == Constants.HIGH_PLAYER_SPEED)
+                            player.setSpeed(Constants.DEFAULT_PLAYER_SPEED);
+                        else
+                            player.setSpeed(Constants.LOW_PLAYER_SPEED);
+                        break;
+                    case PLUS_SPEED:
+                        if (player.getSpeed() == Constants.LOW_PLAYER_SPEED)
+                            player.setSpeed(Constants.DEFAULT_PLAYER_SPEED);
+                        else
+                            player.setSpeed(Constants.HIGH_PLAYER_SPEED);
+                        break;
+                    default:
+                        break;
+                }
+                gameState.getAudioEvents().add(AudioEvent.POWERUP);
+                map.setGridBlockAt(cornerXs[corner], cornerYs[corner], Block.BLANK);
+            }
         }
-
     }
 
     /**
-     * Checks if a player touches (collides with) any block of a given type on the map.
-     * If so, it returns the position of one of them. Otherwise, it return null.
+     * Finds all the block types a player at a given position touches (collides with).
+     * The grid cells of the four corners are left in cornerXs and cornerYs.
      *
-     * @param pos   The position of the player
-     * @param block The type of block
-     * @return The position of the block or null
+     * @param x The x coordinate of the player
+     * @param y The y coordinate of the player
+     * @return A mask with the bit blockMask(block) set for every block type touched
      */
-    private Point playerTouchesBlock(Point pos, Block block)
+    private int touchedBlocks(int x, int y)
     {
         Map map = gameState.getMap();
-        if (map.getPixelBlockAt(pos.x, pos.y) == block)
-            return new Point(pos.x / 64, pos.y / 64);
-        if (map.getPixelBlockAt(pos.x + Constants.PLAYER_WIDTH, pos.y + Constants.PLAYER_HEIGHT) == block)
-            return new Point((pos.x + Constants.PLAYER_WIDTH) / 64, (pos.y + Constants.PLAYER_HEIGHT) / 64);
-        if (map.getPixelBlockAt(pos.x, pos.y + Constants.PLAYER_HEIGHT) == block)
-            return new Point(pos.x / 64, (pos.y + Constants.PLAYER_HEIGHT) / 64);
-        if (map.getPixelBlockAt(pos.x + Constants.PLAYER_WIDTH, pos.y) == block)
-            return new Point((pos.x + Constants.PLAYER_WIDTH) / 64, pos.y / 64);
-        return null;
+        int mult = Constants.MAP_BLOCK_TO_GRID_MULTIPLIER;
+        int right = x + Constants.PLAYER_WIDTH;
+        int down = y + Constants.PLAYER_HEIGHT;
+        cornerXs[0] = x / mult;
+        cornerYs[0] = y / mult;
+        cornerXs[1] = right / mult;
+        cornerYs[1] = down / mult;
+        cornerXs[2] = x / mult;
+        cornerYs[2] = down / mult;
+        cornerXs[3] = right / mult;
+        cornerYs[3] = y / mult;
+        return blockMask(map.getPixelBlockAt(x, y)) | blockMask(map.getPixelBlockAt(right, down)) |
+                blockMask(map.getPixelBlockAt(x, down)) | blockMask(map.getPixelBlockAt(right, y));
     }
 
     /**
-     * Translates a point by a vector (represented through a Point)
+     * Gets the bit corresponding to a block type in a block mask
      *
-     * @param point The point to be translated
-     * @param delta The movement vector
+     * @param block The type of block
+     * @return The bit of the block, or 0 for an empty (null) cell
      */
-    private void translatePoint(Point point, Point delta)
+    private static int blockMask(Block block)
     {
-        point.translate(delta.x, delta.y);
+        return block == null ? 0 : 1 << block.ordinal();
     }
 
     /**
@@ -423,171 +642,92 @@ public class PhysicsEngine
     }
 
     /**
-     * Resolves a possible collision between a player and a block corner
-     *
-     * @param fromDirection The opposite of the movement vector of the player
-     * @param corner        The position of the corner
-     * @param playerPos     The position of the player
-     */
-    private void revertPosition(Point fromDirection, Point corner, Point playerPos)
-    {
-        Map map = gameState.getMap();
-        while (map.getPixelBlockAt(corner.x, corner.y) == Block.SOLID ||
-                map.getPixelBlockAt(corner.x, corner.y) == Block.SOFT)
-        {
-            translatePoint(corner, fromDirection);
-            translatePoint(playerPos, fromDirection);
-        }
-    }
-
-    /**
-     * Checks if a location has only clear neighbours
+     * Resolves a possible collision between a player and a block corner, sweeping the corner along its movement
+     * one grid cell at a time, so that a fast movement cannot go through a block
      *
-     * @param location The location
-     * @return Whether the neighbours are clear
+     * @param fromX   The x component of the opposite of the movement vector of the player
+     * @param fromY   The y component of the opposite of the movement vector of the player
+     * @param cornerX The x coordinate of the corner after the movement
+     * @param cornerY The y coordinate of the corner after the movement
+     * @param moved   The number of pixels the corner moved
+     * @return The number of steps the corner (and the player) must be moved back along (fromX, fromY)
      */
-    private boolean neighboursAreClear(Point location)
+    private int revertSteps(int fromX, int fromY, int cornerX, int cornerY, int moved)
     {
-        return pointIsClear(location.x, location.y) && pointIsClear(location.x + 1, location.y) &&
-                pointIsClear(location.x - 1, location.y) && pointIsClear(location.x, location.y + 1) &&
-                pointIsClear(location.x, location.y - 1);
-    }
+        int x = cornerX + moved * fromX;
+        int y = cornerY + moved * fromY;
 
-    /**
-     * Checks if a location is clear (is not solid or soft)
-     *
-     * @param x The x coordinate of the location
-     * @param y The y coordinate of the location
-     * @return Whether the location is clear
-     */
-    private boolean pointIsClear(int x, int y)
-    {
-        return gameState.getMap().getPixelBlockAt(x, y) != Block.SOLID &&
-                gameState.getMap().getPixelBlockAt(x, y) != Block.SOFT;
-    }
-
-
-    // Bomb update related methods
-
-    /**
-     * Updates a bomb
-     *
-     * @param bomb         The Bomb to be updated
-     * @param toBeDeleted  A list where the bomb will be put if it needs to be deleted (it explodes)
-     * @param milliseconds The amount of time in milliseconds from the last update
-     */
-    private void updateBomb(Bomb bomb, ArrayList<Bomb> toBeDeleted, int milliseconds)
-    {
-        decreaseBombTimer(bomb, milliseconds);
-        if (bomb.getTime() <= 0)
+        // a corner that starts inside a block is moved back until it is clear
+        if (!pointIsClear(x, y))
         {
-            toBeDeleted.add(bomb);
-            Point pos = bomb.getPos();
-            int radius = bomb.getRadius();
-            addBlast(pos.x / 64, pos.y / 64, radius, 0);
-            gameState.getAudioEvents().add(AudioEvent.EXPLOSION);
-        }
-    }
-
-    /**
-     * Simulates the propagation of an explosion, adding Blast blocks to the map
-     *
-     * @param x         The x coordinate of the blast
-     * @param y         The y coordinate of the blast
-     * @param radius    The "power" of the blast (it is decreased by 1 for each block the explosion travels through)
-     * @param direction The direction of the blast propagation (0 all, 1 up, 2 right, 3 down, 4 left)
-     */
-    private void addBlast(int x, int y, int radius, int direction)
-    {
-        Point pos = new Point(x, y);
-        if (!gameState.getMap().isInGridBounds(pos))
-            return;
-        if (radius == 0 || gameState.getMap().getGridBlockAt(x, y) == Block.SOLID)
-            return;
-        if (gameState.getMap().getGridBlockAt(x, y) == Block.SOFT)
-            gameState.getBlastList().add(new BlastTimer(pos));
-        else
-        {
-            if (gameState.getMap().getGridBlockAt(x, y) == Block.HOLE)
-                // this can't be destroyed but does not stop the blast
-                gameState.getBlastList().add(new BlastTimer(pos, Block.HOLE));
-            else
-                updateBlastList(pos, Block.BLANK);
-            switch (direction)
+            int steps = 0;
+            while (!pointIsClear(cornerX, cornerY))
             {
-                case 0:
-                    addBlast(x, y - 1, radius - 1, 1);
-                    addBlast(x + 1, y, radius - 1, 2);
-                    addBlast(x, y + 1, radius - 1, 3);
-                    addBlast(x - 1, y, radius - 1, 4);
-                    break;
-                case 1:
-                    addBlast(x, y - 1, radius - 1, 1);
-                    break;
-                case 2:
-                    addBlast(x + 1, y, radius - 1, 2);
-                    break;
-                case 3:
-                    addBlast(x, y + 1, radius - 1, 3);
-                    break;
-                case 4:
-                    addBlast(x - 1, y, radius - 1, 4);
-                    break;
+                int toNextCell = pixelsToNextCell(fromX, fromY, cornerX, cornerY);
+                cornerX += toNextCell * fromX;
+                cornerY += toNextCell * fromY;
+                steps += toNextCell;
             }
+            return steps;
         }
 
-        gameState.getMap().setGridBlockAt(pos, Block.BLAST);
-
+        // otherwise it stops before the first cell on its way that is not clear
+        int left = moved;
+        while (left > 0)
+        {
+            int toNextCell = pixelsToNextCell(-fromX, -fromY, x, y);
+            if (toNextCell > left)
+                return 0;
+            x -= toNextCell * fromX;
+            y -= toNextCell * fromY;
+            left -= toNextCell;
+            if (!pointIsClear(x, y))
+                return left + 1;
+        }
+        return 0;
     }
 
     /**
-     * Updates the blast list entry corresponding to a position.
-     * If an entry is already there, it updates the timer. If not, it adds a new entry.
+     * Gets the distance from a point to the first pixel of the next grid cell in a direction
      *
-     * @param position The position of the block
-     * @param reveal   The block that will be revealed
+     * @param directionX The x component of the direction
+     * @param directionY The y component of the direction
+     * @param x          The x coordinate of the point
+     * @param y          The y coordinate of the point
+     * @return The number of pixels to the next cell
      */
-    private void updateBlastList(Point position, Block reveal)
+    private static int pixelsToNextCell(int directionX, int directionY, int x, int y)
     {
-        Optional<BlastTimer> blastTimer = gameState.getBlastList().stream()
-                .filter(timer -> timer.getLocation().equals(position)).findAny();
-        if (blastTimer.isPresent())
-            blastTimer.get().setTimer(Constants.EXPLOSION_LENGTH);
-        else
-            gameState.getBlastList().add(new BlastTimer(position, reveal));
+        int mult = Constants.MAP_BLOCK_TO_GRID_MULTIPLIER;
+        int inCell = Math.floorMod(directionX != 0 ? x : y, mult);
+        return directionX + directionY > 0 ? mult - inCell : inCell + 1;
     }
 
     /**
-     * Updates the timer of a bomb
+     * Checks if a location has only clear neighbours
      *
-     * @param bomb         The bomb to be updated
-     * @param milliseconds The amount of time in milliseconds from the last update
+     * @param x The x coordinate of the location
+     * @param y The y coordinate of the location
+     * @return Whether the neighbours are clear
      */
-    private void decreaseBombTimer(Bomb bomb, int milliseconds)
+    private boolean neighboursAreClear(int x, int y)
     {
-        bomb.setTime(bomb.getTime() - milliseconds);
+        return pointIsClear(x, y) && pointIsClear(x + 1, y) &&
+                pointIsClear(x - 1, y) && pointIsClear(x, y + 1) &&
+                pointIsClear(x, y - 1);
     }
 
-
-    // Map update related methods
-
     /**
-     * Updates the map
+     * Checks if a location is clear (is not solid or soft)
      *
-     * @param milliseconds The amount of time in milliseconds from the last update
+     * @param x The x coordinate of the location
+     * @param y The y coordinate of the location
+     * @return Whether the location is clear
      */
-    private void updateMap(int milliseconds)
+    private boolean pointIsClear(int x, int y)
     {
-        Map map = gameState.getMap();
-
-        // clear the blast
-        gameState.getBlastList().forEach(blastTimer ->
-        {
-            blastTimer.decreaseTimer(milliseconds);
-            if (blastTimer.isDone())
-                map.setGridBlockAt(blastTimer.getLocation(), blastTimer.getReveal());
-        });
-        gameState.getBlastList().removeIf(BlastTimer::isDone);
+        Block block = gameState.getMap().getPixelBlockAt(x, y);
+        return block != Block.SOLID && block != Block.SOFT;
     }
 
-}
\ No newline at end of file
+}
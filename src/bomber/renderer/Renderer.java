@@ -857,7 +857,7 @@ public class Renderer {
 			float y = Constants.FANCY_BOX1_Y + (Constants.FANCY_BOX_HEIGHT / 2 - Constants.PLAYER_HEIGHT / 2);
 			modelMatrix = transformation.getModelMatrix(Constants.FANCY_BOX1_X + 15, y, 0f, 1f);
 			textureShader.setUniform("model", modelMatrix);
-			if (state.getPlayers().get(0).getPlayerID() > 31) {
+			if (state.getPlayers().get(0).isAI()) {
 
 				if (playerAnimationCounter < 5) {
 					textureMeshes.get("ingameAiMesh1").render();
@@ -913,7 +913,7 @@ public class Renderer {
 			float y = Constants.FANCY_BOX2_Y + (Constants.FANCY_BOX_HEIGHT / 2 - Constants.PLAYER_HEIGHT / 2);
 			modelMatrix = transformation.getModelMatrix(Constants.FANCY_BOX2_X + 15, y, 0f, 1f);
 			textureShader.setUniform("model", modelMatrix);
-			if (state.getPlayers().get(1).getPlayerID() > 31) {
+			if (state.getPlayers().get(1).isAI()) {
 
 				if (playerAnimationCounter < 5) {
 
@@ -969,7 +969,7 @@ public class Renderer {
 			float y = Constants.FANCY_BOX3_Y + (Constants.FANCY_BOX_HEIGHT / 2 - Constants.PLAYER_HEIGHT / 2);
 			modelMatrix = transformation.getModelMatrix(Constants.FANCY_BOX3_X + 15, y, 0f, 1f);
 			textureShader.setUniform("model", modelMatrix);
-			if (state.getPlayers().get(2).getPlayerID() > 31) {
+			if (state.getPlayers().get(2).isAI()) {
 
 				if (playerAnimationCounter < 5) {
 
@@ -1026,7 +1026,7 @@ public class Renderer {
 			float y = Constants.FANCY_BOX4_Y + (Constants.FANCY_BOX_HEIGHT / 2 - Constants.PLAYER_HEIGHT / 2);
 			modelMatrix = transformation.getModelMatrix(Constants.FANCY_BOX4_X + 15, y, 0f, 1f);
 			textureShader.setUniform("model", modelMatrix);
-			if (state.getPlayers().get(3).getPlayerID() > 31) {
+			if (state.getPlayers().get(3).isAI()) {
 
 				if (playerAnimationCounter < 5) {
 
@@ -1474,7 +1474,7 @@ public class Renderer {
 				modelMatrix = transformation.getModelMatrix((float) player.getPos().x + 15,
 						(float) player.getPos().y + 15, 0f, 1f);
 				textureShader.setUniform("model", modelMatrix);
-				if (player.getPlayerID() > 31) {
+				if (player.isAI()) {
 					if (player.isAlive()) {
 
 						if (playerAnimationCounter < 5) {
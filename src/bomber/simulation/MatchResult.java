@@ -0,0 +1,94 @@
+package bomber.simulation;
+
+import bomber.AI.AIDifficulty;
+
+/**
+ * The outcome of a simulated match
+ */
+public class MatchResult
+{
+
+    private final long seed;
+    private final int winner;
+    private final AIDifficulty[] lineUp;
+    private final int duration;
+    private final int ticks;
+
+    /**
+     * Creates the result of a match
+     *
+     * @param seed     The seed of the match
+     * @param winner   The index of the winner in the line-up, or -1 for a draw
+     * @param lineUp   The difficulties of the players
+     * @param duration The game time the match lasted, in milliseconds
+     * @param ticks    The number of physics ticks simulated
+     */
+    MatchResult(long seed, int winner, AIDifficulty[] lineUp, int duration, int ticks)
+    {
+        this.seed = seed;
+        this.winner = winner;
+        this.lineUp = lineUp;
+        this.duration = duration;
+        this.ticks = ticks;
+    }
+
+    /**
+     * Gets the seed of the match
+     *
+     * @return The seed
+     */
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    /**
+     * Gets the index of the winner in the line-up
+     *
+     * @return The index, or -1 if nobody won
+     */
+    public int getWinner()
+    {
+        return winner;
+    }
+
+    /**
+     * Gets the difficulty of the winner
+     *
+     * @return The difficulty, or null if nobody won
+     */
+    public AIDifficulty getWinnerDifficulty()
+    {
+        return winner == -1 ? null : lineUp[winner];
+    }
+
+    /**
+     * Gets the difficulties of the players, in line-up order
+     *
+     * @return The difficulties
+     */
+    public AIDifficulty[] getLineUp()
+    {
+        return lineUp.clone();
+    }
+
+    /**
+     * Gets the game time the match lasted
+     *
+     * @return The duration in milliseconds
+     */
+    public int getDuration()
+    {
+        return duration;
+    }
+
+    /**
+     * Gets the number of physics ticks simulated
+     *
+     * @return The number of ticks
+     */
+    public int getTicks()
+    {
+        return ticks;
+    }
+}
@@ -0,0 +1,213 @@
+package bomber.simulation;
+
+import bomber.AI.AIDifficulty;
+import bomber.AI.GameAI;
+import bomber.game.*;
+import bomber.game.Map;
+import bomber.physics.PhysicsEngine;
+
+import java.awt.*;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs complete AI matches as fast as possible: no rendering, no networking and no sleeping.
+ * The AIs run in lockstep with the physics engine, a tick at a time, and every match is reproducible from its seed.
+ * Batches of matches run in parallel on a fork-join pool.
+ */
+public class MatchSimulator
+{
+
+    // The same values as the players of a real game
+    private static final int LIVES = 5;
+    private static final int SPEED = Constants.DEFAULT_PLAYER_SPEED;
+
+    private final Map map;
+    private final AIDifficulty[] lineUp;
+    private final int maxMatchLength;
+
+    /**
+     * Creates a simulator for matches between AIs
+     *
+     * @param map            The map to play on, which is copied for each match
+     * @param lineUp         The difficulty of each AI, one per spawn point at most
+     * @param maxMatchLength The game time in milliseconds after which a match is a draw
+     */
+    public MatchSimulator(Map map, AIDifficulty[] lineUp, int maxMatchLength)
+    {
+        if (lineUp.length < 2 || lineUp.length > map.getSpawnPoints().size())
+            throw new IllegalArgumentException("A match needs between 2 and "
+                    + map.getSpawnPoints().size() + " players on this map");
+        this.map = map;
+        this.lineUp = lineUp.clone();
+        this.maxMatchLength = maxMatchLength;
+    }
+
+    /**
+     * Runs a single match until at most one AI is alive or the time runs out
+     *
+     * @param seed The seed of the match
+     * @return The result of the match
+     * @throws InterruptedException If the thread is interrupted during the match
+     */
+    public MatchResult runMatch(long seed) throws InterruptedException
+    {
+        List<Player> players = new ArrayList<>();
+        GameState gameState = new GameState(copyMap(map), players, seed);
+        PhysicsEngine physics = new PhysicsEngine(gameState);
+
+        List<GameAI> ais = new ArrayList<>();
+        for (int i = 0; i < lineUp.length; i++)
+        {
+            Point spawn = map.getSpawnPoints().get(i);
+            GameAI ai = new GameAI("AI " + (i + 1), new Point(spawn), LIVES, SPEED, gameState, lineUp[i]);
+            ai.setPlayerID(32 + i);
+            players.add(ai);
+            ais.add(ai);
+        }
+
+        int ticks = 0;
+        int winner = -1;
+        for (GameAI ai : ais)
+            ai.begin();
+        while (livingPlayers(players) > 1 && gameState.getGameCounter() < maxMatchLength)
+        {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            for (int i = 0; i < ais.size(); i++)
+                ais.get(i).tick(Constants.SIMULATION_TICK_LENGTH);
+            gameState.getAudioEvents().clear();
+            physics.update(Constants.SIMULATION_TICK_LENGTH);
+            ticks++;
+        }
+
+        // the match is won by the last player alive
+        if (livingPlayers(players) == 1)
+            for (int i = 0; i < players.size(); i++)
+                if (players.get(i).isAlive())
+                    winner = i;
+        return new MatchResult(seed, winner, lineUp.clone(), gameState.getGameCounter(), ticks);
+    }
+
+    /**
+     * Runs a batch of matches in parallel, with the seeds firstSeed, firstSeed + 1, ...
+     *
+     * @param firstSeed The seed of the first match
+     * @param matches   The number of matches
+     * @param pool      The pool running the matches
+     * @return The statistics of the matches
+     */
+    public SimulationReport simulate(long firstSeed, int matches, ForkJoinPool pool)
+    {
+        long start = System.currentTimeMillis();
+        SimulationReport report = pool.invoke(new MatchTask(firstSeed, matches));
+        report.setWallTime(System.currentTimeMillis() - start);
+        return report;
+    }
+
+    /**
+     * Counts the players that are alive
+     *
+     * @param players The players
+     * @return The number of living players
+     */
+    private static int livingPlayers(List<Player> players)
+    {
+        int living = 0;
+        for (int i = 0; i < players.size(); i++)
+            if (players.get(i).isAlive())
+                living++;
+        return living;
+    }
+
+    /**
+     * Copies a map, so that a match does not change the original
+     *
+     * @param map The map
+     * @return The copy
+     */
+    private static Map copyMap(Map map)
+    {
+        Block[][] gridMap = map.getGridMap();
+        Block[][] copy = new Block[gridMap.length][];
+        for (int x = 0; x < gridMap.length; x++)
+            copy[x] = gridMap[x].clone();
+        List<Point> spawnPoints = new ArrayList<>();
+        for (Point spawn : map.getSpawnPoints())
+            spawnPoints.add(new Point(spawn));
+        return new Map(map.getName(), copy, spawnPoints);
+    }
+
+    /**
+     * Runs a range of matches, splitting it in halves until a single match is left
+     */
+    private class MatchTask extends RecursiveTask<SimulationReport>
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long firstSeed;
+        private final int matches;
+
+        /**
+         * Creates a task for a range of matches
+         *
+         * @param firstSeed The seed of the first match
+         * @param matches   The number of matches
+         */
+        MatchTask(long firstSeed, int matches)
+        {
+            this.firstSeed = firstSeed;
+            this.matches = matches;
+        }
+
+        @Override
+        protected SimulationReport compute()
+        {
+            SimulationReport report = new SimulationReport();
+            if (matches == 1)
+            {
+                try
+                {
+                    report.add(runMatch(firstSeed));
+                } catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("The simulation was interrupted", e);
+                }
+            } else if (matches > 1)
+            {
+                MatchTask first = new MatchTask(firstSeed, matches / 2);
+                MatchTask second = new MatchTask(firstSeed + matches / 2, matches - matches / 2);
+                first.fork();
+                report.add(second.compute());
+                report.add(first.join());
+            }
+            return report;
+        }
+    }
+
+    /**
+     * Runs a batch of matches on the first map on all the cores and prints the statistics
+     *
+     * @param args The number of matches, the first seed and the difficulties of the players (all optional)
+     */
+    public static void main(String[] args)
+    {
+        int matches = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        AIDifficulty[] lineUp = AIDifficulty.values();
+        if (args.length > 2)
+        {
+            lineUp = new AIDifficulty[args.length - 2];
+            for (int i = 2; i < args.length; i++)
+                lineUp[i - 2] = AIDifficulty.valueOf(args[i].toUpperCase());
+        }
+
+        Map map = new Maps().getMaps().get(0);
+        MatchSimulator simulator = new MatchSimulator(map, lineUp, Constants.HOLES_SECOND_PHASE_BEGINNING * 2);
+        System.out.print(simulator.simulate(seed, matches, ForkJoinPool.commonPool()));
+    }
+}
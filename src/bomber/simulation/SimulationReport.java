@@ -0,0 +1,163 @@
+package bomber.simulation;
+
+import bomber.AI.AIDifficulty;
+
+/**
+ * Aggregate statistics of a batch of simulated matches
+ */
+public class SimulationReport
+{
+
+    private int matches;
+    private int draws;
+    private long ticks;
+    private long gameTime;
+    private long wallTime;
+
+    // Indexed by AIDifficulty ordinal
+    private final int[] appearances;
+    private final int[] wins;
+
+    /**
+     * Creates an empty report
+     */
+    SimulationReport()
+    {
+        appearances = new int[AIDifficulty.values().length];
+        wins = new int[AIDifficulty.values().length];
+    }
+
+    /**
+     * Adds the result of a match to the report
+     *
+     * @param result The result of the match
+     */
+    void add(MatchResult result)
+    {
+        matches++;
+        ticks += result.getTicks();
+        gameTime += result.getDuration();
+        for (AIDifficulty difficulty : result.getLineUp())
+            appearances[difficulty.ordinal()]++;
+        if (result.getWinner() == -1)
+            draws++;
+        else
+            wins[result.getWinnerDifficulty().ordinal()]++;
+    }
+
+    /**
+     * Adds all the matches of another report to this one
+     *
+     * @param other The other report
+     */
+    void add(SimulationReport other)
+    {
+        matches += other.matches;
+        draws += other.draws;
+        ticks += other.ticks;
+        gameTime += other.gameTime;
+        for (int i = 0; i < appearances.length; i++)
+        {
+            appearances[i] += other.appearances[i];
+            wins[i] += other.wins[i];
+        }
+    }
+
+    /**
+     * Sets the real time the simulation took
+     *
+     * @param wallTime The time in milliseconds
+     */
+    void setWallTime(long wallTime)
+    {
+        this.wallTime = wallTime;
+    }
+
+    /**
+     * Gets the number of matches simulated
+     *
+     * @return The number of matches
+     */
+    public int getMatches()
+    {
+        return matches;
+    }
+
+    /**
+     * Gets the number of matches nobody won
+     *
+     * @return The number of draws
+     */
+    public int getDraws()
+    {
+        return draws;
+    }
+
+    /**
+     * Gets the total number of physics ticks simulated
+     *
+     * @return The number of ticks
+     */
+    public long getTicks()
+    {
+        return ticks;
+    }
+
+    /**
+     * Gets the number of physics ticks simulated per second of real time, over all the threads
+     *
+     * @return The ticks per second
+     */
+    public double getTicksPerSecond()
+    {
+        return wallTime == 0 ? 0 : ticks * 1000.0 / wallTime;
+    }
+
+    /**
+     * Gets the average game time a match lasted
+     *
+     * @return The average duration in milliseconds
+     */
+    public double getAverageMatchDuration()
+    {
+        return matches == 0 ? 0 : (double) gameTime / matches;
+    }
+
+    /**
+     * Gets the number of wins of the players of a difficulty
+     *
+     * @param difficulty The difficulty
+     * @return The number of wins
+     */
+    public int getWins(AIDifficulty difficulty)
+    {
+        return wins[difficulty.ordinal()];
+    }
+
+    /**
+     * Gets the win rate of the players of a difficulty, as the fraction of their appearances that they won
+     *
+     * @param difficulty The difficulty
+     * @return The win rate, between 0 and 1
+     */
+    public double getWinRate(AIDifficulty difficulty)
+    {
+        int played = appearances[difficulty.ordinal()];
+        return played == 0 ? 0 : (double) wins[difficulty.ordinal()] / played;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%d matches, %d draws, %d ticks in %.1f s (%.0f ticks/s)%n",
+                matches, draws, ticks, wallTime / 1000.0, getTicksPerSecond()));
+        report.append(String.format("Average match duration: %.1f s%n", getAverageMatchDuration() / 1000));
+        for (AIDifficulty difficulty : AIDifficulty.values())
+            if (appearances[difficulty.ordinal()] > 0)
+                report.append(String.format("%-8s %5d wins / %5d players (%.1f%%)%n", difficulty,
+                        wins[difficulty.ordinal()], appearances[difficulty.ordinal()],
+                        getWinRate(difficulty) * 100));
+        return report.toString();
+    }
+}
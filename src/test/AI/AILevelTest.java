@@ -139,7 +139,8 @@ public class AILevelTest{
 		ai.begin();
 		ai2.begin();
 		while(checker.inDanger()){
-			Thread.sleep(10);
+			ai.tick(1000);
+			ai2.tick(1000);
 			this.physics.update();
 		}
 		assertFalse(checker.inDanger());	
@@ -147,7 +148,8 @@ public class AILevelTest{
 		
 		while(player.isAlive())
 		{
-			Thread.sleep(20);
+			ai.tick(1000);
+			ai2.tick(1000);
 			this.physics.update();
 		}
 		assertFalse(player.isAlive());
@@ -178,7 +180,7 @@ public class AILevelTest{
 		int counter = 500;
 		while(counter>0)
 		{
-			Thread.sleep(10);
+			ai.tick(1000);
 			this.physics.update();
 			counter--;
 		}
@@ -206,7 +208,7 @@ public class AILevelTest{
 		ai.setAlive(true);
 		ai.begin();
 		while(checker.inDanger()){
-			Thread.sleep(10);
+			ai.tick(1000);
 			this.physics.update();
 		}
 		assertFalse(checker.inDanger());	
@@ -214,7 +216,7 @@ public class AILevelTest{
 		
 		while(player.isAlive())
 		{
-			Thread.sleep(10);
+			ai.tick(1000);
 			this.physics.update();
 		}
 		assertFalse(player.isAlive());
@@ -243,7 +245,7 @@ public class AILevelTest{
 		int counter = 500;
 		while(counter>0)
 		{
-			Thread.sleep(10);
+			ai.tick(1000);
 			this.physics.update();
 			counter--;
 		}
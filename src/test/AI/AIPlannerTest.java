@@ -0,0 +1,185 @@
+package test.AI;
+
+import static org.junit.Assert.*;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import bomber.AI.AIDifficulty;
+import bomber.AI.AIPlanner;
+import bomber.AI.GameAI;
+import bomber.game.Block;
+import bomber.game.Constants;
+import bomber.game.GameState;
+import bomber.game.Map;
+import bomber.game.Player;
+import bomber.physics.PhysicsEngine;
+
+/**
+ * The Class AIPlannerTest.
+ */
+public class AIPlannerTest {
+
+	/** The state. */
+	private GameState state;
+
+	/** The AIs. */
+	private List<GameAI> ais;
+
+	/** The physics. */
+	private PhysicsEngine physics;
+
+	/** The planner. */
+	private AIPlanner planner;
+
+	/**
+	 * Sets the up.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		Block[][] blocks = {
+				{ Block.SOLID, Block.SOLID, Block.SOLID, Block.SOLID, Block.SOLID, Block.SOLID, Block.SOLID },
+				{ Block.SOLID, Block.BLANK, Block.BLANK, Block.SOFT, Block.BLANK, Block.BLANK, Block.SOLID },
+				{ Block.SOLID, Block.BLANK, Block.SOLID, Block.BLANK, Block.SOLID, Block.BLANK, Block.SOLID },
+				{ Block.SOLID, Block.SOFT, Block.BLANK, Block.BLANK, Block.BLANK, Block.SOFT, Block.SOLID },
+				{ Block.SOLID, Block.BLANK, Block.SOLID, Block.BLANK, Block.SOLID, Block.BLANK, Block.SOLID },
+				{ Block.SOLID, Block.BLANK, Block.BLANK, Block.SOFT, Block.BLANK, Block.BLANK, Block.SOLID },
+				{ Block.SOLID, Block.SOLID, Block.SOLID, Block.SOLID, Block.SOLID, Block.SOLID, Block.SOLID } };
+		Map map = new Map("Test map", blocks, new ArrayList<>());
+
+		List<Player> players = new ArrayList<>();
+		state = new GameState(map, players, 0);
+		ais = new ArrayList<>();
+		Point[] spawns = { new Point(64, 64), new Point(320, 320) };
+		for (int i = 0; i < spawns.length; i++) {
+			GameAI ai = new GameAI("AI " + i, spawns[i], 5, Constants.DEFAULT_PLAYER_SPEED, state, AIDifficulty.HARD);
+			ai.setPlayerID(32 + i);
+			players.add(ai);
+			ais.add(ai);
+		}
+		physics = new PhysicsEngine(state);
+	}
+
+	/**
+	 * Tear down.
+	 *
+	 * @throws Exception the exception
+	 */
+	@After
+	public void tearDown() throws Exception {
+		if (planner != null) {
+			planner.shutdown();
+		}
+	}
+
+	/**
+	 * Runs the game for a number of ticks.
+	 *
+	 * @param ticks the number of ticks
+	 */
+	private void play(int ticks) {
+		for (int i = 0; i < ticks; i++) {
+			for (GameAI ai : ais) {
+				ai.tick(Constants.SIMULATION_TICK_LENGTH);
+			}
+			physics.update(Constants.SIMULATION_TICK_LENGTH);
+		}
+	}
+
+	/**
+	 * Checks if an AI has left its spawn.
+	 *
+	 * @return true, if an AI has moved
+	 */
+	private boolean moved() {
+		return !(ais.get(0).getPos().equals(new Point(64, 64)) && ais.get(1).getPos().equals(new Point(320, 320)));
+	}
+
+	/**
+	 * Stops the planner and waits for the plans being made, so that its figures are final.
+	 *
+	 * @throws InterruptedException the interrupted exception
+	 */
+	private void stopPlanner() throws InterruptedException {
+		planner.shutdown();
+		assertTrue(planner.awaitTermination(10, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * The AIs play with the plans of a shared planner.
+	 *
+	 * @throws InterruptedException the interrupted exception
+	 */
+	@Test
+	public void sharedPlannerTest() throws InterruptedException {
+		planner = new AIPlanner(1, 1, TimeUnit.MILLISECONDS);
+		planner.start();
+		assertFalse(planner.isDirect());
+		for (GameAI ai : ais) {
+			ai.setPlanner(planner);
+			ai.begin();
+		}
+
+		long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (!moved() && System.nanoTime() < end) {
+			play(10);
+		}
+		stopPlanner();
+
+		assertTrue(moved());
+		assertTrue(planner.getPlanCount() > 0);
+		assertTrue(planner.getAbandonedCount() <= planner.getPlanCount());
+		assertTrue(planner.getMaxLatency() >= planner.getAverageLatency());
+		assertTrue(planner.getAverageLatency() >= planner.getAveragePlanningTime());
+		assertNotNull(planner.toString());
+	}
+
+	/**
+	 * An AI asks for no plan once its budget is used up.
+	 *
+	 * @throws InterruptedException the interrupted exception
+	 */
+	@Test
+	public void budgetTest() throws InterruptedException {
+		planner = new AIPlanner(1, 1, TimeUnit.NANOSECONDS);
+		planner.start();
+		for (GameAI ai : ais) {
+			ai.setPlanner(planner);
+			ai.begin();
+		}
+
+		long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (planner.getThrottledCount() == 0 && System.nanoTime() < end) {
+			play(10);
+		}
+		stopPlanner();
+
+		assertTrue(planner.getPlanCount() > 0);
+		assertTrue(planner.getThrottledCount() > 0);
+	}
+
+	/**
+	 * The direct planner makes the plans on the thread of the AI.
+	 */
+	@Test
+	public void directPlannerTest() {
+		assertTrue(AIPlanner.DIRECT.isDirect());
+		for (GameAI ai : ais) {
+			ai.begin();
+		}
+
+		play(100);
+
+		assertEquals(0, AIPlanner.DIRECT.getPlanCount());
+		assertEquals(0, AIPlanner.DIRECT.getQueueLength());
+		assertTrue(moved());
+	}
+}
@@ -11,7 +11,8 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses({
 	AITests.class,
 	PlanningTest.class,
-	AILevelTest.class
+	AILevelTest.class,
+	AIPlannerTest.class
 })
 
 
@@ -105,6 +105,7 @@ public class AITests {
 		state.setBombs(bombs);
 
 		ai = new GameAI("ai", new Point(4*Constants.MAP_BLOCK_TO_GRID_MULTIPLIER,4*Constants.MAP_BLOCK_TO_GRID_MULTIPLIER), 3, 10, state, AIDifficulty.EXTREME);
+		ai.setPlayerID(1);
 		players.add(ai);
 		checker = new SafetyChecker(state, ai);
 		finder = new RouteFinder(state, ai,checker);
@@ -156,10 +157,12 @@ public class AITests {
 	public void enemyCheckTest() {
 
 		Player player = new Player("name", new Point(2*Constants.MAP_BLOCK_TO_GRID_MULTIPLIER, 2*Constants.MAP_BLOCK_TO_GRID_MULTIPLIER), 5, 10);
+		player.setPlayerID(2);
 		players.add(player);
 		assertFalse(checker.isEnemyInBombRange());
 
 		Player player2 = new Player("name2", new Point(4*Constants.MAP_BLOCK_TO_GRID_MULTIPLIER, 2*Constants.MAP_BLOCK_TO_GRID_MULTIPLIER), 5, 10);
+		player2.setPlayerID(3);
 		players.add(player2);
 		assertTrue(checker.isEnemyInBombRange());
 
@@ -170,6 +173,7 @@ public class AITests {
 		assertTrue(checker.isEnemyInBombRange());
 		
 		Player ai2 = new GameAI("ai", new Point(6*Constants.MAP_BLOCK_TO_GRID_MULTIPLIER,6*Constants.MAP_BLOCK_TO_GRID_MULTIPLIER), 3, 10, state, AIDifficulty.EXTREME);	
+		ai2.setPlayerID(4);
 		ai.setPos(new Point(6*Constants.MAP_BLOCK_TO_GRID_MULTIPLIER,8*Constants.MAP_BLOCK_TO_GRID_MULTIPLIER));
 		players.add(ai2);
 		players.add(ai);
@@ -303,10 +307,13 @@ public class AITests {
 	public void nereastEnemyTest() {
 		ai.setPos(new Point(0,0));
 		Player player1 = new Player("nr1",new Point(0,12*Constants.MAP_BLOCK_TO_GRID_MULTIPLIER),3,0);
+		player1.setPlayerID(2);
 		players.add(player1);
 		Player player2 = new Player("nr1",new Point(12*Constants.MAP_BLOCK_TO_GRID_MULTIPLIER,0),3,0);
+		player2.setPlayerID(3);
 		players.add(player2);
 		Player player3 = new Player("nr1",new Point(5*Constants.MAP_BLOCK_TO_GRID_MULTIPLIER,6*Constants.MAP_BLOCK_TO_GRID_MULTIPLIER),3,0);
+		player3.setPlayerID(4);
 		players.add(player3);
 		state.setPlayers(players);
 		
@@ -317,6 +324,7 @@ public class AITests {
 		
 		player3.setPos(new Point(4*Constants.MAP_BLOCK_TO_GRID_MULTIPLIER,3*Constants.MAP_BLOCK_TO_GRID_MULTIPLIER));
 		Player ai2 = new GameAI("name", new Point(0*Constants.MAP_BLOCK_TO_GRID_MULTIPLIER, 4*Constants.MAP_BLOCK_TO_GRID_MULTIPLIER),1, 1, state, AIDifficulty.EXTREME);
+		ai2.setPlayerID(5);
 		players.add(ai2);
 		assertEquals(new Point(0,4),finder.getNearestEnemy());
 		assertNotEquals(new Point(0,4),finder.getNearestEnemyExcludeAIs());
@@ -338,6 +346,7 @@ public class AITests {
 		
 		ai.setGridPos(new Point(0,4*Constants.MAP_BLOCK_TO_GRID_MULTIPLIER));
 		Player ai3 = new GameAI("name", new Point(0*Constants.MAP_BLOCK_TO_GRID_MULTIPLIER, 4*Constants.MAP_BLOCK_TO_GRID_MULTIPLIER),1, 1, state, AIDifficulty.EXTREME);
+		ai3.setPlayerID(3);
 		players.add(ai3);
 		assertNull(finder.canPutBombAndEscape());
 		assertNull(finder.canPutBombAndEscapeExcludeAIs());
@@ -349,6 +358,7 @@ public class AITests {
 		assertNull(finder.canPutBombAndEscapeExcludeAIs());
 		
 		Player player = new Player("nr1",new Point(0*Constants.MAP_BLOCK_TO_GRID_MULTIPLIER,9*Constants.MAP_BLOCK_TO_GRID_MULTIPLIER),3,0);
+		player.setPlayerID(2);
 		players.add(player);
 		
 		assertNotNull(finder.canPutBombAndEscapeExcludeAIs());
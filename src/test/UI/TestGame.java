@@ -171,6 +171,9 @@ public class TestGame implements GameInterface {
 						renderer.stopPauseScreen();
 					}
 
+					for (Player player : this.gameState.getPlayers()) {
+						player.tick((int) (interval * 1000));
+					}
 					this.physics.update((int) (interval * 1000));
 					AudioManager.playEventList(gameState.getAudioEvents());
 				}
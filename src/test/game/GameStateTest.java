@@ -21,8 +21,10 @@ import bomber.game.AudioEvent;
 import bomber.game.Block;
 import bomber.game.Bomb;
 import bomber.game.GameState;
+import bomber.game.GameSnapshot;
 import bomber.game.Map;
 import bomber.game.Player;
+import bomber.game.WorldStore;
 
 public class GameStateTest {
 
@@ -122,4 +124,129 @@ public class GameStateTest {
 		assertEquals(gameState.getPlayers().get(0), testPlayer2);
 	}
 
+	@Test
+	public void testBombIndex() {
+
+		Bomb bomb1 = new Bomb("Test1", new Point(71, 71), 1000, 3);
+		bomb1.setPlayerID(1);
+		Bomb bomb2 = new Bomb("Test1", new Point(71, 71), 1000, 3);
+		bomb2.setPlayerID(1);
+		Bomb bomb3 = new Bomb("TestAI", new Point(7, 71), 1000, 3);
+		bomb3.setPlayerID(32);
+
+		gameState.getBombs().add(bomb1);
+		gameState.getBombs().add(bomb2);
+		gameState.getBombs().add(bomb3);
+		assertEquals(2, gameState.getBombCountAt(1, 1));
+		assertEquals(1, gameState.getBombCountAt(0, 1));
+		assertEquals(0, gameState.getBombCountAt(1, 0));
+		assertEquals(0, gameState.getBombCountAt(5, 5));
+		assertEquals(bomb3, gameState.getBombAt(0, 1, 0));
+		assertEquals(2, gameState.getBombCount(1));
+		assertEquals(1, gameState.getBombCount(32));
+		assertEquals(0, gameState.getBombCount(2));
+
+		gameState.getBombs().remove(bomb1);
+		assertEquals(1, gameState.getBombCountAt(1, 1));
+		assertEquals(bomb2, gameState.getBombAt(1, 1, 0));
+		assertEquals(1, gameState.getBombCount(1));
+
+		gameState.getBombs().removeIf(bomb -> bomb.getPlayerID() == 32);
+		assertEquals(0, gameState.getBombCountAt(0, 1));
+		assertEquals(0, gameState.getBombCount(32));
+		assertEquals(1, gameState.getBombs().size());
+
+		List<Bomb> newBombs = new ArrayList<Bomb>();
+		newBombs.add(bomb3);
+		gameState.setBombs(newBombs);
+		assertEquals(0, gameState.getBombCountAt(1, 1));
+		assertEquals(1, gameState.getBombCountAt(0, 1));
+		assertEquals(0, gameState.getBombCount(1));
+		assertEquals(1, gameState.getBombCount(32));
+
+		gameState.getBombs().clear();
+		assertEquals(0, gameState.getBombCountAt(0, 1));
+		assertEquals(0, gameState.getBombCount(32));
+	}
+
+	@Test
+	public void testWorldStore() {
+
+		WorldStore world = gameState.getWorld();
+		assertEquals(2, world.getPlayerCount());
+		assertEquals(64, world.getPlayerXs()[0]);
+		assertEquals(128, world.getPlayerYs()[1]);
+		assertEquals(100000, world.getSpeeds()[0]);
+
+		// the players are views over the arrays
+		testPlayer1.setPosition(70, 80);
+		testPlayer1.setLives(2);
+		assertEquals(70, world.getPlayerXs()[0]);
+		assertEquals(2, world.getLives()[0]);
+		world.getPlayerYs()[0] = 90;
+		assertEquals(new Point(70, 90), testPlayer1.getPos());
+
+		Bomb bomb1 = new Bomb("Test1", new Point(71, 71), 1000, 3);
+		Bomb bomb2 = new Bomb("TestAI", new Point(7, 71), 500, 2);
+		gameState.getBombs().add(bomb1);
+		gameState.getBombs().add(0, bomb2);
+		assertEquals(2, world.getBombCount());
+		assertEquals(7, world.getBombXs()[0]);
+		assertEquals(1000, world.getBombTimes()[1]);
+		world.getBombTimes()[1] = 400;
+		assertEquals(400, bomb1.getTime());
+
+		// a removed bomb keeps its state
+		gameState.getBombs().remove(bomb2);
+		assertEquals(1, world.getBombCount());
+		assertEquals(3, world.getBombRadii()[0]);
+		assertEquals(500, bomb2.getTime());
+		bomb2.setTime(100);
+		assertEquals(400, world.getBombTimes()[0]);
+
+		// the slots follow the list of players, and a removed player keeps its state
+		gameState.getPlayers().remove(0);
+		assertEquals(1, gameState.getWorld().getPlayerCount());
+		assertEquals(128, world.getPlayerXs()[0]);
+		assertEquals(2, testPlayer1.getLives());
+		testPlayer1.setLives(1);
+		assertEquals(5, world.getLives()[0]);
+	}
+
+	@Test
+	public void testSnapshots() {
+
+		Bomb bomb = new Bomb("Test1", new Point(71, 71), 1000, 3);
+		gameState.getBombs().add(bomb);
+
+		// before anything is published, a snapshot shows the current state
+		try (GameSnapshot snapshot = gameState.acquireSnapshot()) {
+			assertEquals(1, snapshot.getBombCount());
+			assertEquals(1, snapshot.getBombGridX(0));
+			assertEquals(64, snapshot.getPlayerX(0));
+		}
+
+		gameState.publishSnapshot();
+		GameSnapshot held = gameState.acquireSnapshot();
+		long version = held.getVersion();
+
+		// a held snapshot does not change when the state changes or more are
+		// published
+		testPlayer1.setPosition(100, 64);
+		bomb.setTime(500);
+		gameState.publishSnapshot();
+		gameState.publishSnapshot();
+		assertEquals(64, held.getPlayerX(0));
+		assertEquals(1000, held.getBombTime(0));
+		assertEquals(version, held.getVersion());
+
+		try (GameSnapshot latest = gameState.acquireSnapshot()) {
+			assertTrue(latest.getVersion() > version);
+			assertEquals(100, latest.getPlayerX(0));
+			assertEquals(500, latest.getBombTime(0));
+			assertEquals(SOLID, latest.getGridMap()[0][0]);
+		}
+		held.close();
+	}
+
 }
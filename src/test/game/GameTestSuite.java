@@ -11,7 +11,9 @@ import org.junit.runners.Suite;
 	KeyboardStateTest.class,
 	PlayerTest.class,
 	MapTest.class,
-	SettingsParserTest.class
+	SettingsParserTest.class,
+	SnapshotInterpolatorTest.class,
+	MovePredictorTest.class
 })
 
 
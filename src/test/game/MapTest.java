@@ -61,6 +61,8 @@ public class MapTest {
 		
 		map.setGridBlockAt(new Point(0,0), SOFT);
 		assertEquals(map.getGridBlockAt(0, 0), SOFT);
+		assertEquals(map.getPixelBlockAt(63, 63), SOFT);
+		assertEquals(map.getPixelBlockAt(64, 63), BLANK);
 		
 		map.setPixelBlockAt(new Point(0,0), SOFT);
 		assertEquals(map.getPixelBlockAt(0, 0), SOFT);
@@ -0,0 +1,116 @@
+package test.game;
+
+import static org.junit.Assert.*;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import bomber.game.Block;
+import bomber.game.Constants;
+import bomber.game.GameState;
+import bomber.game.Map;
+import bomber.game.MovePredictor;
+import bomber.game.Movement;
+import bomber.game.Player;
+
+public class MovePredictorTest {
+
+	private static final long MS = 1000000L;
+
+	private Player player;
+	private List<Player> players;
+	private MovePredictor prediction;
+
+	@Before
+	public void setUp() throws Exception {
+		// a 5x5 map with solid borders
+		Block[][] gridMap = new Block[5][5];
+		for (int x = 0; x < 5; x++) {
+			for (int y = 0; y < 5; y++) {
+				gridMap[x][y] = x == 0 || y == 0 || x == 4 || y == 4 ? Block.SOLID : Block.BLANK;
+			}
+		}
+		player = new Player("P1", new Point(64, 80), 3, 100);
+		player.setPlayerID(7);
+		players = new ArrayList<Player>();
+		players.add(player);
+		GameState gameState = new GameState(new Map("test map", gridMap, new ArrayList<>()), players);
+		prediction = new MovePredictor(gameState, 7);
+	}
+
+	@Test
+	public void testReconcile() {
+		// the moves are made as soon as they are sent
+		prediction.predict((short) 0, Movement.RIGHT, 100, players);
+		assertEquals(new Point(74, 80), player.getPos());
+		prediction.predict((short) 1, Movement.RIGHT, 100, players);
+		assertEquals(new Point(84, 80), player.getPos());
+
+		// a state in which the server has applied no move confirms nothing
+		player.setPosition(64, 80);
+		prediction.reconcile((short) -1, players);
+		assertEquals(2, prediction.getPendingMoves());
+		assertEquals(new Point(84, 80), player.getPos());
+
+		// the server has the player 2 pixels behind after the first move: the
+		// second move is made again from there, and the player is drawn where
+		// it was until the difference fades out
+		player.setPosition(72, 80);
+		prediction.reconcile((short) 0, players);
+		assertEquals(1, prediction.getPendingMoves());
+		assertEquals(new Point(84, 80), player.getPos());
+		prediction.apply(0, players);
+		assertEquals(new Point(84, 80), player.getPos());
+		prediction.apply(50 * MS, players);
+		assertEquals(new Point(83, 80), player.getPos());
+		prediction.apply(1000 * MS, players);
+		assertEquals(new Point(82, 80), player.getPos());
+
+		// once every move is confirmed the player is where the server has it
+		player.setPosition(82, 80);
+		prediction.reconcile((short) 1, players);
+		assertEquals(0, prediction.getPendingMoves());
+		assertEquals(new Point(82, 80), player.getPos());
+	}
+
+	@Test
+	public void testCollisions() {
+		// the predicted moves stop at the walls
+		prediction.predict((short) 0, Movement.RIGHT, 5000, players);
+		assertTrue(player.getPos().x + Constants.PLAYER_WIDTH < 4 * Constants.MAP_BLOCK_TO_GRID_MULTIPLIER);
+		assertTrue(player.getPos().x > 64);
+		assertEquals(80, player.getPos().y);
+	}
+
+	@Test
+	public void testRespawn() {
+		prediction.predict((short) 0, Movement.DOWN, 100, players);
+
+		// a correction across the map is not smoothed
+		player.setPosition(192, 192);
+		prediction.reconcile((short) 0, players);
+		assertEquals(new Point(192, 192), player.getPos());
+
+		// and a dead player is left where the server has it
+		player.setAlive(false);
+		player.setPosition(128, 128);
+		prediction.reconcile((short) 0, players);
+		prediction.apply(0, players);
+		assertEquals(new Point(128, 128), player.getPos());
+	}
+
+	@Test
+	public void testSequenceWrapAround() {
+		prediction.predict((short) 32767, Movement.NONE, 10, players);
+		prediction.predict((short) -32768, Movement.NONE, 10, players);
+		prediction.reconcile((short) 32767, players);
+		assertEquals(1, prediction.getPendingMoves());
+		prediction.reconcile((short) -32768, players);
+		assertEquals(0, prediction.getPendingMoves());
+	}
+
+}
@@ -0,0 +1,98 @@
+package test.game;
+
+import static org.junit.Assert.*;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import bomber.game.Player;
+import bomber.game.SnapshotInterpolator;
+
+public class SnapshotInterpolatorTest {
+
+	private static final long MS = 1000000L;
+
+	private SnapshotInterpolator snapshots;
+	private List<Player> received;
+	private List<Player> drawn;
+
+	@Before
+	public void setUp() throws Exception {
+		snapshots = new SnapshotInterpolator();
+		received = new ArrayList<Player>();
+		drawn = new ArrayList<Player>();
+		for (int i = 0; i < 2; i++) {
+			Player p = new Player("P" + i, new Point(64, 64 * (i + 1)), 3, 100);
+			p.setPlayerID(i + 10);
+			received.add(p);
+			Player q = new Player("P" + i, new Point(0, 0), 3, 100);
+			q.setPlayerID(i + 10);
+			drawn.add(q);
+		}
+	}
+
+	private void receive(long time, int x) {
+		received.get(0).setPosition(x, 64);
+		snapshots.record(time * MS, received);
+	}
+
+	@Test
+	public void testInterpolation() {
+		// states every 50ms, the first player moving 10 pixels each time
+		receive(0, 0);
+		receive(50, 10);
+		receive(100, 20);
+		assertEquals(50 * MS, snapshots.getDelay());
+
+		// drawn half way between the states at 50ms and 100ms
+		snapshots.interpolate(125 * MS, drawn);
+		assertEquals(new Point(15, 64), drawn.get(0).getPos());
+		assertEquals(new Point(64, 128), drawn.get(1).getPos());
+
+		// moved on at the same speed while the next state is late
+		snapshots.interpolate(180 * MS, drawn);
+		assertEquals(new Point(26, 64), drawn.get(0).getPos());
+
+		// but not for long
+		snapshots.interpolate(400 * MS, drawn);
+		assertEquals(new Point(40, 64), drawn.get(0).getPos());
+
+		// and never drawn back in time
+		snapshots.interpolate(125 * MS, drawn);
+		assertEquals(new Point(40, 64), drawn.get(0).getPos());
+	}
+
+	@Test
+	public void testJitter() {
+		// states arriving unevenly make the delay grow
+		long time = 0;
+		for (int i = 0; i < 40; i++) {
+			receive(time, i);
+			time += i % 2 == 0 ? 20 : 80;
+		}
+		assertTrue(snapshots.getDelay() > 60 * MS);
+		assertTrue(snapshots.getDelay() < 250 * MS);
+	}
+
+	@Test
+	public void testRespawn() {
+		receive(0, 0);
+		receive(50, 64 * 10);
+
+		// a jump across the map is not smoothed
+		snapshots.interpolate(75 * MS, drawn);
+		assertEquals(new Point(640, 64), drawn.get(0).getPos());
+
+		// nor is a player who has died
+		received.get(1).setAlive(false);
+		received.get(1).setPosition(64, 160);
+		snapshots.record(100 * MS, received);
+		snapshots.interpolate(125 * MS, drawn);
+		assertEquals(new Point(64, 160), drawn.get(1).getPos());
+	}
+
+}
@@ -10,6 +10,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import bomber.networking.ClientServerInfo;
+import bomber.networking.ReliabilityWindow;
 
 public class ClientServerInfoTest {
 	private ClientServerInfo server;
@@ -45,7 +46,7 @@ public class ClientServerInfoTest {
 			assertTrue(server.isSequenceDuplicate(i));
 		}
 
-		assertEquals(100, server.getPacketHistoryList().size());
+		assertEquals((short) 100, server.getReliabilityWindow().getPacket(100 % ReliabilityWindow.WINDOW_SIZE).getSequence());
 
 		assertFalse(server.isSequenceDuplicate((short) 100));
 	}
@@ -0,0 +1,62 @@
+package test.networking;
+
+import static org.junit.Assert.*;
+
+import java.net.InetSocketAddress;
+import java.security.SecureRandom;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import bomber.networking.HandshakeCookie;
+
+public class HandshakeCookieTest {
+	private HandshakeCookie cookies;
+	private InetSocketAddress client;
+	private InetSocketAddress other;
+	private long now;
+
+	@Before
+	public void setUp() throws Exception {
+		cookies = new HandshakeCookie(new SecureRandom());
+		client = new InetSocketAddress("127.0.0.1", 1234);
+		other = new InetSocketAddress("127.0.0.1", 1235);
+		now = System.currentTimeMillis();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+	}
+
+	@Test
+	public void testVerify() {
+		long cookie = cookies.issue(client, now);
+		assertEquals(cookie, cookies.issue(client, now));
+		assertNotEquals(cookie, cookies.issue(other, now));
+
+		assertTrue(cookies.verify(client, cookie, now));
+		assertTrue(cookies.verify(client, cookie, now + 1000));
+		assertFalse(cookies.verify(other, cookie, now));
+		assertFalse(cookies.verify(client, cookie ^ 1, now));
+		assertFalse(cookies.verify(client, cookie ^ (1L << 48), now));
+
+		// another server does not accept the cookie
+		assertFalse(new HandshakeCookie(new SecureRandom()).verify(client, cookie, now));
+	}
+
+	@Test
+	public void testExpiry() {
+		long cookie = cookies.issue(client, now);
+
+		// still accepted after the secret has been replaced once
+		long lifetime = HandshakeCookie.COOKIE_LIFETIME * 1000L;
+		assertTrue(cookies.verify(client, cookie, now + lifetime - 1000));
+		assertFalse(cookies.verify(client, cookie, now + lifetime + 1000));
+		assertFalse(cookies.verify(client, cookie, now + 3 * lifetime));
+
+		long later = cookies.issue(client, now + 3 * lifetime);
+		assertTrue(cookies.verify(client, later, now + 3 * lifetime));
+	}
+
+}
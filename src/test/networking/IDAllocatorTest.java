@@ -0,0 +1,52 @@
+package test.networking;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import bomber.networking.IDAllocator;
+
+public class IDAllocatorTest {
+
+	@Test
+	public void test() {
+		IDAllocator allocator = new IDAllocator(3);
+		assertEquals(3, allocator.getCapacity());
+		assertEquals(0, allocator.allocate());
+		assertEquals(1, allocator.allocate());
+		assertEquals(2, allocator.allocate());
+		assertEquals(-1, allocator.allocate());
+		assertEquals(3, allocator.size());
+
+		// released IDs are allocated again, the most recent one first
+		allocator.release(0);
+		allocator.release(2);
+		assertEquals(1, allocator.size());
+		assertEquals(2, allocator.allocate());
+		assertEquals(0, allocator.allocate());
+		assertEquals(-1, allocator.allocate());
+
+		// IDs which have never been allocated are not released
+		allocator.release(3);
+		allocator.release(-1);
+		assertEquals(3, allocator.size());
+	}
+
+	@Test
+	public void testLargeTable() {
+		IDAllocator allocator = new IDAllocator(65536);
+		for (int i = 0; i < 65536; i++) {
+			assertEquals(i, allocator.allocate());
+		}
+		assertEquals(-1, allocator.allocate());
+
+		for (int i = 0; i < 65536; i += 2) {
+			allocator.release(i);
+		}
+		assertEquals(32768, allocator.size());
+		for (int i = 0; i < 32768; i++) {
+			assertEquals(0, allocator.allocate() % 2);
+		}
+		assertEquals(-1, allocator.allocate());
+	}
+}
@@ -7,7 +7,9 @@ import org.junit.runners.Suite;
 
 @Suite.SuiteClasses({ BitArrayTest.class, ClientServerAITest.class, ClientServerInfoTest.class,
 		ClientServerLobbyRoomTest.class, ClientServerPlayerTest.class, ClientServerRoomTest.class,
-		PacketEncodeDecodeTest.class, PacketHistoryEntryTest.class, ServerAITest.class, ServerClientInfoTest.class,
+		HandshakeCookieTest.class, IDAllocatorTest.class, PacketEncodeDecodeTest.class, PacketHistoryEntryTest.class,
+		PlayerInputQueueTest.class,
+		ReliabilityWindowTest.class, RetransmitTimerWheelTest.class, RoomTickSchedulerTest.class, ServerAITest.class, ServerClientInfoTest.class,
 		ServerClientTableTest.class, ServerClientTest.class, ServerConfigurationTest.class, ServerGameTest.class,
 		ServerRoomTableTest.class, ServerRoomTest.class
 
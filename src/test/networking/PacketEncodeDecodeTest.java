@@ -6,7 +6,9 @@ import java.awt.Point;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.After;
@@ -26,11 +28,15 @@ import bomber.networking.ClientPacketEncoder;
 import bomber.networking.ClientServerLobbyRoom;
 import bomber.networking.ClientServerPlayer;
 import bomber.networking.ClientServerRoom;
+import bomber.networking.LobbyListAssembler;
+import bomber.networking.LobbyListCache;
+import bomber.networking.ProtocolConstant;
 import bomber.networking.ServerClientInfo;
 import bomber.networking.ServerClientTable;
 import bomber.networking.ServerPacketEncoder;
 import bomber.networking.ServerRoom;
 import bomber.networking.ServerRoomTable;
+import bomber.networking.SnapshotRing;
 
 public class PacketEncodeDecodeTest {
 
@@ -58,119 +64,108 @@ public class PacketEncodeDecodeTest {
 			roomTable.put(room);
 		}
 		referencePlayerListArray = new byte[] { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x20, 0x00, 0x00, 0x00, 0x00, 0x00,
-				0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x20, 0x00, 0x00, 0x00, 0x00, 0x08, 0x63, 0x6c, 0x69, 0x65, 0x6e,
-				0x74, 0x20, 0x30, 0x00, 0x00, 0x00, 0x00, 0x01, 0x08, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x31,
-				0x00, 0x00, 0x00, 0x00, 0x02, 0x08, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x32, 0x00, 0x00, 0x00,
-				0x00, 0x03, 0x08, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x33, 0x00, 0x00, 0x00, 0x00, 0x04, 0x08,
-				0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x34, 0x00, 0x00, 0x00, 0x00, 0x05, 0x08, 0x63, 0x6c, 0x69,
-				0x65, 0x6e, 0x74, 0x20, 0x35, 0x00, 0x00, 0x00, 0x00, 0x06, 0x08, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74,
-				0x20, 0x36, 0x00, 0x00, 0x00, 0x00, 0x07, 0x08, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x37, 0x00,
-				0x00, 0x00, 0x00, 0x08, 0x08, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x38, 0x00, 0x00, 0x00, 0x00,
-				0x09, 0x08, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x39, 0x00, 0x00, 0x00, 0x00, 0x0a, 0x09, 0x63,
-				0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x31, 0x30, 0x00, 0x00, 0x00, 0x00, 0x0b, 0x09, 0x63, 0x6c, 0x69,
-				0x65, 0x6e, 0x74, 0x20, 0x31, 0x31, 0x00, 0x00, 0x00, 0x00, 0x0c, 0x09, 0x63, 0x6c, 0x69, 0x65, 0x6e,
-				0x74, 0x20, 0x31, 0x32, 0x00, 0x00, 0x00, 0x00, 0x0d, 0x09, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20,
-				0x31, 0x33, 0x00, 0x00, 0x00, 0x00, 0x0e, 0x09, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x31, 0x34,
-				0x00, 0x00, 0x00, 0x00, 0x0f, 0x09, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x31, 0x35, 0x00, 0x00,
-				0x00, 0x00, 0x10, 0x09, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x31, 0x36, 0x00, 0x00, 0x00, 0x00,
-				0x11, 0x09, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x31, 0x37, 0x00, 0x00, 0x00, 0x00, 0x12, 0x09,
-				0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x31, 0x38, 0x00, 0x00, 0x00, 0x00, 0x13, 0x09, 0x63, 0x6c,
-				0x69, 0x65, 0x6e, 0x74, 0x20, 0x31, 0x39, 0x00, 0x00, 0x00, 0x00, 0x14, 0x09, 0x63, 0x6c, 0x69, 0x65,
-				0x6e, 0x74, 0x20, 0x32, 0x30, 0x00, 0x00, 0x00, 0x00, 0x15, 0x09, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74,
-				0x20, 0x32, 0x31, 0x00, 0x00, 0x00, 0x00, 0x16, 0x09, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x32,
-				0x32, 0x00, 0x00, 0x00, 0x00, 0x17, 0x09, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x32, 0x33, 0x00,
-				0x00, 0x00, 0x00, 0x18, 0x09, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x32, 0x34, 0x00, 0x00, 0x00,
-				0x00, 0x19, 0x09, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x32, 0x35, 0x00, 0x00, 0x00, 0x00, 0x1a,
-				0x09, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x32, 0x36, 0x00, 0x00, 0x00, 0x00, 0x1b, 0x09, 0x63,
-				0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x32, 0x37, 0x00, 0x00, 0x00, 0x00, 0x1c, 0x09, 0x63, 0x6c, 0x69,
-				0x65, 0x6e, 0x74, 0x20, 0x32, 0x38, 0x00, 0x00, 0x00, 0x00, 0x1d, 0x09, 0x63, 0x6c, 0x69, 0x65, 0x6e,
-				0x74, 0x20, 0x32, 0x39, 0x00, 0x00, 0x00, 0x00, 0x1e, 0x09, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20,
-				0x33, 0x30, 0x00, 0x00, 0x00, 0x00, 0x1f, 0x09, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x33, 0x31,
-				0x00 };
+				0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x20, 0x00, 0x00, 0x00, 0x05, 0x00, 0x00, 0x00, 0x00, 0x08, 0x63,
+				0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x30, 0x00, 0x00, 0x00, 0x00, 0x01, 0x08, 0x63, 0x6c, 0x69, 0x65,
+				0x6e, 0x74, 0x20, 0x31, 0x00, 0x00, 0x00, 0x00, 0x02, 0x08, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20,
+				0x32, 0x00, 0x00, 0x00, 0x00, 0x03, 0x08, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x33, 0x00, 0x00,
+				0x00, 0x00, 0x04, 0x08, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x34, 0x00, 0x00, 0x00, 0x00, 0x05,
+				0x08, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x35, 0x00, 0x00, 0x00, 0x00, 0x06, 0x08, 0x63, 0x6c,
+				0x69, 0x65, 0x6e, 0x74, 0x20, 0x36, 0x00, 0x00, 0x00, 0x00, 0x07, 0x08, 0x63, 0x6c, 0x69, 0x65, 0x6e,
+				0x74, 0x20, 0x37, 0x00, 0x00, 0x00, 0x00, 0x08, 0x08, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x38,
+				0x00, 0x00, 0x00, 0x00, 0x09, 0x08, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x39, 0x00, 0x00, 0x00,
+				0x00, 0x0a, 0x09, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x31, 0x30, 0x00, 0x00, 0x00, 0x00, 0x0b,
+				0x09, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x31, 0x31, 0x00, 0x00, 0x00, 0x00, 0x0c, 0x09, 0x63,
+				0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x31, 0x32, 0x00, 0x00, 0x00, 0x00, 0x0d, 0x09, 0x63, 0x6c, 0x69,
+				0x65, 0x6e, 0x74, 0x20, 0x31, 0x33, 0x00, 0x00, 0x00, 0x00, 0x0e, 0x09, 0x63, 0x6c, 0x69, 0x65, 0x6e,
+				0x74, 0x20, 0x31, 0x34, 0x00, 0x00, 0x00, 0x00, 0x0f, 0x09, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20,
+				0x31, 0x35, 0x00, 0x00, 0x00, 0x00, 0x10, 0x09, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x31, 0x36,
+				0x00, 0x00, 0x00, 0x00, 0x11, 0x09, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x31, 0x37, 0x00, 0x00,
+				0x00, 0x00, 0x12, 0x09, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x31, 0x38, 0x00, 0x00, 0x00, 0x00,
+				0x13, 0x09, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x31, 0x39, 0x00, 0x00, 0x00, 0x00, 0x14, 0x09,
+				0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x32, 0x30, 0x00, 0x00, 0x00, 0x00, 0x15, 0x09, 0x63, 0x6c,
+				0x69, 0x65, 0x6e, 0x74, 0x20, 0x32, 0x31, 0x00, 0x00, 0x00, 0x00, 0x16, 0x09, 0x63, 0x6c, 0x69, 0x65,
+				0x6e, 0x74, 0x20, 0x32, 0x32, 0x00, 0x00, 0x00, 0x00, 0x17, 0x09, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74,
+				0x20, 0x32, 0x33, 0x00, 0x00, 0x00, 0x00, 0x18, 0x09, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x32,
+				0x34, 0x00, 0x00, 0x00, 0x00, 0x19, 0x09, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x32, 0x35, 0x00,
+				0x00, 0x00, 0x00, 0x1a, 0x09, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x32, 0x36, 0x00, 0x00, 0x00,
+				0x00, 0x1b, 0x09, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x32, 0x37, 0x00, 0x00, 0x00, 0x00, 0x1c,
+				0x09, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x32, 0x38, 0x00, 0x00, 0x00, 0x00, 0x1d, 0x09, 0x63,
+				0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x32, 0x39, 0x00, 0x00, 0x00, 0x00, 0x1e, 0x09, 0x63, 0x6c, 0x69,
+				0x65, 0x6e, 0x74, 0x20, 0x33, 0x30, 0x00, 0x00, 0x00, 0x00, 0x1f, 0x09, 0x63, 0x6c, 0x69, 0x65, 0x6e,
+				0x74, 0x20, 0x33, 0x31, 0x00 };
 		referenceRoomListArray = new byte[] { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x20, 0x00, 0x00, 0x00, 0x00, 0x00,
-				0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x20, 0x00, 0x00, 0x00, 0x00, 0x0b, 0x74, 0x65, 0x73, 0x74, 0x5f,
-				0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x30, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00,
-				0x00, 0x00, 0x00, 0x00, 0x01, 0x0b, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x31,
-				0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x02, 0x0b,
-				0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x32, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00,
-				0x00, 0x01, 0x00, 0x00, 0x00, 0x02, 0x00, 0x00, 0x00, 0x03, 0x0b, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72,
-				0x6f, 0x6f, 0x6d, 0x20, 0x33, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x03,
-				0x00, 0x00, 0x00, 0x04, 0x0b, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x34, 0x01,
-				0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x04, 0x00, 0x00, 0x00, 0x05, 0x0b, 0x74,
-				0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x35, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00,
-				0x01, 0x00, 0x00, 0x00, 0x05, 0x00, 0x00, 0x00, 0x06, 0x0b, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f,
-				0x6f, 0x6d, 0x20, 0x36, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x06, 0x00,
-				0x00, 0x00, 0x07, 0x0b, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x37, 0x01, 0x04,
-				0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x07, 0x00, 0x00, 0x00, 0x08, 0x0b, 0x74, 0x65,
-				0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x38, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01,
-				0x00, 0x00, 0x00, 0x08, 0x00, 0x00, 0x00, 0x09, 0x0b, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f,
-				0x6d, 0x20, 0x39, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x09, 0x00, 0x00,
-				0x00, 0x0a, 0x0c, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x31, 0x30, 0x01, 0x04,
-				0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x0a, 0x00, 0x00, 0x00, 0x0b, 0x0c, 0x74, 0x65,
-				0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x31, 0x31, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00,
-				0x01, 0x00, 0x00, 0x00, 0x0b, 0x00, 0x00, 0x00, 0x0c, 0x0c, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f,
-				0x6f, 0x6d, 0x20, 0x31, 0x32, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x0c,
-				0x00, 0x00, 0x00, 0x0d, 0x0c, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x31, 0x33,
-				0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x0d, 0x00, 0x00, 0x00, 0x0e, 0x0c,
-				0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x31, 0x34, 0x01, 0x04, 0x00, 0x00, 0x00,
-				0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x0e, 0x00, 0x00, 0x00, 0x0f, 0x0c, 0x74, 0x65, 0x73, 0x74, 0x5f,
-				0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x31, 0x35, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00,
-				0x00, 0x0f, 0x00, 0x00, 0x00, 0x10, 0x0c, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20,
-				0x31, 0x36, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x10, 0x00, 0x00, 0x00,
-				0x11, 0x0c, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x31, 0x37, 0x01, 0x04, 0x00,
-				0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x11, 0x00, 0x00, 0x00, 0x12, 0x0c, 0x74, 0x65, 0x73,
-				0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x31, 0x38, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01,
-				0x00, 0x00, 0x00, 0x12, 0x00, 0x00, 0x00, 0x13, 0x0c, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f,
-				0x6d, 0x20, 0x31, 0x39, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x13, 0x00,
-				0x00, 0x00, 0x14, 0x0c, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x32, 0x30, 0x01,
-				0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x14, 0x00, 0x00, 0x00, 0x15, 0x0c, 0x74,
-				0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x32, 0x31, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00,
-				0x00, 0x01, 0x00, 0x00, 0x00, 0x15, 0x00, 0x00, 0x00, 0x16, 0x0c, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72,
-				0x6f, 0x6f, 0x6d, 0x20, 0x32, 0x32, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00,
-				0x16, 0x00, 0x00, 0x00, 0x17, 0x0c, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x32,
-				0x33, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x17, 0x00, 0x00, 0x00, 0x18,
-				0x0c, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x32, 0x34, 0x01, 0x04, 0x00, 0x00,
-				0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x18, 0x00, 0x00, 0x00, 0x19, 0x0c, 0x74, 0x65, 0x73, 0x74,
-				0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x32, 0x35, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00,
-				0x00, 0x00, 0x19, 0x00, 0x00, 0x00, 0x1a, 0x0c, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d,
-				0x20, 0x32, 0x36, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x1a, 0x00, 0x00,
-				0x00, 0x1b, 0x0c, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x32, 0x37, 0x01, 0x04,
-				0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x1b, 0x00, 0x00, 0x00, 0x1c, 0x0c, 0x74, 0x65,
-				0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x32, 0x38, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00,
-				0x01, 0x00, 0x00, 0x00, 0x1c, 0x00, 0x00, 0x00, 0x1d, 0x0c, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f,
-				0x6f, 0x6d, 0x20, 0x32, 0x39, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x1d,
-				0x00, 0x00, 0x00, 0x1e, 0x0c, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x33, 0x30,
-				0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x1e, 0x00, 0x00, 0x00, 0x1f, 0x0c,
-				0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x33, 0x31, 0x01, 0x04, 0x00, 0x00, 0x00,
-				0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x1f };
+				0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x20, 0x00, 0x00, 0x00, 0x05, 0x00, 0x00, 0x00, 0x00, 0x0b, 0x74,
+				0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x30, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00,
+				0x01, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x0b, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f,
+				0x6f, 0x6d, 0x20, 0x31, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x01, 0x00,
+				0x00, 0x00, 0x02, 0x0b, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x32, 0x01, 0x04,
+				0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x02, 0x00, 0x00, 0x00, 0x03, 0x0b, 0x74, 0x65,
+				0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x33, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01,
+				0x00, 0x00, 0x00, 0x03, 0x00, 0x00, 0x00, 0x04, 0x0b, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f,
+				0x6d, 0x20, 0x34, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x04, 0x00, 0x00,
+				0x00, 0x05, 0x0b, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x35, 0x01, 0x04, 0x00,
+				0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x05, 0x00, 0x00, 0x00, 0x06, 0x0b, 0x74, 0x65, 0x73,
+				0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x36, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00,
+				0x00, 0x00, 0x06, 0x00, 0x00, 0x00, 0x07, 0x0b, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d,
+				0x20, 0x37, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x07, 0x00, 0x00, 0x00,
+				0x08, 0x0b, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x38, 0x01, 0x04, 0x00, 0x00,
+				0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x08, 0x00, 0x00, 0x00, 0x09, 0x0b, 0x74, 0x65, 0x73, 0x74,
+				0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x39, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00,
+				0x00, 0x09, 0x00, 0x00, 0x00, 0x0a, 0x0c, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20,
+				0x31, 0x30, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x0a, 0x00, 0x00, 0x00,
+				0x0b, 0x0c, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x31, 0x31, 0x01, 0x04, 0x00,
+				0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x0b, 0x00, 0x00, 0x00, 0x0c, 0x0c, 0x74, 0x65, 0x73,
+				0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x31, 0x32, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01,
+				0x00, 0x00, 0x00, 0x0c, 0x00, 0x00, 0x00, 0x0d, 0x0c, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f,
+				0x6d, 0x20, 0x31, 0x33, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x0d, 0x00,
+				0x00, 0x00, 0x0e, 0x0c, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x31, 0x34, 0x01,
+				0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x0e, 0x00, 0x00, 0x00, 0x0f, 0x0c, 0x74,
+				0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x31, 0x35, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00,
+				0x00, 0x01, 0x00, 0x00, 0x00, 0x0f, 0x00, 0x00, 0x00, 0x10, 0x0c, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72,
+				0x6f, 0x6f, 0x6d, 0x20, 0x31, 0x36, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00,
+				0x10, 0x00, 0x00, 0x00, 0x11, 0x0c, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x31,
+				0x37, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x11, 0x00, 0x00, 0x00, 0x12,
+				0x0c, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x31, 0x38, 0x01, 0x04, 0x00, 0x00,
+				0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x12, 0x00, 0x00, 0x00, 0x13, 0x0c, 0x74, 0x65, 0x73, 0x74,
+				0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x31, 0x39, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00,
+				0x00, 0x00, 0x13, 0x00, 0x00, 0x00, 0x14, 0x0c, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d,
+				0x20, 0x32, 0x30, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x14, 0x00, 0x00,
+				0x00, 0x15, 0x0c, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x32, 0x31, 0x01, 0x04,
+				0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x15, 0x00, 0x00, 0x00, 0x16, 0x0c, 0x74, 0x65,
+				0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x32, 0x32, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00,
+				0x01, 0x00, 0x00, 0x00, 0x16, 0x00, 0x00, 0x00, 0x17, 0x0c, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f,
+				0x6f, 0x6d, 0x20, 0x32, 0x33, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x17,
+				0x00, 0x00, 0x00, 0x18, 0x0c, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x32, 0x34,
+				0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x18, 0x00, 0x00, 0x00, 0x19, 0x0c,
+				0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x32, 0x35, 0x01, 0x04, 0x00, 0x00, 0x00,
+				0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x19, 0x00, 0x00, 0x00, 0x1a, 0x0c, 0x74, 0x65, 0x73, 0x74, 0x5f,
+				0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x32, 0x36, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00,
+				0x00, 0x1a, 0x00, 0x00, 0x00, 0x1b, 0x0c, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20,
+				0x32, 0x37, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x1b, 0x00, 0x00, 0x00,
+				0x1c, 0x0c, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x32, 0x38, 0x01, 0x04, 0x00,
+				0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x1c, 0x00, 0x00, 0x00, 0x1d, 0x0c, 0x74, 0x65, 0x73,
+				0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x32, 0x39, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01,
+				0x00, 0x00, 0x00, 0x1d, 0x00, 0x00, 0x00, 0x1e, 0x0c, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f,
+				0x6d, 0x20, 0x33, 0x30, 0x01, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x1e, 0x00,
+				0x00, 0x00, 0x1f, 0x0c, 0x74, 0x65, 0x73, 0x74, 0x5f, 0x72, 0x6f, 0x6f, 0x6d, 0x20, 0x33, 0x31, 0x01,
+				0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x1f };
 		referenceRoomArray = new byte[] { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x09, 0x54, 0x65, 0x73, 0x74, 0x20,
 				0x52, 0x6f, 0x6f, 0x6d, 0x01, 0x02, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
 				0x00, 0x00, 0x00, 0x09, 0x63, 0x6c, 0x69, 0x65, 0x6e, 0x74, 0x20, 0x31, 0x32, 0x00, 0x00, 0x01, 0x01,
 				0x01 };
-		referenceGameStateArray = new byte[] { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x7b, 0x0f, 0x05, 0x00, 0x00, 0x00,
-				0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
-				0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
-				0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
-				0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
-				0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
-				0x07, (byte) 0x82, 0x01, 0x1c, 0x12, 0x08, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
-				0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x07, (byte) 0xff,
-				(byte) 0xf8, 0x7c, 0x30, 0x00, 0x61, (byte) 0xf0, (byte) 0xff, (byte) 0xff, 0x01, 0x00, 0x00, 0x00,
-				0x00, 0x00, 0x00, 0x00, 0x40, 0x00, 0x00, 0x00, 0x40, 0x00, 0x00, 0x00, 0x64, 0x40, 0x72, (byte) 0xc0,
-				0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x03, 0x00, 0x00, 0x00, 0x02, 0x00, 0x30, 0x01, 0x01,
-				0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x05, 0x00, 0x00, 0x00, 0x05, 0x00, 0x00, 0x00, 0x05, 0x00,
-				0x00, 0x00, 0x05, 0x00, 0x1f };
-		referenceCustomMapArray = new byte[] { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x03, 0x04, 0x0f, 0x05, 0x00, 0x00,
-				0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
-				0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
-				0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
-				0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
-				0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
-				0x00, 0x07, (byte) 0x82, 0x01, 0x1c, 0x12, 0x08, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
-				0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x07,
-				(byte) 0xff, (byte) 0xf8, 0x7c, 0x30, 0x00, 0x61, (byte) 0xf0, (byte) 0xff, (byte) 0xff, 0x00, 0x00,
-				0x00, (byte) 0xfd, 0x00, 0x00, 0x00, (byte) 0x80, 0x00, 0x00, 0x00, 0x40, 0x00, 0x00, 0x00, 0x40, 0x00,
-				0x00, 0x00, 0x40, 0x00, 0x00, 0x00, 0x40, 0x00, 0x00, 0x00, 0x40, 0x00, 0x00, 0x00, 0x40 };
+		referenceGameStateArray = new byte[] { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x7b, 0x00, 0x0f, 0x00, 0x05, 0x11,
+				0x11, 0x11, 0x11, 0x11, 0x11, 0x11, 0x11, 0x00, 0x02, 0x11, 0x11, 0x12, 0x00, 0x21, 0x10, 0x00, 0x22,
+				0x20, 0x00, 0x20, 0x00, 0x11, 0x00, 0x02, 0x11, 0x11, 0x12, 0x22, 0x21, 0x11, 0x11, 0x11, 0x11, 0x11,
+				0x11, 0x11, 0x10, 0x01, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x40, 0x00, 0x00, 0x00, 0x40, 0x00,
+				0x00, 0x00, 0x64, 0x40, 0x72, (byte) 0xc0, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x03, 0x00,
+				0x00, 0x00, 0x02, 0x00, 0x30, 0x01, 0x01, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x05, 0x00, 0x00,
+				0x00, 0x05, 0x00, 0x00, 0x00, 0x05, 0x00, 0x00, 0x00, 0x05, 0x00, 0x1f };
+		referenceCustomMapArray = new byte[] { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x03, 0x04, 0x00, 0x0f, 0x00, 0x05,
+				0x11, 0x11, 0x11, 0x11, 0x11, 0x11, 0x11, 0x11, 0x00, 0x02, 0x11, 0x11, 0x12, 0x00, 0x21, 0x10, 0x00,
+				0x22, 0x20, 0x00, 0x20, 0x00, 0x11, 0x00, 0x02, 0x11, 0x11, 0x12, 0x22, 0x21, 0x11, 0x11, 0x11, 0x11,
+				0x11, 0x11, 0x11, 0x10, 0x00, 0x00, 0x00, (byte) 0xfd, 0x00, 0x00, 0x00, (byte) 0x80, 0x00, 0x00, 0x00,
+				0x40, 0x00, 0x00, 0x00, 0x40, 0x00, 0x00, 0x00, 0x40, 0x00, 0x00, 0x00, 0x40, 0x00, 0x00, 0x00, 0x40,
+				0x00, 0x00, 0x00, 0x40 };
 	}
 
 	@After
@@ -179,20 +174,20 @@ public class PacketEncodeDecodeTest {
 
 	@Test
 	public void testPlayerList() {
-		int ret = 0;
+		List<byte[]> pages = null;
 		try {
-			ret = ServerPacketEncoder.encodePlayerList(clientTable, array);
+			pages = ServerPacketEncoder.encodePlayerList(clientTable, 5, ProtocolConstant.MAX_LIST_PAGE_LENGTH);
 		} catch (IOException e) {
 			fail("encodePlayerList: " + e);
 		}
-		byte[] arr = new byte[ret];
-		System.arraycopy(array, 0, arr, 0, ret);
+		assertEquals(1, pages.size());
+		byte[] arr = pages.get(0);
 
 		assertArrayEquals(referencePlayerListArray, arr);
 
 		List<ClientServerPlayer> playerList = null;
 		try {
-			playerList = ClientPacketEncoder.decodePlayerList(arr, ret);
+			playerList = ClientPacketEncoder.decodePlayerList(arr, arr.length);
 		} catch (IOException e) {
 			fail("decodePlayerList: " + e);
 		}
@@ -202,20 +197,20 @@ public class PacketEncodeDecodeTest {
 
 	@Test
 	public void testRoomList() {
-		int ret = 0;
+		List<byte[]> pages = null;
 		try {
-			ret = ServerPacketEncoder.encodeRoomList(roomTable, array);
+			pages = ServerPacketEncoder.encodeRoomList(roomTable, 5, ProtocolConstant.MAX_LIST_PAGE_LENGTH);
 		} catch (IOException e) {
 			fail("encodeRoomList: " + e);
 		}
-		byte[] arr = new byte[ret];
-		System.arraycopy(array, 0, arr, 0, ret);
+		assertEquals(1, pages.size());
+		byte[] arr = pages.get(0);
 
 		assertArrayEquals(referenceRoomListArray, arr);
 
 		List<ClientServerLobbyRoom> roomList = null;
 		try {
-			roomList = ClientPacketEncoder.decodeRoomList(arr, ret);
+			roomList = ClientPacketEncoder.decodeRoomList(arr, arr.length);
 		} catch (IOException e) {
 			fail("decodeRoomList: " + e);
 		}
@@ -223,6 +218,142 @@ public class PacketEncodeDecodeTest {
 		assertEquals(roomTable.size(), roomList.size());
 	}
 
+	@Test
+	public void testPagedPlayerList() throws IOException {
+		ServerClientTable largeTable = new ServerClientTable(500);
+		for (int i = 0; i < 500; i++) {
+			SocketAddress sockAddr = new InetSocketAddress("12.12." + (i / 256) + "." + (i % 256), 1221);
+			largeTable.put(new ServerClientInfo(sockAddr, "client " + i));
+		}
+
+		List<byte[]> pages = ServerPacketEncoder.encodePlayerList(largeTable, 9, ProtocolConstant.MAX_LIST_PAGE_LENGTH);
+		assertTrue(pages.size() > 1);
+
+		// add the pages out of order, the list is complete after the last one
+		LobbyListAssembler<ClientServerPlayer> assembler = new LobbyListAssembler<ClientServerPlayer>(
+				ClientServerPlayer::getID);
+		for (int i = pages.size() - 1; i >= 0; i--) {
+			byte[] page = pages.get(i);
+			assertTrue(page.length <= ProtocolConstant.MAX_LIST_PAGE_LENGTH);
+
+			ByteBuffer buffer = ByteBuffer.wrap(page);
+			assertEquals(500, buffer.getInt(3));
+			assertEquals(i, buffer.getInt(7));
+			assertEquals(pages.size() - 1, buffer.getInt(11));
+			assertEquals(9, buffer.getInt(19));
+
+			List<ClientServerPlayer> entries = ClientPacketEncoder.decodePlayerList(page, page.length);
+			assertEquals(buffer.getInt(15), entries.size());
+
+			int next = assembler.addPage(buffer.getInt(19), buffer.getInt(7), buffer.getInt(11), entries);
+			assertEquals(i == 0 ? -1 : 0, next);
+		}
+
+		assertEquals(9, assembler.getVersion());
+		List<ClientServerPlayer> playerList = assembler.getList();
+		assertEquals(500, playerList.size());
+		for (int i = 0; i < 500; i++) {
+			assertEquals(i, playerList.get(i).getID());
+			assertEquals("client " + i, playerList.get(i).getName());
+		}
+
+		// a page of a newer version discards the pages of the older one
+		assertEquals(0, assembler.addPage(10, 1, 2, new ArrayList<ClientServerPlayer>()));
+		assertEquals(0, assembler.addPage(11, 2, 2, new ArrayList<ClientServerPlayer>()));
+		assertEquals(9, assembler.getVersion());
+	}
+
+	@Test
+	public void testLobbyListCache() throws IOException {
+		LobbyListCache cache = new LobbyListCache(() -> ServerPacketEncoder.encodePlayerEntries(clientTable),
+				ProtocolConstant.MAX_LIST_PAGE_LENGTH, 7);
+
+		// the list is encoded only once until it is invalidated
+		LobbyListCache.Pages pages = cache.getPages();
+		assertEquals(7, pages.getVersion());
+		assertSame(pages, cache.getPages());
+		assertNull(cache.takeDelta());
+		assertEquals(1, cache.getEncodeCount());
+
+		// and encoded again at the next lobby tick
+		clientTable.remove(new InetSocketAddress("12.12.12.3", 1221));
+		cache.invalidate();
+		assertSame(pages, cache.getPages());
+		assertNotNull(cache.takeDelta());
+
+		LobbyListCache.Pages newPages = cache.getPages();
+		assertEquals(8, newPages.getVersion());
+		assertEquals(2, cache.getEncodeCount());
+		assertEquals(clientTable.size(), ClientPacketEncoder.decodePlayerList(newPages.get(0), newPages.get(0).length)
+				.size());
+
+		// out of range page indices are clamped
+		assertSame(newPages.get(0), newPages.get(-3));
+		assertSame(newPages.get(0), newPages.get(3));
+
+		// a change which leaves the list as it was keeps the version
+		cache.invalidate();
+		assertNull(cache.takeDelta());
+		assertSame(newPages, cache.getPages());
+		assertEquals(2, cache.getEncodeCount());
+	}
+
+	@Test
+	public void testLobbyEvents() throws IOException {
+		LobbyListCache cache = new LobbyListCache(() -> ServerPacketEncoder.encodePlayerEntries(clientTable),
+				ProtocolConstant.MAX_LIST_PAGE_LENGTH, 0);
+		LobbyListAssembler<ClientServerPlayer> assembler = new LobbyListAssembler<ClientServerPlayer>(
+				ClientServerPlayer::getID);
+		LobbyListCache.Pages pages = cache.getPages();
+		byte[] page = pages.get(0);
+		assembler.addPage(pages.getVersion(), 0, 0, ClientPacketEncoder.decodePlayerList(page, page.length));
+		assertNull(cache.takeDelta());
+
+		// the changes in one tick are pushed together, the newcomer taking the
+		// ID of the client who has left
+		clientTable.remove(new InetSocketAddress("12.12.12.4", 1221));
+		cache.invalidate();
+		clientTable.remove(new InetSocketAddress("12.12.12.3", 1221));
+		clientTable.put(new ServerClientInfo(new InetSocketAddress("12.12.13.1", 1221), "newcomer"));
+		cache.invalidate();
+		assertSame(pages, cache.getPages());
+
+		LobbyListCache.Delta delta = cache.takeDelta();
+		assertEquals(0, delta.getFromVersion());
+		assertEquals(1, delta.getToVersion());
+		assertEquals(Arrays.asList(4), delta.getRemovedIDs());
+		assertEquals(1, delta.getPutEntries().size());
+		assertNull(cache.takeDelta());
+
+		int ret = ServerPacketEncoder.encodeLobbyEvents(delta, ProtocolConstant.MSG_S_LOBBY_PLAYERLIST, array);
+		assertEquals(1 + 2 + 1 + 4 + 4 + 2 + (1 + 4) + (1 + 4 + 1 + 8 + 1), ret);
+
+		List<Integer> removedIDs = new ArrayList<Integer>();
+		List<ClientServerPlayer> changedPlayers = new ArrayList<ClientServerPlayer>();
+		ClientPacketEncoder.decodePlayerEvents(array, ret, removedIDs, changedPlayers);
+		assertEquals(Arrays.asList(4), removedIDs);
+		assertEquals(1, changedPlayers.size());
+		assertEquals(3, changedPlayers.get(0).getID());
+		assertEquals("newcomer", changedPlayers.get(0).getName());
+
+		// the changes apply only to the version they start from
+		assertFalse(assembler.applyChanges(1, 2, removedIDs, changedPlayers));
+		assertTrue(assembler.applyChanges(0, 1, removedIDs, changedPlayers));
+		assertEquals(1, assembler.getVersion());
+
+		List<ClientServerPlayer> playerList = assembler.getList();
+		assertEquals(clientTable.size(), playerList.size());
+		for (int i = 1; i < playerList.size(); i++) {
+			assertTrue(playerList.get(i - 1).getID() < playerList.get(i).getID());
+			assertNotEquals(4, playerList.get(i).getID());
+		}
+		assertEquals("newcomer", playerList.get(3).getName());
+
+		// events which do not fit tell the clients to request the list
+		ret = ServerPacketEncoder.encodeLobbyEvents(delta, ProtocolConstant.MSG_S_LOBBY_PLAYERLIST, new byte[20]);
+		assertEquals(1 + 2 + 1 + 4 + 4 + 2, ret);
+	}
+
 	@Test
 	public void testRoom() {
 		SocketAddress sockAddr = new InetSocketAddress("12.12.12.12", 12);
@@ -314,6 +445,125 @@ public class PacketEncodeDecodeTest {
 		}
 	}
 
+	@Test
+	public void testGameStateDelta() throws IOException {
+		Player testPlayer = new Player("testPlayer", new Point(64, 64), 100, 300);
+		ArrayList<Player> testPlayerList = new ArrayList<Player>();
+		testPlayerList.add(testPlayer);
+		// a 16x16 map with solid borders and soft blocks inside
+		Block[][] testGridMap = new Block[16][16];
+		for (int x = 0; x < 16; x++) {
+			for (int y = 0; y < 16; y++) {
+				testGridMap[x][y] = x == 0 || y == 0 || x == 15 || y == 15 ? Block.SOLID : Block.SOFT;
+			}
+		}
+		GameState testGameState = new GameState(new Map("test map", testGridMap, new ArrayList<>()), testPlayerList);
+
+		// two consecutive snapshots
+		byte[] first = new byte[2000];
+		int firstLength = ServerPacketEncoder.encodeGameState(testGameState, 123, first);
+		testPlayer.setPosition(70, 64);
+		testGridMap[2][1] = Block.BLANK;
+		testGameState.getBombs().add(new Bomb("test Bomb", new Point(64, 64), 2000, 3));
+		byte[] second = new byte[2000];
+		int secondLength = ServerPacketEncoder.encodeGameState(testGameState, 123, second);
+
+		SnapshotRing snapshots = new SnapshotRing(4, 2000);
+		byte[] rebuilt = new byte[2000];
+
+		// without a baseline, the whole snapshot is sent
+		int fullLength = ServerPacketEncoder.encodeGameStateDelta(first, 7, firstLength - 7, null, 0, 123, 1,
+				SnapshotRing.NO_SNAPSHOT, (short) -1, array);
+		int rebuiltLength = ClientPacketEncoder.decodeGameStateDelta(array, fullLength, snapshots, rebuilt);
+		assertEquals(firstLength, rebuiltLength);
+		assertArrayEquals(Arrays.copyOfRange(first, 3, firstLength), Arrays.copyOfRange(rebuilt, 3, rebuiltLength));
+		snapshots.put(1, rebuilt, 7, rebuiltLength - 7);
+
+		// against the baseline, only the changes are sent
+		int deltaLength = ServerPacketEncoder.encodeGameStateDelta(second, 7, secondLength - 7,
+				snapshots.getBody(snapshots.find(1)), snapshots.getLength(snapshots.find(1)), 123, 2, 1, (short) 7,
+				array);
+		assertTrue(deltaLength < secondLength / 2);
+		assertEquals(7, ByteBuffer.wrap(array).getShort(15));
+		rebuiltLength = ClientPacketEncoder.decodeGameStateDelta(array, deltaLength, snapshots, rebuilt);
+		assertEquals(secondLength, rebuiltLength);
+		assertArrayEquals(Arrays.copyOfRange(second, 3, secondLength), Arrays.copyOfRange(rebuilt, 3, rebuiltLength));
+
+		GameState decoded = ClientPacketEncoder.decodeGameState(null, rebuilt, rebuiltLength);
+		assertEquals(new Point(70, 64), decoded.getPlayers().get(0).getPos());
+		assertEquals(Block.BLANK, decoded.getMap().getGridMap()[2][1]);
+		assertEquals(1, decoded.getBombs().size());
+
+		// a delta against a snapshot the client does not have cannot be decoded
+		snapshots.clear();
+		try {
+			ClientPacketEncoder.decodeGameStateDelta(array, deltaLength, snapshots, rebuilt);
+			fail("decodeGameStateDelta: missing baseline accepted");
+		} catch (IOException e) {
+		}
+
+		assertTrue(SnapshotRing.isNewer(2, 1));
+		assertTrue(SnapshotRing.isNewer(Integer.MIN_VALUE, Integer.MAX_VALUE));
+		assertTrue(SnapshotRing.isNewer(1, SnapshotRing.NO_SNAPSHOT));
+		assertFalse(SnapshotRing.isNewer(1, 2));
+	}
+
+	@Test
+	public void testLargeGameState() throws IOException {
+		Block[][] testGridMap = new Block[120][85];
+		for (int x = 0; x < testGridMap.length; x++) {
+			for (int y = 0; y < testGridMap[x].length; y++) {
+				testGridMap[x][y] = Block.values()[(x * 7 + y) % Block.values().length];
+			}
+		}
+		Player human = new Player("human", new Point(64, 64), 3, 300);
+		human.setPlayerID(40000);
+		Player ai = new Player("ai", new Point(128, 64), 3, 300);
+		ai.setPlayerID(40001);
+		ai.setAI(true);
+		ArrayList<Player> testPlayerList = new ArrayList<Player>();
+		testPlayerList.add(human);
+		testPlayerList.add(ai);
+		GameState testGameState = new GameState(new Map("large map", testGridMap, new ArrayList<>()), testPlayerList);
+
+		byte[] state = new byte[ServerPacketEncoder.maxGameStateLength(120, 85)];
+		int stateLength = ServerPacketEncoder.encodeGameState(testGameState, 123, state);
+		byte[] delta = new byte[ServerPacketEncoder.maxGameStateDeltaLength(state.length - 7)];
+		int deltaLength = ServerPacketEncoder.encodeGameStateDelta(state, 7, stateLength - 7, null, 0, 123, 1,
+				SnapshotRing.NO_SNAPSHOT, (short) -1, delta);
+		byte[] rebuilt = new byte[state.length];
+		int rebuiltLength = ClientPacketEncoder.decodeGameStateDelta(delta, deltaLength, new SnapshotRing(4, 2000),
+				rebuilt);
+		assertEquals(stateLength, rebuiltLength);
+
+		GameState decoded = ClientPacketEncoder.decodeGameState(null, rebuilt, rebuiltLength);
+		for (int x = 0; x < testGridMap.length; x++) {
+			assertArrayEquals(testGridMap[x], decoded.getMap().getGridMap()[x]);
+		}
+		assertEquals(40000, decoded.getPlayers().get(0).getPlayerID());
+		assertFalse(decoded.getPlayers().get(0).isAI());
+		assertTrue(decoded.getPlayers().get(1).isAI());
+		assertTrue(decoded.getPlayers().get(1).isAlive());
+
+		// decoding into a game state on a smaller map replaces the map
+		GameState small = ClientPacketEncoder.decodeGameState(null, rebuilt, rebuiltLength);
+		small.getMap().getGridMap()[0][0] = null;
+		small = ClientPacketEncoder.decodeGameState(small, rebuilt, rebuiltLength);
+		assertEquals(testGridMap[0][0], small.getMap().getGridMap()[0][0]);
+		assertTrue(small.getPlayers().get(1).isAI());
+
+		// maps larger than the limit are rejected
+		testGameState.setMap(new Map("too large", new Block[256][1], new ArrayList<>()));
+		for (Block[] column : testGameState.getMap().getGridMap()) {
+			Arrays.fill(column, Block.BLANK);
+		}
+		try {
+			ServerPacketEncoder.encodeGameState(testGameState, 123, state);
+			fail("encodeGameState: map larger than the limit accepted");
+		} catch (IOException e) {
+		}
+	}
+
 	@Test
 	public void testCustomMap() {
 		Block[][] testGridMap = new Block[][] { { Block.SOLID, Block.SOLID, Block.SOLID, Block.SOLID, Block.SOLID },
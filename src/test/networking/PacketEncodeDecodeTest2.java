@@ -41,7 +41,9 @@ public class PacketEncodeDecodeTest2 {
 		byte[] arr = new byte[2000];
 		int ret = 0;
 		try {
-			ret = ServerPacketEncoder.encodePlayerList(clientTable, arr);
+			byte[] page = ServerPacketEncoder.encodePlayerList(clientTable, 0, arr.length).get(0);
+			ret = page.length;
+			System.arraycopy(page, 0, arr, 0, ret);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -76,7 +78,9 @@ public class PacketEncodeDecodeTest2 {
 		}
 
 		try {
-			ret = ServerPacketEncoder.encodeRoomList(roomTable, arr);
+			byte[] page = ServerPacketEncoder.encodeRoomList(roomTable, 0, arr.length).get(0);
+			ret = page.length;
+			System.arraycopy(page, 0, arr, 0, ret);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -0,0 +1,80 @@
+package test.networking;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import bomber.networking.PlayerInputQueue;
+
+public class PlayerInputQueueTest {
+	private static final short NONE = 1;
+	private static final short UP = 1 << 1;
+	private static final short RIGHT = 1 << 4;
+	private static final short BOMB = 1 << 5;
+
+	private PlayerInputQueue queue;
+
+	@Before
+	public void setUp() throws Exception {
+		queue = new PlayerInputQueue(4);
+	}
+
+	// the moves of a packet, newest first
+	private int add(int newestSequence, short... moves) {
+		ByteBuffer buffer = ByteBuffer.allocate(3 + 2 * moves.length);
+		for (int i = 0; i < moves.length; i++) {
+			buffer.putShort(3 + 2 * i, moves[i]);
+		}
+		return queue.add((short) newestSequence, buffer, 3, moves.length);
+	}
+
+	@Test
+	public void testRedundancy() {
+		assertEquals(-1, queue.take());
+		assertEquals(-1, queue.getLastTaken());
+
+		assertEquals(1, add(0, UP));
+		assertEquals(1, add(1, RIGHT, UP));
+		// packet 2 is lost, but its move comes with packet 3
+		assertEquals(2, add(3, NONE, (short) (RIGHT | BOMB), RIGHT));
+
+		// the bomb pressed in a move between two ticks is kept
+		long move = queue.take();
+		assertEquals(3, move >>> 16);
+		assertEquals(NONE | BOMB, (short) move);
+		assertEquals(3, queue.getLastTaken());
+		assertEquals(-1, queue.take());
+	}
+
+	@Test
+	public void testReordering() {
+		assertEquals(2, add(5, RIGHT, UP));
+		// an older packet arriving late changes nothing
+		assertEquals(0, add(4, UP, NONE));
+		assertEquals(RIGHT, (short) queue.take());
+
+		assertEquals(0, add(5, RIGHT, UP));
+		assertEquals(-1, queue.take());
+	}
+
+	@Test
+	public void testOverflow() {
+		assertEquals(6, add(5, NONE, NONE, NONE, NONE, NONE, BOMB));
+		// the oldest moves are dropped
+		assertEquals(NONE, (short) queue.take());
+	}
+
+	@Test
+	public void testWrapAround() {
+		assertEquals(1, add(32767, UP));
+		assertEquals(1, add(-32768, RIGHT, UP));
+		long move = queue.take();
+		assertEquals(RIGHT, (short) move);
+		assertEquals((short) -32768, (short) (move >>> 16));
+		assertEquals((short) -32768, queue.getLastTaken());
+	}
+
+}
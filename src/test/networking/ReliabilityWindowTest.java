@@ -0,0 +1,121 @@
+package test.networking;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import bomber.networking.ReliabilityWindow;
+
+public class ReliabilityWindowTest {
+	private ReliabilityWindow window;
+
+	@Before
+	public void setUp() throws Exception {
+		window = new ReliabilityWindow();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+	}
+
+	@Test
+	public void testReceive() {
+		byte[] ack = new byte[3 + ReliabilityWindow.ACK_LENGTH];
+
+		assertFalse(window.isAckPending());
+		assertEquals(0, window.writeAck(ack, 3));
+
+		assertFalse(window.isSequenceDuplicate((short) 10));
+		assertFalse(window.isSequenceDuplicate((short) 12));
+		assertFalse(window.isSequenceDuplicate((short) 11));
+		assertTrue(window.isSequenceDuplicate((short) 11));
+		assertTrue(window.isAckPending());
+
+		assertEquals(ReliabilityWindow.ACK_LENGTH, window.writeAck(ack, 3));
+		assertFalse(window.isAckPending());
+		assertEquals((short) 12, ReliabilityWindow.readAckLatest(ack, 3));
+		assertEquals(3l, ReliabilityWindow.readAckMask(ack, 3));
+
+		// packets older than the window are duplicate
+		assertFalse(window.isSequenceDuplicate((short) 100));
+		assertTrue(window.isSequenceDuplicate((short) 12));
+		assertFalse(window.isSequenceDuplicate((short) 36));
+		assertTrue(window.isSequenceDuplicate((short) 36));
+
+		// the sequence numbers wrap around
+		window = new ReliabilityWindow();
+		assertFalse(window.isSequenceDuplicate((short) 32767));
+		assertFalse(window.isSequenceDuplicate((short) -32768));
+		assertTrue(window.isSequenceDuplicate((short) 32767));
+		window.writeAck(ack, 3);
+		assertEquals((short) -32768, ReliabilityWindow.readAckLatest(ack, 3));
+		assertEquals(1l, ReliabilityWindow.readAckMask(ack, 3));
+	}
+
+	@Test
+	public void testAckTrailer() {
+		byte[] packet = new byte[3 + ReliabilityWindow.MAX_ACK_TRAILER_LENGTH];
+
+		// nothing received yet, the trailer is only the length byte
+		assertEquals(1, window.writeAckTrailer(packet, 3));
+		assertEquals(0, ReliabilityWindow.readAckTrailerLength(packet, 4, 3));
+
+		assertFalse(window.isSequenceDuplicate((short) 7));
+		assertFalse(window.isSequenceDuplicate((short) 5));
+		assertEquals(ReliabilityWindow.MAX_ACK_TRAILER_LENGTH, window.writeAckTrailer(packet, 3));
+		assertFalse(window.isAckPending());
+		assertEquals(ReliabilityWindow.ACK_LENGTH, ReliabilityWindow.readAckTrailerLength(packet, packet.length, 3));
+		assertEquals((short) 7, ReliabilityWindow.readAckLatest(packet, 3));
+		assertEquals(2l, ReliabilityWindow.readAckMask(packet, 3));
+
+		assertEquals(1, ReliabilityWindow.writeEmptyAckTrailer(packet, 3));
+		assertEquals(0, ReliabilityWindow.readAckTrailerLength(packet, 4, 3));
+
+		// a length byte which is not an acknowledgement length, or longer than
+		// the packet, is invalid
+		packet[3] = 4;
+		assertEquals(-1, ReliabilityWindow.readAckTrailerLength(packet, 4, 3));
+		packet[3] = ReliabilityWindow.ACK_LENGTH;
+		assertEquals(-1, ReliabilityWindow.readAckTrailerLength(packet, 4, 3));
+		assertEquals(-1, ReliabilityWindow.readAckTrailerLength(packet, 3, 3));
+	}
+
+	@Test
+	public void testAcknowledge() {
+		byte[] data = new byte[] { 1, 2, 3 };
+		for (int i = 0; i < 70; i++) {
+			short sequence = window.getNextPacketSequenceAndIncrement();
+			assertEquals((short) i, sequence);
+			window.insertPacket(sequence, data, data.length);
+		}
+
+		// the oldest packets have been replaced
+		assertEquals((short) 64, window.getPacket(0).getSequence());
+		assertEquals((short) 69, window.getPacket(5).getSequence());
+		assertEquals((short) 6, window.getPacket(6).getSequence());
+
+		// 69, 67 and 66 are acknowledged
+		assertTrue(window.acknowledge((short) 69, 6l) != -1);
+		assertTrue(window.getPacket(69 % ReliabilityWindow.WINDOW_SIZE).isAcked());
+		assertFalse(window.getPacket(68 % ReliabilityWindow.WINDOW_SIZE).isAcked());
+		assertTrue(window.getPacket(67 % ReliabilityWindow.WINDOW_SIZE).isAcked());
+		assertTrue(window.getPacket(66 % ReliabilityWindow.WINDOW_SIZE).isAcked());
+
+		// nothing new is acknowledged
+		assertEquals(-1, window.acknowledge((short) 69, 6l));
+
+		// a retransmitted packet gives no round trip time
+		window.getPacket(68 % ReliabilityWindow.WINDOW_SIZE).incrementRetransmissionCount();
+		assertEquals(-1, window.acknowledge((short) 68, 0l));
+		assertTrue(window.getPacket(68 % ReliabilityWindow.WINDOW_SIZE).isAcked());
+
+		// every packet of the window is acknowledged at once
+		window.acknowledge((short) 69, -1l);
+		for (int i = 0; i < ReliabilityWindow.WINDOW_SIZE; i++) {
+			assertTrue(window.getPacket(i).isAcked());
+		}
+	}
+
+}
@@ -0,0 +1,95 @@
+package test.networking;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import bomber.networking.PacketHistoryEntry;
+import bomber.networking.RetransmitTimerWheel;
+
+public class RetransmitTimerWheelTest {
+	private RetransmitTimerWheel wheel;
+	private List<Short> expired;
+	private RetransmitTimerWheel.ExpiryHandler handler;
+
+	@Before
+	public void setUp() throws Exception {
+		wheel = new RetransmitTimerWheel(8, 10, 1000);
+		expired = new ArrayList<>();
+		handler = (entry, now) -> expired.add(entry.getSequence());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+	}
+
+	private PacketHistoryEntry entry(int sequence) {
+		return new PacketHistoryEntry((short) sequence, new byte[3], 3);
+	}
+
+	@Test
+	public void testAdvance() {
+		wheel.schedule(entry(1), 1030);
+		wheel.schedule(entry(2), 1030);
+		wheel.schedule(entry(3), 1050);
+		// more than one turn of the wheel away
+		wheel.schedule(entry(4), 1200);
+		assertEquals(4, wheel.size());
+
+		assertEquals(0, wheel.advance(1029, handler));
+		assertEquals(2, wheel.advance(1030, handler));
+		assertTrue(expired.contains((short) 1));
+		assertTrue(expired.contains((short) 2));
+
+		assertEquals(1, wheel.advance(1199, handler));
+		assertEquals((short) 3, (short) expired.get(2));
+		assertEquals(1, wheel.size());
+
+		assertEquals(1, wheel.advance(1200, handler));
+		assertEquals((short) 4, (short) expired.get(3));
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	public void testCancel() {
+		PacketHistoryEntry first = entry(1);
+		PacketHistoryEntry second = entry(2);
+		wheel.schedule(first, 1020);
+		wheel.schedule(second, 1020);
+
+		assertTrue(wheel.cancel(second));
+		assertFalse(wheel.cancel(second));
+		assertEquals(1, wheel.size());
+
+		assertEquals(1, wheel.advance(1100, handler));
+		assertFalse(wheel.cancel(first));
+		assertEquals(1, expired.size());
+		assertEquals((short) 1, (short) expired.get(0));
+	}
+
+	@Test
+	public void testScheduleAgain() {
+		PacketHistoryEntry packet = entry(1);
+		// a deadline in the past expires at the next tick
+		wheel.schedule(packet, 900);
+		handler = (entry, now) -> {
+			expired.add(entry.getSequence());
+			if (expired.size() < 3) {
+				wheel.schedule(entry, now + 80);
+			}
+		};
+
+		assertEquals(1, wheel.advance(1010, handler));
+		assertEquals(0, wheel.advance(1089, handler));
+		assertEquals(1, wheel.advance(1090, handler));
+		assertEquals(1, wheel.advance(1170, handler));
+		assertEquals(0, wheel.size());
+		assertEquals(3, expired.size());
+	}
+
+}
@@ -0,0 +1,112 @@
+package test.networking;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import bomber.networking.RoomTickScheduler;
+
+public class RoomTickSchedulerTest {
+	private RoomTickScheduler scheduler;
+
+	@Before
+	public void setUp() throws Exception {
+		scheduler = new RoomTickScheduler(2);
+		scheduler.start();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testTicks() throws InterruptedException {
+		CountDownLatch done = new CountDownLatch(2);
+		AtomicInteger first = new AtomicInteger();
+		AtomicInteger second = new AtomicInteger();
+
+		long start = System.nanoTime();
+		RoomTickScheduler.ScheduledRoom room = scheduler.schedule(() -> {
+			if (first.incrementAndGet() < 20) {
+				return true;
+			}
+			done.countDown();
+			return false;
+		}, 100);
+		scheduler.schedule(() -> {
+			if (second.incrementAndGet() < 20) {
+				return true;
+			}
+			done.countDown();
+			return false;
+		}, 100);
+
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		long elapsed = System.nanoTime() - start;
+		// the last ticks are recorded after they return
+		Thread.sleep(50);
+
+		// 20 ticks at 100 ticks per second take about 200ms
+		assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(180));
+		assertEquals(20, first.get());
+		assertEquals(20, second.get());
+		assertEquals(20, room.getTickCount());
+		assertEquals(0, room.getSkippedTickCount());
+		assertEquals(0, scheduler.getRoomCount());
+		assertEquals(40, scheduler.getTickCount());
+		assertTrue(scheduler.getMaxTickTime() >= scheduler.getAverageTickTime());
+		assertNotNull(scheduler.toString());
+		assertNotNull(room.toString());
+	}
+
+	@Test
+	public void testSkip() throws InterruptedException {
+		CountDownLatch done = new CountDownLatch(1);
+		AtomicInteger ticks = new AtomicInteger();
+
+		// a tick taking 10 intervals is too far behind to catch up
+		RoomTickScheduler.ScheduledRoom room = scheduler.schedule(() -> {
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				return false;
+			}
+			if (ticks.incrementAndGet() < 3) {
+				return true;
+			}
+			done.countDown();
+			return false;
+		}, 5, TimeUnit.MILLISECONDS);
+
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		Thread.sleep(50);
+		assertEquals(3, room.getTickCount());
+		assertTrue(room.getSkippedTickCount() >= 10);
+		assertTrue(scheduler.getSkippedTickCount() >= 10);
+	}
+
+	@Test
+	public void testCancel() throws InterruptedException {
+		AtomicInteger ticks = new AtomicInteger();
+		RoomTickScheduler.ScheduledRoom room = scheduler.schedule(() -> {
+			ticks.incrementAndGet();
+			return true;
+		}, 200);
+
+		Thread.sleep(50);
+		room.cancel();
+		Thread.sleep(20);
+		int count = ticks.get();
+		Thread.sleep(50);
+		assertEquals(count, ticks.get());
+		assertTrue(count > 0);
+	}
+
+}
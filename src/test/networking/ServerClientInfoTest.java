@@ -10,6 +10,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import bomber.networking.ReliabilityWindow;
 import bomber.networking.ServerClientInfo;
 
 public class ServerClientInfoTest {
@@ -46,7 +47,7 @@ public class ServerClientInfoTest {
 			assertTrue(sci.isSequenceDuplicate(i));
 		}
 
-		assertEquals(100, sci.getPacketHistoryList().size());
+		assertEquals((short) 100, sci.getReliabilityWindow().getPacket(100 % ReliabilityWindow.WINDOW_SIZE).getSequence());
 
 		assertFalse(sci.isSequenceDuplicate((short) 100));
 
@@ -87,12 +88,33 @@ public class ServerClientInfoTest {
 		sci.setRoundTripDelay(10);
 		assertEquals(10l, sci.getRoundTripDelay());
 
+		// the initial timeout is used until the delay is measured
+		assertEquals(500l, sci.getRetransmitTimeout(500, 0));
+		assertEquals(1000l, sci.getRetransmitTimeout(500, 1));
+		sci.addRoundTripSample(100);
+		assertEquals(100l, sci.getRoundTripDelay());
+		assertEquals(50l, sci.getRoundTripDelayVariation());
+		assertEquals(300l, sci.getRetransmitTimeout(500, 0));
+		assertEquals(1200l, sci.getRetransmitTimeout(500, 2));
+		assertEquals(ServerClientInfo.MAX_RETRANSMIT_TIMEOUT, sci.getRetransmitTimeout(500, 40));
+		for (int i = 0; i < 50; i++) {
+			sci.addRoundTripSample(2);
+		}
+		assertEquals(ServerClientInfo.MIN_RETRANSMIT_TIMEOUT, sci.getRetransmitTimeout(500, 0));
+
+		sci.countRetransmittedPacket();
+		sci.countRetransmittedPacket();
+		sci.countLostPacket();
+		assertEquals(2l, sci.getRetransmittedPacketCount());
+		assertEquals(1l, sci.getLostPacketCount());
+
 		assertEquals(101, sci.getNextPacketSequenceAndIncrement());
 		assertEquals(102, sci.getNextPacketSequenceAndIncrement());
 
-		assertFalse(sci.isSequenceDuplicate((short) 0));
-		assertTrue(sci.isSequenceDuplicate((short) 0));
 		assertTrue(sci.isSequenceDuplicate((short) 0));
+		assertFalse(sci.isSequenceDuplicate((short) 200));
+		assertTrue(sci.isSequenceDuplicate((short) 200));
+		assertTrue(sci.isSequenceDuplicate((short) 200));
 
 		sci.updateTimeStamp();
 		assertTrue(sci.getTimeStamp() <= Instant.now().getEpochSecond());
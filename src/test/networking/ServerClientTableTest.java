@@ -42,7 +42,11 @@ public class ServerClientTableTest {
 		assertFalse(table.contains("P2"));
 
 		ServerClientInfo c2 = new ServerClientInfo(new InetSocketAddress("1.1.1.2", 1112), "P2");
-		table.put(c2);
+		assertTrue(table.put(c2));
+
+		// duplicate names and socket addresses are rejected
+		assertFalse(table.put(new ServerClientInfo(new InetSocketAddress("1.1.1.3", 1113), "P2")));
+		assertFalse(table.put(new ServerClientInfo(new InetSocketAddress("1.1.1.2", 1112), "P3")));
 
 		assertEquals(2, table.size());
 		assertTrue(table.contains(0));
@@ -4,6 +4,7 @@ import static org.junit.Assert.*;
 
 import java.io.IOException;
 import java.net.SocketException;
+import java.util.List;
 
 import org.junit.After;
 import org.junit.Before;
@@ -13,6 +14,8 @@ import bomber.AI.AIDifficulty;
 import bomber.game.KeyboardState;
 import bomber.game.Movement;
 import bomber.networking.ClientNetInterface;
+import bomber.networking.ClientServerLobbyRoom;
+import bomber.networking.ClientServerPlayer;
 import bomber.networking.ClientServerRoom;
 import bomber.networking.ClientThread;
 import bomber.networking.ServerConfiguration;
@@ -30,6 +33,7 @@ public class ServerClientTest implements ClientNetInterface {
 	private boolean notConnected;
 	private boolean playerListReceived;
 	private boolean roomListReceived;
+	private boolean roomListChanged;
 	private boolean roomAccepted;
 	private boolean roomRejected;
 	private boolean notInRoom;
@@ -53,8 +57,11 @@ public class ServerClientTest implements ClientNetInterface {
 		}
 		server.exit();
 
+		// the blocking socket transport
+		ServerConfiguration socketConfig = new ServerConfiguration();
+		socketConfig.setNioTransport(false);
 		try {
-			server = new ServerThread(port, System.out, config);
+			server = new ServerThread(port, System.out, socketConfig);
 		} catch (SocketException e) {
 			fail(e.toString());
 		}
@@ -414,6 +421,20 @@ public class ServerClientTest implements ClientNetInterface {
 				fail("Failed to receive room info");
 			}
 
+			// the changes of the room list are pushed without being requested
+			for (int i = 0; i < 2000; i++) {
+				Thread.sleep(1);
+				if (roomListChanged && client.getRoomList().size() == 1
+						&& "RR0".equals(client.getRoomList().get(0).getName())) {
+					break;
+				}
+			}
+			assertTrue(roomListChanged);
+			assertEquals(1, client.getRoomList().size());
+			assertEquals("RR0", client.getRoomList().get(0).getName());
+			assertEquals(4, client.getRoomList().get(0).getMaxPlayer());
+			assertEquals(client.getRoomID(), client.getPlayerList().get(0).getRoomID());
+
 			playerListReceived = false;
 			roomListReceived = false;
 			client.updatePlayerList();
@@ -483,6 +504,11 @@ public class ServerClientTest implements ClientNetInterface {
 			assertNotNull(client.getGameState());
 			assertEquals(4, client.getGameState().getPlayers().size());
 
+			// the game states tell which of the moves sent has been applied
+			short applied = client.getAppliedInputSequence();
+			short sent = client.sendMove(new KeyboardState());
+			assertTrue(applied >= 0 && applied < sent);
+
 			haveLeftRoom = false;
 			client.leaveRoom();
 			for (int i = 0; i < 2000; i++) {
@@ -558,6 +584,15 @@ public class ServerClientTest implements ClientNetInterface {
 		this.roomListReceived = true;
 	}
 
+	@Override
+	public void playerListChanged(List<Integer> removedIDs, List<ClientServerPlayer> changedPlayers) {
+	}
+
+	@Override
+	public void roomListChanged(List<Integer> removedIDs, List<ClientServerLobbyRoom> changedRooms) {
+		this.roomListChanged = true;
+	}
+
 	@Override
 	public void roomAccepted() {
 		this.roomAccepted = true;
@@ -45,6 +45,8 @@ public class ServerConfigurationTest {
 		assertEquals(30, config.getMaxRetransmitCount());
 
 		assertEquals(32, config.getMaxPlayer());
+		assertEquals(5000, new ServerConfiguration(25, 10, 5000).getMaxPlayer());
+		assertEquals(32, new ServerConfiguration(25, 10, ServerConfiguration.MAX_PLAYER_LIMIT + 1).getMaxPlayer());
 
 		config.setServerName(null);
 		assertNotNull(config.getServerName());
@@ -60,6 +62,31 @@ public class ServerConfigurationTest {
 		assertTrue(config.getMaxNameLength() > 1);
 
 		assertNotNull(config.getVersion());
+
+		assertTrue(config.isNioTransport());
+		config.setNioTransport(false);
+		assertFalse(config.isNioTransport());
+
+		assertTrue(config.getWorkerCount() >= 1);
+		config.setWorkerCount(0);
+		assertEquals(1, config.getWorkerCount());
+		config.setWorkerCount(100);
+		assertEquals(64, config.getWorkerCount());
+		config.setWorkerCount(4);
+		assertEquals(4, config.getWorkerCount());
+
+		assertTrue(config.getAIPlanningThreadCount() >= 1);
+		config.setAIPlanningShare(0);
+		assertEquals(0.01, config.getAIPlanningShare(), 0);
+		config.setAIPlanningShare(2);
+		assertEquals(1, config.getAIPlanningShare(), 0);
+		assertEquals(Runtime.getRuntime().availableProcessors(), config.getAIPlanningThreadCount());
+
+		assertEquals(1000, config.getAIPlanningBudget());
+		config.setAIPlanningBudget(1);
+		assertEquals(10, config.getAIPlanningBudget());
+		config.setAIPlanningBudget(500);
+		assertEquals(500, config.getAIPlanningBudget());
 	}
 
 }
@@ -1,8 +1,11 @@
 package test.networking;
 
+import java.util.List;
+
 import bomber.game.AudioEvent;
 import bomber.networking.ClientNetInterface;
 import bomber.networking.ClientServerAI;
+import bomber.networking.ClientServerLobbyRoom;
 import bomber.networking.ClientServerPlayer;
 import bomber.networking.ClientServerRoom;
 import bomber.networking.ClientThread;
@@ -57,6 +60,16 @@ public class TestClientNetListener implements ClientNetInterface {
 		// server");
 	}
 
+	@Override
+	public void playerListChanged(List<Integer> removedIDs, List<ClientServerPlayer> changedPlayers) {
+		// System.out.println("Client has applied changes of the player list");
+	}
+
+	@Override
+	public void roomListChanged(List<Integer> removedIDs, List<ClientServerLobbyRoom> changedRooms) {
+		// System.out.println("Client has applied changes of the room list");
+	}
+
 	@Override
 	public void roomAccepted() {
 		System.out.println("Client has been accepted into room " + client.getRoomID());
@@ -6,10 +6,13 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.awt.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
 
 import static bomber.game.Block.*;
 import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
 
 /**
  * Tests the physics engine
@@ -28,6 +31,7 @@ public class PhysicsEngineTest
     // locations
     private Point centerForBombs;
     private Point leftOfCenter;
+    private Point twoLeftOfCenter;
     private Point collisionWithSoft;
     private Point collisionWithSolid;
     private Point collisionWithHole;
@@ -59,6 +63,7 @@ public class PhysicsEngineTest
 
         centerForBombs = new Point(3*mult, 5*mult);
         leftOfCenter = new Point(3*mult, 4*mult);
+        twoLeftOfCenter = new Point(3*mult, 3*mult);
         collisionWithSoft = new Point(2*mult+Constants.MAP_BLOCK_TO_GRID_MULTIPLIER-Constants.PLAYER_HEIGHT-1, 7*mult);
         collisionWithSolid = new Point(2*mult+Constants.MAP_BLOCK_TO_GRID_MULTIPLIER-Constants.PLAYER_HEIGHT-1, 8*mult);
         collisionWithHole = new Point(2*mult+Constants.MAP_BLOCK_TO_GRID_MULTIPLIER-Constants.PLAYER_HEIGHT-1, 2*mult);
@@ -109,6 +114,36 @@ public class PhysicsEngineTest
         assertTrue("The player did not move correctly", pos.x==x && pos.y==y);
     }
 
+    /**
+     * Tests that the distance travelled does not depend on the length of the updates
+     */
+    @Test
+    public void subPixelMovement()
+    {
+        int mult = Constants.MAP_BLOCK_TO_GRID_MULTIPLIER;
+        buddy.setPos(new Point(4*mult, mult));
+        buddy.setSpeed(Constants.DEFAULT_PLAYER_SPEED);
+        buddy.getKeyState().setMovement(Movement.DOWN);
+
+        for (int i = 0; i < 1000; i++)
+            engine.update(1);
+        assertEquals("The player did not move correctly with 1ms updates",
+                mult + Constants.DEFAULT_PLAYER_SPEED, buddy.getPos().y);
+
+        buddy.getKeyState().setMovement(Movement.UP);
+        for (int i = 0; i < 125; i++)
+            engine.update(8);
+        assertEquals("The player did not move correctly with 8ms updates", mult, buddy.getPos().y);
+
+        buddy.setPos(new Point(4*mult, mult));
+        buddy.getKeyState().setMovement(Movement.DOWN);
+        for (int i = 0; i < 3; i++)
+            engine.update(1);
+        assertEquals("The player moved a whole pixel too early", mult, buddy.getPos().y);
+        engine.update(1);
+        assertEquals("The player did not carry the sub-pixel remainder", mult + 1, buddy.getPos().y);
+    }
+
     @Test
     public void collisionWithSoftAndSolid()
     {
@@ -122,6 +157,11 @@ public class PhysicsEngineTest
         buddy.setPos(new Point(collisionWithSolid));
         engine.update();
         assertEquals("The collision was not detected correctly.", collisionWithSolid, buddy.getPos());
+
+        // a long update must not take the player through the wall
+        buddy.setSpeed(Constants.HIGH_PLAYER_SPEED);
+        engine.update();
+        assertEquals("The player went through a block.", collisionWithSolid, buddy.getPos());
     }
 
     /**
@@ -231,35 +271,66 @@ public class PhysicsEngineTest
         buddy.getKeyState().setBomb(true);
         engine.update(1); // B1
         buddy.getKeyState().setBomb(false);
-        engine.update(50); // B1 + 50
-        buddy.setPos(leftOfCenter);
+        engine.update(9); // B1 + 9
+        buddy.setPos(twoLeftOfCenter);
         buddy.getKeyState().setBomb(true);
-        engine.update(1); // B2 = B1 + 51
-        engine.update(Constants.DEFAULT_BOMB_TIME-51); //B2+1949 = E1
-        engine.update(51); // E2 = E1 + 51
+        engine.update(1); // B2 = B1 + 10, out of the range of B1
+        buddy.getKeyState().setBomb(false);
+        engine.update(Constants.DEFAULT_BOMB_TIME-10); // B2+1990 = E1
+        engine.update(10); // E2 = E1 + 10
 
         Block[][] gridMap = gameState.getMap().getGridMap();
-        assertEquals("Second explosion did not overlap correctly with the first one", HOLE, gridMap[3][2]);
+        assertEquals("The second bomb exploded together with the first one", 0, gameState.getBombs().size());
+        assertEquals("Second explosion did not overlap correctly with the first one", BLAST, gridMap[3][2]);
         assertEquals("Second explosion did not overlap correctly with the first one", BLAST, gridMap[3][3]);
         assertEquals("Second explosion did not overlap correctly with the first one", BLAST, gridMap[3][4]);
-        assertEquals("Second explosion did not overlap correctly with the first one", BLAST, gridMap[3][5]); 
-        assertNotEquals("Second explosion did not overlap correctly with the first one", BLAST, gridMap[3][6]);
+        assertEquals("Second explosion did not overlap correctly with the first one", BLAST, gridMap[3][5]);
+        assertEquals("Second explosion did not overlap correctly with the first one", BLAST, gridMap[3][6]);
 
-        engine.update(Constants.EXPLOSION_LENGTH-51); // E2 + 1949 = E1 + 2000
-        gridMap = gameState.getMap().getGridMap();
+        engine.update(Constants.EXPLOSION_LENGTH-10); // E2 + 22 = E1 + 32
         assertEquals("First explosion did not clear correctly", BLANK, gridMap[3][6]);
+        assertEquals("First explosion did not clear correctly", BLANK, gridMap[3][5]);
+        assertEquals("The overlapping explosion did not restart its timer", BLAST, gridMap[3][4]);
         assertEquals("First explosion did not clear correctly", BLAST, gridMap[3][3]);
-        assertEquals("First explosion did not clear correctly", BLAST, gridMap[3][4]);
-        assertEquals("First explosion did not clear correctly", BLAST, gridMap[3][5]);
 
-        engine.update(51); // E2 + 2000
-        gridMap = gameState.getMap().getGridMap();
+        engine.update(10); // E2 + 32
+        assertEquals("Second explosion did not clear correctly", HOLE, gridMap[3][2]);
         assertEquals("Second explosion did not clear correctly", BLANK, gridMap[3][3]);
         assertEquals("Second explosion did not clear correctly", BLANK, gridMap[3][4]);
-        assertEquals("Second explosion did not clear correctly", BLANK, gridMap[3][5]);
+        assertTrue("Explosions were left behind", gameState.getBlastList().isEmpty());
 
     }
 
+    @Test
+    public void chainReaction()
+    {
+        buddy.setPos(centerForBombs);
+        buddy.setBombRange(2);
+        buddy.setLives(100);
+        buddy.getKeyState().setBomb(true);
+        engine.update(1); // B1
+        buddy.getKeyState().setBomb(false);
+        engine.update(50); // B1 + 50
+        buddy.setPos(leftOfCenter);
+        buddy.getKeyState().setBomb(true);
+        engine.update(1); // B2 = B1 + 51, in the range of B1
+        buddy.getKeyState().setBomb(false);
+        gameState.getAudioEvents().clear();
+        engine.update(Constants.DEFAULT_BOMB_TIME-51); // E1
+
+        Block[][] gridMap = gameState.getMap().getGridMap();
+        assertEquals("The bomb in the blast did not detonate", 0, gameState.getBombs().size());
+        assertEquals("The chained bomb did not explode", 2,
+                gameState.getAudioEvents().stream().filter(event -> event == AudioEvent.EXPLOSION).count());
+        assertEquals("The blast of the chained bomb did not propagate", BLAST, gridMap[3][3]);
+        assertEquals("The blast of the first bomb did not propagate", BLAST, gridMap[3][6]);
+
+        engine.update(Constants.EXPLOSION_LENGTH);
+        assertEquals("The chained explosion did not clear correctly", BLANK, gridMap[3][3]);
+        assertEquals("The chained explosion did not clear correctly", BLANK, gridMap[3][4]);
+        assertEquals("The chained explosion did not clear correctly", BLANK, gridMap[3][6]);
+    }
+
     @Test
     public void playerKill()
     {
@@ -380,4 +451,139 @@ public class PhysicsEngineTest
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void randomHoles()
+    {
+        buddy.setPos(new Point(centerForBombs));
+        buddy.setLives(10000);
+        Block[][] blocks = map.getGridMap();
+        Block[][] before = new Block[blocks.length][];
+        for (int x = 0; x < blocks.length; x++)
+            before[x] = blocks[x].clone();
+
+        // one hole every update, until there is no room left
+        for (int i = 0; i < blocks.length * blocks[0].length; i++)
+        {
+            gameState.setGameCounter(Constants.HOLES_FIRST_PHASE_BEGINNING);
+            engine.update(Constants.HOLES_FIRST_PHASE_RANDOM_TIMER);
+        }
+
+        for (int x = 0; x < blocks.length; x++)
+            for (int y = 0; y < blocks[0].length; y++)
+            {
+                Block old = before[x][y];
+                if (x == 3 && y == 5)
+                    assertEquals("A hole was put under a player", old, blocks[x][y]);
+                else if (old == SOFT || old == SOLID || old == BLAST || old == HOLE)
+                    assertEquals("A hole was put on a block that does not allow it", old, blocks[x][y]);
+                else
+                    assertEquals("A free block was left without a hole", HOLE, blocks[x][y]);
+            }
+
+        // in the second phase, holes can be put under players
+        gameState.setGameCounter(Constants.HOLES_SECOND_PHASE_BEGINNING);
+        engine.update(Constants.HOLES_SECOND_PHASE_RANDOM_TIMER);
+        assertEquals("The hole was not put under the player", HOLE, map.getGridBlockAt(3, 5));
+    }
+
+    @Test
+    public void seededHoles()
+    {
+        Block[][] blocks = map.getGridMap();
+        Block[][] copy = new Block[blocks.length][];
+        for (int x = 0; x < blocks.length; x++)
+            copy[x] = blocks[x].clone();
+        players.clear();
+        GameState firstState = new GameState(map, players, 42);
+        GameState secondState = new GameState(new Map("Test map", copy, null), new ArrayList<>(), 42);
+        PhysicsEngine first = new PhysicsEngine(firstState);
+        PhysicsEngine second = new PhysicsEngine(secondState);
+
+        firstState.setGameCounter(Constants.HOLES_SECOND_PHASE_BEGINNING);
+        secondState.setGameCounter(Constants.HOLES_SECOND_PHASE_BEGINNING);
+        for (int i = 0; i < 20; i++)
+        {
+            first.update(Constants.HOLES_SECOND_PHASE_RANDOM_TIMER);
+            second.update(Constants.HOLES_SECOND_PHASE_RANDOM_TIMER);
+            for (int x = 0; x < blocks.length; x++)
+                assertArrayEquals("Engines with the same seed put different holes", blocks[x], copy[x]);
+        }
+    }
+
+    /**
+     * Tests that two games with the same seed and inputs stay in sync, however the time is split between calls
+     */
+    @Test
+    public void deterministicSimulation()
+    {
+        PhysicsEngine[] engines = new PhysicsEngine[2];
+        Player[] players = new Player[2];
+        for (int i = 0; i < 2; i++)
+        {
+            Block[][] blocks = map.getGridMap();
+            Block[][] copy = new Block[blocks.length][];
+            for (int x = 0; x < blocks.length; x++)
+                copy[x] = blocks[x].clone();
+            players[i] = new Player("Buddy", new Point(4*Constants.MAP_BLOCK_TO_GRID_MULTIPLIER + 10, 10), 3,
+                    Constants.DEFAULT_PLAYER_SPEED);
+            ArrayList<Player> list = new ArrayList<>();
+            list.add(players[i]);
+            GameState state = new GameState(new Map("Test map", copy, null), list, 7);
+            state.setGameCounter(Constants.HOLES_FIRST_PHASE_BEGINNING - 1000);
+            engines[i] = new PhysicsEngine(state);
+        }
+
+        Movement[] script = {Movement.DOWN, Movement.RIGHT, Movement.UP, Movement.LEFT};
+        int ticks = 0;
+        for (int step = 0; step < 400; step++)
+        {
+            for (Player player : players)
+            {
+                player.getKeyState().setMovement(script[step / 25 % script.length]);
+                player.getKeyState().setBomb(step % 40 == 0);
+            }
+            // the same amount of time, given in one call or in uneven pieces
+            ticks += engines[0].advance(30);
+            engines[1].advance(7);
+            engines[1].advance(23);
+            assertEquals("The games went out of sync", engines[0].stateHash(), engines[1].stateHash());
+        }
+        assertEquals("The time was not split into fixed ticks", 400 * 30 / Constants.SIMULATION_TICK_LENGTH, ticks);
+    }
+
+    /**
+     * Tests that a steady-state update (a player moving into a wall, a bomb ticking) allocates no memory
+     */
+    @Test
+    public void steadyStateUpdateDoesNotAllocate()
+    {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        assumeTrue("Allocation counters are not available on this JVM",
+                threadBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+        assumeTrue("Allocation counters are not available on this JVM",
+                allocationBean.isThreadAllocatedMemorySupported());
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+        long threadID = Thread.currentThread().getId();
+
+        buddy.setPos(new Point(collisionWithSolid));
+        buddy.setSpeed(1000);
+        buddy.getKeyState().setMovement(Movement.RIGHT);
+        gameState.getBombs().add(new Bomb("Buddy", new Point(centerForBombs), Integer.MAX_VALUE, 3));
+
+        // warm up, so that the measured updates run compiled code
+        for (int i = 0; i < 20000; i++)
+            engine.update(1);
+
+        long start = allocationBean.getThreadAllocatedBytes(threadID);
+        long counterOverhead = allocationBean.getThreadAllocatedBytes(threadID) - start;
+        start = allocationBean.getThreadAllocatedBytes(threadID);
+        for (int i = 0; i < 10000; i++)
+            engine.update(1);
+        long allocated = allocationBean.getThreadAllocatedBytes(threadID) - start - counterOverhead;
+
+        assertEquals("The collision was not detected correctly.", collisionWithSolid, buddy.getPos());
+        assertEquals("A steady-state update allocated memory", 0, allocated);
+    }
+
+}
@@ -0,0 +1,77 @@
+package test.simulation;
+
+import bomber.AI.AIDifficulty;
+import bomber.game.Block;
+import bomber.game.Map;
+import bomber.simulation.MatchResult;
+import bomber.simulation.MatchSimulator;
+import bomber.simulation.SimulationReport;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static bomber.game.Block.*;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the headless match simulator
+ */
+public class MatchSimulatorTest
+{
+
+    private MatchSimulator simulator;
+
+    @Before
+    public void setUp()
+    {
+        Block[][] blocks = {
+                {SOLID, SOLID, SOLID, SOLID, SOLID, SOLID, SOLID},
+                {SOLID, BLANK, BLANK, SOFT,  BLANK, BLANK, SOLID},
+                {SOLID, BLANK, SOLID, BLANK, SOLID, BLANK, SOLID},
+                {SOLID, SOFT,  BLANK, BLANK, BLANK, SOFT,  SOLID},
+                {SOLID, BLANK, SOLID, BLANK, SOLID, BLANK, SOLID},
+                {SOLID, BLANK, BLANK, SOFT,  BLANK, BLANK, SOLID},
+                {SOLID, SOLID, SOLID, SOLID, SOLID, SOLID, SOLID}
+        };
+        List<Point> spawnPoints = new ArrayList<>();
+        spawnPoints.add(new Point(64, 64));
+        spawnPoints.add(new Point(320, 320));
+        Map map = new Map("Test map", blocks, spawnPoints);
+        simulator = new MatchSimulator(map, new AIDifficulty[]{AIDifficulty.EASY, AIDifficulty.HARD}, 20000);
+    }
+
+    @Test
+    public void sameSeedSameMatch() throws InterruptedException
+    {
+        MatchResult first = simulator.runMatch(3);
+        MatchResult second = simulator.runMatch(3);
+
+        assertTrue("The match did not run", first.getTicks() > 0);
+        assertTrue("The match went on for too long", first.getDuration() <= 20000);
+        assertEquals("The same seed gave a different match", first.getDuration(), second.getDuration());
+        assertEquals("The same seed gave a different match", first.getWinner(), second.getWinner());
+    }
+
+    @Test
+    public void batch()
+    {
+        SimulationReport report = simulator.simulate(0, 4, new ForkJoinPool(2));
+
+        assertEquals("Not all the matches were run", 4, report.getMatches());
+        int wins = report.getWins(AIDifficulty.EASY) + report.getWins(AIDifficulty.HARD);
+        assertEquals("The wins and draws do not add up", 4, wins + report.getDraws());
+        assertEquals("A difficulty that did not play won", 0, report.getWins(AIDifficulty.MEDIUM));
+        assertTrue("No ticks were counted", report.getTicks() > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooManyPlayers()
+    {
+        new MatchSimulator(new Map("Empty", new Block[][]{{BLANK}}, new ArrayList<>()),
+                new AIDifficulty[]{AIDifficulty.EASY, AIDifficulty.EASY}, 1000);
+    }
+}
@@ -8,6 +8,7 @@ import test.audio.AudioManagerTest;
 import test.game.GameTestSuite;
 import test.networking.NetworkingTestSuite;
 import test.physics.PhysicsEngineTest;
+import test.simulation.MatchSimulatorTest;
 
 @RunWith(Suite.class)
 
@@ -17,6 +18,7 @@ import test.physics.PhysicsEngineTest;
 		AITestSuite.class,
 		GameTestSuite.class,
 		PhysicsEngineTest.class,
+		MatchSimulatorTest.class,
 		//UITestSuite.class
 })
 